@@ -1,14 +1,16 @@
 package measurementtools.modid;
 
-import measurementtools.modid.shapes.EllipsoidMode;
+import measurementtools.modid.jfr.BlockCountEvent;
+import measurementtools.modid.shapes.ShapeMask;
 import measurementtools.modid.shapes.ShapeMode;
-import measurementtools.modid.util.SplineMath;
+import measurementtools.modid.shapes.ShapeParameters;
+import measurementtools.modid.util.PerformanceStats;
+import measurementtools.modid.world.BlockSource;
+import measurementtools.modid.world.WorldBlockSource;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.World;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -23,6 +25,11 @@ public class BlockCounter {
     private long lastUpdateTime = 0;
     private static final long CACHE_DURATION_MS = 100;
 
+    // Shape and mask of the selection, kept while the selection and shape settings are unchanged
+    private ShapeParameters cachedShape = null;
+    private ShapeMask cachedMask = null;
+    private long cachedShapeRevision = -1;
+
     private BlockCounter() {}
 
     public static BlockCounter getInstance() {
@@ -42,9 +49,11 @@ public class BlockCounter {
     private void updateCacheIfNeeded() {
         long now = System.currentTimeMillis();
         if (now - lastUpdateTime < CACHE_DURATION_MS) {
+            PerformanceStats.hit(PerformanceStats.Cache.BLOCK_COUNT);
             return;
         }
         lastUpdateTime = now;
+        PerformanceStats.miss(PerformanceStats.Cache.BLOCK_COUNT);
 
         SelectionManager manager = SelectionManager.getInstance();
         if (!manager.hasSelection()) {
@@ -60,7 +69,9 @@ public class BlockCounter {
             return;
         }
 
-        Map<Block, Integer> counts = countBlocksInSelection(client.world, manager);
+        long start = System.nanoTime();
+        Map<Block, Integer> counts = countBlocksInSelection(new WorldBlockSource(client.world), manager);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.COUNTING, System.nanoTime() - start);
 
         // Sort by count descending
         cachedCounts = counts.entrySet().stream()
@@ -75,358 +86,96 @@ public class BlockCounter {
         cachedTotalBlocks = counts.values().stream().mapToInt(Integer::intValue).sum();
     }
 
-    private Map<Block, Integer> countBlocksInSelection(World world, SelectionManager manager) {
-        Map<Block, Integer> counts = new HashMap<>();
-        ShapeMode mode = manager.getShapeMode();
-
-        switch (mode) {
-            case RECTANGLE -> countRectangle(world, manager, counts);
-            case CYLINDER -> countCylinder(world, manager, counts);
-            case ELLIPSOID -> countEllipsoid(world, manager, counts);
-            case SPLINE -> countSpline(world, manager, counts);
-            case LINE -> countLine(world, manager, counts);
-        }
-
-        return counts;
-    }
-
-    private void countRectangle(World world, SelectionManager manager, Map<Block, Integer> counts) {
-        BlockPos minPos = manager.getMinPos();
-        BlockPos maxPos = manager.getMaxPos();
-        if (minPos == null || maxPos == null) return;
-
-        for (int x = minPos.getX(); x <= maxPos.getX(); x++) {
-            for (int y = minPos.getY(); y <= maxPos.getY(); y++) {
-                for (int z = minPos.getZ(); z <= maxPos.getZ(); z++) {
-                    BlockPos pos = new BlockPos(x, y, z);
-                    addBlockToCount(world, pos, counts);
-                }
-            }
-        }
-    }
-
-    private void countCylinder(World world, SelectionManager manager, Map<Block, Integer> counts) {
-        BlockPos center = manager.getCenterBlock();
-        if (center == null) return;
-
-        double radius = manager.getMaxRadiusXZ() + manager.getCylinderRadiusOffsetBlocks();
-        if (radius < 0.5) radius = 0.5;
-
-        int minY = manager.getMinY();
-        int maxY = manager.getMaxY();
-
-        double centerX = center.getX() + 0.5;
-        double centerZ = center.getZ() + 0.5;
-
-        // Calculate bounding box for iteration
-        int minX = (int) Math.floor(centerX - radius - 1);
-        int maxX = (int) Math.ceil(centerX + radius + 1);
-        int minZ = (int) Math.floor(centerZ - radius - 1);
-        int maxZ = (int) Math.ceil(centerZ + radius + 1);
-
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    double blockCenterX = x + 0.5;
-                    double blockCenterZ = z + 0.5;
-
-                    double dx = blockCenterX - centerX;
-                    double dz = blockCenterZ - centerZ;
-                    double distance = Math.sqrt(dx * dx + dz * dz);
-
-                    if (distance <= radius + 0.5) {
-                        BlockPos pos = new BlockPos(x, y, z);
-                        addBlockToCount(world, pos, counts);
-                    }
-                }
-            }
-        }
-    }
-
-    private void countEllipsoid(World world, SelectionManager manager, Map<Block, Integer> counts) {
-        double centerX, centerY, centerZ;
-        double radiusX, radiusY, radiusZ;
-
-        if (manager.getEllipsoidMode() == EllipsoidMode.FIT_TO_BOX) {
-            // Fit ellipsoid inside bounding box
-            BlockPos minPos = manager.getMinPos();
-            BlockPos maxPos = manager.getMaxPos();
-            if (minPos == null || maxPos == null) return;
-
-            centerX = (minPos.getX() + maxPos.getX() + 1) / 2.0;
-            centerY = (minPos.getY() + maxPos.getY() + 1) / 2.0;
-            centerZ = (minPos.getZ() + maxPos.getZ() + 1) / 2.0;
-
-            radiusX = (maxPos.getX() - minPos.getX() + 1) / 2.0;
-            radiusY = (maxPos.getY() - minPos.getY() + 1) / 2.0;
-            radiusZ = (maxPos.getZ() - minPos.getZ() + 1) / 2.0;
-        } else {
-            // CENTER_RADIUS mode: first block is center, furthest defines XZ radius
-            BlockPos center = manager.getCenterBlock();
-            if (center == null) return;
-
-            centerX = center.getX() + 0.5;
-            centerZ = center.getZ() + 0.5;
-
-            double radiusXZ = manager.getMaxRadiusXZ();
-            if (radiusXZ < 0.5) radiusXZ = 0.5;
-            radiusX = radiusXZ;
-            radiusZ = radiusXZ;
-
-            int minY = manager.getMinY();
-            int maxY = manager.getMaxY();
-            radiusY = (maxY - minY + 1) / 2.0;
-            centerY = (minY + maxY + 1) / 2.0;
-        }
-
-        if (radiusX < 0.5) radiusX = 0.5;
-        if (radiusY < 0.5) radiusY = 0.5;
-        if (radiusZ < 0.5) radiusZ = 0.5;
-
-        // Calculate bounding box for iteration
-        int iterMinX = (int) Math.floor(centerX - radiusX - 1);
-        int iterMaxX = (int) Math.ceil(centerX + radiusX + 1);
-        int iterMinY = (int) Math.floor(centerY - radiusY - 1);
-        int iterMaxY = (int) Math.ceil(centerY + radiusY + 1);
-        int iterMinZ = (int) Math.floor(centerZ - radiusZ - 1);
-        int iterMaxZ = (int) Math.ceil(centerZ + radiusZ + 1);
-
-        for (int x = iterMinX; x <= iterMaxX; x++) {
-            for (int y = iterMinY; y <= iterMaxY; y++) {
-                for (int z = iterMinZ; z <= iterMaxZ; z++) {
-                    double blockCenterX = x + 0.5;
-                    double blockCenterY = y + 0.5;
-                    double blockCenterZ = z + 0.5;
-
-                    double dx = (blockCenterX - centerX) / radiusX;
-                    double dy = (blockCenterY - centerY) / radiusY;
-                    double dz = (blockCenterZ - centerZ) / radiusZ;
-
-                    double ellipsoidValue = dx * dx + dy * dy + dz * dz;
-
-                    double minRadius = Math.min(Math.min(radiusX, radiusY), radiusZ);
-                    if (ellipsoidValue <= 1.0 + 0.5 / minRadius) {
-                        BlockPos pos = new BlockPos(x, y, z);
-                        addBlockToCount(world, pos, counts);
-                    }
-                }
-            }
-        }
+    private Map<Block, Integer> countBlocksInSelection(BlockSource source, SelectionManager manager) {
+        refreshShape(manager);
+        return countBlocks(source, cachedShape, cachedMask);
     }
 
-    private static final int SPLINE_SAMPLES_PER_SEGMENT = 32;
-    private static final int DISTANCE_SAMPLES_PER_SEGMENT = 16;
-
-    private void countSpline(World world, SelectionManager manager, Map<Block, Integer> counts) {
-        java.util.List<BlockPos> selection = manager.getSelectedBlocks();
-        if (selection.size() < 2) return;
-
-        int tubeRadius = manager.getSplineRadius();
-        if (tubeRadius == 0) {
-            countSplinePath(world, selection, counts);
-            return;
-        }
-
-        Vec3d[] points = SplineMath.blockPosListToVec3d(selection);
-        java.util.Set<BlockPos> tubeBlocks = new java.util.HashSet<>();
-        int n = points.length;
-
-        for (int i = 0; i < n - 1; i++) {
-            Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-            Vec3d p1 = points[i];
-            Vec3d p2 = points[i + 1];
-            Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-            for (int seg = 0; seg <= SPLINE_SAMPLES_PER_SEGMENT; seg++) {
-                double t = (double) seg / SPLINE_SAMPLES_PER_SEGMENT;
-                Vec3d center = SplineMath.catmullRom(p0, p1, p2, p3, t);
-
-                for (int dx = -tubeRadius; dx <= tubeRadius; dx++) {
-                    for (int dy = -tubeRadius; dy <= tubeRadius; dy++) {
-                        for (int dz = -tubeRadius; dz <= tubeRadius; dz++) {
-                            int blockX = (int) Math.floor(center.x) + dx;
-                            int blockY = (int) Math.floor(center.y) + dy;
-                            int blockZ = (int) Math.floor(center.z) + dz;
-
-                            BlockPos blockPos = new BlockPos(blockX, blockY, blockZ);
-                            if (tubeBlocks.contains(blockPos)) continue;
-
-                            Vec3d blockCenter = new Vec3d(blockX + 0.5, blockY + 0.5, blockZ + 0.5);
-                            double minDist = SplineMath.getMinDistanceToSpline(blockCenter, points, DISTANCE_SAMPLES_PER_SEGMENT);
-                            if (minDist <= tubeRadius + 0.5) {
-                                tubeBlocks.add(blockPos);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        for (BlockPos pos : tubeBlocks) {
-            addBlockToCount(world, pos, counts);
-        }
-    }
-
-    private void countSplinePath(World world, java.util.List<BlockPos> selection, Map<Block, Integer> counts) {
-        if (selection.size() < 2) return;
-
-        Vec3d[] points = SplineMath.blockPosListToVec3d(selection);
-        java.util.Set<BlockPos> pathBlocks = new java.util.HashSet<>();
-        int n = points.length;
-
-        for (int i = 0; i < n - 1; i++) {
-            Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-            Vec3d p1 = points[i];
-            Vec3d p2 = points[i + 1];
-            Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-            for (int seg = 0; seg <= SPLINE_SAMPLES_PER_SEGMENT; seg++) {
-                double t = (double) seg / SPLINE_SAMPLES_PER_SEGMENT;
-                Vec3d point = SplineMath.catmullRom(p0, p1, p2, p3, t);
-
-                int blockX = (int) Math.floor(point.x);
-                int blockY = (int) Math.floor(point.y);
-                int blockZ = (int) Math.floor(point.z);
-
-                pathBlocks.add(new BlockPos(blockX, blockY, blockZ));
-            }
-        }
-
-        for (BlockPos pos : pathBlocks) {
-            addBlockToCount(world, pos, counts);
-        }
-    }
-
-    private void countLine(World world, SelectionManager manager, Map<Block, Integer> counts) {
-        java.util.List<BlockPos> selection = manager.getSelectedBlocks();
-        if (selection.size() < 2) return;
-
-        int tubeRadius = manager.getSplineRadius();
-        if (tubeRadius == 0) {
-            countLinePath(world, selection, counts);
+    /**
+     * Rebuilds the cached shape and its mask only when the selection revision or a shape
+     * setting that does not move the revision has changed.
+     */
+    private void refreshShape(SelectionManager manager) {
+        if (cachedShape != null
+                && cachedShapeRevision == manager.getRevision()
+                && cachedShape.getShapeMode() == manager.getShapeMode()
+                && cachedShape.getVoxelMask() == manager.getVoxelMask()
+                && cachedShape.getSplineRadius() == manager.getSplineRadius()
+                && Double.compare(cachedShape.getCylinderRadiusOffsetBlocks(), manager.getCylinderRadiusOffsetBlocks()) == 0
+                && cachedShape.getEllipsoidMode() == manager.getEllipsoidMode()) {
             return;
         }
-
-        // Count blocks inside the tube around the line segments
-        java.util.Set<BlockPos> tubeBlocks = new java.util.HashSet<>();
-
-        for (int i = 0; i < selection.size() - 1; i++) {
-            BlockPos from = selection.get(i);
-            BlockPos to = selection.get(i + 1);
-
-            Vec3d start = new Vec3d(from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5);
-            Vec3d end = new Vec3d(to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5);
-            Vec3d direction = end.subtract(start).normalize();
-            double segmentLength = start.distanceTo(end);
-
-            int samples = Math.max(1, (int) Math.ceil(segmentLength * 2));
-
-            for (int s = 0; s <= samples; s++) {
-                double t = (double) s / samples;
-                Vec3d center = start.add(end.subtract(start).multiply(t));
-
-                // Check all blocks within the tube radius
-                for (int dx = -tubeRadius; dx <= tubeRadius; dx++) {
-                    for (int dy = -tubeRadius; dy <= tubeRadius; dy++) {
-                        for (int dz = -tubeRadius; dz <= tubeRadius; dz++) {
-                            int blockX = (int) Math.floor(center.x) + dx;
-                            int blockY = (int) Math.floor(center.y) + dy;
-                            int blockZ = (int) Math.floor(center.z) + dz;
-
-                            BlockPos blockPos = new BlockPos(blockX, blockY, blockZ);
-                            if (tubeBlocks.contains(blockPos)) continue;
-
-                            Vec3d blockCenter = new Vec3d(blockX + 0.5, blockY + 0.5, blockZ + 0.5);
-                            double minDist = getMinDistanceToLineSegments(blockCenter, selection);
-                            if (minDist <= tubeRadius + 0.5) {
-                                tubeBlocks.add(blockPos);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        for (BlockPos pos : tubeBlocks) {
-            addBlockToCount(world, pos, counts);
-        }
-    }
-
-    private void countLinePath(World world, java.util.List<BlockPos> selection, Map<Block, Integer> counts) {
-        java.util.Set<BlockPos> lineBlocks = new java.util.HashSet<>();
-
-        for (int i = 0; i < selection.size() - 1; i++) {
-            BlockPos from = selection.get(i);
-            BlockPos to = selection.get(i + 1);
-            traceLineBlocks(from, to, lineBlocks);
-        }
-
-        for (BlockPos pos : lineBlocks) {
-            addBlockToCount(world, pos, counts);
-        }
+        cachedShape = ShapeParameters.of(manager);
+        cachedMask = ShapeMask.fromSelection(cachedShape);
+        cachedShapeRevision = manager.getRevision();
     }
 
     /**
-     * Gets the minimum distance from a point to any of the line segments.
+     * Counts non-air blocks in a shape given explicitly.
      */
-    private double getMinDistanceToLineSegments(Vec3d point, java.util.List<BlockPos> selection) {
-        double minDist = Double.MAX_VALUE;
-
-        for (int i = 0; i < selection.size() - 1; i++) {
-            BlockPos from = selection.get(i);
-            BlockPos to = selection.get(i + 1);
-
-            Vec3d start = new Vec3d(from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5);
-            Vec3d end = new Vec3d(to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5);
+    public Map<Block, Integer> countBlocks(BlockSource source, ShapeParameters shape) {
+        return countBlocks(source, shape, ShapeMask.fromSelection(shape));
+    }
 
-            double dist = pointToSegmentDistance(point, start, end);
-            if (dist < minDist) {
-                minDist = dist;
-            }
+    private Map<Block, Integer> countBlocks(BlockSource source, ShapeParameters shape, ShapeMask mask) {
+        String shapeMode = shape.getVoxelMask() != null ? "MASK" : shape.getShapeMode().name();
+        if (shape.getVoxelMask() == null && shape.getShapeMode() == ShapeMode.RECTANGLE) {
+            return countBlocks(source, null, shape.getMinPos(), shape.getMaxPos(), shapeMode);
         }
 
-        return minDist;
+        // Voxel masks, round shapes, splines and lines share their membership rules with shape-masked copy
+        return mask != null ? countBlocks(source, mask, null, null, shapeMode) : new HashMap<>();
     }
 
     /**
-     * Calculates the distance from a point to a line segment.
+     * Counts non-air blocks in a mask, or in the box from minPos to maxPos when mask is null.
+     * Must be called on the client thread when reading a live world.
      */
-    private double pointToSegmentDistance(Vec3d point, Vec3d segStart, Vec3d segEnd) {
-        Vec3d segment = segEnd.subtract(segStart);
-        Vec3d toPoint = point.subtract(segStart);
-
-        double segLengthSq = segment.lengthSquared();
-        if (segLengthSq < 0.0001) {
-            return point.distanceTo(segStart);
+    public Map<Block, Integer> countBlocks(BlockSource source, ShapeMask mask, BlockPos minPos, BlockPos maxPos) {
+        return countBlocks(source, mask, minPos, maxPos, mask != null ? "MASK" : "RECTANGLE");
+    }
+
+    private Map<Block, Integer> countBlocks(BlockSource source, ShapeMask mask, BlockPos minPos, BlockPos maxPos,
+                                            String shapeMode) {
+        BlockCountEvent event = new BlockCountEvent();
+        event.begin();
+        Map<Block, Integer> counts = countInto(source, mask, minPos, maxPos);
+        event.end();
+
+        // Filling in the fields walks the result, so only do it when the event is recorded
+        if (event.shouldCommit()) {
+            event.shapeMode = shapeMode;
+            event.voxels = mask != null ? mask.getBlockCount() : minPos == null || maxPos == null ? 0
+                : (long) (maxPos.getX() - minPos.getX() + 1) * (maxPos.getY() - minPos.getY() + 1)
+                    * (maxPos.getZ() - minPos.getZ() + 1);
+            event.blocks = counts.values().stream().mapToLong(Integer::longValue).sum();
+            event.commit();
         }
-
-        double t = Math.max(0, Math.min(1, toPoint.dotProduct(segment) / segLengthSq));
-        Vec3d projection = segStart.add(segment.multiply(t));
-        return point.distanceTo(projection);
+        return counts;
     }
 
-    /**
-     * Traces blocks along a straight line between two points using 3D DDA algorithm.
-     */
-    private void traceLineBlocks(BlockPos from, BlockPos to, java.util.Set<BlockPos> blocks) {
-        Vec3d start = new Vec3d(from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5);
-        Vec3d end = new Vec3d(to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5);
-
-        double distance = start.distanceTo(end);
-        int samples = Math.max(1, (int) Math.ceil(distance * 2)); // 2 samples per block
+    private Map<Block, Integer> countInto(BlockSource source, ShapeMask mask, BlockPos minPos, BlockPos maxPos) {
+        Map<Block, Integer> counts = new HashMap<>();
 
-        for (int s = 0; s <= samples; s++) {
-            double t = (double) s / samples;
-            double x = start.x + (end.x - start.x) * t;
-            double y = start.y + (end.y - start.y) * t;
-            double z = start.z + (end.z - start.z) * t;
+        if (mask != null) {
+            mask.forEach((x, y, z) -> addBlockToCount(source, x, y, z, counts));
+            return counts;
+        }
+        if (minPos == null || maxPos == null) return counts;
 
-            blocks.add(new BlockPos((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z)));
+        // Walk Y, then Z, then X so consecutive reads stay within one section
+        for (int y = minPos.getY(); y <= maxPos.getY(); y++) {
+            for (int z = minPos.getZ(); z <= maxPos.getZ(); z++) {
+                for (int x = minPos.getX(); x <= maxPos.getX(); x++) {
+                    addBlockToCount(source, x, y, z, counts);
+                }
+            }
         }
+        return counts;
     }
 
-    private void addBlockToCount(World world, BlockPos pos, Map<Block, Integer> counts) {
-        BlockState state = world.getBlockState(pos);
+    private void addBlockToCount(BlockSource source, int x, int y, int z, Map<Block, Integer> counts) {
+        BlockState state = source.getBlockState(x, y, z);
         if (state.isAir()) return;
 
         Block block = state.getBlock();
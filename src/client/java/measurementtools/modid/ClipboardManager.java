@@ -1,21 +1,29 @@
 package measurementtools.modid;
 
+import measurementtools.modid.clipboard.BlockDesign;
+import measurementtools.modid.clipboard.PalettedBlockVolume;
+import measurementtools.modid.clipboard.SectionCopyTask;
+import measurementtools.modid.clipboard.SectionedBlocks;
+import measurementtools.modid.jfr.ClipboardCopyEvent;
+import measurementtools.modid.shapes.ShapeParameters;
+import measurementtools.modid.util.BackgroundTasks;
+import measurementtools.modid.world.WorldBlockSource;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.util.BlockRotation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ClipboardManager {
     private static final ClipboardManager INSTANCE = new ClipboardManager();
 
-    // Clipboard storage: relative positions (from origin 0,0,0) with their BlockStates
-    private final Map<BlockPos, BlockState> clipboardBlocks = new HashMap<>();
+    // Clipboard storage: palette-packed box relative to origin (0,0,0), wrapped in a shared design.
+    // Replaced (never mutated) on copy so background tasks, placements and history can share it.
+    // Volatile so a queued precompute can see that its design has been replaced.
+    private volatile BlockDesign clipboardDesign = BlockDesign.of(new PalettedBlockVolume(0, 0, 0));
 
     // Paste preview state
     private boolean pastePreviewActive = false;
@@ -24,15 +32,15 @@ public class ClipboardManager {
     // Rotation state (0, 1, 2, 3 = 0°, 90°, 180°, 270° clockwise around Y axis)
     private int previewRotation = 0;
 
-    // Cached rotated blocks (invalidated when rotation changes)
-    private Map<BlockPos, BlockState> rotatedClipboardBlocks = null;
-    private int cachedRotation = -1;
+    // Copy in progress, advanced a time slice per client tick
+    private SectionCopyTask activeCopy = null;
+    private World activeCopyWorld = null;
+    private String activeCopyShapeMode = null;
+    // Whether the preview has switched to the copy's finished sections yet
+    private boolean activeCopyShown = false;
+    private static final long COPY_BUDGET_NANOS = 4_000_000L;
 
-    // Clipboard dimensions for rotation pivot
-    private int clipboardSizeX = 0;
-    private int clipboardSizeZ = 0;
-
-    // Locked placements: each entry is (anchorPos, relativeBlocks with states)
+    // Locked placements: each entry is (anchorPos, shared design, rotation)
     private final List<LockedPlacement> lockedPlacements = new ArrayList<>();
 
     // Layer view for locked placements (after pasting)
@@ -47,7 +55,11 @@ public class ClipboardManager {
 
     /**
      * Copies the current selection from SelectionManager into the clipboard.
-     * Blocks are stored relative to the selection's minimum corner.
+     * Blocks are stored relative to the minimum corner of the active shape.
+     * Only blocks inside the shape are copied (the whole box in rectangle mode),
+     * section by section; small copies finish immediately, larger ones continue
+     * in tickCopy. Finished sections are previewed and can be pasted while the
+     * rest are copied; the clipboard design is replaced once the copy is done.
      */
     public void copySelection(World world) {
         SelectionManager manager = SelectionManager.getInstance();
@@ -55,135 +67,160 @@ public class ClipboardManager {
             return;
         }
 
-        clipboardBlocks.clear();
-        rotatedClipboardBlocks = null;
-        cachedRotation = -1;
-        previewRotation = 0;
+        ShapeParameters shape = ShapeParameters.of(manager);
+        SectionCopyTask task = SectionCopyTask.forShape(new WorldBlockSource(world), shape);
+        if (task == null) return;
+
+        activeCopy = task;
+        activeCopyShown = false;
+        activeCopyWorld = world;
+        activeCopyShapeMode = shape.getVoxelMask() != null ? "MASK" : shape.getShapeMode().name();
+        tickCopy(world);
+    }
+
+    /**
+     * Advances a copy in progress by one time slice. Call once per client tick.
+     */
+    public void tickCopy(World world) {
+        if (activeCopy == null) return;
+
+        // The world changed (dimension switch or disconnect); keep what was copied so far,
+        // which is nothing while the shape mask was still being rasterized
+        if (activeCopyWorld != world) {
+            PalettedBlockVolume copied = activeCopy.getTarget();
+            setClipboardContents(copied != null ? copied : new PalettedBlockVolume(0, 0, 0));
+            activeCopy = null;
+            return;
+        }
 
-        BlockPos origin = manager.getMinPos();
-        if (origin == null) return;
+        ClipboardCopyEvent event = new ClipboardCopyEvent();
+        event.begin();
+        int sectionsBefore = activeCopy.getProcessedSections();
+        boolean completed = activeCopy.step(System.nanoTime() + COPY_BUDGET_NANOS);
+        event.end();
+        if (event.shouldCommit()) {
+            event.shapeMode = activeCopyShapeMode;
+            event.sections = activeCopy.getProcessedSections() - sectionsBefore;
+            event.totalSections = activeCopy.getTotalSections();
+            event.voxels = activeCopy.getTarget() != null ? activeCopy.getTarget().getBlockCount() : 0;
+            event.completed = completed;
+            event.commit();
+        }
 
-        for (BlockPos pos : manager.getSelectedBlocks()) {
-            BlockState state = world.getBlockState(pos);
-            if (!state.isAir()) {
-                // Store relative to origin
-                BlockPos relativePos = pos.subtract(origin);
-                clipboardBlocks.put(relativePos, state);
-            }
+        // The old design stays on screen, with its rotation, until the copy has a box to show
+        if (!activeCopyShown && activeCopy.getCopiedSections() != null) {
+            activeCopyShown = true;
+            previewRotation = 0;
         }
 
-        // Also capture all blocks within the bounding box (not just selected positions)
-        BlockPos maxPos = manager.getMaxPos();
-        if (maxPos != null) {
-            // Store clipboard dimensions for rotation
-            clipboardSizeX = maxPos.getX() - origin.getX();
-            clipboardSizeZ = maxPos.getZ() - origin.getZ();
-
-            for (int x = origin.getX(); x <= maxPos.getX(); x++) {
-                for (int y = origin.getY(); y <= maxPos.getY(); y++) {
-                    for (int z = origin.getZ(); z <= maxPos.getZ(); z++) {
-                        BlockPos pos = new BlockPos(x, y, z);
-                        BlockState state = world.getBlockState(pos);
-                        if (!state.isAir()) {
-                            BlockPos relativePos = pos.subtract(origin);
-                            clipboardBlocks.put(relativePos, state);
-                        }
-                    }
-                }
-            }
+        // The preview reads finished sections straight from the target; the target itself
+        // becomes the clipboard design once complete, so it is never cloned while copying
+        if (completed) {
+            setClipboardContents(activeCopy.getTarget());
+            activeCopy = null;
         }
     }
 
-    public boolean hasClipboardData() {
-        return !clipboardBlocks.isEmpty();
+    public boolean isCopyInProgress() {
+        return activeCopy != null;
     }
 
     /**
-     * Gets the clipboard blocks with current rotation applied.
+     * Progress of the copy in progress from 0 to 1, or -1 if no copy is running.
      */
-    public Map<BlockPos, BlockState> getClipboardBlocks() {
-        if (previewRotation == 0) {
-            return clipboardBlocks;
-        }
-        return getRotatedClipboardBlocks();
+    public float getCopyProgress() {
+        return activeCopy != null ? activeCopy.getProgress() : -1;
     }
 
     /**
-     * Gets the raw (unrotated) clipboard blocks.
+     * Replaces the clipboard contents and starts precomputing all rotation variants
+     * in the background so that rotating the preview never rebuilds data in a frame.
+     * Only finished copies and loads land here. A precompute still queued for an earlier
+     * design stops as soon as it runs, so stale jobs don't hold up the shared worker.
      */
-    public Map<BlockPos, BlockState> getRawClipboardBlocks() {
-        return clipboardBlocks;
+    private void setClipboardContents(PalettedBlockVolume blocks) {
+        setClipboardDesign(BlockDesign.of(blocks));
     }
 
     /**
-     * Gets the cached rotated clipboard blocks, computing if necessary.
+     * Mapped designs are not precomputed: the preview pages them in section by section,
+     * and they are only decoded when something needs the whole volume.
      */
-    private Map<BlockPos, BlockState> getRotatedClipboardBlocks() {
-        if (rotatedClipboardBlocks == null || cachedRotation != previewRotation) {
-            rotatedClipboardBlocks = computeRotatedBlocks(clipboardBlocks, previewRotation);
-            cachedRotation = previewRotation;
-        }
-        return rotatedClipboardBlocks;
+    private void setClipboardDesign(BlockDesign design) {
+        clipboardDesign = design;
+        if (design.isEmpty() || !design.isDecoded()) return;
+
+        BackgroundTasks.submit(() -> {
+            design.precomputeAll(() -> clipboardDesign == design);
+            return design;
+        });
     }
 
     /**
-     * Computes rotated block positions and states.
-     * Rotation is clockwise around Y axis when viewed from above.
+     * Replaces the clipboard with loaded block data (e.g. from a schematic file).
      */
-    private Map<BlockPos, BlockState> computeRotatedBlocks(Map<BlockPos, BlockState> blocks, int rotation) {
-        if (rotation == 0) {
-            return new HashMap<>(blocks);
-        }
+    public void loadClipboard(PalettedBlockVolume volume) {
+        loadClipboard(BlockDesign.of(volume));
+    }
 
-        Map<BlockPos, BlockState> rotated = new HashMap<>();
-        BlockRotation blockRotation = getBlockRotation(rotation);
+    /**
+     * Replaces the clipboard with a design, e.g. a library entry that is previewed
+     * straight from its mapped file.
+     */
+    public void loadClipboard(BlockDesign design) {
+        activeCopy = null;
+        previewRotation = 0;
+        setClipboardDesign(design);
+    }
 
-        for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
-            BlockPos pos = entry.getKey();
-            BlockState state = entry.getValue();
+    public boolean hasClipboardData() {
+        SectionedBlocks copied = getCopiedSections();
+        return copied != null ? copied.getBlockCount() > 0 : !clipboardDesign.isEmpty();
+    }
 
-            // Rotate position around origin
-            BlockPos rotatedPos = rotatePosition(pos, rotation);
+    /**
+     * Gets the sections a running copy has finished, which the preview shows instead of the
+     * clipboard design. Null when no copy is running or it has no box yet. Client thread only.
+     */
+    public SectionedBlocks getCopiedSections() {
+        return activeCopy != null ? activeCopy.getCopiedSections() : null;
+    }
 
-            // Rotate block state (handles directional blocks like stairs, logs, etc.)
-            BlockState rotatedState = state.rotate(blockRotation);
+    /**
+     * Gets the packed clipboard volume with current rotation applied.
+     */
+    public PalettedBlockVolume getClipboardVolume() {
+        return clipboardDesign.getVolume(previewRotation);
+    }
 
-            rotated.put(rotatedPos, rotatedState);
-        }
+    /**
+     * Gets the raw (unrotated) packed clipboard volume, decoding a mapped design.
+     */
+    public PalettedBlockVolume getRawClipboardVolume() {
+        return clipboardDesign.getSource();
+    }
 
-        return rotated;
+    /**
+     * Gets the shared design behind the clipboard.
+     */
+    public BlockDesign getClipboardDesign() {
+        return clipboardDesign;
     }
 
     /**
-     * Rotates a position around the Y axis.
-     * The rotation pivot is at the corner (0, y, 0).
+     * Gets the design to paste or save. While a copy is running this is a snapshot of the
+     * sections copied so far, the only point at which a running copy is cloned.
      */
-    private BlockPos rotatePosition(BlockPos pos, int rotation) {
-        int x = pos.getX();
-        int y = pos.getY();
-        int z = pos.getZ();
-
-        return switch (rotation) {
-            case 1 -> // 90° CW: (x, z) -> (sizeZ - z, x)
-                new BlockPos(clipboardSizeZ - z, y, x);
-            case 2 -> // 180°: (x, z) -> (sizeX - x, sizeZ - z)
-                new BlockPos(clipboardSizeX - x, y, clipboardSizeZ - z);
-            case 3 -> // 270° CW (90° CCW): (x, z) -> (z, sizeX - x)
-                new BlockPos(z, y, clipboardSizeX - x);
-            default -> pos;
-        };
+    public BlockDesign getClipboardSnapshot() {
+        if (getCopiedSections() == null) return clipboardDesign;
+        return BlockDesign.of(activeCopy.getTarget().copy());
     }
 
     /**
-     * Converts rotation index to BlockRotation enum.
+     * Gets the raw (unrotated) clipboard blocks.
      */
-    private BlockRotation getBlockRotation(int rotation) {
-        return switch (rotation) {
-            case 1 -> BlockRotation.CLOCKWISE_90;
-            case 2 -> BlockRotation.CLOCKWISE_180;
-            case 3 -> BlockRotation.COUNTERCLOCKWISE_90;
-            default -> BlockRotation.NONE;
-        };
+    public Map<BlockPos, BlockState> getRawClipboardBlocks() {
+        return clipboardDesign.getSource().asMap();
     }
 
     public boolean isPastePreviewActive() {
@@ -287,11 +324,8 @@ public class ClipboardManager {
     private int getLockedPlacementsMaxY() {
         int maxY = 0;
         for (LockedPlacement placement : lockedPlacements) {
-            for (BlockPos pos : placement.getBlocks().keySet()) {
-                if (pos.getY() > maxY) {
-                    maxY = pos.getY();
-                }
-            }
+            // Height is the same for every rotation, and reading it never decodes a mapped design
+            maxY = Math.max(maxY, placement.getDesign().getSections().getSizeY() - 1);
         }
         return maxY;
     }
@@ -316,37 +350,42 @@ public class ClipboardManager {
      * Uses the current rotation.
      */
     public void lockCurrentPlacement() {
-        if (previewAnchorPos == null || clipboardBlocks.isEmpty()) {
+        if (previewAnchorPos == null || !hasClipboardData()) {
             return;
         }
 
-        UndoRedoManager.getInstance().saveState();
-
-        // Create a copy of the clipboard data with current rotation applied
-        Map<BlockPos, BlockState> placementBlocks = new HashMap<>(getClipboardBlocks());
-        lockedPlacements.add(new LockedPlacement(previewAnchorPos, placementBlocks));
+        // Only a reference to the shared design is stored, never a copy of its blocks
+        LockedPlacement placement = new LockedPlacement(previewAnchorPos, getClipboardSnapshot(), previewRotation);
+        lockedPlacements.add(placement);
+        UndoRedoManager.getInstance().recordPlacementAdded(placement);
 
         // Exit preview mode but keep rotation for next paste
         pastePreviewActive = false;
         previewAnchorPos = null;
     }
 
+    /**
+     * Adds a locked placement from loaded block data (e.g. from a schematic file).
+     */
+    public void addLockedPlacement(BlockPos anchorPos, PalettedBlockVolume volume) {
+        LockedPlacement placement = new LockedPlacement(anchorPos, BlockDesign.of(volume), 0);
+        lockedPlacements.add(placement);
+        UndoRedoManager.getInstance().recordPlacementAdded(placement);
+    }
+
     public List<LockedPlacement> getLockedPlacements() {
         return lockedPlacements;
     }
 
     public void clearLockedPlacements() {
-        if (!lockedPlacements.isEmpty()) {
-            UndoRedoManager.getInstance().saveState();
-        }
-        // Clear each placement's block map before clearing the list to help GC
-        for (LockedPlacement placement : lockedPlacements) {
-            placement.clear();
-        }
+        List<LockedPlacement> cleared = List.copyOf(lockedPlacements);
         lockedPlacements.clear();
         // Reset layer view since there's nothing to view
         layerViewEnabled = false;
         currentViewLayer = 0;
+        if (!cleared.isEmpty()) {
+            UndoRedoManager.getInstance().recordPlacementsCleared(cleared);
+        }
     }
 
     /**
@@ -355,14 +394,11 @@ public class ClipboardManager {
      */
     public void setLockedPlacements(List<UndoRedoManager.LockedPlacementData> placementData) {
         // Clear existing without recording history
-        for (LockedPlacement placement : lockedPlacements) {
-            placement.clear();
-        }
         lockedPlacements.clear();
 
         // Restore from data
         for (UndoRedoManager.LockedPlacementData data : placementData) {
-            lockedPlacements.add(new LockedPlacement(data.anchorPos, new HashMap<>(data.blocks)));
+            lockedPlacements.add(new LockedPlacement(data.anchorPos, data.design, data.rotation));
         }
 
         // Reset layer view if no placements
@@ -372,29 +408,57 @@ public class ClipboardManager {
         }
     }
 
+    /**
+     * Appends a placement without recording history (used for undo/redo).
+     */
+    void appendLockedPlacement(UndoRedoManager.LockedPlacementData data) {
+        lockedPlacements.add(new LockedPlacement(data.anchorPos, data.design, data.rotation));
+    }
+
+    /**
+     * Removes the most recent placement if it matches the given data (used for undo/redo).
+     * Returns false and leaves the list untouched if it does not match.
+     */
+    boolean removeLastLockedPlacement(UndoRedoManager.LockedPlacementData data) {
+        if (lockedPlacements.isEmpty()) return false;
+
+        LockedPlacement last = lockedPlacements.get(lockedPlacements.size() - 1);
+        if (last.getDesign() != data.design || last.getRotation() != data.rotation
+            || !last.getAnchorPos().equals(data.anchorPos)) {
+            return false;
+        }
+        lockedPlacements.remove(lockedPlacements.size() - 1);
+        if (lockedPlacements.isEmpty()) {
+            layerViewEnabled = false;
+            currentViewLayer = 0;
+        }
+        return true;
+    }
+
     public void clearClipboard() {
-        clipboardBlocks.clear();
+        activeCopy = null;
+        setClipboardContents(new PalettedBlockVolume(0, 0, 0));
         pastePreviewActive = false;
         previewAnchorPos = null;
     }
 
     /**
-     * Represents a locked ghost block placement at a specific anchor position.
+     * Represents a locked ghost block placement: a shared design at an anchor position and rotation.
      */
     public static class LockedPlacement {
         private static long nextId = 0;
 
         private final long id;
         private final BlockPos anchorPos;
-        private final Map<BlockPos, BlockState> blocks;
-        // Pre-computed set of blocks that have at least one exposed face
-        private Map<BlockPos, BlockState> visibleBlocks;
+        // Shared read-only with the clipboard, history and other placements of the same design
+        private final BlockDesign design;
+        private final int rotation;
 
-        public LockedPlacement(BlockPos anchorPos, Map<BlockPos, BlockState> blocks) {
+        public LockedPlacement(BlockPos anchorPos, BlockDesign design, int rotation) {
             this.id = nextId++;
             this.anchorPos = anchorPos;
-            this.blocks = blocks;
-            this.visibleBlocks = null; // Computed lazily
+            this.design = design;
+            this.rotation = rotation & 3;
         }
 
         public long getId() {
@@ -405,47 +469,31 @@ public class ClipboardManager {
             return anchorPos;
         }
 
+        public BlockDesign getDesign() {
+            return design;
+        }
+
+        public int getRotation() {
+            return rotation;
+        }
+
         public Map<BlockPos, BlockState> getBlocks() {
-            return blocks;
+            return getVolume().asMap();
         }
 
         /**
-         * Returns only blocks that have at least one exposed face (not surrounded on all sides).
-         * This is computed once and cached.
+         * Gets the block data with this placement's rotation applied.
          */
-        public Map<BlockPos, BlockState> getVisibleBlocks() {
-            if (visibleBlocks == null) {
-                visibleBlocks = computeVisibleBlocks();
-            }
-            return visibleBlocks;
-        }
-
-        private Map<BlockPos, BlockState> computeVisibleBlocks() {
-            Map<BlockPos, BlockState> visible = new HashMap<>();
-            for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
-                BlockPos pos = entry.getKey();
-                // Check if any adjacent position is empty (has exposed face)
-                if (!blocks.containsKey(pos.up()) ||
-                    !blocks.containsKey(pos.down()) ||
-                    !blocks.containsKey(pos.north()) ||
-                    !blocks.containsKey(pos.south()) ||
-                    !blocks.containsKey(pos.east()) ||
-                    !blocks.containsKey(pos.west())) {
-                    visible.put(pos, entry.getValue());
-                }
-            }
-            return visible;
+        public PalettedBlockVolume getVolume() {
+            return design.getVolume(rotation);
         }
 
         /**
-         * Clears the internal block map to help garbage collection.
+         * Returns only blocks that have at least one exposed face (not surrounded on all sides).
+         * Computed once per design and rotation, and shared by every placement of it.
          */
-        void clear() {
-            blocks.clear();
-            if (visibleBlocks != null) {
-                visibleBlocks.clear();
-                visibleBlocks = null;
-            }
+        public Map<BlockPos, BlockState> getVisibleBlocks() {
+            return design.getVisibleBlocks(rotation);
         }
     }
 }
@@ -0,0 +1,411 @@
+package measurementtools.modid;
+
+import measurementtools.modid.clipboard.BlockDesign;
+import measurementtools.modid.clipboard.MappedSchematic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * On-disk stack of compressed undo history batches for one world.
+ *
+ * Batches are appended to history.bin and popped from its end, so paging the most
+ * recently spilled batch back in just truncates the file. Block designs referenced by
+ * spilled placements are written once each to designs/&lt;id&gt;.mtv. If the in-memory design has
+ * been collected in the meantime, the file is mapped back in as a mapped design, which the
+ * ghost renderer pages in section by section instead of decoding it onto the heap.
+ *
+ * Each batch header lists the design ids its entries refer to, so when history is kept for
+ * resuming, design files that no batch or the saved state refers to anymore are deleted.
+ *
+ * Compression and writes run on a writer thread owned by the spill, so waiting for them never
+ * waits behind unrelated work on the shared worker; callers use it from the client thread.
+ */
+final class HistorySpill {
+    private static final int BATCH_MAGIC = 0x4D544843; // "MTHC"
+    // Fixed part of a batch header; the referenced design ids follow it
+    private static final int BATCH_HEADER_BYTES = 20;
+    private static final String BATCH_FILE = "history.bin";
+    private static final String STATE_FILE = "state.bin";
+    private static final String DESIGN_DIR = "designs";
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MeasurementTools History");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Spilled batches, oldest first; each completes once its bytes are on disk
+    private final List<CompletableFuture<Batch>> batches = new ArrayList<>();
+    // Design file writes that may still be queued or running
+    private final List<CompletableFuture<Path>> designWrites = new ArrayList<>();
+
+    private final Map<BlockDesign, Integer> designIds = new WeakHashMap<>();
+    private final Map<Integer, WeakReference<BlockDesign>> designsById = new HashMap<>();
+    private int nextDesignId = 0;
+    // Ids handed out since the last push; they belong to the next batch, or to the saved state
+    private final Set<Integer> unbatchedDesignIds = new HashSet<>();
+
+    private HistorySpill(Path directory, FileChannel channel) {
+        this.directory = directory;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the spill for a world directory. Existing batches are kept when resuming
+     * and discarded otherwise.
+     */
+    static HistorySpill open(Path directory, boolean resume) throws IOException {
+        if (!resume) {
+            deleteRecursively(directory);
+        }
+        Files.createDirectories(directory.resolve(DESIGN_DIR));
+
+        FileChannel channel = FileChannel.open(directory.resolve(BATCH_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HistorySpill spill = new HistorySpill(directory, channel);
+        if (resume) {
+            spill.scanExisting();
+        }
+        return spill;
+    }
+
+    /**
+     * Rebuilds the batch index and design counter from files left by a previous session.
+     * A torn batch at the end of the file (from a crash mid-write) is cut off.
+     */
+    private void scanExisting() throws IOException {
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_BYTES);
+        while (position + BATCH_HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.getInt() != BATCH_MAGIC) break;
+
+            int entryCount = header.getInt();
+            int compressedLength = header.getInt();
+            int rawLength = header.getInt();
+            int designCount = header.getInt();
+            if (designCount < 0 || position + BATCH_HEADER_BYTES + designCount * 4L + compressedLength > size) break;
+
+            ByteBuffer ids = ByteBuffer.allocate(designCount * 4);
+            while (ids.hasRemaining()) {
+                if (channel.read(ids, position + BATCH_HEADER_BYTES + ids.position()) < 0) break;
+            }
+            ids.flip();
+            int[] designIds = new int[designCount];
+            ids.asIntBuffer().get(designIds);
+
+            Batch batch = new Batch(position, entryCount, compressedLength, rawLength, designIds);
+            batches.add(CompletableFuture.completedFuture(batch));
+            position = batch.end();
+        }
+        channel.truncate(position);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.resolve(DESIGN_DIR),
+                "*" + MappedSchematic.EXTENSION)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    int id = Integer.parseInt(name.substring(0, name.length() - MappedSchematic.EXTENSION.length()));
+                    nextDesignId = Math.max(nextDesignId, id + 1);
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+    }
+
+    boolean hasBatches() {
+        return !batches.isEmpty();
+    }
+
+    /**
+     * Returns the id a design is stored under, queueing a write of its blocks the first time.
+     */
+    int designId(BlockDesign design) {
+        Integer id = designIds.get(design);
+        if (id != null) {
+            unbatchedDesignIds.add(id);
+            return id;
+        }
+
+        int newId = nextDesignId++;
+        unbatchedDesignIds.add(newId);
+        designIds.put(design, newId);
+        designsById.put(newId, new WeakReference<>(design));
+
+        Path path = designPath(newId);
+        designWrites.removeIf(CompletableFuture::isDone);
+        designWrites.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                // A design that was never decoded is copied as is rather than decoded to be written
+                if (design.isDecoded()) {
+                    MappedSchematic.write(path, design.getSource());
+                } else {
+                    design.getMapped().copyTo(path);
+                }
+                return path;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer));
+        return newId;
+    }
+
+    /**
+     * Resolves a design id, reusing the live design if it is still in memory.
+     */
+    BlockDesign design(int id) throws IOException {
+        WeakReference<BlockDesign> ref = designsById.get(id);
+        BlockDesign design = ref != null ? ref.get() : null;
+        if (design != null) return design;
+
+        design = BlockDesign.ofMapped(MappedSchematic.open(designPath(id)));
+        designIds.put(design, id);
+        designsById.put(id, new WeakReference<>(design));
+        return design;
+    }
+
+    /**
+     * Compresses and appends a batch of serialized entries on the writer thread. The batch
+     * refers to every design id handed out since the previous push.
+     */
+    void push(byte[] raw, int entryCount) {
+        int[] designIds = unbatchedDesignIds.stream().mapToInt(Integer::intValue).toArray();
+        unbatchedDesignIds.clear();
+        batches.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+                    out.write(raw);
+                } finally {
+                    deflater.end();
+                }
+
+                long position = channel.size();
+                ByteBuffer buffer = ByteBuffer.allocate(BATCH_HEADER_BYTES + designIds.length * 4 + compressed.size());
+                buffer.putInt(BATCH_MAGIC).putInt(entryCount).putInt(compressed.size()).putInt(raw.length)
+                    .putInt(designIds.length);
+                for (int id : designIds) {
+                    buffer.putInt(id);
+                }
+                buffer.put(compressed.toByteArray()).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                return new Batch(position, entryCount, compressed.size(), raw.length, designIds);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer));
+    }
+
+    /**
+     * Removes the most recently spilled batch and returns its decompressed entries,
+     * waiting for it to be written first if necessary. Only this spill's own writes are
+     * queued ahead of it, so the wait is at most one batch.
+     */
+    byte[] pop() throws IOException {
+        CompletableFuture<Batch> last = batches.remove(batches.size() - 1);
+        Batch batch;
+        try {
+            batch = last.join();
+        } catch (RuntimeException e) {
+            throw new IOException("History batch was never written", e);
+        }
+
+        ByteBuffer compressed = ByteBuffer.allocate(batch.compressedLength());
+        long position = batch.dataPosition();
+        while (compressed.hasRemaining()) {
+            if (channel.read(compressed, position + compressed.position()) < 0) {
+                throw new IOException("History file is truncated");
+            }
+        }
+        channel.truncate(batch.position());
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            byte[] raw = new byte[batch.rawLength()];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+            if (length != raw.length) throw new IOException("History batch is corrupt");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("History batch is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Drops every spilled batch, e.g. after a batch turned out to be unreadable.
+     */
+    void discardAll() {
+        // A batch still being appended would land after the truncation
+        awaitWrites(batches);
+        batches.clear();
+        unbatchedDesignIds.clear();
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            System.err.println("Failed to discard MeasurementTools undo history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stores the live state for resuming in a later session.
+     */
+    void writeState(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(raw);
+        }
+        Files.write(directory.resolve(STATE_FILE), compressed.toByteArray());
+    }
+
+    /**
+     * Reads the state stored by a previous session, or null if there is none.
+     */
+    byte[] readState() throws IOException {
+        Path path = directory.resolve(STATE_FILE);
+        if (!Files.exists(path)) return null;
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(Files.readAllBytes(path));
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && inflater.needsInput()) throw new IOException("History state is truncated");
+                raw.write(chunk, 0, length);
+            }
+            return raw.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("History state is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Waits for pending writes and closes the file. The files are deleted unless kept for
+     * resuming, in which case only design files nothing refers to anymore are deleted.
+     */
+    void close(boolean keepFiles) {
+        List<CompletableFuture<?>> pending = new ArrayList<>(batches);
+        pending.addAll(designWrites);
+        awaitWrites(pending);
+        writer.shutdown();
+        try {
+            channel.close();
+            if (keepFiles) {
+                pruneDesigns();
+            } else {
+                deleteRecursively(directory);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close MeasurementTools undo history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes design files that no kept batch refers to. Ids handed out since the last push
+     * belong to the state just saved, so they are kept too. Call after all writes finished.
+     */
+    private void pruneDesigns() throws IOException {
+        Set<Integer> referenced = new HashSet<>(unbatchedDesignIds);
+        for (CompletableFuture<Batch> future : batches) {
+            if (future.isCompletedExceptionally()) continue;
+            for (int id : future.join().designIds()) {
+                referenced.add(id);
+            }
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.resolve(DESIGN_DIR),
+                "*" + MappedSchematic.EXTENSION)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    int id = Integer.parseInt(name.substring(0, name.length() - MappedSchematic.EXTENSION.length()));
+                    if (!referenced.contains(id)) {
+                        Files.deleteIfExists(path);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                } catch (IOException e) {
+                    // Still mapped on some platforms; the next close tries again
+                    System.err.println("Failed to delete unused MeasurementTools history design: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the given writes of this spill. Failed writes are reported where their
+     * results are read.
+     */
+    private static void awaitWrites(List<? extends CompletableFuture<?>> writes) {
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        } catch (RuntimeException ignored) {
+            // Already surfaced by pop() or the design lookup
+        }
+    }
+
+    private Path designPath(int id) {
+        return directory.resolve(DESIGN_DIR).resolve(id + MappedSchematic.EXTENSION);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private record Batch(long position, int entryCount, int compressedLength, int rawLength, int[] designIds) {
+        long dataPosition() {
+            return position + BATCH_HEADER_BYTES + designIds.length * 4L;
+        }
+
+        long end() {
+            return dataPosition() + compressedLength;
+        }
+    }
+}
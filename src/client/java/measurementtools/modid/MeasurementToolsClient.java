@@ -1,21 +1,36 @@
 package measurementtools.modid;
 
+import measurementtools.modid.clipboard.SchematicCommands;
 import measurementtools.modid.gui.BlockCountOverlay;
+import measurementtools.modid.gui.PerformanceOverlay;
 import measurementtools.modid.gui.RadialMenuRegistry;
 import measurementtools.modid.gui.RadialMenuScreen;
+import measurementtools.modid.region.NamedSelectionManager;
+import measurementtools.modid.region.RegionCommands;
+import measurementtools.modid.render.MeasurementRenderer;
+import measurementtools.modid.shapes.FloodFillTask;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.hit.HitResult;
 import org.lwjgl.glfw.GLFW;
 
+import java.nio.file.Path;
+
 public class MeasurementToolsClient implements ClientModInitializer {
     private static final KeyBinding.Category KEY_CATEGORY = KeyBinding.Category.create(
         Identifier.of("measurementtools", "main")
@@ -33,7 +48,6 @@ public class MeasurementToolsClient implements ClientModInitializer {
     private boolean rightArrowWasPressed = false;
     private boolean upArrowWasPressed = false;
     private boolean downArrowWasPressed = false;
-    private int lastPreviewRotation = 0;
 
     @Override
     public void onInitializeClient() {
@@ -51,15 +65,57 @@ public class MeasurementToolsClient implements ClientModInitializer {
         // Handle input
         ClientTickEvents.END_CLIENT_TICK.register(this::handleInput);
 
-        // Register HUD overlay for block counts
+        // Register schematic save/load commands
+        SchematicCommands.register();
+        RegionCommands.register();
+
+        // Undo history is kept per world, with old entries spilled to disk
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) ->
+            UndoRedoManager.getInstance().openWorld(getWorldKey(client)));
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) ->
+            UndoRedoManager.getInstance().closeWorld());
+
+        // Named regions are stored per world and recounted when their chunks arrive
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) ->
+            NamedSelectionManager.getInstance().openWorld(getWorldKey(client)));
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) ->
+            NamedSelectionManager.getInstance().closeWorld());
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) ->
+            NamedSelectionManager.getInstance().onChunkLoaded(chunk.getPos()));
+
+        // Register HUD overlays for block counts and performance diagnostics
         HudRenderCallback.EVENT.register((context, tickCounter) -> {
             BlockCountOverlay.getInstance().render(context, tickCounter);
+            PerformanceOverlay.getInstance().render(context, tickCounter);
         });
 
+        // Cached label text refers to font atlases, which are rebuilt on resource reload
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(
+            new SimpleSynchronousResourceReloadListener() {
+                @Override
+                public Identifier getFabricId() {
+                    return Identifier.of("measurementtools", "label_cache");
+                }
+
+                @Override
+                public void reload(ResourceManager manager) {
+                    MeasurementRenderer.getInstance().invalidateLabelCache();
+                }
+            });
+
         // Note: World rendering is handled by WorldRendererMixin
     }
 
     private void handleInput(MinecraftClient client) {
+        // Advance a large clipboard copy that is still running
+        updateClipboardCopy(client);
+
+        // Advance a magic wand selection that is still running
+        updateFloodFill(client);
+
+        // Recount a stored region whose blocks changed
+        NamedSelectionManager.getInstance().tick(client.world);
+
         // Update paste preview position every tick if active
         updatePastePreview(client);
 
@@ -97,6 +153,60 @@ public class MeasurementToolsClient implements ClientModInitializer {
         }
     }
 
+    /**
+     * Identifies the current world for per-world files: the save folder in singleplayer,
+     * the server address in multiplayer.
+     */
+    private static String getWorldKey(MinecraftClient client) {
+        String key;
+        if (client.getServer() != null) {
+            Path saveDir = client.getServer().getSavePath(WorldSavePath.ROOT).toAbsolutePath().normalize();
+            key = "local_" + saveDir.getFileName();
+        } else if (client.getCurrentServerEntry() != null) {
+            key = "server_" + client.getCurrentServerEntry().address;
+        } else {
+            key = "unknown";
+        }
+        return key.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private void updateClipboardCopy(MinecraftClient client) {
+        ClipboardManager clipboard = ClipboardManager.getInstance();
+        if (!clipboard.isCopyInProgress()) return;
+
+        clipboard.tickCopy(client.world);
+
+        if (client.player != null) {
+            if (clipboard.isCopyInProgress()) {
+                int percent = (int) (clipboard.getCopyProgress() * 100);
+                client.player.sendMessage(Text.literal("Copying: " + percent + "%"), true);
+            } else {
+                int count = clipboard.getClipboardDesign().getBlockCount();
+                client.player.sendMessage(Text.literal("Copied " + count + " blocks"), true);
+            }
+        }
+    }
+
+    private void updateFloodFill(MinecraftClient client) {
+        SelectionManager selection = SelectionManager.getInstance();
+        FloodFillTask fill = selection.getActiveFloodFill();
+        if (fill == null) return;
+
+        selection.tickFloodFill(client.world);
+
+        if (client.player != null) {
+            if (selection.getActiveFloodFill() == fill) {
+                client.player.sendMessage(Text.literal("Selecting: " + fill.getBlockCount() + " blocks"), true);
+            } else if (fill.isCancelled()) {
+                client.player.sendMessage(Text.literal("Selection cancelled"), true);
+            } else if (fill.isLimitReached()) {
+                client.player.sendMessage(Text.literal("Selected " + fill.getBlockCount() + " blocks (limit reached)"), true);
+            } else {
+                client.player.sendMessage(Text.literal("Selected " + fill.getBlockCount() + " blocks"), true);
+            }
+        }
+    }
+
     private void updatePastePreview(MinecraftClient client) {
         ClipboardManager clipboard = ClipboardManager.getInstance();
         if (!clipboard.isPastePreviewActive()) return;
@@ -153,13 +263,6 @@ public class MeasurementToolsClient implements ClientModInitializer {
                 showRotationMessage(client, clipboard.getPreviewRotation());
             }
             rightArrowWasPressed = rightPressed;
-
-            // Check if rotation changed and invalidate render cache
-            int currentRotation = clipboard.getPreviewRotation();
-            if (currentRotation != lastPreviewRotation) {
-                lastPreviewRotation = currentRotation;
-                measurementtools.modid.render.MeasurementRenderer.getInstance().invalidateGhostBlockCaches();
-            }
         } else {
             leftArrowWasPressed = false;
             rightArrowWasPressed = false;
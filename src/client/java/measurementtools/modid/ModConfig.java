@@ -20,6 +20,9 @@ public class ModConfig {
 
     private GhostBlockRenderMode ghostBlockRenderMode = GhostBlockRenderMode.WIREFRAME;
     private float ghostBlockOpacity = 0.5f;
+    private boolean resumeUndoHistory = false;
+    private boolean showPerformanceOverlay = false;
+    private float frameBudgetMs = 1.5f;
 
     private ModConfig() {
         load();
@@ -50,6 +53,36 @@ public class ModConfig {
         save();
     }
 
+    public boolean isResumeUndoHistory() {
+        return resumeUndoHistory;
+    }
+
+    public void setResumeUndoHistory(boolean resume) {
+        this.resumeUndoHistory = resume;
+        save();
+    }
+
+    public boolean isShowPerformanceOverlay() {
+        return showPerformanceOverlay;
+    }
+
+    public void setShowPerformanceOverlay(boolean show) {
+        this.showPerformanceOverlay = show;
+        save();
+    }
+
+    /**
+     * Render time per frame the mod aims to stay within, in milliseconds; 0 disables adaptation.
+     */
+    public float getFrameBudgetMs() {
+        return frameBudgetMs;
+    }
+
+    public void setFrameBudgetMs(float budgetMs) {
+        this.frameBudgetMs = Math.max(0.0f, budgetMs);
+        save();
+    }
+
     private void load() {
         if (Files.exists(CONFIG_PATH)) {
             try {
@@ -60,6 +93,9 @@ public class ModConfig {
                         this.ghostBlockRenderMode = data.ghostBlockRenderMode;
                     }
                     this.ghostBlockOpacity = Math.max(0.0f, Math.min(1.0f, data.ghostBlockOpacity));
+                    this.resumeUndoHistory = data.resumeUndoHistory;
+                    this.showPerformanceOverlay = data.showPerformanceOverlay;
+                    this.frameBudgetMs = Math.max(0.0f, data.frameBudgetMs);
                 }
             } catch (IOException e) {
                 System.err.println("Failed to load MeasurementTools config: " + e.getMessage());
@@ -72,6 +108,9 @@ public class ModConfig {
             ConfigData data = new ConfigData();
             data.ghostBlockRenderMode = this.ghostBlockRenderMode;
             data.ghostBlockOpacity = this.ghostBlockOpacity;
+            data.resumeUndoHistory = this.resumeUndoHistory;
+            data.showPerformanceOverlay = this.showPerformanceOverlay;
+            data.frameBudgetMs = this.frameBudgetMs;
             Files.writeString(CONFIG_PATH, GSON.toJson(data));
         } catch (IOException e) {
             System.err.println("Failed to save MeasurementTools config: " + e.getMessage());
@@ -81,5 +120,8 @@ public class ModConfig {
     private static class ConfigData {
         GhostBlockRenderMode ghostBlockRenderMode = GhostBlockRenderMode.WIREFRAME;
         float ghostBlockOpacity = 0.5f;
+        boolean resumeUndoHistory = false;
+        boolean showPerformanceOverlay = false;
+        float frameBudgetMs = 1.5f;
     }
 }
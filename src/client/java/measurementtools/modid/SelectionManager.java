@@ -1,17 +1,23 @@
 package measurementtools.modid;
 
 import measurementtools.modid.shapes.EllipsoidMode;
+import measurementtools.modid.shapes.FloodFillTask;
+import measurementtools.modid.shapes.ShapeMask;
 import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.util.ArcLengthSpline;
+import measurementtools.modid.util.PackedPosSet;
+import measurementtools.modid.world.WorldBlockSource;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class SelectionManager {
     private static final SelectionManager INSTANCE = new SelectionManager();
 
-    private final List<BlockPos> selectedBlocks = new ArrayList<>();
+    // Selected points in click order, packed for O(1) membership
+    private final PackedPosSet selectedBlocks = new PackedPosSet();
+    private final List<BlockPos> selectedBlocksView = selectedBlocks.asList();
     private ShapeMode currentShapeMode = ShapeMode.RECTANGLE;
     private EllipsoidMode ellipsoidMode = EllipsoidMode.FIT_TO_BOX;
     private int subdivisionCount = 0;
@@ -25,10 +31,39 @@ public class SelectionManager {
     private boolean layerModeEnabled = false;
     private int currentLayer = 0; // Relative to minY
 
-    // Cached bounds (invalidated when selection changes)
+    // Statistics maintained incrementally on add; only removal and clear rescan
+    private int minX, minY, minZ;
+    private int maxX, maxY, maxZ;
+    private long maxRadiusXZSq = 0; // Squared XZ distance from the first point to the furthest one
+    private double cachedMaxRadiusXZ = 0;
     private BlockPos cachedMinPos = null;
     private BlockPos cachedMaxPos = null;
-    private boolean boundsCacheDirty = true;
+
+    // Voxel mask selection (e.g. from the magic wand); replaces the point selection while set.
+    // Treated as read-only once set so history can share it.
+    private ShapeMask voxelMask = null;
+    private BlockPos maskMinPos = null;
+    private BlockPos maskMaxPos = null;
+
+    // Magic wand settings and the fill in progress, advanced a time slice per client tick
+    private FloodFillTask.Match wandMatch = FloodFillTask.Match.SAME_BLOCK;
+    private boolean wandDiagonal = false;
+    private FloodFillTask activeFloodFill = null;
+    private World floodFillWorld = null;
+    private static final int MAX_WAND_VOXELS = 1_000_000;
+    private static final long FLOOD_FILL_BUDGET_NANOS = 4_000_000L;
+
+    // Shape stored as the left operand while the next shape to combine with it is drawn
+    private ShapeMask combineBase = null;
+    private ShapeMask.Operation combineOperation = ShapeMask.Operation.UNION;
+    private static final long MAX_COMBINE_VOLUME = 64_000_000L;
+
+    // Incremented on every change to the points or mask, for caches keyed on the selection
+    private long revision = 0;
+
+    // Spline through the points, rebuilt lazily when the revision moves on
+    private ArcLengthSpline spline = null;
+    private long splineRevision = -1;
 
     private SelectionManager() {}
 
@@ -37,19 +72,209 @@ public class SelectionManager {
     }
 
     public void addBlock(BlockPos pos) {
-        if (pos != null && !selectedBlocks.contains(pos)) {
-            UndoRedoManager.getInstance().saveState();
-            selectedBlocks.add(pos);
-            invalidateBoundsCache();
+        if (pos == null) return;
+
+        // Clicking a point starts a new point selection in place of a voxel mask
+        ShapeMask replacedMask = voxelMask;
+        if (replacedMask != null) {
+            setVoxelMask(null);
+        }
+
+        if (selectedBlocks.add(pos)) {
+            includeInStatistics(pos.getX(), pos.getY(), pos.getZ());
+            revision++;
+            UndoRedoManager.getInstance().recordPointAdded(pos, replacedMask);
         }
     }
 
     public void clearSelection() {
-        if (!selectedBlocks.isEmpty()) {
-            UndoRedoManager.getInstance().saveState();
-        }
+        if (selectedBlocks.isEmpty() && voxelMask == null) return;
+
+        List<BlockPos> cleared = List.copyOf(selectedBlocksView);
+        ShapeMask clearedMask = voxelMask;
+        selectedBlocks.clear();
+        resetStatistics();
+        voxelMask = null;
+        revision++;
+        UndoRedoManager.getInstance().recordSelectionCleared(cleared, clearedMask);
+    }
+
+    /**
+     * Replaces the whole selection with a voxel mask, recording history.
+     */
+    public void selectVoxelMask(ShapeMask mask) {
+        List<BlockPos> replaced = List.copyOf(selectedBlocksView);
+        ShapeMask replacedMask = voxelMask;
         selectedBlocks.clear();
-        invalidateBoundsCache();
+        resetStatistics();
+        setVoxelMask(mask);
+        UndoRedoManager.getInstance().recordMaskSelected(replaced, replacedMask, mask);
+    }
+
+    /**
+     * Sets the voxel mask directly (used for undo/redo). Does not record history.
+     * The mask must not be modified afterwards.
+     */
+    public void setVoxelMask(ShapeMask mask) {
+        voxelMask = mask != null && !mask.isEmpty() ? mask : null;
+        maskMinPos = voxelMask != null ? voxelMask.getMinPos() : null;
+        maskMaxPos = voxelMask != null ? voxelMask.getMaxPos() : null;
+        revision++;
+    }
+
+    /**
+     * Gets the voxel mask selection, or null when the selection is point-based.
+     */
+    public ShapeMask getVoxelMask() {
+        return voxelMask;
+    }
+
+    // ========== Magic wand ==========
+
+    /**
+     * Starts a flood fill from the seed block using the current wand settings.
+     * Any fill already running is cancelled.
+     */
+    public void startFloodFill(World world, BlockPos seed) {
+        if (activeFloodFill != null) {
+            activeFloodFill.cancel();
+        }
+        activeFloodFill = new FloodFillTask(new WorldBlockSource(world), seed, wandMatch, wandDiagonal, MAX_WAND_VOXELS);
+        floodFillWorld = world;
+        tickFloodFill(world);
+    }
+
+    /**
+     * Advances the fill in progress by one time slice and selects its result once done.
+     * Call once per client tick.
+     */
+    public void tickFloodFill(World world) {
+        FloodFillTask fill = activeFloodFill;
+        if (fill == null) return;
+
+        // Leaving the world abandons the fill
+        if (floodFillWorld != world) {
+            fill.cancel();
+        }
+
+        if (fill.step(System.nanoTime() + FLOOD_FILL_BUDGET_NANOS)) {
+            activeFloodFill = null;
+            if (!fill.isCancelled() && !fill.getResult().isEmpty()) {
+                selectVoxelMask(fill.getResult());
+            }
+        }
+    }
+
+    public void cancelFloodFill() {
+        if (activeFloodFill != null) {
+            activeFloodFill.cancel();
+        }
+    }
+
+    /**
+     * Gets the fill in progress, or null if none is running.
+     */
+    public FloodFillTask getActiveFloodFill() {
+        return activeFloodFill;
+    }
+
+    public FloodFillTask.Match getWandMatch() {
+        return wandMatch;
+    }
+
+    public boolean isWandDiagonal() {
+        return wandDiagonal;
+    }
+
+    /**
+     * Steps through the wand settings: each match mode with face, then full connectivity.
+     */
+    public void cycleWandMode(int direction) {
+        FloodFillTask.Match[] matches = FloodFillTask.Match.values();
+        int count = matches.length * 2;
+        int index = wandMatch.ordinal() * 2 + (wandDiagonal ? 1 : 0);
+        index = Math.floorMod(index + direction, count);
+        wandMatch = matches[index / 2];
+        wandDiagonal = (index & 1) != 0;
+    }
+
+    // ========== Combining shapes ==========
+
+    /**
+     * Stores the current shape as the base for combining and clears the selection so
+     * the next shape can be drawn.
+     * @return false if there is no selection or its box is too large to rasterize
+     */
+    public boolean storeCombineBase() {
+        ShapeMask shape = rasterizeSelection();
+        if (shape == null || shape.isEmpty()) return false;
+
+        clearSelection();
+        combineBase = shape;
+        return true;
+    }
+
+    /**
+     * Combines the stored base with the current shape using the current operation and
+     * selects the result as a voxel mask.
+     * @return the number of blocks selected, or -1 if there is no base, no selection or it is too large
+     */
+    public int combineWithBase() {
+        if (combineBase == null) return -1;
+        ShapeMask shape = rasterizeSelection();
+        if (shape == null) return -1;
+
+        ShapeMask result = ShapeMask.combine(combineBase, shape, combineOperation);
+        combineBase = null;
+        if (result.isEmpty()) {
+            clearSelection();
+        } else {
+            selectVoxelMask(result);
+        }
+        return result.getBlockCount();
+    }
+
+    /**
+     * Rasterizes the current shape (rectangle boxes included) for combining or storing.
+     * Returns the voxel mask itself if one is selected, or null if there is no selection
+     * or its box is too large.
+     */
+    public ShapeMask rasterizeSelection() {
+        if (voxelMask != null) return voxelMask;
+        BlockPos minPos = getMinPos();
+        BlockPos maxPos = getMaxPos();
+        if (minPos == null || maxPos == null) return null;
+
+        long height = maxPos.getY() - minPos.getY() + 1;
+        long volume = (maxPos.getX() - minPos.getX() + 1L) * height * (maxPos.getZ() - minPos.getZ() + 1L);
+        if (currentShapeMode == ShapeMode.CYLINDER
+                || (currentShapeMode == ShapeMode.ELLIPSOID && ellipsoidMode != EllipsoidMode.FIT_TO_BOX)) {
+            // Round shapes around the first point can reach well outside the points' box
+            long diameter = (long) Math.ceil(2 * (getMaxRadiusXZ() + getCylinderRadiusOffsetBlocks())) + 2;
+            volume = Math.max(volume, diameter * diameter * height);
+        }
+        if (volume > MAX_COMBINE_VOLUME) return null;
+        return ShapeMask.rasterize(this);
+    }
+
+    public void cancelCombine() {
+        combineBase = null;
+    }
+
+    /**
+     * Gets the shape waiting to be combined with the next one, or null.
+     */
+    public ShapeMask getCombineBase() {
+        return combineBase;
+    }
+
+    public ShapeMask.Operation getCombineOperation() {
+        return combineOperation;
+    }
+
+    public void cycleCombineOperation(int direction) {
+        ShapeMask.Operation[] operations = ShapeMask.Operation.values();
+        combineOperation = operations[Math.floorMod(combineOperation.ordinal() + direction, operations.length)];
     }
 
     /**
@@ -58,56 +283,133 @@ public class SelectionManager {
      */
     public void setSelectedBlocks(List<BlockPos> blocks) {
         selectedBlocks.clear();
-        selectedBlocks.addAll(blocks);
-        invalidateBoundsCache();
+        resetStatistics();
+        for (BlockPos pos : blocks) {
+            if (selectedBlocks.add(pos)) {
+                includeInStatistics(pos.getX(), pos.getY(), pos.getZ());
+            }
+        }
+        revision++;
     }
 
-    private void invalidateBoundsCache() {
-        boundsCacheDirty = true;
+    /**
+     * Removes the most recently added block if it is the given position (used for undo/redo).
+     * Returns false and leaves the selection untouched if it is not.
+     */
+    boolean removeLastBlock(BlockPos pos) {
+        if (selectedBlocks.isEmpty() || selectedBlocks.getLastLong() != pos.asLong()) {
+            return false;
+        }
+        selectedBlocks.removeLast();
+        recomputeStatistics();
+        revision++;
+        return true;
+    }
+
+    private void includeInStatistics(int x, int y, int z) {
+        if (selectedBlocks.size() == 1) {
+            minX = maxX = x;
+            minY = maxY = y;
+            minZ = maxZ = z;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+
+            long center = selectedBlocks.getLong(0);
+            long dx = x - BlockPos.unpackLongX(center);
+            long dz = z - BlockPos.unpackLongZ(center);
+            long radiusSq = dx * dx + dz * dz;
+            if (radiusSq > maxRadiusXZSq) {
+                maxRadiusXZSq = radiusSq;
+                cachedMaxRadiusXZ = Math.sqrt(radiusSq);
+            }
+        }
         cachedMinPos = null;
         cachedMaxPos = null;
     }
 
-    private void updateBoundsCache() {
-        if (!boundsCacheDirty) return;
+    private void resetStatistics() {
+        maxRadiusXZSq = 0;
+        cachedMaxRadiusXZ = 0;
+        cachedMinPos = null;
+        cachedMaxPos = null;
+    }
 
-        if (selectedBlocks.isEmpty()) {
-            cachedMinPos = null;
-            cachedMaxPos = null;
-        } else {
-            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
-            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-
-            for (BlockPos pos : selectedBlocks) {
-                minX = Math.min(minX, pos.getX());
-                minY = Math.min(minY, pos.getY());
-                minZ = Math.min(minZ, pos.getZ());
-                maxX = Math.max(maxX, pos.getX());
-                maxY = Math.max(maxY, pos.getY());
-                maxZ = Math.max(maxZ, pos.getZ());
+    private void recomputeStatistics() {
+        resetStatistics();
+        int count = selectedBlocks.size();
+        for (int i = 0; i < count; i++) {
+            long packed = selectedBlocks.getLong(i);
+            // The first point seeds the bounds; the rest extend them and the radius
+            if (i == 0) {
+                minX = maxX = BlockPos.unpackLongX(packed);
+                minY = maxY = BlockPos.unpackLongY(packed);
+                minZ = maxZ = BlockPos.unpackLongZ(packed);
+            } else {
+                includeInStatistics(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed),
+                    BlockPos.unpackLongZ(packed));
             }
-
-            cachedMinPos = new BlockPos(minX, minY, minZ);
-            cachedMaxPos = new BlockPos(maxX, maxY, maxZ);
         }
-        boundsCacheDirty = false;
     }
 
+    /**
+     * Read-only view of the selected points in click order.
+     */
     public List<BlockPos> getSelectedBlocks() {
-        return Collections.unmodifiableList(selectedBlocks);
+        return selectedBlocksView;
+    }
+
+    public int getSelectedCount() {
+        return selectedBlocks.size();
+    }
+
+    public boolean isSelected(BlockPos pos) {
+        return selectedBlocks.contains(pos);
+    }
+
+    /**
+     * Revision of the selection; changes whenever points are added, removed or replaced,
+     * or the voxel mask changes.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Gets the spline through the selected points with its arc-length table, built once
+     * per revision. Returns null for fewer than two points.
+     */
+    public ArcLengthSpline getSpline() {
+        if (splineRevision != revision) {
+            spline = ArcLengthSpline.of(selectedBlocksView);
+            splineRevision = revision;
+        }
+        return spline;
     }
 
     public boolean hasSelection() {
-        return !selectedBlocks.isEmpty();
+        return !selectedBlocks.isEmpty() || voxelMask != null;
     }
 
     public BlockPos getMinPos() {
-        updateBoundsCache();
+        if (voxelMask != null) return maskMinPos;
+        if (selectedBlocks.isEmpty()) return null;
+        if (cachedMinPos == null) {
+            cachedMinPos = new BlockPos(minX, minY, minZ);
+        }
         return cachedMinPos;
     }
 
     public BlockPos getMaxPos() {
-        updateBoundsCache();
+        if (voxelMask != null) return maskMaxPos;
+        if (selectedBlocks.isEmpty()) return null;
+        if (cachedMaxPos == null) {
+            cachedMaxPos = new BlockPos(maxX, maxY, maxZ);
+        }
         return cachedMaxPos;
     }
 
@@ -215,33 +517,31 @@ public class SelectionManager {
     }
 
     public BlockPos getCenterBlock() {
-        return selectedBlocks.isEmpty() ? null : selectedBlocks.get(0);
+        return selectedBlocks.isEmpty() ? null : selectedBlocksView.get(0);
     }
 
+    /**
+     * Horizontal distance from the first point to the furthest other point. Maintained incrementally.
+     */
     public double getMaxRadiusXZ() {
-        if (selectedBlocks.size() < 2) return 0;
-        BlockPos center = getCenterBlock();
-        double maxRadius = 0;
-        for (int i = 1; i < selectedBlocks.size(); i++) {
-            BlockPos pos = selectedBlocks.get(i);
-            double dx = pos.getX() - center.getX();
-            double dz = pos.getZ() - center.getZ();
-            double radius = Math.sqrt(dx * dx + dz * dz);
-            if (radius > maxRadius) {
-                maxRadius = radius;
-            }
-        }
-        return maxRadius;
+        return cachedMaxRadiusXZ;
+    }
+
+    /**
+     * Squared horizontal distance from the first point to the furthest other point.
+     */
+    public long getMaxRadiusXZSquared() {
+        return maxRadiusXZSq;
     }
 
     public int getMinY() {
-        BlockPos min = getMinPos();
-        return min != null ? min.getY() : 0;
+        if (voxelMask != null) return maskMinPos.getY();
+        return selectedBlocks.isEmpty() ? 0 : minY;
     }
 
     public int getMaxY() {
-        BlockPos max = getMaxPos();
-        return max != null ? max.getY() : 0;
+        if (voxelMask != null) return maskMaxPos.getY();
+        return selectedBlocks.isEmpty() ? 0 : maxY;
     }
 
     public boolean isBlockCountingEnabled() {
@@ -1,19 +1,64 @@
 package measurementtools.modid;
 
-import net.minecraft.block.BlockState;
+import measurementtools.modid.clipboard.BlockDesign;
+import measurementtools.modid.jfr.HistorySnapshotEvent;
+import measurementtools.modid.shapes.ShapeMask;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.util.math.BlockPos;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * Manages undo/redo history for block selections and locked paste placements.
+ *
+ * History is a timeline of operation deltas (point added, selection cleared, mask selected,
+ * placement added, placements cleared) with a cursor; undo reverts the delta before the cursor and
+ * redo reapplies the one after it, so both cost O(delta) regardless of selection size.
+ * Every CHECKPOINT_INTERVAL operations a full snapshot is kept as well, and a base snapshot
+ * holds the state before the oldest entry in memory. If the live state no longer matches
+ * what a delta expects, the target state is rebuilt from the nearest checkpoint, or from the
+ * base when there is none. Moving entries out of memory moves the base forward by replaying
+ * them on snapshot data, and spilled batches carry their own base for paging back in.
+ *
+ * The in-memory history is bounded by estimated size. While a world is open, the oldest
+ * entries beyond that budget are compressed and spilled to a per-world file under
+ * the game dir and paged back in when undo reaches them, so history depth is
+ * limited only by disk. With resumeUndoHistory enabled, the spill and the live state
+ * are kept when leaving a world and restored on the next join.
  */
 public class UndoRedoManager {
     private static final UndoRedoManager INSTANCE = new UndoRedoManager();
-    private static final int MAX_HISTORY_SIZE = 50;
 
-    private final Deque<HistoryState> undoStack = new ArrayDeque<>();
-    private final Deque<HistoryState> redoStack = new ArrayDeque<>();
+    private static final long MAX_HISTORY_BYTES = 8L * 1024 * 1024;
+    // Spilling moves entries out until the in-memory history is down to this size
+    private static final long SPILL_TARGET_BYTES = MAX_HISTORY_BYTES / 2;
+
+    private static final Path HISTORY_DIR = FabricLoader.getInstance().getGameDir()
+        .resolve("measurementtools").resolve("history");
+    private static final int CHECKPOINT_INTERVAL = 64;
+
+    // Rough heap cost of one stored BlockPos (object header, three ints, list slot)
+    private static final long POS_BYTES = 32;
+    // Rough heap cost of one placement record; block data is shared and not counted
+    private static final long PLACEMENT_BYTES = 48;
+    private static final long ENTRY_OVERHEAD_BYTES = 32;
+
+    // Entries before the cursor can be undone, entries from the cursor on can be redone
+    private final List<Entry> timeline = new ArrayList<>();
+    private int cursor = 0;
+    private long historyBytes = 0;
+    private int operationsSinceCheckpoint = 0;
+    // State before timeline.get(0); null only if it could not be worked out
+    private HistoryState baseState = new HistoryState(List.of(), null, List.of());
+
+    // Older entries on disk for the current world, or null when no world is open
+    private HistorySpill spill = null;
 
     // Flag to prevent recording during undo/redo operations
     private boolean isUndoRedoInProgress = false;
@@ -24,59 +69,79 @@ public class UndoRedoManager {
         return INSTANCE;
     }
 
+    // ========== Recording (call AFTER the change has been made) ==========
+
+    /**
+     * Records adding a point, which also drops replacedMask if a voxel mask was selected.
+     */
+    public void recordPointAdded(BlockPos pos, ShapeMask replacedMask) {
+        record(new PointAdded(pos, replacedMask));
+    }
+
+    /**
+     * Records clearing the selection; clearedBlocks must not be modified afterwards.
+     */
+    public void recordSelectionCleared(List<BlockPos> clearedBlocks, ShapeMask clearedMask) {
+        record(new SelectionCleared(clearedBlocks, clearedMask));
+    }
+
     /**
-     * Saves the current state before a change is made.
-     * Call this BEFORE modifying selections or placements.
+     * Records replacing the selection with a voxel mask.
      */
-    public void saveState() {
+    public void recordMaskSelected(List<BlockPos> replacedBlocks, ShapeMask replacedMask, ShapeMask mask) {
+        record(new MaskSelected(replacedBlocks, replacedMask, mask));
+    }
+
+    public void recordPlacementAdded(ClipboardManager.LockedPlacement placement) {
+        record(new PlacementAdded(toData(placement)));
+    }
+
+    /**
+     * Records clearing all locked placements.
+     */
+    public void recordPlacementsCleared(List<ClipboardManager.LockedPlacement> clearedPlacements) {
+        record(new PlacementsCleared(copyLockedPlacements(clearedPlacements)));
+    }
+
+    private void record(Operation operation) {
         if (isUndoRedoInProgress) {
             return;
         }
 
-        SelectionManager selection = SelectionManager.getInstance();
-        ClipboardManager clipboard = ClipboardManager.getInstance();
-
-        HistoryState state = new HistoryState(
-            new ArrayList<>(selection.getSelectedBlocks()),
-            copyLockedPlacements(clipboard.getLockedPlacements())
-        );
+        // Clear redo entries when a new action is taken
+        truncateRedo();
 
-        undoStack.push(state);
-
-        // Limit history size
-        while (undoStack.size() > MAX_HISTORY_SIZE) {
-            undoStack.removeLast();
+        Entry entry = new Entry(operation);
+        operationsSinceCheckpoint++;
+        if (operationsSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            entry.checkpoint = captureSnapshot();
+            operationsSinceCheckpoint = 0;
         }
 
-        // Clear redo stack when new action is taken
-        redoStack.clear();
+        timeline.add(entry);
+        cursor++;
+        historyBytes += entry.estimatedBytes();
+        trimToBudget();
     }
 
+    // ========== Undo / redo ==========
+
     /**
      * Undoes the last action, restoring the previous state.
      * @return true if undo was successful, false if nothing to undo
      */
     public boolean undo() {
-        if (undoStack.isEmpty()) {
+        if (cursor == 0 && !pageIn()) {
             return false;
         }
 
         isUndoRedoInProgress = true;
         try {
-            // Save current state to redo stack
-            SelectionManager selection = SelectionManager.getInstance();
-            ClipboardManager clipboard = ClipboardManager.getInstance();
-
-            HistoryState currentState = new HistoryState(
-                new ArrayList<>(selection.getSelectedBlocks()),
-                copyLockedPlacements(clipboard.getLockedPlacements())
-            );
-            redoStack.push(currentState);
-
-            // Restore previous state
-            HistoryState previousState = undoStack.pop();
-            restoreState(previousState);
-
+            Entry entry = timeline.get(cursor - 1);
+            if (!entry.operation.revert()) {
+                seek(cursor - 1);
+            }
+            cursor--;
             return true;
         } finally {
             isUndoRedoInProgress = false;
@@ -88,26 +153,17 @@ public class UndoRedoManager {
      * @return true if redo was successful, false if nothing to redo
      */
     public boolean redo() {
-        if (redoStack.isEmpty()) {
+        if (cursor == timeline.size()) {
             return false;
         }
 
         isUndoRedoInProgress = true;
         try {
-            // Save current state to undo stack
-            SelectionManager selection = SelectionManager.getInstance();
-            ClipboardManager clipboard = ClipboardManager.getInstance();
-
-            HistoryState currentState = new HistoryState(
-                new ArrayList<>(selection.getSelectedBlocks()),
-                copyLockedPlacements(clipboard.getLockedPlacements())
-            );
-            undoStack.push(currentState);
-
-            // Restore redo state
-            HistoryState redoState = redoStack.pop();
-            restoreState(redoState);
-
+            Entry entry = timeline.get(cursor);
+            if (!entry.operation.apply()) {
+                seek(cursor + 1);
+            }
+            cursor++;
             return true;
         } finally {
             isUndoRedoInProgress = false;
@@ -118,22 +174,257 @@ public class UndoRedoManager {
      * Returns true if there are actions that can be undone.
      */
     public boolean canUndo() {
-        return !undoStack.isEmpty();
+        return cursor > 0 || (spill != null && spill.hasBatches());
     }
 
     /**
      * Returns true if there are actions that can be redone.
      */
     public boolean canRedo() {
-        return !redoStack.isEmpty();
+        return cursor < timeline.size();
     }
 
     /**
      * Clears all history.
      */
     public void clearHistory() {
-        undoStack.clear();
-        redoStack.clear();
+        if (spill != null) {
+            spill.discardAll();
+        }
+        timeline.clear();
+        cursor = 0;
+        historyBytes = 0;
+        operationsSinceCheckpoint = 0;
+        baseState = captureSnapshot();
+    }
+
+    /**
+     * Estimated heap size of the in-memory history in bytes.
+     */
+    public long getHistoryBytes() {
+        return historyBytes;
+    }
+
+    /**
+     * Rebuilds the state after the first `position` entries from the nearest checkpoint
+     * at or before it, or from the base state before the first entry. Used when the live
+     * state has drifted from what a delta expects.
+     */
+    private void seek(int position) {
+        int base = -1;
+        for (int i = Math.min(position, timeline.size()) - 1; i >= 0; i--) {
+            if (timeline.get(i).checkpoint != null) {
+                base = i;
+                break;
+            }
+        }
+        HistoryState state = base >= 0 ? timeline.get(base).checkpoint : baseState;
+        // Only reachable if a spilled batch lost its base; keep the best-effort result of the delta
+        if (state == null) return;
+
+        restoreState(state);
+        for (int i = base + 1; i < position; i++) {
+            timeline.get(i).operation.apply();
+        }
+    }
+
+    /**
+     * Works out the state after the given entries from the state before them, on snapshot
+     * data only; the live selection and placements are not touched. Starts from the last
+     * checkpoint among the entries if there is one. Returns null if before is null and no
+     * entry has a checkpoint.
+     */
+    private static HistoryState replay(HistoryState before, List<Entry> entries) {
+        int start = entries.size();
+        HistoryState state = before;
+        while (start > 0 && entries.get(start - 1).checkpoint == null) {
+            start--;
+        }
+        if (start > 0) {
+            state = entries.get(start - 1).checkpoint;
+        }
+        if (state == null) return null;
+        if (start == entries.size()) return state;
+
+        List<BlockPos> blocks = new ArrayList<>(state.selectedBlocks);
+        ShapeMask mask = state.voxelMask;
+        List<LockedPlacementData> placements = new ArrayList<>(state.lockedPlacements);
+        for (Entry entry : entries.subList(start, entries.size())) {
+            // Same effects as apply(), on copies
+            switch (entry.operation) {
+                case PointAdded op -> {
+                    if (!blocks.contains(op.pos())) blocks.add(op.pos());
+                    mask = null;
+                }
+                case SelectionCleared op -> {
+                    blocks.clear();
+                    mask = null;
+                }
+                case MaskSelected op -> {
+                    blocks.clear();
+                    mask = op.mask();
+                }
+                case PlacementAdded op -> placements.add(op.placement());
+                case PlacementsCleared op -> placements.clear();
+            }
+        }
+        return new HistoryState(List.copyOf(blocks), mask, List.copyOf(placements));
+    }
+
+    private void truncateRedo() {
+        if (cursor == timeline.size()) return;
+
+        List<Entry> redoEntries = timeline.subList(cursor, timeline.size());
+        for (Entry entry : redoEntries) {
+            historyBytes -= entry.estimatedBytes();
+        }
+        redoEntries.clear();
+        // Count from the last remaining checkpoint so the interval stays regular
+        operationsSinceCheckpoint = 0;
+        for (int i = timeline.size() - 1; i >= 0 && timeline.get(i).checkpoint == null; i--) {
+            operationsSinceCheckpoint++;
+        }
+    }
+
+    /**
+     * Moves the oldest entries out of memory once the history exceeds the byte budget:
+     * spilled to disk while a world is open, discarded otherwise. Only undo entries are
+     * moved, and the most recent entry always stays in memory. The base state moves forward
+     * past the moved entries so seek keeps a starting point.
+     */
+    private void trimToBudget() {
+        if (historyBytes <= MAX_HISTORY_BYTES) return;
+
+        int count = 0;
+        long bytes = 0;
+        int limit = Math.min(cursor, timeline.size() - 1);
+        while (historyBytes - bytes > SPILL_TARGET_BYTES && count < limit) {
+            bytes += timeline.get(count).estimatedBytes();
+            count++;
+        }
+        if (count == 0) return;
+
+        List<Entry> oldest = timeline.subList(0, count);
+        HistoryState newBase = replay(baseState, oldest);
+        if (spill != null) {
+            spill.push(writeBatch(baseState, oldest), count);
+        }
+        oldest.clear();
+        baseState = newBase;
+        historyBytes -= bytes;
+        cursor -= count;
+    }
+
+    /**
+     * Brings the most recently spilled batch back in front of the in-memory history.
+     * @return true if entries were paged in
+     */
+    private boolean pageIn() {
+        if (spill == null || !spill.hasBatches()) return false;
+
+        List<Entry> entries;
+        HistoryState batchBase;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(spill.pop()));
+            batchBase = in.readBoolean() ? readSnapshot(in) : null;
+            entries = readEntries(in);
+        } catch (IOException e) {
+            // Older batches would apply on top of a gap, so drop them all
+            System.err.println("Failed to read MeasurementTools undo history: " + e.getMessage());
+            spill.discardAll();
+            return false;
+        }
+
+        timeline.addAll(0, entries);
+        baseState = batchBase;
+        cursor += entries.size();
+        for (Entry entry : entries) {
+            historyBytes += entry.estimatedBytes();
+        }
+        return !entries.isEmpty();
+    }
+
+    // ========== Per-world spill ==========
+
+    /**
+     * Starts history for a world, restoring the previous session's history and state
+     * for the same world if resuming is enabled. Call when joining a world.
+     */
+    public void openWorld(String worldKey) {
+        closeWorld();
+
+        boolean resume = ModConfig.getInstance().isResumeUndoHistory();
+        try {
+            spill = HistorySpill.open(HISTORY_DIR.resolve(worldKey), resume);
+            if (resume) {
+                byte[] state = spill.readState();
+                if (state != null) {
+                    restoreState(readSnapshot(new DataInputStream(new ByteArrayInputStream(state))));
+                } else {
+                    // Deltas are meaningless without the state they lead to
+                    spill.discardAll();
+                }
+            }
+            baseState = captureSnapshot();
+        } catch (IOException e) {
+            System.err.println("Failed to open MeasurementTools undo history: " + e.getMessage());
+            if (spill != null) {
+                spill.close(false);
+                spill = null;
+            }
+        }
+    }
+
+    /**
+     * Ends history for the current world. With resuming enabled, all undo entries and
+     * the live state are written out for the next session. Call when leaving a world.
+     */
+    public void closeWorld() {
+        boolean resume = ModConfig.getInstance().isResumeUndoHistory();
+        if (spill != null) {
+            if (resume) {
+                truncateRedo();
+                if (!timeline.isEmpty()) {
+                    spill.push(writeBatch(baseState, timeline), timeline.size());
+                }
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    writeSnapshot(new DataOutputStream(bytes), captureSnapshot());
+                    spill.writeState(bytes.toByteArray());
+                } catch (IOException e) {
+                    System.err.println("Failed to save MeasurementTools undo history: " + e.getMessage());
+                }
+            }
+            spill.close(resume);
+            spill = null;
+        }
+
+        timeline.clear();
+        cursor = 0;
+        historyBytes = 0;
+        operationsSinceCheckpoint = 0;
+        baseState = captureSnapshot();
+    }
+
+    // ========== State access ==========
+
+    private HistoryState captureSnapshot() {
+        HistorySnapshotEvent event = new HistorySnapshotEvent();
+        event.begin();
+        SelectionManager selection = SelectionManager.getInstance();
+        HistoryState state = new HistoryState(
+            List.copyOf(selection.getSelectedBlocks()),
+            selection.getVoxelMask(),
+            copyLockedPlacements(ClipboardManager.getInstance().getLockedPlacements())
+        );
+        event.end();
+        if (event.shouldCommit()) {
+            event.selectedBlocks = state.selectedBlocks.size();
+            event.voxels = state.voxelMask != null ? state.voxelMask.getBlockCount() : 0;
+            event.placements = state.lockedPlacements.size();
+            event.commit();
+        }
+        return state;
     }
 
     /**
@@ -145,48 +436,354 @@ public class UndoRedoManager {
 
         // Restore selections
         selection.setSelectedBlocks(state.selectedBlocks);
+        selection.setVoxelMask(state.voxelMask);
 
         // Restore locked placements
         clipboard.setLockedPlacements(state.lockedPlacements);
     }
 
     /**
-     * Creates a deep copy of locked placements for history storage.
+     * Records locked placements for history storage.
+     * Only design references and transforms are kept; block data is never copied.
      */
     private List<LockedPlacementData> copyLockedPlacements(List<ClipboardManager.LockedPlacement> placements) {
         List<LockedPlacementData> copy = new ArrayList<>();
         for (ClipboardManager.LockedPlacement placement : placements) {
-            copy.add(new LockedPlacementData(
-                placement.getAnchorPos(),
-                new HashMap<>(placement.getBlocks())
-            ));
+            copy.add(toData(placement));
         }
         return copy;
     }
 
+    private static LockedPlacementData toData(ClipboardManager.LockedPlacement placement) {
+        return new LockedPlacementData(placement.getAnchorPos(), placement.getDesign(), placement.getRotation());
+    }
+
+    // ========== Serialization for the spill ==========
+
+    private static final byte POINT_ADDED = 0;
+    private static final byte SELECTION_CLEARED = 1;
+    private static final byte PLACEMENT_ADDED = 2;
+    private static final byte PLACEMENTS_CLEARED = 3;
+    private static final byte MASK_SELECTED = 4;
+
+    /**
+     * Serializes a batch: the state before its first entry (if known), then the entries.
+     */
+    private byte[] writeBatch(HistoryState base, List<Entry> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeBoolean(base != null);
+            if (base != null) {
+                writeSnapshot(out, base);
+            }
+            for (Entry entry : entries) {
+                switch (entry.operation) {
+                    case PointAdded op -> {
+                        out.writeByte(POINT_ADDED);
+                        out.writeLong(op.pos().asLong());
+                        writeMask(out, op.replacedMask());
+                    }
+                    case SelectionCleared op -> {
+                        out.writeByte(SELECTION_CLEARED);
+                        writePositions(out, op.clearedBlocks());
+                        writeMask(out, op.clearedMask());
+                    }
+                    case MaskSelected op -> {
+                        out.writeByte(MASK_SELECTED);
+                        writePositions(out, op.replacedBlocks());
+                        writeMask(out, op.replacedMask());
+                        writeMask(out, op.mask());
+                    }
+                    case PlacementAdded op -> {
+                        out.writeByte(PLACEMENT_ADDED);
+                        writePlacement(out, op.placement());
+                    }
+                    case PlacementsCleared op -> {
+                        out.writeByte(PLACEMENTS_CLEARED);
+                        writePlacements(out, op.clearedPlacements());
+                    }
+                }
+                out.writeBoolean(entry.checkpoint != null);
+                if (entry.checkpoint != null) {
+                    writeSnapshot(out, entry.checkpoint);
+                }
+            }
+        } catch (IOException e) {
+            // In-memory streams do not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<Entry> readEntries(DataInputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            Operation operation = switch (type) {
+                case POINT_ADDED -> new PointAdded(BlockPos.fromLong(in.readLong()), readMask(in));
+                case SELECTION_CLEARED -> new SelectionCleared(readPositions(in), readMask(in));
+                case MASK_SELECTED -> new MaskSelected(readPositions(in), readMask(in), readMask(in));
+                case PLACEMENT_ADDED -> new PlacementAdded(readPlacement(in));
+                case PLACEMENTS_CLEARED -> new PlacementsCleared(readPlacements(in));
+                default -> throw new IOException("Unknown history entry type " + type);
+            };
+            Entry entry = new Entry(operation);
+            if (in.readBoolean()) {
+                entry.checkpoint = readSnapshot(in);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private void writeSnapshot(DataOutputStream out, HistoryState state) throws IOException {
+        writePositions(out, state.selectedBlocks);
+        writeMask(out, state.voxelMask);
+        writePlacements(out, state.lockedPlacements);
+    }
+
+    private HistoryState readSnapshot(DataInputStream in) throws IOException {
+        return new HistoryState(readPositions(in), readMask(in), readPlacements(in));
+    }
+
+    private static void writeMask(DataOutputStream out, ShapeMask mask) throws IOException {
+        out.writeBoolean(mask != null);
+        if (mask != null) {
+            mask.write(out);
+        }
+    }
+
+    private static ShapeMask readMask(DataInputStream in) throws IOException {
+        return in.readBoolean() ? ShapeMask.read(in) : null;
+    }
+
+    private static long maskBytes(ShapeMask mask) {
+        return mask != null ? mask.estimateBytes() : 0;
+    }
+
+    private static void writePositions(DataOutputStream out, List<BlockPos> positions) throws IOException {
+        out.writeInt(positions.size());
+        for (BlockPos pos : positions) {
+            out.writeLong(pos.asLong());
+        }
+    }
+
+    private static List<BlockPos> readPositions(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        BlockPos[] positions = new BlockPos[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = BlockPos.fromLong(in.readLong());
+        }
+        return List.of(positions);
+    }
+
+    private void writePlacements(DataOutputStream out, List<LockedPlacementData> placements) throws IOException {
+        out.writeInt(placements.size());
+        for (LockedPlacementData placement : placements) {
+            writePlacement(out, placement);
+        }
+    }
+
+    private List<LockedPlacementData> readPlacements(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<LockedPlacementData> placements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            placements.add(readPlacement(in));
+        }
+        return placements;
+    }
+
+    private void writePlacement(DataOutputStream out, LockedPlacementData placement) throws IOException {
+        out.writeLong(placement.anchorPos.asLong());
+        out.writeByte(placement.rotation);
+        // Block data is stored once per design next to the spill file
+        out.writeInt(spill.designId(placement.design));
+    }
+
+    private LockedPlacementData readPlacement(DataInputStream in) throws IOException {
+        BlockPos anchor = BlockPos.fromLong(in.readLong());
+        int rotation = in.readByte();
+        return new LockedPlacementData(anchor, spill.design(in.readInt()), rotation);
+    }
+
+    // ========== Operations ==========
+
+    /**
+     * A reversible change. apply and revert return false if the live state did not match
+     * what the operation expected, in which case the caller resynchronizes from a checkpoint.
+     */
+    private sealed interface Operation
+        permits PointAdded, SelectionCleared, MaskSelected, PlacementAdded, PlacementsCleared {
+        boolean apply();
+
+        boolean revert();
+
+        long estimatedBytes();
+    }
+
+    private record PointAdded(BlockPos pos, ShapeMask replacedMask) implements Operation {
+        @Override
+        public boolean apply() {
+            SelectionManager selection = SelectionManager.getInstance();
+            if (selection.isSelected(pos)) return false;
+            // Adding a point drops any voxel mask, as it did originally
+            selection.addBlock(pos);
+            return true;
+        }
+
+        @Override
+        public boolean revert() {
+            SelectionManager selection = SelectionManager.getInstance();
+            if (!selection.removeLastBlock(pos)) return false;
+            if (replacedMask != null) {
+                selection.setVoxelMask(replacedMask);
+            }
+            return true;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return POS_BYTES + maskBytes(replacedMask);
+        }
+    }
+
+    private record SelectionCleared(List<BlockPos> clearedBlocks, ShapeMask clearedMask) implements Operation {
+        @Override
+        public boolean apply() {
+            SelectionManager selection = SelectionManager.getInstance();
+            selection.setSelectedBlocks(List.of());
+            selection.setVoxelMask(null);
+            return true;
+        }
+
+        @Override
+        public boolean revert() {
+            SelectionManager selection = SelectionManager.getInstance();
+            boolean matched = !selection.hasSelection();
+            selection.setSelectedBlocks(clearedBlocks);
+            selection.setVoxelMask(clearedMask);
+            return matched;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return clearedBlocks.size() * POS_BYTES + maskBytes(clearedMask);
+        }
+    }
+
+    private record MaskSelected(List<BlockPos> replacedBlocks, ShapeMask replacedMask, ShapeMask mask)
+            implements Operation {
+        @Override
+        public boolean apply() {
+            SelectionManager selection = SelectionManager.getInstance();
+            selection.setSelectedBlocks(List.of());
+            selection.setVoxelMask(mask);
+            return true;
+        }
+
+        @Override
+        public boolean revert() {
+            SelectionManager selection = SelectionManager.getInstance();
+            boolean matched = selection.getVoxelMask() == mask;
+            selection.setSelectedBlocks(replacedBlocks);
+            selection.setVoxelMask(replacedMask);
+            return matched;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return replacedBlocks.size() * POS_BYTES + maskBytes(replacedMask) + maskBytes(mask);
+        }
+    }
+
+    private record PlacementAdded(LockedPlacementData placement) implements Operation {
+        @Override
+        public boolean apply() {
+            ClipboardManager.getInstance().appendLockedPlacement(placement);
+            return true;
+        }
+
+        @Override
+        public boolean revert() {
+            return ClipboardManager.getInstance().removeLastLockedPlacement(placement);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return PLACEMENT_BYTES;
+        }
+    }
+
+    private record PlacementsCleared(List<LockedPlacementData> clearedPlacements) implements Operation {
+        @Override
+        public boolean apply() {
+            ClipboardManager.getInstance().setLockedPlacements(List.of());
+            return true;
+        }
+
+        @Override
+        public boolean revert() {
+            ClipboardManager clipboard = ClipboardManager.getInstance();
+            boolean matched = !clipboard.hasLockedPlacements();
+            clipboard.setLockedPlacements(clearedPlacements);
+            return matched;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return clearedPlacements.size() * PLACEMENT_BYTES;
+        }
+    }
+
+    /**
+     * One timeline entry: a delta, plus a snapshot of the state after it on checkpoint entries.
+     */
+    private static class Entry {
+        final Operation operation;
+        HistoryState checkpoint;
+
+        Entry(Operation operation) {
+            this.operation = operation;
+        }
+
+        long estimatedBytes() {
+            long bytes = ENTRY_OVERHEAD_BYTES + operation.estimatedBytes();
+            if (checkpoint != null) {
+                bytes += checkpoint.selectedBlocks.size() * POS_BYTES + maskBytes(checkpoint.voxelMask)
+                    + checkpoint.lockedPlacements.size() * PLACEMENT_BYTES;
+            }
+            return bytes;
+        }
+    }
+
     /**
      * Represents a snapshot of the state at a point in time.
      */
     private static class HistoryState {
         final List<BlockPos> selectedBlocks;
+        final ShapeMask voxelMask;
         final List<LockedPlacementData> lockedPlacements;
 
-        HistoryState(List<BlockPos> selectedBlocks, List<LockedPlacementData> lockedPlacements) {
+        HistoryState(List<BlockPos> selectedBlocks, ShapeMask voxelMask, List<LockedPlacementData> lockedPlacements) {
             this.selectedBlocks = selectedBlocks;
+            this.voxelMask = voxelMask;
             this.lockedPlacements = lockedPlacements;
         }
     }
 
     /**
-     * Data class to store locked placement info for history.
+     * Data class to store locked placement info for history: a transform plus a shared design reference.
      */
     static class LockedPlacementData {
         final BlockPos anchorPos;
-        final Map<BlockPos, BlockState> blocks;
+        final BlockDesign design;
+        final int rotation;
 
-        LockedPlacementData(BlockPos anchorPos, Map<BlockPos, BlockState> blocks) {
+        LockedPlacementData(BlockPos anchorPos, BlockDesign design, int rotation) {
             this.anchorPos = anchorPos;
-            this.blocks = blocks;
+            this.design = design;
+            this.rotation = rotation;
         }
     }
 }
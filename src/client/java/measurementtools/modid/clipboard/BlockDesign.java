@@ -0,0 +1,163 @@
+package measurementtools.modid.clipboard;
+
+import measurementtools.modid.jfr.ClipboardRotationEvent;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Immutable block data shared by the clipboard, locked placements and undo history.
+ *
+ * A design wraps one unrotated volume and lazily derives its four rotations and their
+ * exposed-face sets, each computed at most once. Placements refer to a design plus a
+ * rotation, so stamping the same design many times (or keeping it in fifty history
+ * entries) costs one set of block data rather than one per copy.
+ *
+ * Designs are interned by volume identity, so every holder of the same volume sees
+ * the same design and its cached rotations. A design can also wrap a memory-mapped file
+ * (a library entry or spilled history); it is then read section by section through
+ * getSections and only decoded the first time something needs the whole volume.
+ */
+public final class BlockDesign {
+    private static final Map<PalettedBlockVolume, WeakReference<BlockDesign>> INTERNED = new WeakHashMap<>();
+
+    // Null until a mapped design is decoded
+    private volatile PalettedBlockVolume source;
+    // Null for designs built from a volume
+    private final MappedSchematic mapped;
+    // Filled on first use from any thread; a racing duplicate computation is discarded
+    private final AtomicReferenceArray<Variant> variants = new AtomicReferenceArray<>(4);
+
+    private BlockDesign(PalettedBlockVolume source, MappedSchematic mapped) {
+        this.source = source;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Gets the design for a volume, reusing the existing one if the volume is already shared.
+     * The volume must not be modified afterwards.
+     */
+    public static BlockDesign of(PalettedBlockVolume volume) {
+        synchronized (INTERNED) {
+            WeakReference<BlockDesign> ref = INTERNED.get(volume);
+            BlockDesign design = ref != null ? ref.get() : null;
+            if (design == null) {
+                design = new BlockDesign(volume, null);
+                INTERNED.put(volume, new WeakReference<>(design));
+            }
+            return design;
+        }
+    }
+
+    /**
+     * Wraps a mapped file without decoding it. Not interned; each call makes a new design.
+     */
+    public static BlockDesign ofMapped(MappedSchematic schematic) {
+        return new BlockDesign(null, schematic);
+    }
+
+    /**
+     * Gets the unrotated block data, decoding a mapped design on first use.
+     */
+    public PalettedBlockVolume getSource() {
+        PalettedBlockVolume decoded = source;
+        if (decoded != null) return decoded;
+
+        synchronized (this) {
+            if (source == null) {
+                source = mapped.toVolume();
+            }
+            return source;
+        }
+    }
+
+    /**
+     * Gets the unrotated blocks for reading a section at a time: the decoded volume if there
+     * is one, otherwise the mapped file. Never decodes.
+     */
+    public SectionedBlocks getSections() {
+        PalettedBlockVolume decoded = source;
+        return decoded != null ? decoded : mapped;
+    }
+
+    /**
+     * Gets the file a mapped design reads from, or null if it was built from a volume.
+     */
+    public MappedSchematic getMapped() {
+        return mapped;
+    }
+
+    public boolean isDecoded() {
+        return source != null;
+    }
+
+    public int getBlockCount() {
+        return getSections().getBlockCount();
+    }
+
+    public boolean isEmpty() {
+        return getBlockCount() == 0;
+    }
+
+    /**
+     * Gets the block data rotated clockwise by rotation * 90 degrees.
+     */
+    public PalettedBlockVolume getVolume(int rotation) {
+        return variant(rotation & 3).volume();
+    }
+
+    /**
+     * Gets the blocks with at least one exposed face for a rotation.
+     */
+    public Map<BlockPos, BlockState> getVisibleBlocks(int rotation) {
+        return variant(rotation & 3).visibleBlocks();
+    }
+
+    /**
+     * Gets the visible blocks for a rotation only if they are already computed; never computes.
+     */
+    public Map<BlockPos, BlockState> getComputedVisibleBlocks(int rotation) {
+        Variant variant = variants.get(rotation & 3);
+        return variant != null ? variant.visibleBlocks() : null;
+    }
+
+    /**
+     * Computes all rotations. Intended to run on the background worker.
+     * Stops before the next rotation once stillWanted returns false, so a design that was
+     * replaced while the job waited in the queue costs nothing more.
+     */
+    public void precomputeAll(BooleanSupplier stillWanted) {
+        for (int rotation = 0; rotation < 4 && stillWanted.getAsBoolean(); rotation++) {
+            variant(rotation);
+        }
+    }
+
+    private Variant variant(int rotation) {
+        Variant variant = variants.get(rotation);
+        if (variant != null) return variant;
+
+        ClipboardRotationEvent event = new ClipboardRotationEvent();
+        event.begin();
+        PalettedBlockVolume rotated = getSource().rotated(rotation);
+        Variant computed = new Variant(rotated, rotated.collectExposedBlocks());
+        event.end();
+        if (event.shouldCommit()) {
+            event.rotation = rotation;
+            event.voxels = rotated.getBlockCount();
+            event.visibleBlocks = computed.visibleBlocks().size();
+            event.commit();
+        }
+        // Keep whichever finished first so every holder shares the same instances
+        return variants.compareAndSet(rotation, null, computed) ? computed : variants.get(rotation);
+    }
+
+    /**
+     * Rotated blocks together with their exposed-face subset. Both are read-only.
+     */
+    private record Variant(PalettedBlockVolume volume, Map<BlockPos, BlockState> visibleBlocks) {}
+}
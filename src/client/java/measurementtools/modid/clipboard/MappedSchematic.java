@@ -0,0 +1,359 @@
+package measurementtools.modid.clipboard;
+
+import net.minecraft.block.BlockState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only view of a library schematic file, memory-mapped so only the pages that are
+ * actually touched are read from disk.
+ *
+ * Layout (big-endian):
+ *   int magic, int version, int headerLength
+ *   header: sizeX, sizeY, sizeZ, blockCount, bitsPerEntry, paletteLength, palette strings
+ *   section table: one long offset per 16x16x16 section (0 = all air)
+ *   section data: 4096 palette values per section, bit-packed like PalettedBlockVolume
+ *
+ * Opening a file only parses the header. The ghost preview then reads blocks a section at a
+ * time, so only the pages of sections it draws are faulted in; toVolume decodes everything
+ * and is left for pasting and saving. Listings use readHeader instead, which reads the first
+ * few bytes through a stream and leaves no mapping behind that would keep the file locked.
+ */
+public final class MappedSchematic implements SectionedBlocks {
+    public static final String EXTENSION = ".mtv";
+
+    private static final int MAGIC = 0x4D54564C; // "MTVL"
+    private static final int VERSION = 1;
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int sizeX, sizeY, sizeZ;
+    private final int blockCount;
+    private final int bitsPerEntry;
+    private final int entriesPerLong;
+    private final long entryMask;
+    private final List<BlockState> palette; // index 0 is air (null); unknown states are null
+    private final int sectionsX, sectionsY, sectionsZ;
+    private final int tableOffset;
+
+    private MappedSchematic(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC) throw new IOException("Not a library schematic: " + path.getFileName());
+        if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported library schematic version in " + path.getFileName());
+        int headerLength = buffer.getInt(8);
+
+        byte[] header = new byte[headerLength];
+        buffer.get(12, header);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        this.sizeX = in.readInt();
+        this.sizeY = in.readInt();
+        this.sizeZ = in.readInt();
+        this.blockCount = in.readInt();
+        this.bitsPerEntry = in.readInt();
+        int paletteLength = in.readInt();
+
+        List<BlockState> states = new ArrayList<>(paletteLength);
+        states.add(null);
+        for (int i = 1; i < paletteLength; i++) {
+            states.add(SpongeSchematic.parseBlockState(in.readUTF()));
+        }
+        this.palette = Collections.unmodifiableList(states);
+
+        this.entriesPerLong = 64 / bitsPerEntry;
+        this.entryMask = (1L << bitsPerEntry) - 1;
+        this.sectionsX = (sizeX + 15) >> 4;
+        this.sectionsY = (sizeY + 15) >> 4;
+        this.sectionsZ = (sizeZ + 15) >> 4;
+        this.tableOffset = 12 + headerLength;
+    }
+
+    /**
+     * Size and block count of a library file, as stored in its header.
+     */
+    public record Header(int sizeX, int sizeY, int sizeZ, int blockCount) {}
+
+    /**
+     * Reads only the size and block count of a library file, without mapping it.
+     */
+    public static Header readHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a library schematic: " + path.getFileName());
+            if (in.readInt() != VERSION) throw new IOException("Unsupported library schematic version in " + path.getFileName());
+            in.readInt(); // header length
+            return new Header(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        }
+    }
+
+    /**
+     * Maps a library file and parses its header.
+     */
+    public static MappedSchematic open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedSchematic(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a volume in library format. The file is written to a temporary name first
+     * so a mapped reader never sees a partially written file.
+     */
+    public static void write(Path path, PalettedBlockVolume volume) throws IOException {
+        int paletteLength = volume.getPaletteLength();
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteLength - 1));
+        int entriesPerLong = 64 / bits;
+        int longsPerSection = (SECTION_VOLUME + entriesPerLong - 1) / entriesPerLong;
+
+        int sizeX = volume.getSizeX(), sizeY = volume.getSizeY(), sizeZ = volume.getSizeZ();
+        int sectionsX = (sizeX + 15) >> 4, sectionsY = (sizeY + 15) >> 4, sectionsZ = (sizeZ + 15) >> 4;
+        int sectionCount = sectionsX * sectionsY * sectionsZ;
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(sizeX);
+        header.writeInt(sizeY);
+        header.writeInt(sizeZ);
+        header.writeInt(volume.getBlockCount());
+        header.writeInt(bits);
+        header.writeInt(paletteLength);
+        for (int i = 1; i < paletteLength; i++) {
+            header.writeUTF(SpongeSchematic.stringify(volume.getPaletteState(i)));
+        }
+        header.flush();
+
+        // Find non-empty sections up front so the offset table can be written before the data
+        boolean[] occupied = new boolean[sectionCount];
+        for (int section = 0; section < sectionCount; section++) {
+            occupied[section] = sectionHasBlocks(volume, section, sectionsX, sectionsZ);
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+
+            long offset = 12L + headerBytes.size() + (long) sectionCount * Long.BYTES;
+            for (int section = 0; section < sectionCount; section++) {
+                if (occupied[section]) {
+                    out.writeLong(offset);
+                    offset += (long) longsPerSection * Long.BYTES;
+                } else {
+                    out.writeLong(0);
+                }
+            }
+
+            for (int section = 0; section < sectionCount; section++) {
+                if (!occupied[section]) continue;
+                writeSection(out, volume, section, sectionsX, sectionsZ, bits, entriesPerLong, longsPerSection);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the mapped bytes to another file, e.g. to keep a design whose library entry may
+     * be replaced later. Reads the mapping, not the path, so it copies what this view shows.
+     */
+    public void copyTo(Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = buffer.duplicate().clear();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean sectionHasBlocks(PalettedBlockVolume volume, int section, int sectionsX, int sectionsZ) {
+        int baseX = (section % sectionsX) << 4;
+        int baseZ = ((section / sectionsX) % sectionsZ) << 4;
+        int baseY = (section / (sectionsX * sectionsZ)) << 4;
+        int toX = Math.min(volume.getSizeX(), baseX + 16);
+        int toY = Math.min(volume.getSizeY(), baseY + 16);
+        int toZ = Math.min(volume.getSizeZ(), baseZ + 16);
+
+        for (int y = baseY; y < toY; y++) {
+            for (int z = baseZ; z < toZ; z++) {
+                int rowStart = volume.indexOf(baseX, y, z);
+                for (int x = 0; x < toX - baseX; x++) {
+                    if (volume.getEntryAt(rowStart + x) != 0) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void writeSection(DataOutputStream out, PalettedBlockVolume volume, int section,
+                                     int sectionsX, int sectionsZ, int bits, int entriesPerLong,
+                                     int longsPerSection) throws IOException {
+        int baseX = (section % sectionsX) << 4;
+        int baseZ = ((section / sectionsX) % sectionsZ) << 4;
+        int baseY = (section / (sectionsX * sectionsZ)) << 4;
+
+        long[] packed = new long[longsPerSection];
+        for (int local = 0; local < SECTION_VOLUME; local++) {
+            int x = baseX + (local & 15);
+            int z = baseZ + ((local >> 4) & 15);
+            int y = baseY + (local >> 8);
+            if (x >= volume.getSizeX() || y >= volume.getSizeY() || z >= volume.getSizeZ()) continue;
+
+            int value = volume.getEntryAt(volume.indexOf(x, y, z));
+            if (value != 0) {
+                int longIndex = local / entriesPerLong;
+                packed[longIndex] |= (long) value << ((local - longIndex * entriesPerLong) * bits);
+            }
+        }
+        for (long word : packed) {
+            out.writeLong(word);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    @Override
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    @Override
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Palette from the header; index 0 is air and unknown states are null.
+     */
+    public List<BlockState> getPalette() {
+        return palette;
+    }
+
+    /**
+     * Returns true if the section is stored as all air (or lies outside the box).
+     */
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return sectionOffset(sectionX, sectionY, sectionZ) == 0;
+    }
+
+    /**
+     * Reads a single block, touching only the page that holds it. Returns null for air,
+     * unknown states and positions outside the box.
+     */
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) return null;
+
+        long offset = sectionOffset(x >> 4, y >> 4, z >> 4);
+        if (offset == 0) return null;
+        return palette.get(readValue(offset, ((y & 15) << 8) | ((z & 15) << 4) | (x & 15)));
+    }
+
+    /**
+     * Visits the non-air blocks of one section without decoding the rest of the file.
+     */
+    @Override
+    public void forEachBlockInSection(int sectionX, int sectionY, int sectionZ,
+                                      PalettedBlockVolume.BlockVisitor visitor) {
+        long offset = sectionOffset(sectionX, sectionY, sectionZ);
+        if (offset == 0) return;
+
+        int baseX = sectionX << 4, baseY = sectionY << 4, baseZ = sectionZ << 4;
+        for (int local = 0; local < SECTION_VOLUME; local++) {
+            int value = readValue(offset, local);
+            if (value == 0) continue;
+
+            BlockState state = palette.get(value);
+            if (state == null) continue;
+            visitor.accept(baseX + (local & 15), baseY + (local >> 8), baseZ + ((local >> 4) & 15), state);
+        }
+    }
+
+    /**
+     * Decodes the whole file into a packed volume.
+     */
+    public PalettedBlockVolume toVolume() {
+        PalettedBlockVolume volume = new PalettedBlockVolume(sizeX, sizeY, sizeZ);
+
+        // Register the palette first so the packed data is sized once
+        int[] remap = new int[palette.size()];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = volume.paletteValueOf(palette.get(i));
+        }
+
+        for (int sectionY = 0; sectionY < sectionsY; sectionY++) {
+            for (int sectionZ = 0; sectionZ < sectionsZ; sectionZ++) {
+                for (int sectionX = 0; sectionX < sectionsX; sectionX++) {
+                    long offset = sectionOffset(sectionX, sectionY, sectionZ);
+                    if (offset == 0) continue;
+
+                    int baseX = sectionX << 4, baseY = sectionY << 4, baseZ = sectionZ << 4;
+                    for (int local = 0; local < SECTION_VOLUME; local++) {
+                        int x = baseX + (local & 15);
+                        int z = baseZ + ((local >> 4) & 15);
+                        int y = baseY + (local >> 8);
+                        if (x >= sizeX || y >= sizeY || z >= sizeZ) continue;
+
+                        int value = remap[readValue(offset, local)];
+                        if (value != 0) {
+                            volume.setEntryAt(volume.indexOf(x, y, z), value);
+                        }
+                    }
+                }
+            }
+        }
+        return volume;
+    }
+
+    private long sectionOffset(int sectionX, int sectionY, int sectionZ) {
+        if (sectionX < 0 || sectionY < 0 || sectionZ < 0 ||
+            sectionX >= sectionsX || sectionY >= sectionsY || sectionZ >= sectionsZ) {
+            return 0;
+        }
+        int section = (sectionY * sectionsZ + sectionZ) * sectionsX + sectionX;
+        return buffer.getLong(tableOffset + section * Long.BYTES);
+    }
+
+    private int readValue(long sectionOffset, int local) {
+        int longIndex = local / entriesPerLong;
+        int shift = (local - longIndex * entriesPerLong) * bitsPerEntry;
+        long word = buffer.getLong((int) (sectionOffset + (long) longIndex * Long.BYTES));
+        return (int) ((word >>> shift) & entryMask);
+    }
+}
@@ -0,0 +1,469 @@
+package measurementtools.modid.clipboard;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.BlockRotation;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact block storage for clipboard contents.
+ *
+ * A dense box of palette indices bit-packed into longs the same way Minecraft's
+ * PalettedContainer does it (entries never straddle two longs), plus a small
+ * BlockState palette. Palette index 0 is always air. A 200x100x200 volume with a
+ * few dozen block types takes a few megabytes instead of a HashMap's gigabytes.
+ *
+ * Volumes are filled once and then treated as read-only, so they can be shared
+ * freely between the clipboard, locked placements, history and background tasks.
+ */
+public final class PalettedBlockVolume implements SectionedBlocks {
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+
+    private final List<BlockState> palette = new ArrayList<>();
+    private final Map<BlockState, Integer> paletteIndex = new HashMap<>();
+
+    private int bitsPerEntry;
+    private int entriesPerLong;
+    private long entryMask;
+    private long[] data;
+
+    private int blockCount = 0;
+    private Map<BlockPos, BlockState> mapView;
+
+    public PalettedBlockVolume(int sizeX, int sizeY, int sizeZ) {
+        if (sizeX < 0 || sizeY < 0 || sizeZ < 0 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid volume size " + sizeX + "x" + sizeY + "x" + sizeZ);
+        }
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+
+        palette.add(null); // Index 0 is air
+        setBitsPerEntry(1);
+        this.data = new long[dataLength(sizeX * sizeY * sizeZ, entriesPerLong)];
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    @Override
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    /**
+     * Number of non-air blocks in the volume.
+     */
+    @Override
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public boolean isEmpty() {
+        return blockCount == 0;
+    }
+
+    /**
+     * Number of distinct block states, excluding air.
+     */
+    public int getPaletteSize() {
+        return palette.size() - 1;
+    }
+
+    /**
+     * Approximate heap usage of the packed data and palette.
+     */
+    public long getMemoryBytes() {
+        return (long) data.length * Long.BYTES + palette.size() * 16L;
+    }
+
+    /**
+     * Returns true if the position is inside the volume and holds a non-air block.
+     */
+    public boolean contains(int x, int y, int z) {
+        return inBounds(x, y, z) && getEntry(index(x, y, z)) != 0;
+    }
+
+    /**
+     * Gets the block at a position, or null for air and positions outside the volume.
+     */
+    public BlockState get(int x, int y, int z) {
+        if (!inBounds(x, y, z)) return null;
+        return palette.get(getEntry(index(x, y, z)));
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        return get(x, y, z);
+    }
+
+    /**
+     * Volumes keep no per-section index, so no section is known to be empty up front.
+     */
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return false;
+    }
+
+    /**
+     * Visits the non-air blocks of one 16x16x16 section of the box, row by row.
+     */
+    @Override
+    public void forEachBlockInSection(int sectionX, int sectionY, int sectionZ, BlockVisitor visitor) {
+        int baseX = sectionX << 4, baseY = sectionY << 4, baseZ = sectionZ << 4;
+        if (baseX < 0 || baseY < 0 || baseZ < 0) return;
+        int toX = Math.min(sizeX, baseX + 16);
+        int toY = Math.min(sizeY, baseY + 16);
+        int toZ = Math.min(sizeZ, baseZ + 16);
+
+        for (int y = baseY; y < toY; y++) {
+            for (int z = baseZ; z < toZ; z++) {
+                int rowStart = index(baseX, y, z) - baseX;
+                for (int x = baseX; x < toX; x++) {
+                    int value = getEntry(rowStart + x);
+                    if (value != 0) {
+                        visitor.accept(x, y, z, palette.get(value));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the block at a position. Null or air clears it.
+     */
+    public void set(int x, int y, int z, BlockState state) {
+        if (!inBounds(x, y, z)) {
+            throw new IndexOutOfBoundsException("Position " + x + "," + y + "," + z + " outside volume");
+        }
+
+        setEntryAt(index(x, y, z), paletteValueOf(state));
+    }
+
+    /**
+     * Visits every non-air block in storage order (Y, then Z, then X).
+     */
+    public void forEachBlock(BlockVisitor visitor) {
+        int total = sizeX * sizeY * sizeZ;
+        int x = 0, y = 0, z = 0;
+        for (int index = 0; index < total; index++) {
+            int value = getEntry(index);
+            if (value != 0) {
+                visitor.accept(x, y, z, palette.get(value));
+            }
+            if (++x == sizeX) {
+                x = 0;
+                if (++z == sizeZ) {
+                    z = 0;
+                    y++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an independent copy sharing no mutable state with this volume.
+     */
+    public PalettedBlockVolume copy() {
+        PalettedBlockVolume result = new PalettedBlockVolume(sizeX, sizeY, sizeZ);
+        for (int i = 1; i < palette.size(); i++) {
+            result.palette.add(palette.get(i));
+        }
+        result.paletteIndex.putAll(paletteIndex);
+        result.setBitsPerEntry(bitsPerEntry);
+        result.data = data.clone();
+        result.blockCount = blockCount;
+        return result;
+    }
+
+    /**
+     * Returns a copy rotated clockwise around the Y axis by 90° steps.
+     * Block states are rotated through the palette, so each distinct state is rotated once.
+     */
+    public PalettedBlockVolume rotated(int rotation) {
+        rotation &= 3;
+        if (rotation == 0) return this;
+
+        boolean swapAxes = (rotation & 1) != 0;
+        PalettedBlockVolume result = new PalettedBlockVolume(
+            swapAxes ? sizeZ : sizeX, sizeY, swapAxes ? sizeX : sizeZ);
+
+        // Rotated palette keeps the same indices, so packed values copy over unchanged
+        BlockRotation blockRotation = switch (rotation) {
+            case 1 -> BlockRotation.CLOCKWISE_90;
+            case 2 -> BlockRotation.CLOCKWISE_180;
+            default -> BlockRotation.COUNTERCLOCKWISE_90;
+        };
+        for (int i = 1; i < palette.size(); i++) {
+            BlockState rotatedState = palette.get(i).rotate(blockRotation);
+            result.palette.add(rotatedState);
+            result.paletteIndex.putIfAbsent(rotatedState, i);
+        }
+        result.setBitsPerEntry(bitsPerEntry);
+        result.data = new long[dataLength(sizeX * sizeY * sizeZ, result.entriesPerLong)];
+        result.blockCount = blockCount;
+
+        int total = sizeX * sizeY * sizeZ;
+        int x = 0, y = 0, z = 0;
+        for (int index = 0; index < total; index++) {
+            int value = getEntry(index);
+            if (value != 0) {
+                int rx, rz;
+                switch (rotation) {
+                    case 1 -> { rx = sizeZ - 1 - z; rz = x; }             // (x, z) -> (sizeZ - z, x)
+                    case 2 -> { rx = sizeX - 1 - x; rz = sizeZ - 1 - z; } // (x, z) -> (sizeX - x, sizeZ - z)
+                    default -> { rx = z; rz = sizeX - 1 - x; }            // (x, z) -> (z, sizeX - x)
+                }
+                result.setEntry(result.index(rx, y, rz), value);
+            }
+            if (++x == sizeX) {
+                x = 0;
+                if (++z == sizeZ) {
+                    z = 0;
+                    y++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects blocks with at least one face not covered by another block of the volume.
+     */
+    public Map<BlockPos, BlockState> collectExposedBlocks() {
+        Map<BlockPos, BlockState> exposed = new HashMap<>();
+        forEachBlock((x, y, z, state) -> {
+            if (!contains(x, y + 1, z) || !contains(x, y - 1, z) ||
+                !contains(x, y, z - 1) || !contains(x, y, z + 1) ||
+                !contains(x + 1, y, z) || !contains(x - 1, y, z)) {
+                exposed.put(new BlockPos(x, y, z), state);
+            }
+        });
+        return exposed;
+    }
+
+    /**
+     * Read-only Map view keyed by relative position, for code that works with block maps.
+     * Lookups go straight to the packed data; nothing is copied.
+     */
+    public Map<BlockPos, BlockState> asMap() {
+        if (mapView == null) {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+
+    /**
+     * Builds a volume sized to fit the given relative positions (all coordinates >= 0).
+     */
+    public static PalettedBlockVolume fromMap(Map<BlockPos, BlockState> blocks) {
+        int maxX = -1, maxY = -1, maxZ = -1;
+        for (BlockPos pos : blocks.keySet()) {
+            maxX = Math.max(maxX, pos.getX());
+            maxY = Math.max(maxY, pos.getY());
+            maxZ = Math.max(maxZ, pos.getZ());
+        }
+        PalettedBlockVolume volume = new PalettedBlockVolume(maxX + 1, maxY + 1, maxZ + 1);
+        for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+            BlockPos pos = entry.getKey();
+            volume.set(pos.getX(), pos.getY(), pos.getZ(), entry.getValue());
+        }
+        return volume;
+    }
+
+    // ========== Raw access for schematic IO (storage order: index = (y * sizeZ + z) * sizeX + x) ==========
+
+    int indexOf(int x, int y, int z) {
+        return index(x, y, z);
+    }
+
+    int getEntryAt(int index) {
+        return getEntry(index);
+    }
+
+    void setEntryAt(int index, int value) {
+        int previous = getEntry(index);
+        if (previous == value) return;
+
+        if (previous == 0) blockCount++;
+        if (value == 0) blockCount--;
+        setEntry(index, value);
+    }
+
+    /**
+     * Number of palette entries including air at index 0.
+     */
+    int getPaletteLength() {
+        return palette.size();
+    }
+
+    BlockState getPaletteState(int value) {
+        return palette.get(value);
+    }
+
+    /**
+     * Gets the palette value for a state, adding it if needed. Air and null map to 0.
+     */
+    int paletteValueOf(BlockState state) {
+        return (state == null || state.isAir()) ? 0 : getOrAddPaletteEntry(state);
+    }
+
+    private boolean inBounds(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+
+    private int getOrAddPaletteEntry(BlockState state) {
+        Integer existing = paletteIndex.get(state);
+        if (existing != null) return existing;
+
+        int value = palette.size();
+        palette.add(state);
+        paletteIndex.put(state, value);
+
+        if (value > entryMask) {
+            resize(bitsPerEntry + 1);
+        }
+        return value;
+    }
+
+    private int getEntry(int index) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index - longIndex * entriesPerLong) * bitsPerEntry;
+        return (int) ((data[longIndex] >>> shift) & entryMask);
+    }
+
+    private void setEntry(int index, int value) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index - longIndex * entriesPerLong) * bitsPerEntry;
+        data[longIndex] = (data[longIndex] & ~(entryMask << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * Repacks all entries with a wider bit size once the palette outgrows the current one.
+     */
+    private void resize(int newBits) {
+        int total = sizeX * sizeY * sizeZ;
+        int[] values = new int[total];
+        for (int i = 0; i < total; i++) {
+            values[i] = getEntry(i);
+        }
+
+        setBitsPerEntry(newBits);
+        data = new long[dataLength(total, entriesPerLong)];
+        for (int i = 0; i < total; i++) {
+            if (values[i] != 0) {
+                setEntry(i, values[i]);
+            }
+        }
+    }
+
+    private void setBitsPerEntry(int bits) {
+        bitsPerEntry = bits;
+        entriesPerLong = 64 / bits;
+        entryMask = (1L << bits) - 1;
+    }
+
+    private static int dataLength(int entries, int entriesPerLong) {
+        return (entries + entriesPerLong - 1) / entriesPerLong;
+    }
+
+    /**
+     * Receives one non-air block during iteration.
+     */
+    @FunctionalInterface
+    public interface BlockVisitor {
+        void accept(int x, int y, int z, BlockState state);
+    }
+
+    private final class MapView extends AbstractMap<BlockPos, BlockState> {
+        private Set<Map.Entry<BlockPos, BlockState>> entrySet;
+
+        @Override
+        public int size() {
+            return blockCount;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof BlockPos pos && contains(pos.getX(), pos.getY(), pos.getZ());
+        }
+
+        @Override
+        public BlockState get(Object key) {
+            return key instanceof BlockPos pos ? PalettedBlockVolume.this.get(pos.getX(), pos.getY(), pos.getZ()) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<BlockPos, BlockState>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        return blockCount;
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<BlockPos, BlockState>> iterator() {
+                        return new EntryIterator();
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<BlockPos, BlockState>> {
+        private final int total = sizeX * sizeY * sizeZ;
+        private int next = -1;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < total && getEntry(next) == 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < total;
+        }
+
+        @Override
+        public Map.Entry<BlockPos, BlockState> next() {
+            if (next >= total) throw new NoSuchElementException();
+
+            int index = next;
+            int x = index % sizeX;
+            int z = (index / sizeX) % sizeZ;
+            int y = index / (sizeX * sizeZ);
+            BlockState state = palette.get(getEntry(index));
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<>(new BlockPos(x, y, z), state);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package measurementtools.modid.clipboard;
+
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import measurementtools.modid.ClipboardManager;
+import measurementtools.modid.util.BackgroundTasks;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Client commands for saving and loading the clipboard and locked placements as
+ * Sponge schematics under config/measurementtools/schematics.
+ *
+ * The library subcommands manage the memory-mapped schematic library.
+ *
+ * File I/O runs on the background worker; results are applied on the client thread.
+ */
+public final class SchematicCommands {
+    public static final Path SCHEMATIC_DIR = FabricLoader.getInstance().getConfigDir()
+        .resolve("measurementtools").resolve("schematics");
+
+    private SchematicCommands() {}
+
+    public static void register() {
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> dispatcher.register(
+            ClientCommandManager.literal("measure")
+                .then(ClientCommandManager.literal("save")
+                    .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                        .executes(SchematicCommands::saveClipboard)))
+                .then(ClientCommandManager.literal("load")
+                    .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                        .executes(SchematicCommands::loadClipboard)))
+                .then(ClientCommandManager.literal("saveplacements")
+                    .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                        .executes(SchematicCommands::savePlacements)))
+                .then(ClientCommandManager.literal("loadplacements")
+                    .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                        .executes(SchematicCommands::loadPlacements)))
+                .then(ClientCommandManager.literal("library")
+                    .then(ClientCommandManager.literal("list")
+                        .executes(SchematicCommands::listLibrary))
+                    .then(ClientCommandManager.literal("add")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(SchematicCommands::addToLibrary)))
+                    .then(ClientCommandManager.literal("use")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(SchematicCommands::useFromLibrary)))
+                    .then(ClientCommandManager.literal("remove")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(SchematicCommands::removeFromLibrary))))
+        ));
+    }
+
+    /**
+     * Resolves a schematic name to a file, rejecting names that could escape the directory.
+     */
+    public static Path resolve(String name) {
+        if (!name.matches("[A-Za-z0-9_.-]+") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid schematic name: " + name);
+        }
+        return SCHEMATIC_DIR.resolve(name.endsWith(SpongeSchematic.EXTENSION) ? name : name + SpongeSchematic.EXTENSION);
+    }
+
+    private static int saveClipboard(CommandContext<FabricClientCommandSource> context) {
+        ClipboardManager clipboard = ClipboardManager.getInstance();
+        if (!clipboard.hasClipboardData()) {
+            context.getSource().sendError(Text.literal("Clipboard is empty"));
+            return 0;
+        }
+
+        // Save the unrotated clipboard; rotation is applied when pasting. A mapped design is
+        // decoded by the save job rather than on the client thread
+        BlockDesign design = clipboard.getClipboardSnapshot();
+        return save(context, design::getSource, null);
+    }
+
+    private static int savePlacements(CommandContext<FabricClientCommandSource> context) {
+        List<ClipboardManager.LockedPlacement> placements = ClipboardManager.getInstance().getLockedPlacements();
+        if (placements.isEmpty()) {
+            context.getSource().sendError(Text.literal("No locked placements"));
+            return 0;
+        }
+
+        if (placements.size() == 1) {
+            ClipboardManager.LockedPlacement placement = placements.get(0);
+            return save(context, placement::getVolume, placement.getAnchorPos());
+        }
+
+        // Bounds come from the unrotated sizes, so no rotation is computed on the client thread
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (ClipboardManager.LockedPlacement placement : placements) {
+            BlockPos pos = placement.getAnchorPos();
+            SectionedBlocks sections = placement.getDesign().getSections();
+            boolean quarterTurn = (placement.getRotation() & 1) != 0;
+            int sizeX = quarterTurn ? sections.getSizeZ() : sections.getSizeX();
+            int sizeZ = quarterTurn ? sections.getSizeX() : sections.getSizeZ();
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            minZ = Math.min(minZ, pos.getZ());
+            maxX = Math.max(maxX, pos.getX() + sizeX);
+            maxY = Math.max(maxY, pos.getY() + sections.getSizeY());
+            maxZ = Math.max(maxZ, pos.getZ() + sizeZ);
+        }
+
+        // Rotate and merge in the save job, later placements winning where they overlap
+        List<ClipboardManager.LockedPlacement> snapshot = List.copyOf(placements);
+        BlockPos origin = new BlockPos(minX, minY, minZ);
+        int sizeX = maxX - minX, sizeY = maxY - minY, sizeZ = maxZ - minZ;
+        return save(context, () -> {
+            PalettedBlockVolume merged = new PalettedBlockVolume(sizeX, sizeY, sizeZ);
+            for (ClipboardManager.LockedPlacement placement : snapshot) {
+                int offsetX = placement.getAnchorPos().getX() - origin.getX();
+                int offsetY = placement.getAnchorPos().getY() - origin.getY();
+                int offsetZ = placement.getAnchorPos().getZ() - origin.getZ();
+                placement.getVolume().forEachBlock((x, y, z, state) ->
+                    merged.set(x + offsetX, y + offsetY, z + offsetZ, state));
+            }
+            return merged;
+        }, origin);
+    }
+
+    /**
+     * Writes a schematic on the background worker. The volume is fetched by the job, so
+     * producing it (e.g. decoding a mapped design) stays off the client thread.
+     */
+    private static int save(CommandContext<FabricClientCommandSource> context, Supplier<PalettedBlockVolume> volume,
+                            BlockPos anchor) {
+        Path path;
+        try {
+            path = resolve(StringArgumentType.getString(context, "name"));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
+
+        FabricClientCommandSource source = context.getSource();
+        MinecraftClient client = source.getClient();
+        BackgroundTasks.submit(() -> {
+            try {
+                PalettedBlockVolume written = volume.get();
+                SpongeSchematic.write(path, written, anchor);
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((saved, error) -> client.execute(() -> {
+            if (error != null) {
+                source.sendError(Text.literal("Failed to save schematic: " + rootMessage(error)));
+            } else {
+                source.sendFeedback(Text.literal("Saved " + saved.getBlockCount() + " blocks to " + path.getFileName()));
+            }
+        }));
+        return 1;
+    }
+
+    private static int loadClipboard(CommandContext<FabricClientCommandSource> context) {
+        return load(context, loaded -> {
+            ClipboardManager.getInstance().loadClipboard(loaded.volume());
+            return "Loaded " + loaded.volume().getBlockCount() + " blocks into the clipboard";
+        });
+    }
+
+    private static int loadPlacements(CommandContext<FabricClientCommandSource> context) {
+        return load(context, loaded -> {
+            // Files saved from the clipboard carry no anchor; place them at the player
+            BlockPos anchor = loaded.anchor();
+            if (anchor == null) {
+                anchor = context.getSource().getPlayer().getBlockPos();
+            }
+            ClipboardManager.getInstance().addLockedPlacement(anchor, loaded.volume());
+            return "Placed " + loaded.volume().getBlockCount() + " blocks at "
+                + anchor.getX() + ", " + anchor.getY() + ", " + anchor.getZ();
+        });
+    }
+
+    private static int load(CommandContext<FabricClientCommandSource> context,
+                            Function<SpongeSchematic.Loaded, String> apply) {
+        Path path;
+        try {
+            path = resolve(StringArgumentType.getString(context, "name"));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
+
+        FabricClientCommandSource source = context.getSource();
+        MinecraftClient client = source.getClient();
+        BackgroundTasks.submit(() -> {
+            try {
+                return SpongeSchematic.read(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((loaded, error) -> client.execute(() -> {
+            if (error != null) {
+                source.sendError(Text.literal("Failed to load schematic: " + rootMessage(error)));
+                return;
+            }
+            String message = apply.apply(loaded);
+            if (loaded.unknownStates() > 0) {
+                message += " (" + loaded.unknownStates() + " unknown block states read as air)";
+            }
+            source.sendFeedback(Text.literal(message));
+        }));
+        return 1;
+    }
+
+    private static int listLibrary(CommandContext<FabricClientCommandSource> context) {
+        SchematicLibrary library = SchematicLibrary.getInstance();
+        List<String> names;
+        try {
+            names = library.listNames();
+        } catch (IOException e) {
+            context.getSource().sendError(Text.literal("Failed to list library: " + rootMessage(e)));
+            return 0;
+        }
+        if (names.isEmpty()) {
+            context.getSource().sendFeedback(Text.literal("Library is empty"));
+            return 1;
+        }
+
+        // Only headers are read here, so listing stays cheap for large libraries
+        for (String name : names) {
+            String line;
+            try {
+                MappedSchematic.Header header = library.getHeader(name);
+                line = name + ": " + header.sizeX() + "x" + header.sizeY() + "x" + header.sizeZ()
+                    + ", " + header.blockCount() + " blocks"
+                    + (library.getResident(name) != null ? " (loaded)" : "");
+            } catch (IOException e) {
+                line = name + ": unreadable (" + rootMessage(e) + ")";
+            }
+            context.getSource().sendFeedback(Text.literal(line));
+        }
+        return names.size();
+    }
+
+    private static int addToLibrary(CommandContext<FabricClientCommandSource> context) {
+        ClipboardManager clipboard = ClipboardManager.getInstance();
+        if (!clipboard.hasClipboardData()) {
+            context.getSource().sendError(Text.literal("Clipboard is empty"));
+            return 0;
+        }
+
+        String name = StringArgumentType.getString(context, "name");
+        BlockDesign design = clipboard.getClipboardSnapshot();
+        FabricClientCommandSource source = context.getSource();
+        MinecraftClient client = source.getClient();
+        try {
+            SchematicLibrary.getInstance().save(name, design).whenComplete((saved, error) -> client.execute(() -> {
+                if (error != null) {
+                    source.sendError(Text.literal("Failed to add to library: " + rootMessage(error)));
+                } else {
+                    source.sendFeedback(Text.literal("Added " + design.getBlockCount() + " blocks to the library as " + name));
+                }
+            }));
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
+        return 1;
+    }
+
+    private static int useFromLibrary(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "name");
+        FabricClientCommandSource source = context.getSource();
+        SchematicLibrary library = SchematicLibrary.getInstance();
+
+        // Entries saved this session are already decoded; reuse their volume and its design
+        PalettedBlockVolume resident = library.getResident(name);
+        if (resident != null) {
+            ClipboardManager.getInstance().loadClipboard(resident);
+            source.sendFeedback(Text.literal("Switched clipboard to " + name));
+            return 1;
+        }
+
+        // Otherwise preview straight from the mapped file; it is decoded only when needed whole
+        MappedSchematic schematic;
+        try {
+            schematic = library.open(name);
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
+            return 0;
+        } catch (IOException e) {
+            source.sendError(Text.literal("Failed to load " + name + ": " + rootMessage(e)));
+            return 0;
+        }
+
+        ClipboardManager.getInstance().loadClipboard(BlockDesign.ofMapped(schematic));
+        source.sendFeedback(Text.literal("Loaded " + schematic.getBlockCount() + " blocks from " + name));
+        return 1;
+    }
+
+    private static int removeFromLibrary(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "name");
+        try {
+            if (SchematicLibrary.getInstance().remove(name)) {
+                context.getSource().sendFeedback(Text.literal("Removed " + name + " from the library"));
+                return 1;
+            }
+            context.getSource().sendError(Text.literal("No library entry named " + name));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(Text.literal(e.getMessage()));
+        } catch (IOException e) {
+            context.getSource().sendError(Text.literal("Failed to remove " + name + ": " + rootMessage(e)));
+        }
+        return 0;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,162 @@
+package measurementtools.modid.clipboard;
+
+import measurementtools.modid.util.BackgroundTasks;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Local schematic library under config/measurementtools/library.
+ *
+ * Entries are stored as MappedSchematic files. Listing only reads their headers through a
+ * stream. Using an entry maps it and hands the mapping to the clipboard, which pages in only
+ * the sections the preview draws; the library itself keeps no MappedSchematic around, so a
+ * cached mapping never holds an entry open while it is replaced or deleted. Volumes saved
+ * this session are already decoded and are kept in an LRU cache bounded by a byte budget.
+ *
+ * All methods are thread-safe; writing runs on the background worker.
+ */
+public final class SchematicLibrary {
+    private static final SchematicLibrary INSTANCE = new SchematicLibrary();
+
+    public static final Path LIBRARY_DIR = FabricLoader.getInstance().getConfigDir()
+        .resolve("measurementtools").resolve("library");
+
+    // Budget for decoded volumes; mapped files are paged by the OS and not counted
+    private static final long RESIDENT_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    private final Map<String, MappedSchematic.Header> headers = new HashMap<>();
+    private final LinkedHashMap<String, PalettedBlockVolume> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes = 0;
+
+    private SchematicLibrary() {}
+
+    public static SchematicLibrary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Lists library entry names, sorted.
+     */
+    public List<String> listNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(LIBRARY_DIR)) return names;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(LIBRARY_DIR, "*" + MappedSchematic.EXTENSION)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                names.add(fileName.substring(0, fileName.length() - MappedSchematic.EXTENSION.length()));
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns an entry's header, reading it on first use. The file is not mapped.
+     */
+    public synchronized MappedSchematic.Header getHeader(String name) throws IOException {
+        MappedSchematic.Header header = headers.get(name);
+        if (header == null) {
+            header = MappedSchematic.readHeader(resolve(name));
+            headers.put(name, header);
+        }
+        return header;
+    }
+
+    /**
+     * Returns the decoded volume if it is resident, without touching the disk.
+     */
+    public synchronized PalettedBlockVolume getResident(String name) {
+        return resident.get(name);
+    }
+
+    /**
+     * Maps an entry without decoding it. Only the header and palette are read here; block
+     * data is paged in by whoever reads the returned file.
+     */
+    public MappedSchematic open(String name) throws IOException {
+        return MappedSchematic.open(resolve(name));
+    }
+
+    /**
+     * Writes a design into the library on the background worker and keeps its volume resident.
+     * A mapped design is decoded by the job. Volumes are never mutated after publishing, so
+     * the design's instance is shared.
+     */
+    public CompletableFuture<Path> save(String name, BlockDesign design) {
+        Path path = resolve(name);
+        return BackgroundTasks.submit(() -> {
+            PalettedBlockVolume volume = design.getSource();
+            try {
+                MappedSchematic.write(path, volume);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synchronized (this) {
+                // Drop the stale header; the next listing reads the new file
+                headers.remove(name);
+            }
+            makeResident(name, volume);
+            return path;
+        });
+    }
+
+    /**
+     * Deletes an entry from disk and from the caches.
+     */
+    public boolean remove(String name) throws IOException {
+        Path path = resolve(name);
+        synchronized (this) {
+            headers.remove(name);
+            PalettedBlockVolume volume = resident.remove(name);
+            if (volume != null) {
+                residentBytes -= volume.getMemoryBytes();
+            }
+        }
+        return Files.deleteIfExists(path);
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    private synchronized void makeResident(String name, PalettedBlockVolume volume) {
+        PalettedBlockVolume previous = resident.put(name, volume);
+        if (previous != null) {
+            residentBytes -= previous.getMemoryBytes();
+        }
+        residentBytes += volume.getMemoryBytes();
+
+        // Evict least recently used entries, always keeping the newest one
+        Iterator<Map.Entry<String, PalettedBlockVolume>> it = resident.entrySet().iterator();
+        while (residentBytes > RESIDENT_BUDGET_BYTES && resident.size() > 1 && it.hasNext()) {
+            Map.Entry<String, PalettedBlockVolume> eldest = it.next();
+            if (eldest.getKey().equals(name)) continue;
+            residentBytes -= eldest.getValue().getMemoryBytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * Resolves an entry name to a file, rejecting names that could escape the directory.
+     */
+    public static Path resolve(String name) {
+        if (!name.matches("[A-Za-z0-9_.-]+") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid library name: " + name);
+        }
+        return LIBRARY_DIR.resolve(name.endsWith(MappedSchematic.EXTENSION) ? name : name + MappedSchematic.EXTENSION);
+    }
+}
@@ -0,0 +1,274 @@
+package measurementtools.modid.clipboard;
+
+import measurementtools.modid.shapes.ShapeMask;
+import measurementtools.modid.shapes.ShapeParameters;
+import measurementtools.modid.world.BlockSource;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Copies a box of a block source into a PalettedBlockVolume one chunk section at a time.
+ *
+ * Sections are walked in order, so a World-backed source resolves each chunk section once
+ * and reads states straight from it. Sections that are entirely air or outside the optional
+ * shape mask are skipped. World access is not thread-safe, so when copying from the world
+ * the task runs on the client thread and is advanced a time slice per tick.
+ */
+public class SectionCopyTask {
+    private final BlockSource source;
+    // Builds the shape mask before the copy starts; null once it is done or if the box needs no mask
+    private ShapeMask.Rasterizer rasterizer;
+
+    // Set once the mask is known, since its bounds decide the box
+    private BlockPos origin;
+    private BlockPos maxPos;
+    private PalettedBlockVolume target;
+    private ShapeMask mask; // null copies the whole box
+
+    // Section coordinate ranges covered by the box (inclusive)
+    private int minSectionX, minSectionY, minSectionZ;
+    private int sectionsX, sectionsY, sectionsZ;
+    private int totalSections;
+    private int nextSection = 0;
+
+    // Read-only view of the finished part of the target, created with the target
+    private CopiedSections copiedSections;
+
+    public SectionCopyTask(BlockSource source, BlockPos origin, BlockPos maxPos, ShapeMask mask) {
+        this.source = source;
+        startCopy(origin, maxPos, mask);
+    }
+
+    private SectionCopyTask(BlockSource source, ShapeMask.Rasterizer rasterizer) {
+        this.source = source;
+        this.rasterizer = rasterizer;
+    }
+
+    /**
+     * Creates a task copying a shape given explicitly: its mask, or its box in rectangle mode.
+     * The mask is rasterized by step, a section column at a time, before any blocks are copied.
+     * Returns null if there is nothing to copy.
+     */
+    public static SectionCopyTask forShape(BlockSource source, ShapeParameters shape) {
+        if (!shape.hasSelection()) return null;
+
+        ShapeMask.Rasterizer rasterizer = ShapeMask.Rasterizer.of(shape);
+        if (rasterizer != null) {
+            return new SectionCopyTask(source, rasterizer);
+        }
+        BlockPos origin = shape.getMinPos();
+        BlockPos maxPos = shape.getMaxPos();
+        if (origin == null || maxPos == null) return null;
+        return new SectionCopyTask(source, origin, maxPos, null);
+    }
+
+    private void startCopy(BlockPos origin, BlockPos maxPos, ShapeMask mask) {
+        this.origin = origin;
+        this.maxPos = maxPos;
+        this.mask = mask;
+        this.target = new PalettedBlockVolume(
+            maxPos.getX() - origin.getX() + 1,
+            maxPos.getY() - origin.getY() + 1,
+            maxPos.getZ() - origin.getZ() + 1
+        );
+
+        this.minSectionX = origin.getX() >> 4;
+        this.minSectionY = origin.getY() >> 4;
+        this.minSectionZ = origin.getZ() >> 4;
+        this.sectionsX = (maxPos.getX() >> 4) - minSectionX + 1;
+        this.sectionsY = (maxPos.getY() >> 4) - minSectionY + 1;
+        this.sectionsZ = (maxPos.getZ() >> 4) - minSectionZ + 1;
+        this.totalSections = sectionsX * sectionsY * sectionsZ;
+        this.copiedSections = new CopiedSections(target);
+    }
+
+    /**
+     * The volume being filled. Sections already copied are complete; the rest are still air.
+     * Null while the shape mask is still being rasterized.
+     */
+    public PalettedBlockVolume getTarget() {
+        return target;
+    }
+
+    /**
+     * Read-only view of the target that only offers sections whose blocks are all copied,
+     * so they can be previewed while the copy continues without cloning the target.
+     * Null while the shape mask is still being rasterized. Client thread only.
+     */
+    public SectionedBlocks getCopiedSections() {
+        return copiedSections;
+    }
+
+    public boolean isDone() {
+        return rasterizer == null && nextSection >= totalSections;
+    }
+
+    public int getProcessedSections() {
+        return nextSection;
+    }
+
+    public int getTotalSections() {
+        return totalSections;
+    }
+
+    /**
+     * Fraction of the work done, from 0 to 1. Rasterizing the mask counts as the first half
+     * when the shape needs one.
+     */
+    public float getProgress() {
+        if (rasterizer != null) return rasterizer.getProgress() * 0.5f;
+        float copied = totalSections == 0 ? 1.0f : (float) nextSection / totalSections;
+        return mask != null ? 0.5f + copied * 0.5f : copied;
+    }
+
+    /**
+     * Rasterizes the mask, then copies sections, until the deadline passes or the box is finished.
+     * Sections are walked column by column, and the deadline is checked between columns.
+     * @return true when the copy is complete
+     */
+    public boolean step(long deadlineNanos) {
+        // The world may have changed since the last slice
+        source.resetCache();
+
+        if (rasterizer != null) {
+            if (!rasterizer.step(deadlineNanos)) return false;
+
+            ShapeMask built = rasterizer.getMask();
+            rasterizer = null;
+            if (built.isEmpty()) {
+                target = new PalettedBlockVolume(0, 0, 0);
+                copiedSections = new CopiedSections(target);
+                return true;
+            }
+            startCopy(built.getMinPos(), built.getMaxPos(), built);
+            if (System.nanoTime() >= deadlineNanos) return false;
+        }
+
+        while (nextSection < totalSections) {
+            int columnIndex = nextSection / sectionsY;
+            int sectionX = minSectionX + columnIndex % sectionsX;
+            int sectionZ = minSectionZ + columnIndex / sectionsX;
+
+            do {
+                int sectionY = minSectionY + nextSection % sectionsY;
+                if (!source.isSectionEmpty(sectionX, sectionY, sectionZ)) {
+                    copySection(sectionX, sectionY, sectionZ);
+                }
+                nextSection++;
+            } while (nextSection % sectionsY != 0);
+
+            if (System.nanoTime() >= deadlineNanos) break;
+        }
+        return isDone();
+    }
+
+    /**
+     * Copies the part of one section that overlaps the box.
+     */
+    private void copySection(int sectionX, int sectionY, int sectionZ) {
+        long[] maskBits = null;
+        if (mask != null) {
+            maskBits = mask.getSectionBits(sectionX, sectionY, sectionZ);
+            if (maskBits == null) return;
+        }
+
+        int baseX = sectionX << 4;
+        int baseY = sectionY << 4;
+        int baseZ = sectionZ << 4;
+
+        int fromX = Math.max(origin.getX(), baseX) - baseX;
+        int fromY = Math.max(origin.getY(), baseY) - baseY;
+        int fromZ = Math.max(origin.getZ(), baseZ) - baseZ;
+        int toX = Math.min(maxPos.getX(), baseX + 15) - baseX;
+        int toY = Math.min(maxPos.getY(), baseY + 15) - baseY;
+        int toZ = Math.min(maxPos.getZ(), baseZ + 15) - baseZ;
+
+        int offsetX = baseX - origin.getX();
+        int offsetY = baseY - origin.getY();
+        int offsetZ = baseZ - origin.getZ();
+
+        for (int y = fromY; y <= toY; y++) {
+            for (int z = fromZ; z <= toZ; z++) {
+                for (int x = fromX; x <= toX; x++) {
+                    if (maskBits != null) {
+                        int bit = ShapeMask.localIndex(x, y, z);
+                        if ((maskBits[bit >> 6] & (1L << bit)) == 0) continue;
+                    }
+                    BlockState state = source.getBlockState(baseX + x, baseY + y, baseZ + z);
+                    if (!state.isAir()) {
+                        target.set(x + offsetX, y + offsetY, z + offsetZ, state);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether every block of the target column containing (x, z) has been copied.
+     * Columns of world sections are copied in X-then-Z order, so the world column of the
+     * farthest corner of a box decides whether the whole box is done.
+     */
+    private boolean isColumnCopied(int x, int z) {
+        if (rasterizer != null) return false;
+        if (isDone()) return true;
+
+        int sectionX = (origin.getX() + x) >> 4;
+        int sectionZ = (origin.getZ() + z) >> 4;
+        int columnIndex = (sectionZ - minSectionZ) * sectionsX + (sectionX - minSectionX);
+        return columnIndex < nextSection / sectionsY;
+    }
+
+    /**
+     * The finished part of the target, in target coordinates and target-aligned sections.
+     */
+    private final class CopiedSections implements SectionedBlocks {
+        private final PalettedBlockVolume volume;
+
+        CopiedSections(PalettedBlockVolume volume) {
+            this.volume = volume;
+        }
+
+        @Override
+        public int getSizeX() {
+            return volume.getSizeX();
+        }
+
+        @Override
+        public int getSizeY() {
+            return volume.getSizeY();
+        }
+
+        @Override
+        public int getSizeZ() {
+            return volume.getSizeZ();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return volume.getBlockCount();
+        }
+
+        @Override
+        public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+            return false;
+        }
+
+        @Override
+        public boolean isSectionReady(int sectionX, int sectionY, int sectionZ) {
+            int x = Math.min((sectionX << 4) + 15, volume.getSizeX() - 1);
+            int z = Math.min((sectionZ << 4) + 15, volume.getSizeZ() - 1);
+            return isColumnCopied(x, z);
+        }
+
+        @Override
+        public BlockState getBlockState(int x, int y, int z) {
+            return volume.get(x, y, z);
+        }
+
+        @Override
+        public void forEachBlockInSection(int sectionX, int sectionY, int sectionZ,
+                                          PalettedBlockVolume.BlockVisitor visitor) {
+            volume.forEachBlockInSection(sectionX, sectionY, sectionZ, visitor);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package measurementtools.modid.clipboard;
+
+import net.minecraft.block.BlockState;
+
+/**
+ * Read-only block data relative to (0,0,0) that can be read one 16x16x16 section at a time.
+ *
+ * The ghost preview pages sections in through this as it draws them, so a library file is
+ * read straight from its mapping and a copy in progress shows the sections it has finished,
+ * without decoding or cloning the whole box first. Implementations need not be thread-safe.
+ */
+public interface SectionedBlocks {
+    int getSizeX();
+
+    int getSizeY();
+
+    int getSizeZ();
+
+    /**
+     * Number of non-air blocks.
+     */
+    int getBlockCount();
+
+    /**
+     * Whether the section is known to hold only air, so readers can skip it.
+     * A false result does not mean the section has blocks.
+     */
+    boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ);
+
+    /**
+     * Whether the section's blocks are final. Only a copy still in progress has sections
+     * that are not; readers come back to them later.
+     */
+    default boolean isSectionReady(int sectionX, int sectionY, int sectionZ) {
+        return true;
+    }
+
+    /**
+     * Gets the block at a position, or null for air and positions outside the box.
+     */
+    BlockState getBlockState(int x, int y, int z);
+
+    /**
+     * Visits every non-air block of one section, with positions relative to the box.
+     */
+    void forEachBlockInSection(int sectionX, int sectionY, int sectionZ, PalettedBlockVolume.BlockVisitor visitor);
+}
@@ -0,0 +1,414 @@
+package measurementtools.modid.clipboard;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.Registries;
+import net.minecraft.state.property.Property;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes Sponge schematics (.schem, version 2 on write, 2 and 3 on read).
+ *
+ * Both directions stream the gzipped NBT tag by tag instead of building an NbtCompound
+ * tree: block data is varint-encoded in the same Y, Z, X order PalettedBlockVolume uses,
+ * so it is written straight from the packed volume and decoded straight back into it.
+ */
+public final class SpongeSchematic {
+    public static final String EXTENSION = ".schem";
+
+    // Minecraft 1.21.10
+    private static final int DATA_VERSION = 4556;
+    private static final int SPONGE_VERSION = 2;
+    private static final String ANCHOR_KEY = "MeasurementToolsAnchor";
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    // NBT tag type ids
+    private static final byte TAG_END = 0;
+    private static final byte TAG_BYTE = 1;
+    private static final byte TAG_SHORT = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_BYTE_ARRAY = 7;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+    private static final byte TAG_INT_ARRAY = 11;
+    private static final byte TAG_LONG_ARRAY = 12;
+
+    // Width, Height and Length are stored as unsigned shorts
+    private static final int MAX_DIMENSION = 0xFFFF;
+
+    private SpongeSchematic() {}
+
+    /**
+     * A loaded schematic. The anchor is only present in files exported from locked placements.
+     */
+    public record Loaded(PalettedBlockVolume volume, BlockPos anchor, int unknownStates) {}
+
+    // ========== Writing ==========
+
+    /**
+     * Writes a volume as a gzipped Sponge schematic.
+     * @param anchor world position stored in the metadata, or null
+     * @throws IOException if a dimension does not fit the format, or on write failure
+     */
+    public static void write(Path path, PalettedBlockVolume volume, BlockPos anchor) throws IOException {
+        if (volume.getSizeX() > MAX_DIMENSION || volume.getSizeY() > MAX_DIMENSION
+                || volume.getSizeZ() > MAX_DIMENSION) {
+            throw new IOException("Too large for a schematic: " + volume.getSizeX() + "x" + volume.getSizeY()
+                + "x" + volume.getSizeZ() + " (at most " + MAX_DIMENSION + " per side)");
+        }
+
+        // Sponge palettes must have unique keys; rotated volumes can map two entries to one state
+        Map<String, Integer> paletteIds = new HashMap<>();
+        int[] remap = new int[volume.getPaletteLength()];
+        paletteIds.put("minecraft:air", 0);
+        for (int value = 1; value < remap.length; value++) {
+            String key = stringify(volume.getPaletteState(value));
+            Integer existing = paletteIds.putIfAbsent(key, paletteIds.size());
+            remap[value] = existing != null ? existing : paletteIds.size() - 1;
+        }
+
+        int total = volume.getSizeX() * volume.getSizeY() * volume.getSizeZ();
+        int dataLength = total;
+        if (paletteIds.size() > 0x80) {
+            // Indices above 127 take more than one varint byte, so measure first
+            dataLength = 0;
+            for (int i = 0; i < total; i++) {
+                dataLength += varIntSize(remap[volume.getEntryAt(i)]);
+            }
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE), IO_BUFFER_SIZE))) {
+            beginTag(out, TAG_COMPOUND, "Schematic");
+
+            beginTag(out, TAG_INT, "Version");
+            out.writeInt(SPONGE_VERSION);
+            beginTag(out, TAG_INT, "DataVersion");
+            out.writeInt(DATA_VERSION);
+            beginTag(out, TAG_SHORT, "Width");
+            out.writeShort(volume.getSizeX());
+            beginTag(out, TAG_SHORT, "Height");
+            out.writeShort(volume.getSizeY());
+            beginTag(out, TAG_SHORT, "Length");
+            out.writeShort(volume.getSizeZ());
+
+            if (anchor != null) {
+                beginTag(out, TAG_COMPOUND, "Metadata");
+                beginTag(out, TAG_INT_ARRAY, ANCHOR_KEY);
+                out.writeInt(3);
+                out.writeInt(anchor.getX());
+                out.writeInt(anchor.getY());
+                out.writeInt(anchor.getZ());
+                out.writeByte(TAG_END);
+            }
+
+            beginTag(out, TAG_INT, "PaletteMax");
+            out.writeInt(paletteIds.size());
+            beginTag(out, TAG_COMPOUND, "Palette");
+            for (Map.Entry<String, Integer> entry : paletteIds.entrySet()) {
+                beginTag(out, TAG_INT, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeByte(TAG_END);
+
+            beginTag(out, TAG_BYTE_ARRAY, "BlockData");
+            out.writeInt(dataLength);
+            for (int i = 0; i < total; i++) {
+                writeVarInt(out, remap[volume.getEntryAt(i)]);
+            }
+
+            out.writeByte(TAG_END);
+        }
+    }
+
+    private static void beginTag(DataOutputStream out, byte type, String name) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(name);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    // ========== Reading ==========
+
+    /**
+     * Reads a gzipped Sponge schematic straight into a packed volume.
+     * Unknown block states (e.g. from mods or newer versions) are read as air.
+     */
+    public static Loaded read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path), IO_BUFFER_SIZE), IO_BUFFER_SIZE))) {
+            if (in.readByte() != TAG_COMPOUND) {
+                throw new IOException("Not a schematic: root tag is not a compound");
+            }
+            in.readUTF();
+
+            ReadState state = new ReadState();
+            readCompound(in, state);
+            return state.finish();
+        }
+    }
+
+    /**
+     * Walks one compound, descending into the containers that hold schematic data
+     * (v3 nests everything under "Schematic" and "Blocks") and skipping everything else.
+     */
+    private static void readCompound(DataInputStream in, ReadState state) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            if (type == TAG_END) return;
+            String name = in.readUTF();
+
+            switch (name) {
+                case "Schematic", "Blocks", "Metadata" -> {
+                    if (type == TAG_COMPOUND) readCompound(in, state);
+                    else skipPayload(in, type);
+                }
+                case "Width" -> state.width = readDimension(in, type);
+                case "Height" -> state.height = readDimension(in, type);
+                case "Length" -> state.length = readDimension(in, type);
+                case "Palette" -> {
+                    if (type == TAG_COMPOUND) readPalette(in, state);
+                    else skipPayload(in, type);
+                }
+                case "BlockData", "Data" -> {
+                    if (type == TAG_BYTE_ARRAY) state.readBlockData(in, in.readInt());
+                    else skipPayload(in, type);
+                }
+                case ANCHOR_KEY -> {
+                    if (type == TAG_INT_ARRAY && in.readInt() == 3) {
+                        state.anchor = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+                    } else if (type == TAG_INT_ARRAY) {
+                        throw new IOException("Malformed " + ANCHOR_KEY);
+                    } else {
+                        skipPayload(in, type);
+                    }
+                }
+                default -> skipPayload(in, type);
+            }
+        }
+    }
+
+    private static int readDimension(DataInput in, byte type) throws IOException {
+        if (type != TAG_SHORT) throw new IOException("Schematic dimensions must be shorts");
+        return in.readShort() & 0xFFFF;
+    }
+
+    private static void readPalette(DataInputStream in, ReadState state) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            if (type == TAG_END) return;
+            String key = in.readUTF();
+            if (type != TAG_INT) {
+                skipPayload(in, type);
+                continue;
+            }
+            int id = in.readInt();
+            if (id < 0) throw new IOException("Negative palette id for " + key);
+
+            while (state.palette.size() <= id) {
+                state.palette.add(null);
+            }
+            BlockState blockState = parseBlockState(key);
+            if (blockState == null) state.unknownStates++;
+            state.palette.set(id, blockState);
+        }
+    }
+
+    private static void skipPayload(DataInput in, byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE -> in.skipBytes(1);
+            case TAG_SHORT -> in.skipBytes(2);
+            case TAG_INT, TAG_FLOAT -> in.skipBytes(4);
+            case TAG_LONG, TAG_DOUBLE -> in.skipBytes(8);
+            case TAG_BYTE_ARRAY -> skipFully(in, in.readInt());
+            case TAG_STRING -> skipFully(in, in.readUnsignedShort());
+            case TAG_INT_ARRAY -> skipFully(in, in.readInt() * 4L);
+            case TAG_LONG_ARRAY -> skipFully(in, in.readInt() * 8L);
+            case TAG_LIST -> {
+                byte elementType = in.readByte();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    skipPayload(in, elementType);
+                }
+            }
+            case TAG_COMPOUND -> {
+                while (true) {
+                    byte childType = in.readByte();
+                    if (childType == TAG_END) break;
+                    skipFully(in, in.readUnsignedShort());
+                    skipPayload(in, childType);
+                }
+            }
+            case TAG_END -> {}
+            default -> throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static void skipFully(DataInput in, long bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                in.readByte(); // Forces EOFException at end of stream
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 32) throw new IOException("VarInt too long in block data");
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Accumulates schematic fields, which may appear in any order.
+     * Block data is decoded directly from the stream when the dimensions and palette came
+     * first (as in files written here); otherwise its raw bytes are held until they arrive.
+     */
+    private static class ReadState {
+        int width = -1, height = -1, length = -1;
+        final List<BlockState> palette = new ArrayList<>();
+        int unknownStates = 0;
+        BlockPos anchor;
+
+        PalettedBlockVolume volume;
+        byte[] pendingData;
+
+        void readBlockData(DataInputStream in, int byteLength) throws IOException {
+            if (width >= 0 && height >= 0 && length >= 0 && !palette.isEmpty()) {
+                decode(in);
+            } else {
+                pendingData = new byte[byteLength];
+                in.readFully(pendingData);
+            }
+        }
+
+        private void decode(DataInput in) throws IOException {
+            volume = new PalettedBlockVolume(width, height, length);
+
+            // Register the palette up front so the packed data is sized once
+            int[] remap = new int[palette.size()];
+            for (int id = 0; id < remap.length; id++) {
+                remap[id] = volume.paletteValueOf(palette.get(id));
+            }
+
+            int total = width * height * length;
+            for (int i = 0; i < total; i++) {
+                int id = readVarInt(in);
+                if (id >= remap.length) throw new IOException("Block data references palette id " + id);
+                int value = remap[id];
+                if (value != 0) {
+                    volume.setEntryAt(i, value);
+                }
+            }
+        }
+
+        Loaded finish() throws IOException {
+            if (volume == null) {
+                if (width < 0 || height < 0 || length < 0 || palette.isEmpty() || pendingData == null) {
+                    throw new IOException("Not a schematic: missing dimensions, palette or block data");
+                }
+                decode(new DataInputStream(new ByteArrayInputStream(pendingData)));
+                pendingData = null;
+            }
+            return new Loaded(volume, anchor, unknownStates);
+        }
+    }
+
+    // ========== Block state strings ==========
+
+    /**
+     * Formats a state the way commands and schematics do, e.g. "minecraft:oak_stairs[facing=east,half=top]".
+     */
+    public static String stringify(BlockState state) {
+        StringBuilder builder = new StringBuilder(Registries.BLOCK.getId(state.getBlock()).toString());
+        if (!state.getProperties().isEmpty()) {
+            builder.append('[');
+            boolean first = true;
+            for (Property<?> property : state.getProperties()) {
+                if (!first) builder.append(',');
+                first = false;
+                builder.append(property.getName()).append('=').append(valueName(state, property));
+            }
+            builder.append(']');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses a state string, ignoring unknown properties. Returns null for unknown blocks.
+     */
+    public static BlockState parseBlockState(String text) {
+        int bracket = text.indexOf('[');
+        Identifier id = Identifier.tryParse(bracket < 0 ? text : text.substring(0, bracket));
+        if (id == null || !Registries.BLOCK.containsId(id)) return null;
+
+        Block block = Registries.BLOCK.get(id);
+        BlockState state = block.getDefaultState();
+        if (bracket >= 0 && text.endsWith("]")) {
+            for (String pair : text.substring(bracket + 1, text.length() - 1).split(",")) {
+                int equals = pair.indexOf('=');
+                if (equals < 0) continue;
+                Property<?> property = block.getStateManager().getProperty(pair.substring(0, equals).trim());
+                if (property != null) {
+                    state = withParsedValue(state, property, pair.substring(equals + 1).trim());
+                }
+            }
+        }
+        return state;
+    }
+
+    private static <T extends Comparable<T>> String valueName(BlockState state, Property<T> property) {
+        return property.name(state.get(property));
+    }
+
+    private static <T extends Comparable<T>> BlockState withParsedValue(BlockState state, Property<T> property,
+                                                                       String value) {
+        return property.parse(value).map(parsed -> state.with(property, parsed)).orElse(state);
+    }
+}
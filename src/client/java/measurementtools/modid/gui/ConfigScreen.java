@@ -10,8 +10,25 @@ import net.minecraft.client.gui.widget.SliderWidget;
 import net.minecraft.text.Text;
 
 public class ConfigScreen extends Screen {
+    // Upper end of the frame budget slider, in milliseconds
+    private static final float MAX_FRAME_BUDGET_MS = 8.0f;
+
+    // Row offsets from the first row, leaving room for the descriptions under rows 0 and 2
+    private static final int[] DESCRIBED_ROW_OFFSETS = {0, 50, 80, 130, 160, 190};
+    private static final int DESCRIBED_HEIGHT = 210;
+    private static final int ROW_HEIGHT = 20;
+    // Below the title and above the Done button
+    private static final int CONTENT_TOP = 32;
+    private static final int CONTENT_BOTTOM_MARGIN = 46;
+
     private final Screen parent;
     private SliderWidget opacitySlider;
+    private SliderWidget frameBudgetSlider;
+
+    // Set by init(); descriptions are left out when the screen is too short for them
+    private boolean showDescriptions;
+    private int ellipsoidDescY;
+    private int ghostDescY;
 
     public ConfigScreen(Screen parent) {
         super(Text.literal("MeasurementTools Settings"));
@@ -23,7 +40,7 @@ public class ConfigScreen extends Screen {
         super.init();
 
         int centerX = this.width / 2;
-        int startY = this.height / 4;
+        int[] rowY = layoutRows();
 
         // Ellipsoid Mode Toggle Button
         addDrawableChild(ButtonWidget.builder(
@@ -32,7 +49,7 @@ public class ConfigScreen extends Screen {
                 toggleEllipsoidMode();
                 button.setMessage(getEllipsoidModeText());
             })
-            .dimensions(centerX - 100, startY, 200, 20)
+            .dimensions(centerX - 100, rowY[0], 200, 20)
             .build()
         );
 
@@ -43,13 +60,13 @@ public class ConfigScreen extends Screen {
                 toggleGhostBlockRenderMode();
                 button.setMessage(getGhostBlockRenderModeText());
             })
-            .dimensions(centerX - 100, startY + 50, 200, 20)
+            .dimensions(centerX - 100, rowY[1], 200, 20)
             .build()
         );
 
         // Ghost Block Opacity Slider
         float currentOpacity = ModConfig.getInstance().getGhostBlockOpacity();
-        opacitySlider = new SliderWidget(centerX - 100, startY + 80, 200, 20,
+        opacitySlider = new SliderWidget(centerX - 100, rowY[2], 200, 20,
                 getOpacityText(currentOpacity), currentOpacity) {
             @Override
             protected void updateMessage() {
@@ -63,6 +80,46 @@ public class ConfigScreen extends Screen {
         };
         addDrawableChild(opacitySlider);
 
+        // Undo History Resume Toggle Button
+        addDrawableChild(ButtonWidget.builder(
+            getResumeUndoHistoryText(),
+            button -> {
+                ModConfig config = ModConfig.getInstance();
+                config.setResumeUndoHistory(!config.isResumeUndoHistory());
+                button.setMessage(getResumeUndoHistoryText());
+            })
+            .dimensions(centerX - 100, rowY[3], 200, 20)
+            .build()
+        );
+
+        // Performance Overlay Toggle Button
+        addDrawableChild(ButtonWidget.builder(
+            getPerformanceOverlayText(),
+            button -> {
+                ModConfig config = ModConfig.getInstance();
+                config.setShowPerformanceOverlay(!config.isShowPerformanceOverlay());
+                button.setMessage(getPerformanceOverlayText());
+            })
+            .dimensions(centerX - 100, rowY[4], 200, 20)
+            .build()
+        );
+
+        // Frame Budget Slider, in quarter milliseconds; the far left disables adaptation
+        float currentBudget = ModConfig.getInstance().getFrameBudgetMs();
+        frameBudgetSlider = new SliderWidget(centerX - 100, rowY[5], 200, 20,
+                getFrameBudgetText(currentBudget), Math.min(1.0, currentBudget / MAX_FRAME_BUDGET_MS)) {
+            @Override
+            protected void updateMessage() {
+                setMessage(getFrameBudgetText(sliderToBudget(this.value)));
+            }
+
+            @Override
+            protected void applyValue() {
+                ModConfig.getInstance().setFrameBudgetMs(sliderToBudget(this.value));
+            }
+        };
+        addDrawableChild(frameBudgetSlider);
+
         // Done Button
         addDrawableChild(ButtonWidget.builder(
             Text.literal("Done"),
@@ -72,6 +129,34 @@ public class ConfigScreen extends Screen {
         );
     }
 
+    /**
+     * Places the six setting rows between the title and the Done button. Tall screens keep
+     * the described layout a quarter of the way down; shorter ones drop the descriptions
+     * and space the rows evenly in what is left.
+     */
+    private int[] layoutRows() {
+        int rows = DESCRIBED_ROW_OFFSETS.length;
+        int top = CONTENT_TOP;
+        int bottom = this.height - CONTENT_BOTTOM_MARGIN;
+        int[] rowY = new int[rows];
+
+        showDescriptions = bottom - top >= DESCRIBED_HEIGHT;
+        if (showDescriptions) {
+            int startY = Math.max(top, Math.min(this.height / 4, bottom - DESCRIBED_HEIGHT));
+            for (int i = 0; i < rows; i++) {
+                rowY[i] = startY + DESCRIBED_ROW_OFFSETS[i];
+            }
+            ellipsoidDescY = startY + 25;
+            ghostDescY = startY + 105;
+        } else {
+            int step = Math.max(ROW_HEIGHT + 1, Math.min(30, (bottom - top - ROW_HEIGHT) / (rows - 1)));
+            for (int i = 0; i < rows; i++) {
+                rowY[i] = top + i * step;
+            }
+        }
+        return rowY;
+    }
+
     private Text getEllipsoidModeText() {
         EllipsoidMode mode = SelectionManager.getInstance().getEllipsoidMode();
         String modeName = mode == EllipsoidMode.FIT_TO_BOX ? "Fit to Box" : "Center + Radius";
@@ -102,6 +187,23 @@ public class ConfigScreen extends Screen {
         }
     }
 
+    private Text getResumeUndoHistoryText() {
+        return Text.literal("Resume Undo History: " + (ModConfig.getInstance().isResumeUndoHistory() ? "On" : "Off"));
+    }
+
+    private Text getPerformanceOverlayText() {
+        return Text.literal("Performance Overlay: " + (ModConfig.getInstance().isShowPerformanceOverlay() ? "On" : "Off"));
+    }
+
+    private static float sliderToBudget(double value) {
+        return Math.round(value * MAX_FRAME_BUDGET_MS * 4) / 4.0f;
+    }
+
+    private Text getFrameBudgetText(float budgetMs) {
+        if (budgetMs <= 0) return Text.literal("Frame Budget: Off");
+        return Text.literal("Frame Budget: " + String.format("%.2f", budgetMs) + " ms");
+    }
+
     private Text getOpacityText(float opacity) {
         return Text.literal("Ghost Block Opacity: " + String.format("%.0f%%", opacity * 100));
     }
@@ -119,16 +221,16 @@ public class ConfigScreen extends Screen {
             0xFFFFFF
         );
 
+        if (!showDescriptions) return;
+
         // Draw ellipsoid mode description
         String desc1 = "Fit to Box: Ellipsoid fits inside the selection bounding box";
         String desc2 = "Center + Radius: First block is center, furthest block defines radius";
 
-        int descY = this.height / 4 + 25;
-        context.drawCenteredTextWithShadow(this.textRenderer, desc1, this.width / 2, descY, 0xAAAAAA);
-        context.drawCenteredTextWithShadow(this.textRenderer, desc2, this.width / 2, descY + 10, 0xAAAAAA);
+        context.drawCenteredTextWithShadow(this.textRenderer, desc1, this.width / 2, ellipsoidDescY, 0xAAAAAA);
+        context.drawCenteredTextWithShadow(this.textRenderer, desc2, this.width / 2, ellipsoidDescY + 10, 0xAAAAAA);
 
         // Draw ghost block settings description
-        int ghostDescY = this.height / 4 + 105;
         context.drawCenteredTextWithShadow(this.textRenderer,
             "Wireframe shows block outlines, Solid shows filled blocks",
             this.width / 2, ghostDescY, 0xAAAAAA);
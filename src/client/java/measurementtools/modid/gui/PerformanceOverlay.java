@@ -0,0 +1,102 @@
+package measurementtools.modid.gui;
+
+import measurementtools.modid.ModConfig;
+import measurementtools.modid.render.DetailGovernor;
+import measurementtools.modid.util.BackgroundTasks;
+import measurementtools.modid.util.PerformanceStats;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Debug overlay in the top-right corner showing per-subsystem frame times, vertex traffic,
+ * cache hit rates, buffer allocations and the background worker queue.
+ *
+ * The text is rebuilt a few times per second rather than every frame, since computing
+ * percentiles sorts the recorded history.
+ */
+public class PerformanceOverlay {
+    private static final PerformanceOverlay INSTANCE = new PerformanceOverlay();
+    private static final int PADDING = 5;
+    private static final int ROW_HEIGHT = 10;
+    private static final long REFRESH_INTERVAL_MS = 250;
+    private static final double[] PERCENTILES = {0.5, 0.99};
+
+    private final List<String> lines = new ArrayList<>();
+    private final long[] percentiles = new long[PERCENTILES.length];
+    private long lastRefresh = 0;
+
+    private PerformanceOverlay() {}
+
+    public static PerformanceOverlay getInstance() {
+        return INSTANCE;
+    }
+
+    public void render(DrawContext context, RenderTickCounter tickCounter) {
+        if (!ModConfig.getInstance().isShowPerformanceOverlay()) return;
+
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player == null) return;
+
+        long now = System.currentTimeMillis();
+        if (now - lastRefresh >= REFRESH_INTERVAL_MS) {
+            refresh();
+            lastRefresh = now;
+        }
+
+        TextRenderer textRenderer = client.textRenderer;
+        int right = client.getWindow().getScaledWidth() - PADDING;
+        int y = PADDING;
+        for (String line : lines) {
+            context.drawText(textRenderer, line, right - textRenderer.getWidth(line), y, 0xFFFFFFFF, true);
+            y += ROW_HEIGHT;
+        }
+    }
+
+    private void refresh() {
+        lines.clear();
+        lines.add("MeasurementTools (ms: last / p50 / p99)");
+
+        for (PerformanceStats.Subsystem subsystem : PerformanceStats.Subsystem.values()) {
+            if (!PerformanceStats.hasSamples(subsystem)) continue;
+            PerformanceStats.getPercentiles(subsystem, PERCENTILES, percentiles);
+            lines.add(subsystem.getDisplayName() + ": " + formatMillis(PerformanceStats.getLastNanos(subsystem))
+                + " / " + formatMillis(percentiles[0]) + " / " + formatMillis(percentiles[1]));
+        }
+
+        lines.add("Vertices: " + PerformanceStats.getLastFrameVertices()
+            + " (" + formatBytes(PerformanceStats.getLastFrameBytes()) + ")/frame");
+
+        for (PerformanceStats.Cache cache : PerformanceStats.Cache.values()) {
+            long hits = PerformanceStats.getHits(cache);
+            long total = hits + PerformanceStats.getMisses(cache);
+            if (total == 0) continue;
+            lines.add(cache.getDisplayName() + " cache: " + String.format("%.1f%%", hits * 100.0 / total)
+                + " of " + total);
+        }
+
+        lines.add("Reserved buffers: " + PerformanceStats.getReservedBuffers()
+            + " (" + formatBytes(PerformanceStats.getReservedBufferBytes()) + ")");
+        lines.add("Worker queue: " + BackgroundTasks.getQueueDepth());
+        lines.add("Detail level: " + DetailGovernor.getLevel() + "/" + DetailGovernor.getMaxLevel()
+            + " (avg " + formatMillis(DetailGovernor.getAverageNanos()) + " ms, budget "
+            + String.format("%.2f", ModConfig.getInstance().getFrameBudgetMs()) + " ms)");
+    }
+
+    private String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        } else if (bytes >= 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return bytes + " B";
+    }
+}
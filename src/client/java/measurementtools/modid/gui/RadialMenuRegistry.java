@@ -6,6 +6,8 @@ import measurementtools.modid.UndoRedoManager;
 import measurementtools.modid.shapes.ShapeMode;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.hit.HitResult;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,12 +38,14 @@ public class RadialMenuRegistry {
             @Override
             public void execute() {
                 SelectionManager.getInstance().clearSelection();
+                SelectionManager.getInstance().cancelCombine();
                 ClipboardManager.getInstance().clearLockedPlacements();
             }
 
             @Override
             public boolean isEnabled() {
                 return SelectionManager.getInstance().hasSelection() ||
+                       SelectionManager.getInstance().getCombineBase() != null ||
                        !ClipboardManager.getInstance().getLockedPlacements().isEmpty();
             }
 
@@ -116,6 +120,115 @@ public class RadialMenuRegistry {
             }
         });
 
+        // Magic Wand (flood-fill select from the targeted block, scroll to change matching)
+        register(new RadialMenuAction() {
+            @Override
+            public Text getName() {
+                SelectionManager manager = SelectionManager.getInstance();
+                if (manager.getActiveFloodFill() != null) {
+                    return Text.literal("Cancel Wand");
+                }
+                return Text.literal("Wand: " + manager.getWandMatch().getDisplayName()
+                    + (manager.isWandDiagonal() ? " (26)" : " (6)"));
+            }
+
+            @Override
+            public void execute() {
+                SelectionManager manager = SelectionManager.getInstance();
+                if (manager.getActiveFloodFill() != null) {
+                    manager.cancelFloodFill();
+                    return;
+                }
+
+                MinecraftClient client = MinecraftClient.getInstance();
+                if (client.world == null || client.getCameraEntity() == null) return;
+
+                HitResult hitResult = client.crosshairTarget;
+                if (!(hitResult instanceof BlockHitResult) || hitResult.getType() != HitResult.Type.BLOCK) {
+                    hitResult = client.getCameraEntity().raycast(512.0, 1.0F, false);
+                }
+                if (hitResult.getType() == HitResult.Type.BLOCK) {
+                    manager.startFloodFill(client.world, ((BlockHitResult) hitResult).getBlockPos());
+                }
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getColor() {
+                SelectionManager manager = SelectionManager.getInstance();
+                if (manager.getActiveFloodFill() != null) {
+                    return 0xFF6666; // Red when canceling
+                }
+                return manager.getVoxelMask() != null ? 0x66FF66 : 0xFFFFFF;
+            }
+
+            @Override
+            public boolean onScroll(double amount) {
+                if (amount > 0) {
+                    SelectionManager.getInstance().cycleWandMode(1);
+                } else if (amount < 0) {
+                    SelectionManager.getInstance().cycleWandMode(-1);
+                }
+                return true;
+            }
+        });
+
+        // Combine shapes: first use stores the current shape, second combines it with the
+        // newly drawn one (scroll to choose union, intersection or difference)
+        register(new RadialMenuAction() {
+            @Override
+            public Text getName() {
+                SelectionManager manager = SelectionManager.getInstance();
+                String operation = manager.getCombineOperation().getDisplayName();
+                if (manager.getCombineBase() != null) {
+                    return Text.literal(operation + " Shape");
+                }
+                return Text.literal("Combine: " + operation);
+            }
+
+            @Override
+            public void execute() {
+                SelectionManager manager = SelectionManager.getInstance();
+                MinecraftClient client = MinecraftClient.getInstance();
+                String message;
+                if (manager.getCombineBase() == null) {
+                    message = manager.storeCombineBase()
+                        ? "Shape stored - select the next shape, then " + manager.getCombineOperation().getDisplayName()
+                        : "Selection too large to combine";
+                } else {
+                    int count = manager.combineWithBase();
+                    message = count >= 0 ? "Combined: " + count + " blocks" : "Selection too large to combine";
+                }
+                if (client.player != null) {
+                    client.player.sendMessage(Text.literal(message), true);
+                }
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return SelectionManager.getInstance().hasSelection();
+            }
+
+            @Override
+            public int getColor() {
+                return SelectionManager.getInstance().getCombineBase() != null ? 0x66FFFF : 0xFFFFFF;
+            }
+
+            @Override
+            public boolean onScroll(double amount) {
+                if (amount > 0) {
+                    SelectionManager.getInstance().cycleCombineOperation(1);
+                } else if (amount < 0) {
+                    SelectionManager.getInstance().cycleCombineOperation(-1);
+                }
+                return true;
+            }
+        });
+
         // Rectangle Mode (with subdivision scroll support)
         register(new RadialMenuAction() {
             @Override
@@ -0,0 +1,26 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One block count over a selection or a stored region.
+ */
+@Name("measurementtools.BlockCount")
+@Label("Block Count")
+@Category({"MeasurementTools", "Counting"})
+@Description("Counting the blocks in a selection or stored region")
+public class BlockCountEvent extends jdk.jfr.Event {
+    @Label("Shape Mode")
+    public String shapeMode;
+
+    @Label("Voxels")
+    @Description("Positions examined")
+    public long voxels;
+
+    @Label("Blocks")
+    @Description("Non-air blocks found")
+    public long blocks;
+}
@@ -0,0 +1,32 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One time slice of a selection being copied into the clipboard.
+ */
+@Name("measurementtools.ClipboardCopy")
+@Label("Clipboard Copy")
+@Category({"MeasurementTools", "Clipboard"})
+@Description("A time slice of copying the selection into the clipboard")
+public class ClipboardCopyEvent extends jdk.jfr.Event {
+    @Label("Shape Mode")
+    public String shapeMode;
+
+    @Label("Sections")
+    @Description("Chunk sections processed in this slice")
+    public int sections;
+
+    @Label("Total Sections")
+    public int totalSections;
+
+    @Label("Voxels")
+    @Description("Non-air blocks copied so far")
+    public long voxels;
+
+    @Label("Completed")
+    public boolean completed;
+}
@@ -0,0 +1,27 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One rotation variant of a block design being computed.
+ */
+@Name("measurementtools.ClipboardRotation")
+@Label("Clipboard Rotation")
+@Category({"MeasurementTools", "Clipboard"})
+@Description("Rotating a design and collecting its exposed blocks")
+public class ClipboardRotationEvent extends jdk.jfr.Event {
+    @Label("Rotation")
+    @Description("Quarter turns clockwise around the Y axis")
+    public int rotation;
+
+    @Label("Voxels")
+    @Description("Non-air blocks in the design")
+    public long voxels;
+
+    @Label("Visible Blocks")
+    @Description("Blocks with at least one exposed face")
+    public long visibleBlocks;
+}
@@ -0,0 +1,25 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One full snapshot of the selection and placements taken for the undo history.
+ */
+@Name("measurementtools.HistorySnapshot")
+@Label("History Snapshot")
+@Category({"MeasurementTools", "History"})
+@Description("Capturing a full undo history checkpoint")
+public class HistorySnapshotEvent extends jdk.jfr.Event {
+    @Label("Selected Blocks")
+    public int selectedBlocks;
+
+    @Label("Voxels")
+    @Description("Blocks in the voxel mask selection, if any")
+    public long voxels;
+
+    @Label("Placements")
+    public int placements;
+}
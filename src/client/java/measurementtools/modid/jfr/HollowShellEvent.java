@@ -0,0 +1,30 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One calculation of the hollow surface of a shape.
+ */
+@Name("measurementtools.HollowShell")
+@Label("Hollow Shell")
+@Category({"MeasurementTools", "Shapes"})
+@Description("Calculating the surface blocks of a shape")
+public class HollowShellEvent extends jdk.jfr.Event {
+    @Label("Shape Mode")
+    public String shapeMode;
+
+    @Label("Filter Layer")
+    @Description("Y level shown in layer view, or -1 for the whole shape")
+    public int filterLayer;
+
+    @Label("Voxels")
+    @Description("Surface blocks produced")
+    public long voxels;
+
+    @Label("Limited")
+    @Description("Whether the shape was too large and the result was cut short")
+    public boolean limited;
+}
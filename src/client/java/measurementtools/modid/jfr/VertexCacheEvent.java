@@ -0,0 +1,26 @@
+package measurementtools.modid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One rebuild of cached ghost block vertex data.
+ */
+@Name("measurementtools.VertexCacheRebuild")
+@Label("Vertex Cache Rebuild")
+@Category({"MeasurementTools", "Rendering"})
+@Description("Rebuilding the cached vertices of ghost blocks")
+public class VertexCacheEvent extends jdk.jfr.Event {
+    @Label("Cache")
+    @Description("Full detail, mid or far level of detail")
+    public String cache;
+
+    @Label("Voxels")
+    @Description("Blocks or merged cells the vertices were built from")
+    public long voxels;
+
+    @Label("Vertices")
+    public long vertices;
+}
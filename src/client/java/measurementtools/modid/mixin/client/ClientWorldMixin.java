@@ -0,0 +1,21 @@
+package measurementtools.modid.mixin.client;
+
+import measurementtools.modid.region.NamedSelectionManager;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientWorld.class)
+public class ClientWorldMixin {
+
+    // Block changes sent by the server; stored regions containing the block need recounting.
+    // Optional: without it regions are still recounted when their chunks reload.
+    @Inject(method = "handleBlockUpdate", at = @At("HEAD"), require = 0)
+    private void onBlockUpdate(BlockPos pos, BlockState state, int flags, CallbackInfo ci) {
+        NamedSelectionManager.getInstance().onBlockChanged(pos);
+    }
+}
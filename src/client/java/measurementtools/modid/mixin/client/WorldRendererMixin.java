@@ -21,6 +21,6 @@ public class WorldRendererMixin {
                              Camera camera, Matrix4f positionMatrix, Matrix4f projectionMatrix, Matrix4f matrix3,
                              GpuBufferSlice bufferSlice, Vector4f vector, boolean flag,
                              CallbackInfo ci) {
-        MeasurementRenderer.getInstance().render(camera, positionMatrix);
+        MeasurementRenderer.getInstance().render(camera, positionMatrix, projectionMatrix);
     }
 }
@@ -0,0 +1,124 @@
+package measurementtools.modid.region;
+
+import measurementtools.modid.shapes.ShapeMask;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Map;
+
+/**
+ * A stored selection region. Rectangles are kept as their box and every other shape as
+ * its rasterized voxel mask, so a region keeps its shape whatever the current mode is.
+ *
+ * The shape is immutable; only the cached block counts change, and they are recounted
+ * only after the region is marked dirty.
+ */
+public final class NamedSelection {
+    private final String name;
+    private final ShapeMask mask; // null for a plain box
+    private final BlockPos minPos;
+    private final BlockPos maxPos;
+    private final int color;
+
+    private Map<Block, Integer> blockCounts = null;
+    private int totalBlocks = 0;
+    private boolean partial = false;
+    private boolean dirty = true;
+    // Bumped whenever the region is marked dirty, so a recount spanning several ticks can tell
+    // whether the blocks changed while it ran
+    private int changeStamp = 0;
+
+    // Last spatial index query that visited this region, to report each region once per query
+    int queryStamp = 0;
+
+    NamedSelection(String name, ShapeMask mask, BlockPos minPos, BlockPos maxPos, int color) {
+        this.name = name;
+        this.mask = mask;
+        this.minPos = minPos;
+        this.maxPos = maxPos;
+        this.color = color;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the region's voxel mask, or null if the region is exactly its box.
+     */
+    public ShapeMask getMask() {
+        return mask;
+    }
+
+    public BlockPos getMinPos() {
+        return minPos;
+    }
+
+    public BlockPos getMaxPos() {
+        return maxPos;
+    }
+
+    /**
+     * Gets the outline color as 0xRRGGBB.
+     */
+    public int getColor() {
+        return color;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        if (x < minPos.getX() || x > maxPos.getX()
+            || y < minPos.getY() || y > maxPos.getY()
+            || z < minPos.getZ() || z > maxPos.getZ()) {
+            return false;
+        }
+        return mask == null || mask.contains(x, y, z);
+    }
+
+    public boolean intersectsColumns(int minX, int minZ, int maxX, int maxZ) {
+        return maxX >= minPos.getX() && minX <= maxPos.getX()
+            && maxZ >= minPos.getZ() && minZ <= maxPos.getZ();
+    }
+
+    /**
+     * Gets the block counts from the last recount, or null if never counted.
+     */
+    public Map<Block, Integer> getBlockCounts() {
+        return blockCounts;
+    }
+
+    public int getTotalBlocks() {
+        return totalBlocks;
+    }
+
+    /**
+     * Whether the last recount skipped chunks that were not loaded, so the counts cover
+     * only part of the region.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void markDirty() {
+        dirty = true;
+        changeStamp++;
+    }
+
+    int getChangeStamp() {
+        return changeStamp;
+    }
+
+    /**
+     * Stores the result of a recount that started at the given change stamp. The region stays
+     * dirty if it was changed again while the count ran.
+     */
+    void setBlockCounts(Map<Block, Integer> counts, boolean partial, int countedStamp) {
+        blockCounts = counts;
+        this.partial = partial;
+        totalBlocks = counts.values().stream().mapToInt(Integer::intValue).sum();
+        dirty = changeStamp != countedStamp;
+    }
+}
@@ -0,0 +1,299 @@
+package measurementtools.modid.region;
+
+import measurementtools.modid.SelectionManager;
+import measurementtools.modid.shapes.ShapeMask;
+import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.util.BackgroundTasks;
+import measurementtools.modid.util.PerformanceStats;
+import measurementtools.modid.world.WorldBlockSource;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Named selection regions stored alongside the active selection, e.g. farms, storage halls
+ * or perimeter walls, each rendered and counted on its own.
+ *
+ * Regions are kept per world in gameDir/measurementtools/regions/&lt;world&gt;.bin and
+ * indexed by a column grid, so rendering and change tracking only look at regions near
+ * the area involved. Block counts are redone only for regions whose blocks may have changed,
+ * one region at a time and a time slice per tick.
+ */
+public class NamedSelectionManager {
+    private static final NamedSelectionManager INSTANCE = new NamedSelectionManager();
+
+    private static final Path REGION_DIR = FabricLoader.getInstance().getGameDir()
+        .resolve("measurementtools").resolve("regions");
+    private static final int FILE_MAGIC = 0x4D54524E; // "MTRN"
+    private static final int FILE_VERSION = 1;
+    // Time spent recounting per client tick
+    private static final long COUNT_BUDGET_NANOS = 2_000_000L;
+
+    // Outline colors, assigned in turn to new regions
+    private static final int[] COLORS = {
+        0x66CCFF, 0xFFCC66, 0x99FF66, 0xFF66CC, 0xCC99FF, 0x66FFCC, 0xFF9966, 0xFFFF66
+    };
+
+    private final Map<String, NamedSelection> regions = new LinkedHashMap<>();
+    private final RegionIndex index = new RegionIndex();
+    private int nextColor = 0;
+    private Path worldFile = null;
+
+    // Recount in progress, advanced a time slice per tick
+    private RegionCountTask activeCount = null;
+    private World activeCountWorld = null;
+
+    private NamedSelectionManager() {}
+
+    public static NamedSelectionManager getInstance() {
+        return INSTANCE;
+    }
+
+    public Collection<NamedSelection> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    public NamedSelection get(String name) {
+        return regions.get(name);
+    }
+
+    /**
+     * Stores the active selection under a name, replacing any region with that name.
+     * @return the stored region, or null if there is no selection or it is too large to rasterize
+     */
+    public NamedSelection saveSelection(String name) {
+        SelectionManager manager = SelectionManager.getInstance();
+        if (!manager.hasSelection()) return null;
+
+        ShapeMask mask = null;
+        BlockPos minPos = manager.getMinPos();
+        BlockPos maxPos = manager.getMaxPos();
+        if (manager.getVoxelMask() != null || manager.getShapeMode() != ShapeMode.RECTANGLE) {
+            mask = manager.rasterizeSelection();
+            if (mask == null || mask.isEmpty()) return null;
+            minPos = mask.getMinPos();
+            maxPos = mask.getMaxPos();
+        }
+
+        NamedSelection previous = regions.get(name);
+        int color = previous != null ? previous.getColor() : COLORS[nextColor++ % COLORS.length];
+        NamedSelection region = new NamedSelection(name, mask, minPos, maxPos, color);
+        put(region);
+        saveToDisk();
+        return region;
+    }
+
+    /**
+     * Makes a stored region the active selection.
+     */
+    public boolean selectRegion(String name) {
+        NamedSelection region = regions.get(name);
+        if (region == null) return false;
+
+        SelectionManager manager = SelectionManager.getInstance();
+        if (region.getMask() != null) {
+            manager.selectVoxelMask(region.getMask());
+        } else {
+            manager.clearSelection();
+            manager.setShapeMode(ShapeMode.RECTANGLE);
+            manager.addBlock(region.getMinPos());
+            manager.addBlock(region.getMaxPos());
+        }
+        return true;
+    }
+
+    public boolean remove(String name) {
+        NamedSelection region = regions.remove(name);
+        if (region == null) return false;
+        index.remove(region);
+        saveToDisk();
+        return true;
+    }
+
+    /**
+     * Visits the regions whose box overlaps the given block columns (inclusive).
+     */
+    public void forEachInColumns(int minX, int minZ, int maxX, int maxZ, Consumer<NamedSelection> visitor) {
+        index.forEachInColumns(minX, minZ, maxX, maxZ, visitor);
+    }
+
+    // ========== Change tracking ==========
+
+    /**
+     * Marks regions containing a changed block for recounting.
+     */
+    public void onBlockChanged(BlockPos pos) {
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        index.forEachInColumns(x, z, x, z, region -> {
+            if (region.contains(x, y, z)) {
+                region.markDirty();
+            }
+        });
+    }
+
+    /**
+     * Marks regions overlapping a newly received chunk for recounting.
+     */
+    public void onChunkLoaded(ChunkPos chunk) {
+        index.forEachInColumns(chunk.getStartX(), chunk.getStartZ(), chunk.getEndX(), chunk.getEndZ(),
+            NamedSelection::markDirty);
+    }
+
+    /**
+     * Advances the recount of a dirty region with at least one loaded chunk by one time slice,
+     * starting the next one when none is running. Columns in unloaded chunks are skipped and
+     * the result marked partial; loading one of them marks the region dirty again. Counts are
+     * published once a region is finished. Call once per client tick.
+     */
+    public void tick(World world) {
+        if (world == null) return;
+
+        // Abandon a count whose region was replaced or removed; the region stays dirty until
+        // a count finishes, so it is picked up again later
+        if (activeCount != null) {
+            NamedSelection region = activeCount.getRegion();
+            if (activeCountWorld != world || regions.get(region.getName()) != region) {
+                activeCount = null;
+            }
+        }
+
+        if (activeCount == null) {
+            for (NamedSelection region : regions.values()) {
+                if (region.isDirty() && isAnyChunkLoaded(world, region)) {
+                    activeCount = new RegionCountTask(region, new WorldBlockSource(world));
+                    activeCountWorld = world;
+                    break;
+                }
+            }
+            if (activeCount == null) return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = activeCount.step(start + COUNT_BUDGET_NANOS);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.COUNTING, System.nanoTime() - start);
+
+        if (completed) {
+            activeCount.publish();
+            activeCount = null;
+        }
+    }
+
+    private static boolean isAnyChunkLoaded(World world, NamedSelection region) {
+        int minChunkX = region.getMinPos().getX() >> 4;
+        int minChunkZ = region.getMinPos().getZ() >> 4;
+        int maxChunkX = region.getMaxPos().getX() >> 4;
+        int maxChunkZ = region.getMaxPos().getZ() >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== Persistence ==========
+
+    /**
+     * Loads the regions stored for a world. Call when joining a world.
+     */
+    public void openWorld(String worldKey) {
+        closeWorld();
+        worldFile = REGION_DIR.resolve(worldKey + ".bin");
+        if (!Files.exists(worldFile)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(worldFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a region file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int color = in.readInt();
+                BlockPos minPos = BlockPos.fromLong(in.readLong());
+                BlockPos maxPos = BlockPos.fromLong(in.readLong());
+                ShapeMask mask = in.readBoolean() ? ShapeMask.read(in) : null;
+                put(new NamedSelection(name, mask, minPos, maxPos, color));
+            }
+            nextColor = regions.size();
+        } catch (IOException e) {
+            System.err.println("Failed to load MeasurementTools regions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the current world's regions. Call when leaving a world.
+     */
+    public void closeWorld() {
+        regions.clear();
+        index.clear();
+        activeCount = null;
+        activeCountWorld = null;
+        nextColor = 0;
+        worldFile = null;
+    }
+
+    private void put(NamedSelection region) {
+        NamedSelection previous = regions.put(region.getName(), region);
+        if (previous != null) {
+            index.remove(previous);
+        }
+        index.add(region);
+    }
+
+    /**
+     * Writes all regions on the background worker; the bytes are taken on the client thread.
+     */
+    private void saveToDisk() {
+        Path path = worldFile;
+        if (path == null) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(regions.size());
+            for (NamedSelection region : regions.values()) {
+                out.writeUTF(region.getName());
+                out.writeInt(region.getColor());
+                out.writeLong(region.getMinPos().asLong());
+                out.writeLong(region.getMaxPos().asLong());
+                out.writeBoolean(region.getMask() != null);
+                if (region.getMask() != null) {
+                    region.getMask().write(out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] data = bytes.toByteArray();
+        BackgroundTasks.submit(() -> {
+            try {
+                Files.createDirectories(path.getParent());
+                Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.write(temp, data);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return path;
+            } catch (IOException e) {
+                System.err.println("Failed to save MeasurementTools regions: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package measurementtools.modid.region;
+
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Client commands for storing, selecting and removing named regions under /measure region.
+ */
+public final class RegionCommands {
+    private RegionCommands() {}
+
+    public static void register() {
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> dispatcher.register(
+            ClientCommandManager.literal("measure")
+                .then(ClientCommandManager.literal("region")
+                    .then(ClientCommandManager.literal("list")
+                        .executes(RegionCommands::listRegions))
+                    .then(ClientCommandManager.literal("save")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(RegionCommands::saveRegion)))
+                    .then(ClientCommandManager.literal("select")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(RegionCommands::selectRegion)))
+                    .then(ClientCommandManager.literal("remove")
+                        .then(ClientCommandManager.argument("name", StringArgumentType.word())
+                            .executes(RegionCommands::removeRegion))))
+        ));
+    }
+
+    private static int listRegions(CommandContext<FabricClientCommandSource> context) {
+        NamedSelectionManager manager = NamedSelectionManager.getInstance();
+        if (manager.getRegions().isEmpty()) {
+            context.getSource().sendFeedback(Text.literal("No regions stored"));
+            return 1;
+        }
+
+        context.getSource().sendFeedback(Text.literal("Regions:"));
+        for (NamedSelection region : manager.getRegions()) {
+            BlockPos min = region.getMinPos();
+            BlockPos max = region.getMaxPos();
+            String size = (max.getX() - min.getX() + 1) + "x" + (max.getY() - min.getY() + 1)
+                + "x" + (max.getZ() - min.getZ() + 1);
+            String count = region.getBlockCounts() == null ? "not counted yet"
+                : region.getTotalBlocks() + " blocks" + (region.isPartial() ? " in loaded chunks" : "")
+                    + (region.isDirty() ? ", recounting" : "");
+            context.getSource().sendFeedback(Text.literal("  " + region.getName() + " - " + size + " at "
+                + min.getX() + ", " + min.getY() + ", " + min.getZ() + " (" + count + ")"));
+        }
+        return 1;
+    }
+
+    private static int saveRegion(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "name");
+        NamedSelection region = NamedSelectionManager.getInstance().saveSelection(name);
+        if (region == null) {
+            context.getSource().sendError(Text.literal("No selection, or the selection is too large to store"));
+            return 0;
+        }
+        context.getSource().sendFeedback(Text.literal("Stored region " + name));
+        return 1;
+    }
+
+    private static int selectRegion(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "name");
+        if (!NamedSelectionManager.getInstance().selectRegion(name)) {
+            context.getSource().sendError(Text.literal("Unknown region: " + name));
+            return 0;
+        }
+        context.getSource().sendFeedback(Text.literal("Selected region " + name));
+        return 1;
+    }
+
+    private static int removeRegion(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "name");
+        if (!NamedSelectionManager.getInstance().remove(name)) {
+            context.getSource().sendError(Text.literal("Unknown region: " + name));
+            return 0;
+        }
+        context.getSource().sendFeedback(Text.literal("Removed region " + name));
+        return 1;
+    }
+}
@@ -0,0 +1,139 @@
+package measurementtools.modid.region;
+
+import measurementtools.modid.shapes.ShapeMask;
+import measurementtools.modid.world.BlockSource;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the blocks of one region a chunk section at a time, so a large region is recounted
+ * over several ticks within a time budget rather than in one.
+ *
+ * Sections are walked column by column like SectionCopyTask, so a World-backed source
+ * resolves each chunk section once. Sections that are entirely air or outside the region's
+ * mask are skipped, as are columns whose chunk is not loaded; the count is then marked
+ * partial, so a region larger than the view distance still gets the blocks in range.
+ * Counts are only meaningful once the task is done.
+ */
+final class RegionCountTask {
+    private final NamedSelection region;
+    private final BlockSource source;
+    private final int startStamp;
+    private final Map<Block, Integer> counts = new HashMap<>();
+
+    // Section coordinate ranges covered by the region's box (inclusive)
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sectionsX, sectionsY;
+    private final int totalSections;
+    private int nextSection = 0;
+    // Whether a column was skipped because its chunk was not loaded
+    private boolean partial = false;
+
+    RegionCountTask(NamedSelection region, BlockSource source) {
+        this.region = region;
+        this.source = source;
+        this.startStamp = region.getChangeStamp();
+
+        BlockPos minPos = region.getMinPos();
+        BlockPos maxPos = region.getMaxPos();
+        this.minSectionX = minPos.getX() >> 4;
+        this.minSectionY = minPos.getY() >> 4;
+        this.minSectionZ = minPos.getZ() >> 4;
+        this.sectionsX = (maxPos.getX() >> 4) - minSectionX + 1;
+        this.sectionsY = (maxPos.getY() >> 4) - minSectionY + 1;
+        int sectionsZ = (maxPos.getZ() >> 4) - minSectionZ + 1;
+        this.totalSections = sectionsX * sectionsY * sectionsZ;
+    }
+
+    NamedSelection getRegion() {
+        return region;
+    }
+
+    boolean isDone() {
+        return nextSection >= totalSections;
+    }
+
+    /**
+     * Stores the finished counts on the region.
+     */
+    void publish() {
+        region.setBlockCounts(counts, partial, startStamp);
+    }
+
+    /**
+     * Counts sections until the deadline passes or the region is finished.
+     * The deadline is checked between section columns.
+     * @return true when the count is complete
+     */
+    boolean step(long deadlineNanos) {
+        // The world may have changed since the last slice
+        source.resetCache();
+
+        while (nextSection < totalSections) {
+            int columnIndex = nextSection / sectionsY;
+            int sectionX = minSectionX + columnIndex % sectionsX;
+            int sectionZ = minSectionZ + columnIndex / sectionsX;
+
+            if (!source.isLoaded(sectionX << 4, region.getMinPos().getY(), sectionZ << 4)) {
+                partial = true;
+                nextSection += sectionsY;
+                continue;
+            }
+
+            do {
+                int sectionY = minSectionY + nextSection % sectionsY;
+                if (!source.isSectionEmpty(sectionX, sectionY, sectionZ)) {
+                    countSection(sectionX, sectionY, sectionZ);
+                }
+                nextSection++;
+            } while (nextSection % sectionsY != 0);
+
+            if (System.nanoTime() >= deadlineNanos) break;
+        }
+        return isDone();
+    }
+
+    /**
+     * Counts the part of one section that lies in the region.
+     */
+    private void countSection(int sectionX, int sectionY, int sectionZ) {
+        long[] maskBits = null;
+        ShapeMask mask = region.getMask();
+        if (mask != null) {
+            maskBits = mask.getSectionBits(sectionX, sectionY, sectionZ);
+            if (maskBits == null) return;
+        }
+
+        int baseX = sectionX << 4;
+        int baseY = sectionY << 4;
+        int baseZ = sectionZ << 4;
+
+        BlockPos minPos = region.getMinPos();
+        BlockPos maxPos = region.getMaxPos();
+        int fromX = Math.max(minPos.getX(), baseX) - baseX;
+        int fromY = Math.max(minPos.getY(), baseY) - baseY;
+        int fromZ = Math.max(minPos.getZ(), baseZ) - baseZ;
+        int toX = Math.min(maxPos.getX(), baseX + 15) - baseX;
+        int toY = Math.min(maxPos.getY(), baseY + 15) - baseY;
+        int toZ = Math.min(maxPos.getZ(), baseZ + 15) - baseZ;
+
+        for (int y = fromY; y <= toY; y++) {
+            for (int z = fromZ; z <= toZ; z++) {
+                for (int x = fromX; x <= toX; x++) {
+                    if (maskBits != null) {
+                        int bit = ShapeMask.localIndex(x, y, z);
+                        if ((maskBits[bit >> 6] & (1L << bit)) == 0) continue;
+                    }
+                    BlockState state = source.getBlockState(baseX + x, baseY + y, baseZ + z);
+                    if (!state.isAir()) {
+                        counts.merge(state.getBlock(), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+    }
+}
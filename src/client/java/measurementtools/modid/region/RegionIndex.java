@@ -0,0 +1,77 @@
+package measurementtools.modid.region;
+
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Column grid over stored regions for culling and change tracking.
+ *
+ * Each region is listed in every 64x64-block cell its box overlaps, so finding the regions
+ * near the camera or around a changed block only touches the cells in that area, however
+ * many regions exist elsewhere. Queries visit each region once and do not allocate.
+ */
+final class RegionIndex {
+    private static final int CELL_SHIFT = 6;
+
+    private final Map<Long, List<NamedSelection>> cells = new HashMap<>();
+    private int queryStamp = 0;
+
+    void add(NamedSelection region) {
+        forEachCell(region, key -> cells.computeIfAbsent(key, k -> new ArrayList<>(2)).add(region));
+    }
+
+    void remove(NamedSelection region) {
+        forEachCell(region, key -> {
+            List<NamedSelection> list = cells.get(key);
+            if (list == null) return;
+            list.remove(region);
+            if (list.isEmpty()) {
+                cells.remove(key);
+            }
+        });
+    }
+
+    void clear() {
+        cells.clear();
+    }
+
+    /**
+     * Visits every region whose box overlaps the given block columns (inclusive).
+     */
+    void forEachInColumns(int minX, int minZ, int maxX, int maxZ, Consumer<NamedSelection> visitor) {
+        int stamp = ++queryStamp;
+        for (int cellX = minX >> CELL_SHIFT; cellX <= maxX >> CELL_SHIFT; cellX++) {
+            for (int cellZ = minZ >> CELL_SHIFT; cellZ <= maxZ >> CELL_SHIFT; cellZ++) {
+                List<NamedSelection> list = cells.get(ChunkPos.toLong(cellX, cellZ));
+                if (list == null) continue;
+
+                for (int i = 0; i < list.size(); i++) {
+                    NamedSelection region = list.get(i);
+                    // Large regions sit in many cells; report each once
+                    if (region.queryStamp == stamp) continue;
+                    region.queryStamp = stamp;
+                    if (region.intersectsColumns(minX, minZ, maxX, maxZ)) {
+                        visitor.accept(region);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void forEachCell(NamedSelection region, Consumer<Long> action) {
+        int minCellX = region.getMinPos().getX() >> CELL_SHIFT;
+        int minCellZ = region.getMinPos().getZ() >> CELL_SHIFT;
+        int maxCellX = region.getMaxPos().getX() >> CELL_SHIFT;
+        int maxCellZ = region.getMaxPos().getZ() >> CELL_SHIFT;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                action.accept(ChunkPos.toLong(cellX, cellZ));
+            }
+        }
+    }
+}
@@ -1,26 +1,19 @@
 package measurementtools.modid.render;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import org.joml.Matrix4f;
 
 public class ChunkBoundaryRenderer {
-    private static final int BUFFER_SIZE = 8192;
     private static final int CHUNK_SIZE = 16;
     private static final int RENDER_RADIUS = 2; // Render chunks within this radius
     private static final int MIN_Y = -64;
     private static final int MAX_Y = 320;
 
-    private BufferAllocator buffer;
-
     public void render(Camera camera, Matrix4f viewMatrix) {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.player == null) return;
@@ -28,16 +21,10 @@ public class ChunkBoundaryRenderer {
         Vec3d cameraPos = camera.getPos();
         ChunkPos playerChunk = client.player.getChunkPos();
 
-        RenderSystem.lineWidth(2.0f);
-
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
-        }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
 
         Matrix4f matrix = matrices.peek().getPositionMatrix();
 
@@ -61,8 +48,6 @@ public class ChunkBoundaryRenderer {
             }
         }
 
-        immediate.draw();
-
         // Draw chunk coordinate labels
         drawChunkLabels(camera, viewMatrix, playerChunk, cameraPos);
     }
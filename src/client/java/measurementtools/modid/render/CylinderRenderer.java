@@ -2,10 +2,7 @@ package measurementtools.modid.render;
 
 import measurementtools.modid.SelectionManager;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -14,9 +11,12 @@ import org.joml.Matrix4f;
 import java.util.List;
 
 public class CylinderRenderer implements ShapeRenderer {
-    private static final int CIRCLE_SEGMENTS = 32;
-    private static final int BUFFER_SIZE = 4096;
-    private BufferAllocator buffer;
+    private static final int MIN_CIRCLE_SEGMENTS = 8;
+    private static final int MAX_CIRCLE_SEGMENTS = 256;
+
+    private final WireframeMesh mesh = new WireframeMesh();
+    // Circle segments the mesh was built with
+    private int segments = 0;
 
     @Override
     public void render(Camera camera, Matrix4f viewMatrix, List<BlockPos> selection, RenderConfig config) {
@@ -33,50 +33,43 @@ public class CylinderRenderer implements ShapeRenderer {
         int maxY = manager.getMaxY();
         int height = maxY - minY + 1;
 
-        MatrixStack matrices = new MatrixStack();
-        matrices.multiplyPositionMatrix(viewMatrix);
-        Vec3d cameraPos = camera.getPos();
-
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
+        // Circle detail follows the rings' size on screen
+        double centerX = center.getX() + 0.5;
+        double centerZ = center.getZ() + 0.5;
+        double distance = Tessellation.distanceToRing(camera.getPos(), centerX, centerZ, radius, minY, maxY + 1);
+        int segments = Tessellation.segments(radius, distance, MIN_CIRCLE_SEGMENTS, MAX_CIRCLE_SEGMENTS,
+            this.segments);
+
+        // Rings only change with the selection, the radius or the tessellation
+        if (!mesh.isCurrent(manager.getRevision(), segments, radius)) {
+            this.segments = segments;
+            mesh.begin(centerX, minY, centerZ, manager.getRevision(), segments, radius);
+            buildMesh(radius, height, segments);
         }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
 
-        matrices.push();
-        matrices.translate(
-            center.getX() + 0.5 - cameraPos.x,
-            minY - cameraPos.y,
-            center.getZ() + 0.5 - cameraPos.z
-        );
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
+        mesh.draw(viewMatrix, camera.getPos(), lines, config.red(), config.green(), config.blue(), config.alpha());
 
-        float r = config.red();
-        float g = config.green();
-        float b = config.blue();
-        float a = config.alpha();
-
-        // Draw bottom circle
-        drawCircle(matrices, lines, 0, radius, CIRCLE_SEGMENTS, r, g, b, a);
+        if (config.showLabels()) {
+            renderLabels(camera, viewMatrix, selection, config);
+        }
+    }
 
-        // Draw top circle
-        drawCircle(matrices, lines, height, radius, CIRCLE_SEGMENTS, r, g, b, a);
+    /**
+     * Builds the outline around the bottom center of the cylinder.
+     */
+    private void buildMesh(double radius, int height, int segments) {
+        // Bottom and top circles
+        addCircle(0, radius, segments);
+        addCircle(height, radius, segments);
 
-        // Draw vertical lines (8 evenly spaced)
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
+        // Vertical lines (8 evenly spaced)
         for (int i = 0; i < 8; i++) {
             double angle = 2 * Math.PI * i / 8;
             float x = (float) (Math.cos(angle) * radius);
             float z = (float) (Math.sin(angle) * radius);
-            RenderUtils.drawLine(matrix, lines, x, 0, z, x, height, z, r, g, b, a);
-        }
-
-        // Draw labels
-        if (config.showLabels()) {
-            drawLabels(camera, viewMatrix, matrices, radius, height);
+            mesh.addLine(x, 0, z, x, height, z);
         }
-
-        matrices.pop();
-        immediate.draw();
     }
 
     @Override
@@ -113,22 +106,18 @@ public class CylinderRenderer implements ShapeRenderer {
     private void drawLabels(Camera camera, Matrix4f viewMatrix, MatrixStack matrices, double radius, int height) {
         // Height label on the side
         RenderUtils.drawLabel(camera, viewMatrix, matrices, radius + 0.5, height / 2.0, 0,
-            String.format("h=%d", height));
+            "h=" + height);
 
         // Radius label on top
         RenderUtils.drawLabel(camera, viewMatrix, matrices, 0, height + 0.5, 0,
-            String.format("r=%.1f", radius));
+            "r=" + RenderUtils.formatOneDecimal(radius));
 
         // Diameter label
         RenderUtils.drawLabel(camera, viewMatrix, matrices, 0, height + 1.0, 0,
-            String.format("d=%.1f", radius * 2));
+            "d=" + RenderUtils.formatOneDecimal(radius * 2));
     }
 
-    private void drawCircle(MatrixStack matrices, VertexConsumer lines,
-                            float y, double radius, int segments,
-                            float r, float g, float b, float a) {
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
-
+    private void addCircle(float y, double radius, int segments) {
         for (int i = 0; i < segments; i++) {
             double angle1 = 2 * Math.PI * i / segments;
             double angle2 = 2 * Math.PI * (i + 1) / segments;
@@ -138,7 +127,7 @@ public class CylinderRenderer implements ShapeRenderer {
             float x2 = (float) (Math.cos(angle2) * radius);
             float z2 = (float) (Math.sin(angle2) * radius);
 
-            RenderUtils.drawLine(matrix, lines, x1, y, z1, x2, y, z2, r, g, b, a);
+            mesh.addLine(x1, y, z1, x2, y, z2);
         }
     }
 }
@@ -0,0 +1,111 @@
+package measurementtools.modid.render;
+
+import measurementtools.modid.ModConfig;
+
+/**
+ * Adapts measurement detail so the mod's own world rendering stays within a per-frame budget.
+ *
+ * The time spent in MeasurementRenderer is smoothed over recent frames. While the average is
+ * over budget, detail drops one level at a time: fewer tessellation segments and tube rings,
+ * fewer labels, shorter ghost LOD distances and a sparser hollow outline. Once the average has
+ * stayed well under budget for a while, detail is restored one level at a time. A budget of
+ * zero turns the governor off and always renders at full detail.
+ */
+public final class DetailGovernor {
+    // Per level, from full detail (0) to the coarsest (4)
+    private static final float[] DETAIL_SCALE = {1.0f, 0.75f, 0.5f, 0.35f, 0.25f};
+    private static final int[] LABEL_LIMIT = {Integer.MAX_VALUE, 48, 24, 12, 6};
+    private static final int[] OUTLINE_STRIDE = {1, 1, 2, 3, 4};
+    private static final int MAX_LEVEL = DETAIL_SCALE.length - 1;
+
+    // Weight of the newest frame in the moving average
+    private static final double SMOOTHING = 0.1;
+    // Frames to let the average settle after a change before reducing again
+    private static final int REDUCE_COOLDOWN_FRAMES = 20;
+    // Frames the average must stay under the restore threshold before detail comes back
+    private static final int RESTORE_FRAMES = 120;
+    // Fraction of the budget the average must fall below to count as headroom
+    private static final double RESTORE_FRACTION = 0.6;
+
+    private static double averageNanos = 0;
+    private static int level = 0;
+    private static int framesSinceChange = 0;
+    private static int framesWithHeadroom = 0;
+    private static int labelsThisFrame = 0;
+
+    private DetailGovernor() {}
+
+    /**
+     * Records the mod's render time for the frame that just finished and adjusts the level.
+     * Call once per frame, after all measurement rendering.
+     */
+    public static void endFrame(long renderNanos) {
+        labelsThisFrame = 0;
+
+        long budgetNanos = (long) (ModConfig.getInstance().getFrameBudgetMs() * 1_000_000L);
+        if (budgetNanos <= 0) {
+            level = 0;
+            return;
+        }
+
+        averageNanos += (renderNanos - averageNanos) * SMOOTHING;
+        framesSinceChange++;
+
+        if (averageNanos > budgetNanos) {
+            framesWithHeadroom = 0;
+            if (level < MAX_LEVEL && framesSinceChange >= REDUCE_COOLDOWN_FRAMES) {
+                level++;
+                framesSinceChange = 0;
+            }
+        } else if (averageNanos < budgetNanos * RESTORE_FRACTION) {
+            if (level > 0 && ++framesWithHeadroom >= RESTORE_FRAMES) {
+                level--;
+                framesSinceChange = 0;
+                framesWithHeadroom = 0;
+            }
+        } else {
+            framesWithHeadroom = 0;
+        }
+    }
+
+    /**
+     * Current detail level, 0 being full detail.
+     */
+    public static int getLevel() {
+        return level;
+    }
+
+    public static int getMaxLevel() {
+        return MAX_LEVEL;
+    }
+
+    /**
+     * Smoothed render time of recent frames.
+     */
+    public static long getAverageNanos() {
+        return (long) averageNanos;
+    }
+
+    /**
+     * Fraction of full detail to render, from 1 down to 0.25.
+     */
+    public static float getDetailScale() {
+        return DETAIL_SCALE[level];
+    }
+
+    /**
+     * Takes one label from this frame's allowance. Returns false once the allowance is spent.
+     */
+    static boolean tryReserveLabel() {
+        if (labelsThisFrame >= LABEL_LIMIT[level]) return false;
+        labelsThisFrame++;
+        return true;
+    }
+
+    /**
+     * Draw every nth block outline of a hollow shape.
+     */
+    static int getOutlineStride() {
+        return OUTLINE_STRIDE[level];
+    }
+}
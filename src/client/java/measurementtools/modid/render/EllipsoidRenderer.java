@@ -3,10 +3,7 @@ package measurementtools.modid.render;
 import measurementtools.modid.SelectionManager;
 import measurementtools.modid.shapes.EllipsoidMode;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -15,10 +12,17 @@ import org.joml.Matrix4f;
 import java.util.List;
 
 public class EllipsoidRenderer implements ShapeRenderer {
-    private static final int LAT_SEGMENTS = 12;
-    private static final int LONG_SEGMENTS = 24;
-    private static final int BUFFER_SIZE = 8192;
-    private BufferAllocator buffer;
+    // Latitude rings between the poles, and segments per ring around the Y axis
+    private static final int MIN_LAT_SEGMENTS = 4;
+    private static final int MAX_LAT_SEGMENTS = 64;
+    private static final int MIN_LONG_SEGMENTS = 8;
+    private static final int MAX_LONG_SEGMENTS = 192;
+
+    private final WireframeMesh mesh = new WireframeMesh();
+    // Counts the mesh was built with: segments around the Y axis, and the pole-to-pole count
+    // before it is halved into latitude rings
+    private int longSegments = 0;
+    private int poleSegments = 0;
 
     @Override
     public void render(Camera camera, Matrix4f viewMatrix, List<BlockPos> selection, RenderConfig config) {
@@ -65,53 +69,55 @@ public class EllipsoidRenderer implements ShapeRenderer {
         if (radiusY < 0.5) radiusY = 0.5;
         if (radiusZ < 0.5) radiusZ = 0.5;
 
-        MatrixStack matrices = new MatrixStack();
-        matrices.multiplyPositionMatrix(viewMatrix);
-        Vec3d cameraPos = camera.getPos();
-
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
+        // Ring detail follows the ellipsoid's size on screen: around the Y axis from the wider
+        // horizontal radius, and from pole to pole from the vertical one
+        double distance = Tessellation.distanceToSphere(camera.getPos(), centerX, centerY, centerZ,
+            Math.max(radiusY, Math.max(radiusX, radiusZ)));
+        int longSegments = Tessellation.segments(Math.max(radiusX, radiusZ), distance,
+            MIN_LONG_SEGMENTS, MAX_LONG_SEGMENTS, this.longSegments);
+        int poleSegments = Tessellation.segments(radiusY, distance, MIN_LAT_SEGMENTS * 2, MAX_LAT_SEGMENTS * 2,
+            this.poleSegments);
+        // Latitude count stays even so the equator is always drawn
+        int latSegments = (poleSegments / 2) & ~1;
+
+        // Rings only change with the selection, the fitting mode or the tessellation;
+        // both counts go into one key
+        int mode = manager.getEllipsoidMode().ordinal();
+        int tessellation = longSegments * (MAX_LAT_SEGMENTS + 1) + latSegments;
+        if (!mesh.isCurrent(manager.getRevision(), tessellation, mode)) {
+            this.longSegments = longSegments;
+            this.poleSegments = poleSegments;
+            mesh.begin(centerX, centerY, centerZ, manager.getRevision(), tessellation, mode);
+            buildMesh(radiusX, radiusY, radiusZ, latSegments, longSegments);
         }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
 
-        matrices.push();
-        matrices.translate(
-            centerX - cameraPos.x,
-            centerY - cameraPos.y,
-            centerZ - cameraPos.z
-        );
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
+        mesh.draw(viewMatrix, camera.getPos(), lines, config.red(), config.green(), config.blue(), config.alpha());
 
-        float r = config.red();
-        float g = config.green();
-        float b = config.blue();
-        float a = config.alpha();
-
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
+        if (config.showLabels()) {
+            renderLabels(camera, viewMatrix, selection, config);
+        }
+    }
 
-        // Draw latitude lines (horizontal ellipses at different Y levels)
-        for (int lat = -LAT_SEGMENTS / 2; lat <= LAT_SEGMENTS / 2; lat++) {
-            double phi = Math.PI * lat / LAT_SEGMENTS;
+    /**
+     * Builds the latitude and longitude rings around the ellipsoid's center.
+     */
+    private void buildMesh(double radiusX, double radiusY, double radiusZ, int latSegments, int longSegments) {
+        // Latitude lines (horizontal ellipses at different Y levels)
+        for (int lat = -latSegments / 2; lat <= latSegments / 2; lat++) {
+            double phi = Math.PI * lat / latSegments;
             double y = Math.sin(phi) * radiusY;
             double latRadiusX = Math.cos(phi) * radiusX;
             double latRadiusZ = Math.cos(phi) * radiusZ;
 
-            drawEllipseXZ(matrix, lines, (float) y, latRadiusX, latRadiusZ, LONG_SEGMENTS, r, g, b, a);
+            addEllipseXZ((float) y, latRadiusX, latRadiusZ, longSegments);
         }
 
-        // Draw longitude lines (vertical ellipses around the Y axis)
+        // Longitude lines (vertical ellipses around the Y axis)
         for (int lon = 0; lon < 8; lon++) {
             double theta = Math.PI * lon / 8;
-            drawLongitudeLine(matrix, lines, theta, radiusX, radiusZ, radiusY, LAT_SEGMENTS * 2, r, g, b, a);
+            addLongitudeLine(theta, radiusX, radiusZ, radiusY, latSegments * 2);
         }
-
-        // Draw labels
-        if (config.showLabels()) {
-            drawLabels(camera, viewMatrix, matrices, radiusX, radiusY, radiusZ);
-        }
-
-        matrices.pop();
-        immediate.draw();
     }
 
     @Override
@@ -176,18 +182,16 @@ public class EllipsoidRenderer implements ShapeRenderer {
     private void drawLabels(Camera camera, Matrix4f viewMatrix, MatrixStack matrices,
                             double radiusX, double radiusY, double radiusZ) {
         RenderUtils.drawLabel(camera, viewMatrix, matrices, radiusX + 0.5, 0, 0,
-            String.format("rx=%.1f", radiusX));
+            "rx=" + RenderUtils.formatOneDecimal(radiusX));
         RenderUtils.drawLabel(camera, viewMatrix, matrices, 0, radiusY + 0.5, 0,
-            String.format("ry=%.1f", radiusY));
+            "ry=" + RenderUtils.formatOneDecimal(radiusY));
         if (Math.abs(radiusX - radiusZ) > 0.1) {
             RenderUtils.drawLabel(camera, viewMatrix, matrices, 0, 0, radiusZ + 0.5,
-                String.format("rz=%.1f", radiusZ));
+                "rz=" + RenderUtils.formatOneDecimal(radiusZ));
         }
     }
 
-    private void drawEllipseXZ(Matrix4f matrix, VertexConsumer lines,
-                               float y, double radiusX, double radiusZ, int segments,
-                               float r, float g, float b, float a) {
+    private void addEllipseXZ(float y, double radiusX, double radiusZ, int segments) {
         if (radiusX < 0.01 && radiusZ < 0.01) return;
 
         for (int i = 0; i < segments; i++) {
@@ -199,13 +203,11 @@ public class EllipsoidRenderer implements ShapeRenderer {
             float x2 = (float) (Math.cos(angle2) * radiusX);
             float z2 = (float) (Math.sin(angle2) * radiusZ);
 
-            RenderUtils.drawLine(matrix, lines, x1, y, z1, x2, y, z2, r, g, b, a);
+            mesh.addLine(x1, y, z1, x2, y, z2);
         }
     }
 
-    private void drawLongitudeLine(Matrix4f matrix, VertexConsumer lines,
-                                   double theta, double radiusX, double radiusZ, double radiusY, int segments,
-                                   float r, float g, float b, float a) {
+    private void addLongitudeLine(double theta, double radiusX, double radiusZ, double radiusY, int segments) {
         double cosTheta = Math.cos(theta);
         double sinTheta = Math.sin(theta);
 
@@ -222,7 +224,7 @@ public class EllipsoidRenderer implements ShapeRenderer {
             float y2 = (float) (Math.sin(phi2) * radiusY);
             float z2 = (float) (Math.cos(phi2) * radiusZ * sinTheta);
 
-            RenderUtils.drawLine(matrix, lines, x1, y1, z1, x2, y2, z2, r, g, b, a);
+            mesh.addLine(x1, y1, z1, x2, y2, z2);
         }
     }
 }
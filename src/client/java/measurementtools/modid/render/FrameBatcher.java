@@ -0,0 +1,88 @@
+package measurementtools.modid.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.util.BufferAllocator;
+import org.lwjgl.opengl.GL11;
+
+import java.util.LinkedHashMap;
+import java.util.SequencedMap;
+
+/**
+ * Collects the geometry of every measurement overlay for a frame and draws it in one pass.
+ *
+ * Each render layer has its own buffer, so renderers can append lines, quads and ghost
+ * block faces in any order without forcing a draw. All vertices are submitted already
+ * transformed by the frame's view matrix, which is what lets them share one buffer.
+ * MeasurementRenderer calls flush once at the end of the frame, giving one draw per layer
+ * no matter how many overlays are enabled.
+ */
+final class FrameBatcher {
+    private static final FrameBatcher INSTANCE = new FrameBatcher();
+
+    private static final int LINE_BUFFER_SIZE = 262144;
+    private static final int QUAD_BUFFER_SIZE = 65536;
+    private static final int SOLID_BUFFER_SIZE = 262144;
+    private static final int FALLBACK_BUFFER_SIZE = 1024;
+
+    private VertexConsumerProvider.Immediate immediate;
+
+    private FrameBatcher() {}
+
+    static FrameBatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Line geometry: shape outlines, subdivisions, hollow shells, chunk and region boxes
+     * and ghost wireframes.
+     */
+    VertexConsumer lines() {
+        return provider().getBuffer(RenderLayer.getLines());
+    }
+
+    /**
+     * Colored quads of the ghost block mid and far levels of detail.
+     */
+    VertexConsumer quads() {
+        return provider().getBuffer(RenderLayer.getDebugQuads());
+    }
+
+    /**
+     * Textured, translucent faces of full-detail ghost blocks.
+     */
+    VertexConsumer solid() {
+        return provider().getBuffer(RenderLayer.getTranslucentMovingBlock());
+    }
+
+    /**
+     * Draws everything appended this frame. Lines go first so translucent ghost faces
+     * blend over them, as when each overlay drew on its own.
+     */
+    void flush() {
+        if (immediate == null) return;
+
+        RenderSystem.lineWidth(2.0f);
+        immediate.draw(RenderLayer.getLines());
+        immediate.draw(RenderLayer.getDebugQuads());
+
+        // Enable polygon offset to prevent z-fighting
+        GL11.glEnable(GL11.GL_POLYGON_OFFSET_FILL);
+        GL11.glPolygonOffset(-1.0f, -1.0f);
+        immediate.draw(RenderLayer.getTranslucentMovingBlock());
+        GL11.glDisable(GL11.GL_POLYGON_OFFSET_FILL);
+    }
+
+    private VertexConsumerProvider.Immediate provider() {
+        if (immediate == null) {
+            SequencedMap<RenderLayer, BufferAllocator> layerBuffers = new LinkedHashMap<>();
+            layerBuffers.put(RenderLayer.getLines(), RenderUtils.allocateBuffer(LINE_BUFFER_SIZE));
+            layerBuffers.put(RenderLayer.getDebugQuads(), RenderUtils.allocateBuffer(QUAD_BUFFER_SIZE));
+            layerBuffers.put(RenderLayer.getTranslucentMovingBlock(), RenderUtils.allocateBuffer(SOLID_BUFFER_SIZE));
+            immediate = VertexConsumerProvider.immediate(layerBuffers, RenderUtils.allocateBuffer(FALLBACK_BUFFER_SIZE));
+        }
+        return immediate;
+    }
+}
@@ -1,9 +1,11 @@
 package measurementtools.modid.render;
 
-import com.mojang.blaze3d.systems.RenderSystem;
-import org.lwjgl.opengl.GL11;
 import measurementtools.modid.ClipboardManager;
 import measurementtools.modid.ModConfig;
+import measurementtools.modid.clipboard.BlockDesign;
+import measurementtools.modid.clipboard.SectionedBlocks;
+import measurementtools.modid.jfr.VertexCacheEvent;
+import measurementtools.modid.util.PerformanceStats;
 import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
@@ -15,7 +17,6 @@ import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
 import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.client.render.block.BlockRenderManager;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
@@ -24,9 +25,12 @@ import net.minecraft.world.World;
 import org.joml.Matrix4f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Renders ghost blocks for copy/paste preview and locked placements.
@@ -34,37 +38,37 @@ import java.util.Map;
  * Uses CPU-side vertex caching to avoid expensive per-block renderBlockAsEntity
  * calls every frame. Vertex data is captured once and replayed each frame,
  * significantly reducing CPU overhead for large selections.
+ *
+ * Placements are split into 16x16x16 sections with distance-based level of detail:
+ * near sections use full block models, mid-range sections use face-culled colored
+ * cubes and far sections collapse to one box per section (see GhostLodCache).
  */
 public class GhostBlockRenderer {
-    // Reusable buffer allocator for wireframe rendering
-    private BufferAllocator wireframeBuffer;
-    private static final int WIREFRAME_BUFFER_SIZE = 16384;
-
-    // Buffer for solid block rendering (sized dynamically)
-    private BufferAllocator solidBuffer;
-    private int lastSolidBlockCount = 0;
-    private static final int BYTES_PER_BLOCK = 2048;
-    private static final int MIN_SOLID_BUFFER_SIZE = 32768;
-
-    // Cached vertex data for preview
-    private CachedVertexData previewCache;
-    private int lastPreviewClipboardHash = 0;
-    private float lastPreviewOpacity = -1;
-
-    // Cached vertex data for locked placements (keyed by placement ID)
-    private final Map<Long, CachedVertexData> lockedPlacementCaches = new HashMap<>();
-    private float lastLockedOpacity = -1;
-
-    // Maximum render distance for ghost blocks (in blocks)
+    // Level-of-detail data for the preview, one per rotation (rebuilt when what it is built from changes)
+    private final PreviewLod[] previewLods = new PreviewLod[4];
+
+    // Time spent per frame building vertex caches for rotations that are not on screen
+    private static final long PREWARM_BUDGET_NANOS = 2_000_000L;
+
+    // Level-of-detail data for locked placements, keyed by what they are built from so
+    // every placement of the same design and rotation reuses one cache
+    private final Map<LodKey, GhostLodCache> lockedPlacementLods = new HashMap<>();
+
+    // Time spent per frame reading paged sections in; the rest appear over the next frames
+    private static final long PAGE_IN_BUDGET_NANOS = 4_000_000L;
+    private long pageInDeadline;
+
+    // Maximum render distance for full-detail ghost blocks in layer view (in blocks)
     private static final double MAX_RENDER_DISTANCE_SQ = 128.0 * 128.0;
 
+    // Level-of-detail thresholds, measured from the camera to the nearest point of a section
+    private static final double NEAR_LOD_DISTANCE_SQ = 48.0 * 48.0;
+    private static final double MID_LOD_DISTANCE_SQ = 160.0 * 160.0;
+    private static final double MAX_LOD_DISTANCE_SQ = 512.0 * 512.0;
+
     // Constant light level for ghost blocks (moderately bright)
     private static final int GHOST_BLOCK_LIGHT = LightmapTextureManager.pack(12, 15);
 
-    // Cache for visible blocks in preview
-    private Map<BlockPos, BlockState> cachedPreviewVisibleBlocks;
-    private int lastClipboardSize = -1;
-
     // Frustum for culling (set each frame)
     private Frustum frustum;
 
@@ -83,17 +87,21 @@ public class GhostBlockRenderer {
         ModConfig config = ModConfig.getInstance();
         ModConfig.GhostBlockRenderMode renderMode = config.getGhostBlockRenderMode();
         float opacity = config.getGhostBlockOpacity();
+        pageInDeadline = System.nanoTime() + PAGE_IN_BUDGET_NANOS;
 
         // Render preview blocks if paste preview is active
         if (clipboard.isPastePreviewActive() && clipboard.hasClipboardData()) {
             BlockPos anchor = clipboard.getPreviewAnchorPos();
             if (anchor != null) {
-                Map<BlockPos, BlockState> visibleBlocks = getPreviewVisibleBlocks(clipboard.getClipboardBlocks());
+                SectionedBlocks copied = clipboard.getCopiedSections();
+                GhostLodCache previewLod = copied != null
+                    ? getCopyPreviewLod(copied, clipboard.getPreviewRotation())
+                    : getPreviewLod(clipboard.getClipboardDesign(), clipboard.getPreviewRotation());
 
-                if (renderMode == ModConfig.GhostBlockRenderMode.SOLID) {
-                    renderSolidBlocksCached(viewMatrix, cameraPos, world, anchor, visibleBlocks, true, opacity);
-                } else {
-                    renderWireframeBlocks(viewMatrix, cameraPos, world, anchor, visibleBlocks, true, opacity);
+                renderWithLod(viewMatrix, cameraPos, world, anchor, previewLod, renderMode, true, opacity);
+
+                if (copied == null && renderMode == ModConfig.GhostBlockRenderMode.SOLID) {
+                    prewarmPreviewRotations(world, clipboard, opacity);
                 }
             }
         }
@@ -103,19 +111,24 @@ public class GhostBlockRenderer {
         int layerToShow = filterByLayer ? clipboard.getCurrentViewLayer() : -1;
 
         for (ClipboardManager.LockedPlacement placement : clipboard.getLockedPlacements()) {
-            Map<BlockPos, BlockState> blocksToRender = placement.getVisibleBlocks();
-
-            // Filter by layer if layer view is enabled
             if (filterByLayer) {
-                blocksToRender = filterByLayer(blocksToRender, layerToShow);
-            }
+                // Layer view shows a single slice at full detail
+                Map<BlockPos, BlockState> blocksToRender = filterByLayer(placement.getVisibleBlocks(), layerToShow);
 
-            if (renderMode == ModConfig.GhostBlockRenderMode.SOLID) {
-                renderLockedPlacementCachedFiltered(viewMatrix, cameraPos, world, placement, blocksToRender, opacity);
-            } else {
-                renderWireframeBlocks(viewMatrix, cameraPos, world,
-                    placement.getAnchorPos(), blocksToRender, false, opacity);
+                if (renderMode == ModConfig.GhostBlockRenderMode.SOLID) {
+                    renderLockedPlacementCachedFiltered(viewMatrix, cameraPos, world, placement, blocksToRender, opacity);
+                } else {
+                    renderWireframeBlocks(viewMatrix, cameraPos, world,
+                        placement.getAnchorPos(), blocksToRender, false, opacity);
+                }
+                continue;
             }
+
+            BlockDesign design = placement.getDesign();
+            int rotation = placement.getRotation();
+            GhostLodCache lod = lockedPlacementLods.computeIfAbsent(new LodKey(lodSource(design, rotation), rotation),
+                key -> buildLod(design, rotation));
+            renderWithLod(viewMatrix, cameraPos, world, placement.getAnchorPos(), lod, renderMode, false, opacity);
         }
 
         // Clean up caches for removed placements
@@ -123,67 +136,111 @@ public class GhostBlockRenderer {
     }
 
     /**
-     * Renders solid ghost blocks using cached vertex data.
-     * Cache is rebuilt only when clipboard content or opacity changes.
+     * Renders one placement section by section, choosing full models, face-culled
+     * colored cubes or a single merged box based on distance from the camera.
+     * Geometry is appended to the frame batcher and drawn with the other overlays.
+     * Paged sections read their blocks the first time they pass the culling checks.
      */
-    private void renderSolidBlocksCached(Matrix4f viewMatrix, Vec3d cameraPos, World world,
-                                         BlockPos anchor, Map<BlockPos, BlockState> blocks,
-                                         boolean isPreview, float opacity) {
-        if (blocks.isEmpty()) return;
+    private void renderWithLod(Matrix4f viewMatrix, Vec3d cameraPos, World world, BlockPos anchor,
+                               GhostLodCache lod, ModConfig.GhostBlockRenderMode renderMode,
+                               boolean isPreview, float opacity) {
+        Matrix4f matrix = new Matrix4f(viewMatrix).translate(
+            (float) (anchor.getX() - cameraPos.x),
+            (float) (anchor.getY() - cameraPos.y),
+            (float) (anchor.getZ() - cameraPos.z)
+        );
+        int alpha = (int) (opacity * 255) & 0xFF;
 
-        // Check if anchor is within render distance
-        if (!isAnchorVisible(anchor, cameraPos)) {
-            return;
-        }
+        // Pull the LOD bands closer to the camera when the governor reduces detail
+        double scale = DetailGovernor.getDetailScale();
+        double nearDistanceSq = NEAR_LOD_DISTANCE_SQ * scale * scale;
+        double midDistanceSq = MID_LOD_DISTANCE_SQ * scale * scale;
 
-        // Check if we need to rebuild the cache
-        int clipboardHash = blocks.hashCode();
-        boolean needsRebuild = previewCache == null ||
-                              clipboardHash != lastPreviewClipboardHash ||
-                              opacity != lastPreviewOpacity;
+        for (GhostLodCache.Section section : lod.getSections()) {
+            if (section.isEmpty() || !isSectionInFrustum(section, anchor)) continue;
 
-        if (needsRebuild) {
-            previewCache = buildVertexCache(world, blocks, isPreview, opacity);
-            lastPreviewClipboardHash = clipboardHash;
-            lastPreviewOpacity = opacity;
-        }
+            double distanceSq = section.distanceSq(anchor, cameraPos);
+            if (distanceSq > MAX_LOD_DISTANCE_SQ) continue;
 
-        if (previewCache != null && !previewCache.isEmpty()) {
-            drawCachedData(viewMatrix, cameraPos, anchor, previewCache, blocks.size());
+            if (!section.loaded) {
+                if (System.nanoTime() >= pageInDeadline || !lod.load(section) || section.isEmpty()) continue;
+                // Loading shrinks the bounds to the visible blocks
+                distanceSq = section.distanceSq(anchor, cameraPos);
+            }
+
+            if (distanceSq <= nearDistanceSq) {
+                if (renderMode == ModConfig.GhostBlockRenderMode.SOLID) {
+                    if (section.fullDetail == null || section.fullDetailOpacity != opacity) {
+                        PerformanceStats.miss(PerformanceStats.Cache.GHOST_VERTICES);
+                        section.fullDetail = buildVertexCache(world, section.blocks, isPreview, opacity);
+                        section.fullDetailOpacity = opacity;
+                    } else {
+                        PerformanceStats.hit(PerformanceStats.Cache.GHOST_VERTICES);
+                    }
+                    if (!section.fullDetail.isEmpty()) {
+                        section.fullDetail.replay(getSolidBatch(), matrix);
+                    }
+                } else {
+                    appendWireframeSection(matrix, world, anchor, section, isPreview, opacity);
+                }
+            } else if (distanceSq <= midDistanceSq) {
+                section.emitMidDetail(world, anchor, lod, getQuadBatch(), matrix, isPreview, alpha);
+            } else {
+                section.emitFarDetail(world, anchor, getQuadBatch(), matrix, isPreview, alpha);
+
+                int rgb = section.getFarColor(world, anchor, isPreview);
+                drawBlockOutline(matrix, getLineBatch(),
+                    section.minX, section.minY, section.minZ,
+                    section.maxX + 1, section.maxY + 1, section.maxZ + 1,
+                    ((rgb >> 16) & 0xFF) / 255f, ((rgb >> 8) & 0xFF) / 255f, (rgb & 0xFF) / 255f, opacity);
+            }
         }
     }
 
     /**
-     * Renders a locked placement using cached vertex data.
+     * Appends block outlines for a near section in wireframe mode.
      */
-    private void renderLockedPlacementCached(Matrix4f viewMatrix, Vec3d cameraPos, World world,
-                                             ClipboardManager.LockedPlacement placement, float opacity) {
-        Map<BlockPos, BlockState> blocks = placement.getVisibleBlocks();
-        if (blocks.isEmpty()) return;
+    private void appendWireframeSection(Matrix4f matrix, World world, BlockPos anchor,
+                                        GhostLodCache.Section section, boolean isPreview, float opacity) {
+        VertexConsumer lines = getLineBatch();
+        for (Map.Entry<BlockPos, BlockState> entry : section.blocks.entrySet()) {
+            BlockPos relativePos = entry.getKey();
+            int mapColor = entry.getValue().getMapColor(world, anchor.add(relativePos)).color;
+            float r = ((mapColor >> 16) & 0xFF) / 255f;
+            float g = ((mapColor >> 8) & 0xFF) / 255f;
+            float b = (mapColor & 0xFF) / 255f;
 
-        BlockPos anchor = placement.getAnchorPos();
+            if (isPreview) {
+                r = r * 0.7f;
+                g = g * 0.7f;
+                b = Math.min(1.0f, b * 0.7f + 0.3f);
+            }
 
-        // Check render distance
-        if (!isAnchorVisible(anchor, cameraPos)) {
-            return;
+            float x1 = relativePos.getX();
+            float y1 = relativePos.getY();
+            float z1 = relativePos.getZ();
+            drawBlockOutline(matrix, lines, x1, y1, z1, x1 + 1, y1 + 1, z1 + 1, r, g, b, opacity);
         }
+    }
 
-        long placementId = placement.getId();
-
-        // Check if we need to rebuild (new placement or opacity changed)
-        CachedVertexData cache = lockedPlacementCaches.get(placementId);
-        boolean needsRebuild = cache == null || opacity != lastLockedOpacity;
+    private boolean isSectionInFrustum(GhostLodCache.Section section, BlockPos anchor) {
+        if (frustum == null) return true;
+        return frustum.isVisible(new Box(
+            anchor.getX() + section.minX, anchor.getY() + section.minY, anchor.getZ() + section.minZ,
+            anchor.getX() + section.maxX + 1, anchor.getY() + section.maxY + 1, anchor.getZ() + section.maxZ + 1
+        ));
+    }
 
-        if (needsRebuild) {
-            cache = buildVertexCache(world, blocks, false, opacity);
-            lockedPlacementCaches.put(placementId, cache);
-        }
+    private VertexConsumer getSolidBatch() {
+        return FrameBatcher.getInstance().solid();
+    }
 
-        if (cache != null && !cache.isEmpty()) {
-            drawCachedData(viewMatrix, cameraPos, anchor, cache, blocks.size());
-        }
+    private VertexConsumer getQuadBatch() {
+        return FrameBatcher.getInstance().quads();
+    }
 
-        lastLockedOpacity = opacity;
+    private VertexConsumer getLineBatch() {
+        return FrameBatcher.getInstance().lines();
     }
 
     /**
@@ -206,7 +263,7 @@ public class GhostBlockRenderer {
         CachedVertexData cache = buildVertexCache(world, filteredBlocks, false, opacity);
 
         if (cache != null && !cache.isEmpty()) {
-            drawCachedData(viewMatrix, cameraPos, anchor, cache, filteredBlocks.size());
+            drawCachedData(viewMatrix, cameraPos, anchor, cache);
         }
     }
 
@@ -216,6 +273,9 @@ public class GhostBlockRenderer {
      */
     private CachedVertexData buildVertexCache(World world, Map<BlockPos, BlockState> blocks,
                                               boolean isPreview, float opacity) {
+        VertexCacheEvent event = new VertexCacheEvent();
+        event.begin();
+        long start = System.nanoTime();
         MinecraftClient client = MinecraftClient.getInstance();
         BlockRenderManager blockRenderManager = client.getBlockRenderManager();
 
@@ -249,6 +309,14 @@ public class GhostBlockRenderer {
             matrices.pop();
         }
 
+        PerformanceStats.addTime(PerformanceStats.Subsystem.GHOST_CACHE, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = "full";
+            event.voxels = blocks.size();
+            event.vertices = cache.getVertexCount();
+            event.commit();
+        }
         return cache;
     }
 
@@ -256,7 +324,7 @@ public class GhostBlockRenderer {
      * Draws cached vertex data at the specified anchor position.
      */
     private void drawCachedData(Matrix4f viewMatrix, Vec3d cameraPos, BlockPos anchor,
-                                CachedVertexData cache, int blockCount) {
+                                CachedVertexData cache) {
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
@@ -267,41 +335,23 @@ public class GhostBlockRenderer {
             anchor.getZ() - cameraPos.z
         );
 
-        BufferAllocator buffer = getOrCreateSolidBuffer(blockCount);
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer consumer = immediate.getBuffer(RenderLayer.getTranslucentMovingBlock());
-
-        // Enable polygon offset to prevent z-fighting
-        GL11.glEnable(GL11.GL_POLYGON_OFFSET_FILL);
-        GL11.glPolygonOffset(-1.0f, -1.0f);
-
         Matrix4f matrix = matrices.peek().getPositionMatrix();
 
         // Replay cached vertex data
-        cache.replay(consumer, matrix);
-
-        immediate.draw();
-
-        GL11.glDisable(GL11.GL_POLYGON_OFFSET_FILL);
+        cache.replay(getSolidBatch(), matrix);
     }
 
     /**
-     * Removes caches for placements that no longer exist.
+     * Removes caches for designs that no placement uses anymore.
      */
     private void cleanupOrphanedCaches(ClipboardManager clipboard) {
-        var placements = clipboard.getLockedPlacements();
-        var placementIds = new java.util.HashSet<Long>();
-        for (var placement : placements) {
-            placementIds.add(placement.getId());
-        }
+        if (lockedPlacementLods.isEmpty()) return;
 
-        var iterator = lockedPlacementCaches.entrySet().iterator();
-        while (iterator.hasNext()) {
-            var entry = iterator.next();
-            if (!placementIds.contains(entry.getKey())) {
-                iterator.remove();
-            }
+        Set<LodKey> inUse = new HashSet<>();
+        for (var placement : clipboard.getLockedPlacements()) {
+            inUse.add(new LodKey(lodSource(placement.getDesign(), placement.getRotation()), placement.getRotation()));
         }
+        lockedPlacementLods.keySet().retainAll(inUse);
     }
 
     /**
@@ -315,33 +365,75 @@ public class GhostBlockRenderer {
     }
 
     /**
-     * Gets visible blocks for preview, caching the computation.
+     * Gets the LOD data for one preview rotation, rebuilding it when the clipboard design
+     * has been replaced or its visible blocks for that rotation have been computed.
+     */
+    private GhostLodCache getPreviewLod(BlockDesign design, int rotation) {
+        PreviewLod cached = previewLods[rotation];
+        Object source = lodSource(design, rotation);
+        if (cached == null || cached.source() != source) {
+            cached = new PreviewLod(source, buildLod(design, rotation));
+            previewLods[rotation] = cached;
+        }
+        return cached.lod();
+    }
+
+    /**
+     * Gets paged LOD data over the sections of a copy in progress. Sections are loaded once
+     * the copy has finished them, so the preview fills in as the copy advances.
      */
-    private Map<BlockPos, BlockState> getPreviewVisibleBlocks(Map<BlockPos, BlockState> clipboardBlocks) {
-        if (clipboardBlocks.size() != lastClipboardSize || cachedPreviewVisibleBlocks == null) {
-            cachedPreviewVisibleBlocks = computeVisibleBlocks(clipboardBlocks);
-            lastClipboardSize = clipboardBlocks.size();
+    private GhostLodCache getCopyPreviewLod(SectionedBlocks copied, int rotation) {
+        PreviewLod cached = previewLods[rotation];
+        if (cached == null || cached.source() != copied) {
+            cached = new PreviewLod(copied, new GhostLodCache(copied, rotation));
+            previewLods[rotation] = cached;
         }
-        return cachedPreviewVisibleBlocks;
+        return cached.lod();
     }
 
     /**
-     * Computes which blocks have at least one exposed face.
+     * What buildLod builds from right now, so a cached LOD can tell when it is stale.
      */
-    private Map<BlockPos, BlockState> computeVisibleBlocks(Map<BlockPos, BlockState> blocks) {
-        Map<BlockPos, BlockState> visible = new HashMap<>();
-        for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
-            BlockPos pos = entry.getKey();
-            if (!blocks.containsKey(pos.up()) ||
-                !blocks.containsKey(pos.down()) ||
-                !blocks.containsKey(pos.north()) ||
-                !blocks.containsKey(pos.south()) ||
-                !blocks.containsKey(pos.east()) ||
-                !blocks.containsKey(pos.west())) {
-                visible.put(pos, entry.getValue());
+    private static Object lodSource(BlockDesign design, int rotation) {
+        Map<BlockPos, BlockState> visibleBlocks = design.getComputedVisibleBlocks(rotation);
+        return visibleBlocks != null ? visibleBlocks : design.getSections();
+    }
+
+    /**
+     * Builds LOD data for one rotation of a design: from its visible blocks once they are
+     * computed, otherwise paged in from its sections as they are drawn. Never decodes a
+     * mapped design or computes a rotation inside the frame.
+     */
+    private static GhostLodCache buildLod(BlockDesign design, int rotation) {
+        Map<BlockPos, BlockState> visibleBlocks = design.getComputedVisibleBlocks(rotation);
+        if (visibleBlocks != null) {
+            return new GhostLodCache(visibleBlocks, design.getVolume(rotation));
+        }
+        return new GhostLodCache(design.getSections(), rotation);
+    }
+
+    /**
+     * Builds full-detail vertex caches for the other preview rotations a few sections
+     * per frame, so rotating the preview swaps to ready geometry instead of rebuilding.
+     * Rotations whose data is still being computed in the background are skipped.
+     */
+    private void prewarmPreviewRotations(World world, ClipboardManager clipboard, float opacity) {
+        long deadline = System.nanoTime() + PREWARM_BUDGET_NANOS;
+        int current = clipboard.getPreviewRotation();
+        BlockDesign design = clipboard.getClipboardDesign();
+
+        for (int step = 1; step < 4; step++) {
+            int rotation = (current + step) & 3;
+            if (design.getComputedVisibleBlocks(rotation) == null) continue;
+
+            for (GhostLodCache.Section section : getPreviewLod(design, rotation).getSections()) {
+                if (section.fullDetail != null && section.fullDetailOpacity == opacity) continue;
+
+                section.fullDetail = buildVertexCache(world, section.blocks, true, opacity);
+                section.fullDetailOpacity = opacity;
+                if (System.nanoTime() >= deadline) return;
             }
         }
-        return visible;
     }
 
     /**
@@ -375,37 +467,13 @@ public class GhostBlockRenderer {
         return true;
     }
 
-    private BufferAllocator getOrCreateWireframeBuffer() {
-        if (wireframeBuffer == null) {
-            wireframeBuffer = new BufferAllocator(WIREFRAME_BUFFER_SIZE);
-        }
-        return wireframeBuffer;
-    }
-
-    private BufferAllocator getOrCreateSolidBuffer(int blockCount) {
-        int requiredSize = Math.max(MIN_SOLID_BUFFER_SIZE, blockCount * BYTES_PER_BLOCK);
-        if (solidBuffer == null || lastSolidBlockCount * BYTES_PER_BLOCK < requiredSize / 2 ||
-            requiredSize > lastSolidBlockCount * BYTES_PER_BLOCK) {
-            if (solidBuffer != null) {
-                solidBuffer.close();
-            }
-            solidBuffer = new BufferAllocator(requiredSize);
-            lastSolidBlockCount = blockCount;
-        }
-        return solidBuffer;
-    }
-
     private void renderWireframeBlocks(Matrix4f viewMatrix, Vec3d cameraPos, World world,
                                        BlockPos anchor, Map<BlockPos, BlockState> blocks,
                                        boolean isPreview, float opacity) {
-        RenderSystem.lineWidth(2.0f);
-
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
-        BufferAllocator buffer = getOrCreateWireframeBuffer();
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
+        VertexConsumer lines = getLineBatch();
 
         Matrix4f matrix = matrices.peek().getPositionMatrix();
 
@@ -439,8 +507,6 @@ public class GhostBlockRenderer {
 
             drawBlockOutline(matrix, lines, x1, y1, z1, x2, y2, z2, r, g, b, opacity);
         }
-
-        immediate.draw();
     }
 
     private void drawBlockOutline(Matrix4f matrix, VertexConsumer lines,
@@ -470,40 +536,38 @@ public class GhostBlockRenderer {
      * Cleans up all resources.
      */
     public void cleanup() {
-        if (wireframeBuffer != null) {
-            wireframeBuffer.close();
-            wireframeBuffer = null;
-        }
-        if (solidBuffer != null) {
-            solidBuffer.close();
-            solidBuffer = null;
-        }
-
-        previewCache = null;
-        lockedPlacementCaches.clear();
-
-        cachedPreviewVisibleBlocks = null;
-        lastClipboardSize = -1;
-        lastPreviewClipboardHash = 0;
-        lastPreviewOpacity = -1;
-        lastLockedOpacity = -1;
+        Arrays.fill(previewLods, null);
+        lockedPlacementLods.clear();
     }
 
     /**
      * Invalidates all cached vertex data, forcing rebuild on next render.
-     * Call when rotation or other settings change that affect the preview.
+     * Rotation does not require this; preview geometry is kept per rotation.
      */
     public void invalidateCaches() {
-        previewCache = null;
-        lastPreviewClipboardHash = 0;
-        lastPreviewOpacity = -1;
+        Arrays.fill(previewLods, null);
+        lockedPlacementLods.clear();
+    }
+
+    /**
+     * LOD data for one preview rotation and the visible block map or sections it was built from.
+     */
+    private record PreviewLod(Object source, GhostLodCache lod) {}
 
-        // Also clear the visible blocks cache (positions change with rotation)
-        cachedPreviewVisibleBlocks = null;
-        lastClipboardSize = -1;
+    /**
+     * Identifies locked placement LOD data by what it was built from (compared by identity)
+     * and the rotation, which paged data applies itself.
+     */
+    private record LodKey(Object source, int rotation) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LodKey key && key.source == source && key.rotation == rotation;
+        }
 
-        lockedPlacementCaches.clear();
-        lastLockedOpacity = -1;
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source) * 4 + rotation;
+        }
     }
 
     // ========== Inner Classes for Vertex Caching ==========
@@ -513,7 +577,7 @@ public class GhostBlockRenderer {
      * Each vertex has: position (3 floats), color (4 ints), texture (2 floats),
      * overlay (2 ints), light (2 ints), normal (3 floats).
      */
-    private static class CachedVertexData {
+    static class CachedVertexData {
         private final List<CachedVertex> vertices = new ArrayList<>();
 
         public void addVertex(float x, float y, float z,
@@ -529,6 +593,10 @@ public class GhostBlockRenderer {
             return vertices.isEmpty();
         }
 
+        public int getVertexCount() {
+            return vertices.size();
+        }
+
         /**
          * Replays all cached vertices to the given consumer, transforming positions by the matrix.
          */
@@ -546,6 +614,7 @@ public class GhostBlockRenderer {
                     .light(v.lightU, v.lightV)
                     .normal(v.nx, v.ny, v.nz);
             }
+            PerformanceStats.addVertices(vertices.size(), RenderUtils.BLOCK_VERTEX_BYTES);
         }
     }
 
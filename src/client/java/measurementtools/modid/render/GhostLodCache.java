@@ -0,0 +1,443 @@
+package measurementtools.modid.render;
+
+import measurementtools.modid.clipboard.PalettedBlockVolume;
+import measurementtools.modid.clipboard.SectionedBlocks;
+import measurementtools.modid.jfr.VertexCacheEvent;
+import measurementtools.modid.util.PerformanceStats;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.util.BlockRotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.BlockView;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Level-of-detail data for a single ghost block placement.
+ *
+ * Visible blocks are grouped into 16x16x16 sections relative to the placement anchor.
+ * Each section lazily builds two reduced representations which are then reused every frame:
+ * face-culled cubes tinted by map color (mid range) and a single box covering the
+ * section's occupied bounds, tinted by its dominant map color (far range).
+ *
+ * A cache is either built from a design's computed visible blocks, or paged: each section
+ * then starts as the box of one source section and reads, rotates and face-tests its blocks
+ * the first time it is drawn, so a mapped file is only read where the preview looks.
+ */
+class GhostLodCache {
+    static final int SECTION_SHIFT = 4;
+
+    // Minecraft's directional shading values (same as the solid vertex cache)
+    private static final float SHADE_DOWN = 0.5f;
+    private static final float SHADE_UP = 1.0f;
+    private static final float SHADE_NORTH_SOUTH = 0.8f;
+    private static final float SHADE_EAST_WEST = 0.6f;
+
+    // Unit cube corner offsets for each face, indexed by Direction.ordinal()
+    private static final float[][] FACE_CORNERS = {
+        {0, 0, 0,  1, 0, 0,  1, 0, 1,  0, 0, 1}, // DOWN
+        {0, 1, 0,  0, 1, 1,  1, 1, 1,  1, 1, 0}, // UP
+        {0, 0, 0,  0, 1, 0,  1, 1, 0,  1, 0, 0}, // NORTH
+        {0, 0, 1,  1, 0, 1,  1, 1, 1,  0, 1, 1}, // SOUTH
+        {0, 0, 0,  0, 0, 1,  0, 1, 1,  0, 1, 0}, // WEST
+        {1, 0, 0,  1, 1, 0,  1, 1, 1,  1, 0, 1}  // EAST
+    };
+
+    private final List<Section> sections;
+
+    // Full rotated volume for face culling; null for paged caches
+    private final PalettedBlockVolume allBlocks;
+
+    // Paged caches: unrotated source, rotation and its block rotation; null source otherwise
+    private final SectionedBlocks pagedBlocks;
+    private final int rotation;
+    private final BlockRotation blockRotation;
+    private final Map<BlockState, BlockState> rotatedStates = new IdentityHashMap<>();
+
+    /**
+     * Builds sections from computed visible blocks. Mid LOD faces are culled against the
+     * full volume with the same rotation.
+     */
+    GhostLodCache(Map<BlockPos, BlockState> visibleBlocks, PalettedBlockVolume allBlocks) {
+        this.allBlocks = allBlocks;
+        this.pagedBlocks = null;
+        this.rotation = 0;
+        this.blockRotation = BlockRotation.NONE;
+
+        Map<Long, Section> byKey = new HashMap<>();
+        for (Map.Entry<BlockPos, BlockState> entry : visibleBlocks.entrySet()) {
+            BlockPos pos = entry.getKey();
+            int sx = pos.getX() >> SECTION_SHIFT;
+            int sy = pos.getY() >> SECTION_SHIFT;
+            int sz = pos.getZ() >> SECTION_SHIFT;
+            Section section = byKey.computeIfAbsent(BlockPos.asLong(sx, sy, sz), key -> new Section(sx, sy, sz, true));
+            section.add(pos, entry.getValue());
+        }
+        this.sections = new ArrayList<>(byKey.values());
+    }
+
+    /**
+     * Builds unloaded sections over a sectioned source, rotated clockwise by rotation * 90
+     * degrees. Sections the source knows to be empty are left out; nothing else is read.
+     */
+    GhostLodCache(SectionedBlocks blocks, int rotation) {
+        this.allBlocks = null;
+        this.pagedBlocks = blocks;
+        this.rotation = rotation & 3;
+        this.blockRotation = switch (this.rotation) {
+            case 1 -> BlockRotation.CLOCKWISE_90;
+            case 2 -> BlockRotation.CLOCKWISE_180;
+            case 3 -> BlockRotation.COUNTERCLOCKWISE_90;
+            default -> BlockRotation.NONE;
+        };
+
+        this.sections = new ArrayList<>();
+        int sectionsX = (blocks.getSizeX() + 15) >> SECTION_SHIFT;
+        int sectionsY = (blocks.getSizeY() + 15) >> SECTION_SHIFT;
+        int sectionsZ = (blocks.getSizeZ() + 15) >> SECTION_SHIFT;
+        for (int sy = 0; sy < sectionsY; sy++) {
+            for (int sz = 0; sz < sectionsZ; sz++) {
+                for (int sx = 0; sx < sectionsX; sx++) {
+                    if (blocks.isSectionEmpty(sx, sy, sz)) continue;
+
+                    // Until it is loaded, the section covers its whole (rotated) box
+                    Section section = new Section(sx, sy, sz, false);
+                    int maxX = Math.min((sx << SECTION_SHIFT) + 15, blocks.getSizeX() - 1);
+                    int maxY = Math.min((sy << SECTION_SHIFT) + 15, blocks.getSizeY() - 1);
+                    int maxZ = Math.min((sz << SECTION_SHIFT) + 15, blocks.getSizeZ() - 1);
+                    section.include(rotateX(sx << SECTION_SHIFT, sz << SECTION_SHIFT), sy << SECTION_SHIFT,
+                        rotateZ(sx << SECTION_SHIFT, sz << SECTION_SHIFT));
+                    section.include(rotateX(maxX, maxZ), maxY, rotateZ(maxX, maxZ));
+                    sections.add(section);
+                }
+            }
+        }
+    }
+
+    List<Section> getSections() {
+        return sections;
+    }
+
+    /**
+     * Reads a paged section's blocks, keeping those with an exposed face. Returns false if the
+     * source has not finished that section yet; the section stays unloaded and is tried again.
+     */
+    boolean load(Section section) {
+        if (section.loaded) return true;
+        if (!pagedBlocks.isSectionReady(section.sectionX, section.sectionY, section.sectionZ)) return false;
+
+        VertexCacheEvent event = new VertexCacheEvent();
+        event.begin();
+        long start = System.nanoTime();
+        section.resetBounds();
+        pagedBlocks.forEachBlockInSection(section.sectionX, section.sectionY, section.sectionZ, (x, y, z, state) -> {
+            // Exposure does not depend on rotation, so test in source coordinates
+            if (pagedBlocks.getBlockState(x, y + 1, z) == null || pagedBlocks.getBlockState(x, y - 1, z) == null ||
+                pagedBlocks.getBlockState(x, y, z - 1) == null || pagedBlocks.getBlockState(x, y, z + 1) == null ||
+                pagedBlocks.getBlockState(x + 1, y, z) == null || pagedBlocks.getBlockState(x - 1, y, z) == null) {
+                BlockState rotated = rotatedStates.computeIfAbsent(state, s -> s.rotate(blockRotation));
+                section.add(new BlockPos(rotateX(x, z), y, rotateZ(x, z)), rotated);
+            }
+        });
+        section.loaded = true;
+        PerformanceStats.addTime(PerformanceStats.Subsystem.GHOST_CACHE, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = "page";
+            event.voxels = section.blocks.size();
+            event.vertices = 0;
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Whether a position relative to the anchor (rotated) holds a block of the placement.
+     */
+    boolean isOccupied(int x, int y, int z) {
+        if (allBlocks != null) return allBlocks.contains(x, y, z);
+
+        // Undo the rotation to read the source
+        int sizeX = pagedBlocks.getSizeX(), sizeZ = pagedBlocks.getSizeZ();
+        return switch (rotation) {
+            case 1 -> pagedBlocks.getBlockState(z, y, sizeZ - 1 - x) != null;
+            case 2 -> pagedBlocks.getBlockState(sizeX - 1 - x, y, sizeZ - 1 - z) != null;
+            case 3 -> pagedBlocks.getBlockState(sizeX - 1 - z, y, x) != null;
+            default -> pagedBlocks.getBlockState(x, y, z) != null;
+        };
+    }
+
+    // Same mapping as PalettedBlockVolume.rotated
+    private int rotateX(int x, int z) {
+        return switch (rotation) {
+            case 1 -> pagedBlocks.getSizeZ() - 1 - z;
+            case 2 -> pagedBlocks.getSizeX() - 1 - x;
+            case 3 -> z;
+            default -> x;
+        };
+    }
+
+    private int rotateZ(int x, int z) {
+        return switch (rotation) {
+            case 1 -> x;
+            case 2 -> pagedBlocks.getSizeZ() - 1 - z;
+            case 3 -> pagedBlocks.getSizeX() - 1 - x;
+            default -> z;
+        };
+    }
+
+    /**
+     * Shades an RGB color for the given face direction.
+     */
+    static int shade(int rgb, Direction direction) {
+        float shade = switch (direction) {
+            case DOWN -> SHADE_DOWN;
+            case UP -> SHADE_UP;
+            case NORTH, SOUTH -> SHADE_NORTH_SOUTH;
+            case WEST, EAST -> SHADE_EAST_WEST;
+        };
+        int r = (int) (((rgb >> 16) & 0xFF) * shade);
+        int g = (int) (((rgb >> 8) & 0xFF) * shade);
+        int b = (int) ((rgb & 0xFF) * shade);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Applies the blue preview tint used by the other ghost block render paths.
+     */
+    static int tintPreview(int rgb) {
+        int r = (int) (((rgb >> 16) & 0xFF) * 0.7f);
+        int g = (int) (((rgb >> 8) & 0xFF) * 0.7f);
+        int b = Math.min(255, (int) ((rgb & 0xFF) * 0.7f + 76));
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * A 16x16x16 group of visible blocks with cached reduced-detail geometry.
+     */
+    static final class Section {
+        final Map<BlockPos, BlockState> blocks = new HashMap<>();
+
+        // Section coordinates in the unrotated source, used to page the blocks in
+        final int sectionX, sectionY, sectionZ;
+        // False until a paged section has read its blocks; bounds cover its whole box until then
+        boolean loaded;
+
+        // Occupied bounds in anchor-relative block coordinates (inclusive)
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        // Full-detail vertex data, built on demand when the section is near the camera
+        GhostBlockRenderer.CachedVertexData fullDetail;
+        float fullDetailOpacity = -1;
+
+        // Mid LOD: 4 corners (xyz) per face plus one RGB color per face
+        private float[] midCorners;
+        private int[] midColors;
+        private int midFaceCount = -1;
+
+        // Far LOD: dominant map color of the section (-1 until built)
+        private int farColor = -1;
+
+        Section(int sectionX, int sectionY, int sectionZ, boolean loaded) {
+            this.sectionX = sectionX;
+            this.sectionY = sectionY;
+            this.sectionZ = sectionZ;
+            this.loaded = loaded;
+        }
+
+        void add(BlockPos pos, BlockState state) {
+            blocks.put(pos, state);
+            include(pos.getX(), pos.getY(), pos.getZ());
+        }
+
+        private void include(int x, int y, int z) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        private void resetBounds() {
+            minX = minY = minZ = Integer.MAX_VALUE;
+            maxX = maxY = maxZ = Integer.MIN_VALUE;
+        }
+
+        /**
+         * True once the section is loaded and turned out to have no visible blocks.
+         */
+        boolean isEmpty() {
+            return loaded && blocks.isEmpty();
+        }
+
+        /**
+         * Squared distance from the camera to the nearest point of this section's bounds.
+         */
+        double distanceSq(BlockPos anchor, Vec3d cameraPos) {
+            double dx = axisDistance(cameraPos.x, anchor.getX() + minX, anchor.getX() + maxX + 1);
+            double dy = axisDistance(cameraPos.y, anchor.getY() + minY, anchor.getY() + maxY + 1);
+            double dz = axisDistance(cameraPos.z, anchor.getZ() + minZ, anchor.getZ() + maxZ + 1);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private static double axisDistance(double value, double min, double max) {
+            if (value < min) return min - value;
+            if (value > max) return value - max;
+            return 0;
+        }
+
+        /**
+         * Builds face-culled cubes for the mid LOD. A face is kept only when the
+         * neighbouring position is not occupied in the full placement.
+         */
+        private void buildMidDetail(BlockView world, BlockPos anchor, GhostLodCache placement) {
+            float[] corners = new float[blocks.size() * 12];
+            int[] colors = new int[blocks.size()];
+            int faceCount = 0;
+
+            for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+                BlockPos pos = entry.getKey();
+                // Map colors are sampled at the world position, not the anchor-relative key
+                int color = entry.getValue().getMapColor(world, anchor.add(pos)).color;
+
+                for (Direction direction : Direction.values()) {
+                    if (placement.isOccupied(pos.getX() + direction.getOffsetX(), pos.getY() + direction.getOffsetY(),
+                        pos.getZ() + direction.getOffsetZ())) continue;
+
+                    if (faceCount == colors.length) {
+                        colors = Arrays.copyOf(colors, colors.length * 2);
+                        corners = Arrays.copyOf(corners, corners.length * 2);
+                    }
+
+                    float[] offsets = FACE_CORNERS[direction.ordinal()];
+                    int base = faceCount * 12;
+                    for (int i = 0; i < 12; i += 3) {
+                        corners[base + i] = pos.getX() + offsets[i];
+                        corners[base + i + 1] = pos.getY() + offsets[i + 1];
+                        corners[base + i + 2] = pos.getZ() + offsets[i + 2];
+                    }
+                    colors[faceCount] = shade(color, direction);
+                    faceCount++;
+                }
+            }
+
+            midCorners = corners;
+            midColors = colors;
+            midFaceCount = faceCount;
+        }
+
+        /**
+         * Finds the most common map color in the section for the far LOD box.
+         */
+        private void buildFarDetail(BlockView world, BlockPos anchor) {
+            Map<Integer, Integer> colorCounts = new HashMap<>();
+            for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+                int color = entry.getValue().getMapColor(world, anchor.add(entry.getKey())).color;
+                colorCounts.merge(color, 1, Integer::sum);
+            }
+
+            int dominant = 0x808080;
+            int bestCount = 0;
+            for (Map.Entry<Integer, Integer> entry : colorCounts.entrySet()) {
+                if (entry.getValue() > bestCount) {
+                    bestCount = entry.getValue();
+                    dominant = entry.getKey();
+                }
+            }
+            farColor = dominant;
+        }
+
+        /**
+         * Emits the mid LOD face-culled cubes as quads.
+         */
+        void emitMidDetail(BlockView world, BlockPos anchor, GhostLodCache placement, VertexConsumer quads,
+                           Matrix4f matrix, boolean isPreview, int alpha) {
+            if (midFaceCount < 0) {
+                VertexCacheEvent event = new VertexCacheEvent();
+                event.begin();
+                long start = System.nanoTime();
+                buildMidDetail(world, anchor, placement);
+                PerformanceStats.addTime(PerformanceStats.Subsystem.GHOST_CACHE, System.nanoTime() - start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.cache = "mid";
+                    event.voxels = blocks.size();
+                    event.vertices = midFaceCount * 4L;
+                    event.commit();
+                }
+                PerformanceStats.miss(PerformanceStats.Cache.GHOST_LOD);
+            } else {
+                PerformanceStats.hit(PerformanceStats.Cache.GHOST_LOD);
+            }
+            PerformanceStats.addVertices(midFaceCount * 4, RenderUtils.QUAD_VERTEX_BYTES);
+
+            for (int face = 0; face < midFaceCount; face++) {
+                int rgb = isPreview ? tintPreview(midColors[face]) : midColors[face];
+                int argb = (alpha << 24) | rgb;
+                int base = face * 12;
+                for (int i = 0; i < 12; i += 3) {
+                    quads.vertex(matrix, midCorners[base + i], midCorners[base + i + 1], midCorners[base + i + 2])
+                        .color(argb);
+                }
+            }
+        }
+
+        /**
+         * Emits the far LOD box covering the section's occupied bounds.
+         */
+        void emitFarDetail(BlockView world, BlockPos anchor, VertexConsumer quads, Matrix4f matrix, boolean isPreview, int alpha) {
+            if (farColor < 0) {
+                VertexCacheEvent event = new VertexCacheEvent();
+                event.begin();
+                long start = System.nanoTime();
+                buildFarDetail(world, anchor);
+                PerformanceStats.addTime(PerformanceStats.Subsystem.GHOST_CACHE, System.nanoTime() - start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.cache = "far";
+                    event.voxels = blocks.size();
+                    event.vertices = 24;
+                    event.commit();
+                }
+                PerformanceStats.miss(PerformanceStats.Cache.GHOST_LOD);
+            } else {
+                PerformanceStats.hit(PerformanceStats.Cache.GHOST_LOD);
+            }
+            PerformanceStats.addVertices(24, RenderUtils.QUAD_VERTEX_BYTES);
+
+            int rgb = isPreview ? tintPreview(farColor) : farColor;
+            float sizeX = maxX - minX + 1;
+            float sizeY = maxY - minY + 1;
+            float sizeZ = maxZ - minZ + 1;
+
+            for (Direction direction : Direction.values()) {
+                int argb = (alpha << 24) | shade(rgb, direction);
+                float[] offsets = FACE_CORNERS[direction.ordinal()];
+                for (int i = 0; i < 12; i += 3) {
+                    quads.vertex(matrix,
+                            minX + offsets[i] * sizeX,
+                            minY + offsets[i + 1] * sizeY,
+                            minZ + offsets[i + 2] * sizeZ)
+                        .color(argb);
+                }
+            }
+        }
+
+        int getFarColor(BlockView world, BlockPos anchor, boolean isPreview) {
+            if (farColor < 0) {
+                buildFarDetail(world, anchor);
+            }
+            return isPreview ? tintPreview(farColor) : farColor;
+        }
+    }
+}
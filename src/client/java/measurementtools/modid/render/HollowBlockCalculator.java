@@ -1,9 +1,14 @@
 package measurementtools.modid.render;
 
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import measurementtools.modid.SelectionManager;
+import measurementtools.modid.jfr.HollowShellEvent;
 import measurementtools.modid.shapes.EllipsoidMode;
+import measurementtools.modid.shapes.ShapeMask;
 import measurementtools.modid.shapes.ShapeMode;
-import measurementtools.modid.util.SplineMath;
+import measurementtools.modid.shapes.ShapeParameters;
+import measurementtools.modid.util.ArcLengthSpline;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 
@@ -47,31 +52,88 @@ public class HollowBlockCalculator {
      * @param filterLayer if not -1, only returns blocks at this absolute Y level
      */
     public static Set<BlockPos> calculateHollowBlocks(ShapeMode mode, int filterLayer) {
+        return calculateHollowBlocks(ShapeParameters.of(SelectionManager.getInstance()), mode, filterLayer);
+    }
+
+    /**
+     * Gets the blocks that form the surface of a shape given explicitly.
+     * @param filterLayer if not -1, only returns blocks at this absolute Y level
+     */
+    public static Set<BlockPos> calculateHollowBlocks(ShapeParameters shape, int filterLayer) {
+        return calculateHollowBlocks(shape, shape.getShapeMode(), filterLayer);
+    }
+
+    private static Set<BlockPos> calculateHollowBlocks(ShapeParameters shape, ShapeMode mode, int filterLayer) {
+        HollowShellEvent event = new HollowShellEvent();
+        event.begin();
+        Set<BlockPos> blocks = calculateShell(shape, mode, filterLayer);
+        event.end();
+        if (event.shouldCommit()) {
+            event.shapeMode = shape.getVoxelMask() != null ? "MASK" : mode.name();
+            event.filterLayer = filterLayer;
+            event.voxels = blocks.size();
+            event.limited = lastCalculationLimited;
+            event.commit();
+        }
+        return blocks;
+    }
+
+    private static Set<BlockPos> calculateShell(ShapeParameters shape, ShapeMode mode, int filterLayer) {
         // Reset limit tracking
         lastCalculationLimited = false;
         lastLimitReason = null;
-        SelectionManager manager = SelectionManager.getInstance();
-        if (!manager.hasSelection()) {
+        if (!shape.hasSelection()) {
             return Set.of();
         }
 
+        // A voxel mask selection has its own shape regardless of the mode
+        ShapeMask voxelMask = shape.getVoxelMask();
+        if (voxelMask != null) {
+            return calculateMaskHollow(voxelMask, filterLayer);
+        }
+
         return switch (mode) {
-            case RECTANGLE -> calculateRectangleHollow(manager, filterLayer);
-            case CYLINDER -> calculateCylinderHollow(manager, filterLayer);
-            case ELLIPSOID -> calculateEllipsoidHollow(manager, filterLayer);
-            case SPLINE -> calculateSplineHollow(manager, filterLayer);
-            case LINE -> calculateLineHollow(manager, filterLayer);
+            case RECTANGLE -> calculateRectangleHollow(shape, filterLayer);
+            case CYLINDER -> calculateCylinderHollow(shape, filterLayer);
+            case ELLIPSOID -> calculateEllipsoidHollow(shape, filterLayer);
+            case SPLINE -> calculateSplineHollow(shape, filterLayer);
+            case LINE -> calculateLineHollow(shape, filterLayer);
         };
     }
 
+    /**
+     * Calculates the voxels of a mask that have at least one face neighbour outside it.
+     */
+    private static Set<BlockPos> calculateMaskHollow(ShapeMask mask, int filterLayer) {
+        Set<BlockPos> blocks = new HashSet<>();
+
+        mask.forEach((x, y, z) -> {
+            if (blocks.size() >= MAX_HOLLOW_BLOCKS) return;
+            if (filterLayer != -1 && y != filterLayer) return;
+
+            boolean onSurface = !mask.contains(x + 1, y, z) || !mask.contains(x - 1, y, z)
+                || !mask.contains(x, y + 1, z) || !mask.contains(x, y - 1, z)
+                || !mask.contains(x, y, z + 1) || !mask.contains(x, y, z - 1);
+            if (onSurface) {
+                blocks.add(new BlockPos(x, y, z));
+            }
+        });
+
+        if (blocks.size() >= MAX_HOLLOW_BLOCKS) {
+            lastCalculationLimited = true;
+            lastLimitReason = String.format("Block limit reached (%,d blocks)", MAX_HOLLOW_BLOCKS);
+        }
+        return blocks;
+    }
+
     /**
      * Calculates blocks forming the shell of a rectangular box (6 faces).
      */
-    private static Set<BlockPos> calculateRectangleHollow(SelectionManager manager, int filterLayer) {
+    private static Set<BlockPos> calculateRectangleHollow(ShapeParameters shape, int filterLayer) {
         Set<BlockPos> blocks = new HashSet<>();
 
-        BlockPos minPos = manager.getMinPos();
-        BlockPos maxPos = manager.getMaxPos();
+        BlockPos minPos = shape.getMinPos();
+        BlockPos maxPos = shape.getMaxPos();
         if (minPos == null || maxPos == null) return blocks;
 
         int minX = minPos.getX();
@@ -123,17 +185,17 @@ public class HollowBlockCalculator {
      * Calculates blocks forming the shell of a cylinder.
      * Uses the Midpoint Circle Algorithm for the circular cross-section.
      */
-    private static Set<BlockPos> calculateCylinderHollow(SelectionManager manager, int filterLayer) {
+    private static Set<BlockPos> calculateCylinderHollow(ShapeParameters shape, int filterLayer) {
         Set<BlockPos> blocks = new HashSet<>();
 
-        BlockPos center = manager.getCenterBlock();
+        BlockPos center = shape.getCenterBlock();
         if (center == null) return blocks;
 
-        double radius = manager.getMaxRadiusXZ() + manager.getCylinderRadiusOffsetBlocks();
+        double radius = shape.getMaxRadiusXZ() + shape.getCylinderRadiusOffsetBlocks();
         if (radius < 0.5) radius = 0.5;
 
-        int minY = manager.getMinY();
-        int maxY = manager.getMaxY();
+        int minY = shape.getMinY();
+        int maxY = shape.getMaxY();
         int height = maxY - minY + 1;
 
         // Estimate surface area: 2 * pi * r^2 (caps) + 2 * pi * r * h (sides)
@@ -192,15 +254,15 @@ public class HollowBlockCalculator {
      * Calculates blocks forming the shell of an ellipsoid.
      * Uses the ellipsoid equation: (x/rx)^2 + (y/ry)^2 + (z/rz)^2 = 1
      */
-    private static Set<BlockPos> calculateEllipsoidHollow(SelectionManager manager, int filterLayer) {
+    private static Set<BlockPos> calculateEllipsoidHollow(ShapeParameters shape, int filterLayer) {
         Set<BlockPos> blocks = new HashSet<>();
 
         double centerX, centerY, centerZ;
         double radiusX, radiusY, radiusZ;
 
-        if (manager.getEllipsoidMode() == EllipsoidMode.FIT_TO_BOX) {
-            BlockPos minPos = manager.getMinPos();
-            BlockPos maxPos = manager.getMaxPos();
+        if (shape.getEllipsoidMode() == EllipsoidMode.FIT_TO_BOX) {
+            BlockPos minPos = shape.getMinPos();
+            BlockPos maxPos = shape.getMaxPos();
             if (minPos == null || maxPos == null) return blocks;
 
             centerX = (minPos.getX() + maxPos.getX() + 1) / 2.0;
@@ -211,19 +273,19 @@ public class HollowBlockCalculator {
             radiusY = (maxPos.getY() - minPos.getY() + 1) / 2.0;
             radiusZ = (maxPos.getZ() - minPos.getZ() + 1) / 2.0;
         } else {
-            BlockPos center = manager.getCenterBlock();
+            BlockPos center = shape.getCenterBlock();
             if (center == null) return blocks;
 
             centerX = center.getX() + 0.5;
             centerZ = center.getZ() + 0.5;
 
-            double radiusXZ = manager.getMaxRadiusXZ();
+            double radiusXZ = shape.getMaxRadiusXZ();
             if (radiusXZ < 0.5) radiusXZ = 0.5;
             radiusX = radiusXZ;
             radiusZ = radiusXZ;
 
-            int minY = manager.getMinY();
-            int maxY = manager.getMaxY();
+            int minY = shape.getMinY();
+            int maxY = shape.getMaxY();
             radiusY = (maxY - minY + 1) / 2.0;
             centerY = (minY + maxY + 1) / 2.0;
         }
@@ -296,13 +358,13 @@ public class HollowBlockCalculator {
      * Calculates all blocks that straight lines between points pass through.
      * If tube radius > 0, calculates blocks forming a tube around the lines.
      */
-    private static Set<BlockPos> calculateLineHollow(SelectionManager manager, int filterLayer) {
+    private static Set<BlockPos> calculateLineHollow(ShapeParameters shape, int filterLayer) {
         Set<BlockPos> blocks = new HashSet<>();
 
-        java.util.List<BlockPos> selection = manager.getSelectedBlocks();
+        java.util.List<BlockPos> selection = shape.getSelectedBlocks();
         if (selection.size() < 2) return blocks;
 
-        int tubeRadius = manager.getSplineRadius();
+        int tubeRadius = shape.getSplineRadius();
 
         // Estimate total line length for surface area approximation
         double totalLength = 0;
@@ -474,35 +536,23 @@ public class HollowBlockCalculator {
         }
     }
 
-    private static final int SPLINE_SAMPLES_PER_SEGMENT = 32;
-    private static final int DISTANCE_SAMPLES_PER_SEGMENT = 16;
-
     /**
-     * Calculates all blocks that a spline curve passes through.
-     * Uses Catmull-Rom interpolation and samples many points along the curve.
+     * Calculates all blocks that a spline curve passes through, walking the selection's
+     * precomputed arc-length table instead of re-evaluating the curve.
      * If spline radius > 0, calculates blocks forming a tube around the spline.
      */
-    private static Set<BlockPos> calculateSplineHollow(SelectionManager manager, int filterLayer) {
+    private static Set<BlockPos> calculateSplineHollow(ShapeParameters shape, int filterLayer) {
         Set<BlockPos> blocks = new HashSet<>();
 
-        java.util.List<BlockPos> selection = manager.getSelectedBlocks();
-        if (selection.size() < 2) return blocks;
-
-        int tubeRadius = manager.getSplineRadius();
-        Vec3d[] points = SplineMath.blockPosListToVec3d(selection);
-        int n = points.length;
+        ArcLengthSpline spline = shape.getSpline();
+        if (spline == null) return blocks;
 
-        // Estimate spline length for surface area approximation
-        double estimatedLength = 0;
-        for (int i = 0; i < n - 1; i++) {
-            estimatedLength += points[i].distanceTo(points[i + 1]);
-        }
-        // Splines are typically longer than straight lines between points
-        estimatedLength *= 1.2;
+        int tubeRadius = shape.getSplineRadius();
+        double length = spline.getLength();
 
         if (tubeRadius > 0) {
             // Surface area of tube: 2 * pi * r * length + 2 * pi * r^2 (end caps)
-            long estimatedSurface = (long) (2 * Math.PI * tubeRadius * estimatedLength + 2 * Math.PI * tubeRadius * tubeRadius);
+            long estimatedSurface = (long) (2 * Math.PI * tubeRadius * length + 2 * Math.PI * tubeRadius * tubeRadius);
             if (estimatedSurface > MAX_HOLLOW_BLOCKS) {
                 lastCalculationLimited = true;
                 lastLimitReason = String.format("Selection too large (~%,d surface blocks, max %,d)",
@@ -513,64 +563,56 @@ public class HollowBlockCalculator {
 
         if (tubeRadius == 0) {
             // No radius - just collect blocks along the center line
-            for (int i = 0; i < n - 1; i++) {
-                Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-                Vec3d p1 = points[i];
-                Vec3d p2 = points[i + 1];
-                Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-                for (int seg = 0; seg <= SPLINE_SAMPLES_PER_SEGMENT; seg++) {
-                    double t = (double) seg / SPLINE_SAMPLES_PER_SEGMENT;
-                    Vec3d point = SplineMath.catmullRom(p0, p1, p2, p3, t);
-
-                    int blockX = (int) Math.floor(point.x);
-                    int blockY = (int) Math.floor(point.y);
-                    int blockZ = (int) Math.floor(point.z);
-
-                    if (filterLayer == -1 || blockY == filterLayer) {
-                        blocks.add(new BlockPos(blockX, blockY, blockZ));
-                        if (blocks.size() >= MAX_HOLLOW_BLOCKS) {
-                            lastCalculationLimited = true;
-                            lastLimitReason = String.format("Block limit reached (%,d blocks)", MAX_HOLLOW_BLOCKS);
-                            return blocks;
-                        }
-                    }
+            for (int i = 0; i < spline.getSampleCount(); i++) {
+                int blockY = (int) Math.floor(spline.getSampleY(i));
+                if (filterLayer != -1 && blockY != filterLayer) continue;
+
+                blocks.add(new BlockPos((int) Math.floor(spline.getSampleX(i)), blockY,
+                    (int) Math.floor(spline.getSampleZ(i))));
+                if (blocks.size() >= MAX_HOLLOW_BLOCKS) {
+                    lastCalculationLimited = true;
+                    lastLimitReason = String.format("Block limit reached (%,d blocks)", MAX_HOLLOW_BLOCKS);
+                    return blocks;
                 }
             }
         } else {
-            // With radius - collect all blocks inside the tube, then filter to surface
-            Set<BlockPos> allTubeBlocks = new HashSet<>();
-
-            for (int i = 0; i < n - 1; i++) {
-                Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-                Vec3d p1 = points[i];
-                Vec3d p2 = points[i + 1];
-                Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-                for (int seg = 0; seg <= SPLINE_SAMPLES_PER_SEGMENT; seg++) {
-                    double t = (double) seg / SPLINE_SAMPLES_PER_SEGMENT;
-                    Vec3d center = SplineMath.catmullRom(p0, p1, p2, p3, t);
-                    Vec3d tangent = SplineMath.catmullRomDerivative(p0, p1, p2, p3, t).normalize();
-
-                    // Sample blocks in a volume around each spline point
-                    for (int dx = -tubeRadius; dx <= tubeRadius; dx++) {
-                        for (int dy = -tubeRadius; dy <= tubeRadius; dy++) {
-                            for (int dz = -tubeRadius; dz <= tubeRadius; dz++) {
-                                int blockX = (int) Math.floor(center.x) + dx;
-                                int blockY = (int) Math.floor(center.y) + dy;
-                                int blockZ = (int) Math.floor(center.z) + dz;
-
-                                Vec3d blockCenter = new Vec3d(blockX + 0.5, blockY + 0.5, blockZ + 0.5);
-                                Vec3d toBlock = blockCenter.subtract(center);
-
-                                // Distance along tangent (we only care about perpendicular distance)
-                                double alongTangent = toBlock.dotProduct(tangent);
-                                Vec3d perpComponent = toBlock.subtract(tangent.multiply(alongTangent));
-                                double perpDist = perpComponent.length();
-
-                                if (perpDist <= tubeRadius + 0.5) {
-                                    allTubeBlocks.add(new BlockPos(blockX, blockY, blockZ));
-                                }
+            // With radius - collect all blocks inside the tube, then filter to surface.
+            // Tube cross-sections are spaced evenly along the curve rather than by parameter.
+            // Packed positions and scratch vectors keep the sweep free of per-block garbage
+            LongOpenHashSet allTubeBlocks = new LongOpenHashSet();
+            double[] center = new double[3];
+            double[] tangent = new double[3];
+            double limitSq = (tubeRadius + 0.5) * (tubeRadius + 0.5);
+
+            int crossSections = Math.max(1, (int) Math.ceil(length * LINE_SAMPLES_PER_BLOCK));
+            for (int s = 0; s <= crossSections; s++) {
+                double parameter = spline.parameterAtDistance(length * s / crossSections);
+                spline.pointAt(parameter, center);
+                spline.tangentAt(parameter, tangent);
+                int baseX = (int) Math.floor(center[0]);
+                int baseY = (int) Math.floor(center[1]);
+                int baseZ = (int) Math.floor(center[2]);
+
+                // Sample blocks in a volume around each spline point
+                for (int dx = -tubeRadius; dx <= tubeRadius; dx++) {
+                    for (int dy = -tubeRadius; dy <= tubeRadius; dy++) {
+                        for (int dz = -tubeRadius; dz <= tubeRadius; dz++) {
+                            int blockX = baseX + dx;
+                            int blockY = baseY + dy;
+                            int blockZ = baseZ + dz;
+
+                            double toX = blockX + 0.5 - center[0];
+                            double toY = blockY + 0.5 - center[1];
+                            double toZ = blockZ + 0.5 - center[2];
+
+                            // Distance along tangent (we only care about perpendicular distance)
+                            double alongTangent = toX * tangent[0] + toY * tangent[1] + toZ * tangent[2];
+                            double perpX = toX - tangent[0] * alongTangent;
+                            double perpY = toY - tangent[1] * alongTangent;
+                            double perpZ = toZ - tangent[2] * alongTangent;
+
+                            if (perpX * perpX + perpY * perpY + perpZ * perpZ <= limitSq) {
+                                allTubeBlocks.add(BlockPos.asLong(blockX, blockY, blockZ));
                             }
                         }
                     }
@@ -585,15 +627,19 @@ public class HollowBlockCalculator {
             }
 
             // Filter to surface blocks only (hollow mode)
-            for (BlockPos pos : allTubeBlocks) {
-                if (filterLayer != -1 && pos.getY() != filterLayer) continue;
+            LongIterator iterator = allTubeBlocks.iterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                int blockY = BlockPos.unpackLongY(packed);
+                if (filterLayer != -1 && blockY != filterLayer) continue;
 
-                Vec3d blockCenter = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-                double minDist = SplineMath.getMinDistanceToSpline(blockCenter, points, DISTANCE_SAMPLES_PER_SEGMENT);
+                int blockX = BlockPos.unpackLongX(packed);
+                int blockZ = BlockPos.unpackLongZ(packed);
+                double minDist = spline.getMinDistance(blockX + 0.5, blockY + 0.5, blockZ + 0.5);
 
                 // Block is on surface if it's near the outer edge of the tube
                 if (minDist >= tubeRadius - 0.5) {
-                    blocks.add(pos);
+                    blocks.add(new BlockPos(blockX, blockY, blockZ));
                     if (blocks.size() >= MAX_HOLLOW_BLOCKS) {
                         lastCalculationLimited = true;
                         lastLimitReason = String.format("Block limit reached (%,d blocks)", MAX_HOLLOW_BLOCKS);
@@ -1,13 +1,10 @@
 package measurementtools.modid.render;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import measurementtools.modid.SelectionManager;
 import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.util.PerformanceStats;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -25,17 +22,16 @@ import java.util.Set;
  * and cached, then replayed each frame with camera-relative transformation.
  */
 public class HollowShapeRenderer {
-    private BufferAllocator buffer;
-    private static final int BUFFER_SIZE = 65536;
-
     // Cache for computed hollow blocks
     private Set<BlockPos> cachedHollowBlocks;
     private ShapeMode cachedShapeMode;
     private int cachedFilterLayer = -1;
     private int cachedSelectionHash = 0;
 
-    // Cached line vertex data
+    // Cached line vertex data, 12 lines per block
     private List<CachedLine> cachedLines;
+    // x + y + z of each cached block, used to thin outlines evenly across the shell
+    private int[] cachedBlockSums = new int[0];
     private boolean linesCacheDirty = true;
 
     // Anchor point for cached vertices (center of bounding box)
@@ -114,6 +110,7 @@ public class HollowShapeRenderer {
      */
     private void rebuildLineCache(Set<BlockPos> hollowBlocks, float r, float g, float b, float a) {
         cachedLines = new ArrayList<>();
+        cachedBlockSums = new int[0];
 
         if (hollowBlocks.isEmpty()) return;
 
@@ -133,7 +130,11 @@ public class HollowShapeRenderer {
         anchorZ = (minZ + maxZ + 1) / 2.0;
 
         // Build all block outlines relative to anchor
+        cachedBlockSums = new int[hollowBlocks.size()];
+        int blockIndex = 0;
         for (BlockPos pos : hollowBlocks) {
+            cachedBlockSums[blockIndex++] = pos.getX() + pos.getY() + pos.getZ();
+
             float x1 = (float) (pos.getX() - anchorX);
             float y1 = (float) (pos.getY() - anchorY);
             float z1 = (float) (pos.getZ() - anchorZ);
@@ -151,31 +152,29 @@ public class HollowShapeRenderer {
     private void renderFromCache(Camera camera, Matrix4f viewMatrix) {
         Vec3d cameraPos = camera.getPos();
 
-        RenderSystem.lineWidth(2.0f);
-
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
         // Translate to anchor position (camera-relative)
         matrices.translate(anchorX - cameraPos.x, anchorY - cameraPos.y, anchorZ - cameraPos.z);
 
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
-        }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
 
         Matrix4f matrix = matrices.peek().getPositionMatrix();
 
-        // Replay all cached lines
-        for (CachedLine line : cachedLines) {
-            RenderUtils.drawLine(matrix, lines,
-                line.x1, line.y1, line.z1,
-                line.x2, line.y2, line.z2,
-                line.r, line.g, line.b, line.a);
+        // Replay the cached lines; each block has 12. When the governor reduces detail, only
+        // blocks on every nth diagonal plane are drawn, which thins the shell evenly
+        int stride = DetailGovernor.getOutlineStride();
+        for (int block = 0; block < cachedBlockSums.length; block++) {
+            if (stride > 1 && Math.floorMod(cachedBlockSums[block], stride) != 0) continue;
+            for (int i = block * 12; i < block * 12 + 12; i++) {
+                CachedLine line = cachedLines.get(i);
+                RenderUtils.drawLine(matrix, lines,
+                    line.x1, line.y1, line.z1,
+                    line.x2, line.y2, line.z2,
+                    line.r, line.g, line.b, line.a);
+            }
         }
-
-        immediate.draw();
     }
 
     /**
@@ -216,11 +215,15 @@ public class HollowShapeRenderer {
             cachedShapeMode == mode &&
             cachedFilterLayer == filterLayer &&
             cachedSelectionHash == selectionHash) {
+            PerformanceStats.hit(PerformanceStats.Cache.SHELL);
             return cachedHollowBlocks;
         }
 
         // Recalculate - blocks changed, so line cache needs rebuild
+        PerformanceStats.miss(PerformanceStats.Cache.SHELL);
+        long start = System.nanoTime();
         cachedHollowBlocks = HollowBlockCalculator.calculateHollowBlocks(mode, filterLayer);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.SHELL, System.nanoTime() - start);
         cachedShapeMode = mode;
         cachedFilterLayer = filterLayer;
         cachedSelectionHash = selectionHash;
@@ -240,7 +243,7 @@ public class HollowShapeRenderer {
         int hash = 17;
         hash = 31 * hash + min.hashCode();
         hash = 31 * hash + max.hashCode();
-        hash = 31 * hash + manager.getSelectedBlocks().size();
+        hash = 31 * hash + Long.hashCode(manager.getRevision());
         hash = 31 * hash + (manager.getEllipsoidMode() != null ? manager.getEllipsoidMode().hashCode() : 0);
         hash = 31 * hash + manager.getSplineRadius();
         hash = 31 * hash + manager.getCylinderRadiusOffset();
@@ -260,10 +263,6 @@ public class HollowShapeRenderer {
      * Cleans up resources. Should be called when renderer is no longer needed.
      */
     public void cleanup() {
-        if (buffer != null) {
-            buffer.close();
-            buffer = null;
-        }
         cachedHollowBlocks = null;
         cachedLines = null;
         linesCacheDirty = true;
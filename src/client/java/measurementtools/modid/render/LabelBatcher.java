@@ -0,0 +1,257 @@
+package measurementtools.modid.render;
+
+import measurementtools.modid.util.PerformanceStats;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.util.BufferAllocator;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws all world-space labels of a frame in one pass.
+ *
+ * The first time a string is shown, its glyph and background quads are laid out by the
+ * text renderer once and captured in label space. After that, showing the label only
+ * queues the cached quads with a billboard transform. At the end of the frame the queued
+ * labels are replayed layer by layer, so the whole frame's text costs one draw per glyph
+ * atlas page instead of one per label. Captured quads refer to atlas textures and UVs, so
+ * the cache must be cleared when resources reload.
+ */
+final class LabelBatcher {
+    private static final LabelBatcher INSTANCE = new LabelBatcher();
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final int MAX_CACHED_LABELS = 512;
+
+    private static final int TEXT_COLOR = 0xFFFFFFFF;
+    private static final int BACKGROUND_COLOR = 0x80000000;
+    private static final int FULL_BRIGHT = 15728880;
+
+    // Laid-out labels, least recently used first
+    private final Map<String, LabelMesh> meshes = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LabelMesh> eldest) {
+            return size() > MAX_CACHED_LABELS;
+        }
+    };
+
+    // Labels queued this frame; transforms are pooled and reused across frames
+    private final List<LabelMesh> queued = new ArrayList<>();
+    private final List<Matrix4f> transforms = new ArrayList<>();
+    private final List<RenderLayer> layers = new ArrayList<>();
+
+    private BufferAllocator buffer;
+
+    private LabelBatcher() {}
+
+    static LabelBatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues a label centered on the origin of the given label-space transform.
+     * @return the number of vertices the label will submit
+     */
+    int add(String text, Matrix4f transform) {
+        LabelMesh mesh = meshes.get(text);
+        if (mesh == null) {
+            mesh = layOut(text);
+            meshes.put(text, mesh);
+        }
+
+        int index = queued.size();
+        if (index == transforms.size()) {
+            transforms.add(new Matrix4f());
+        }
+        transforms.get(index).set(transform);
+        queued.add(mesh);
+        return mesh.vertexCount;
+    }
+
+    /**
+     * Draws every label queued this frame, one layer at a time.
+     */
+    void flush() {
+        if (queued.isEmpty()) return;
+        long start = System.nanoTime();
+
+        // Layers in first-seen order; typically the background plus one atlas page
+        layers.clear();
+        for (LabelMesh mesh : queued) {
+            for (LayerQuads quads : mesh.layers) {
+                if (!layers.contains(quads.layer)) {
+                    layers.add(quads.layer);
+                }
+            }
+        }
+
+        if (buffer == null) {
+            buffer = RenderUtils.allocateBuffer(BUFFER_SIZE);
+        }
+        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
+
+        // Requesting the next layer draws the previous one
+        for (RenderLayer layer : layers) {
+            VertexConsumer consumer = immediate.getBuffer(layer);
+            for (int i = 0; i < queued.size(); i++) {
+                for (LayerQuads quads : queued.get(i).layers) {
+                    if (quads.layer == layer) {
+                        quads.replay(consumer, transforms.get(i));
+                    }
+                }
+            }
+        }
+        immediate.draw();
+        queued.clear();
+        PerformanceStats.addTime(PerformanceStats.Subsystem.LABELS, System.nanoTime() - start);
+    }
+
+    /**
+     * Drops all laid-out labels, e.g. after the font atlases were rebuilt.
+     */
+    void invalidate() {
+        meshes.clear();
+    }
+
+    private LabelMesh layOut(String text) {
+        TextRenderer textRenderer = MinecraftClient.getInstance().textRenderer;
+        CapturingProvider capture = new CapturingProvider();
+        textRenderer.draw(
+            text,
+            -textRenderer.getWidth(text) / 2.0f,
+            0,
+            TEXT_COLOR,
+            false,
+            new Matrix4f(),
+            capture,
+            TextRenderer.TextLayerType.SEE_THROUGH,
+            BACKGROUND_COLOR,
+            FULL_BRIGHT
+        );
+        return new LabelMesh(capture.layers);
+    }
+
+    /**
+     * Captured quads of one label, grouped by render layer.
+     */
+    private static final class LabelMesh {
+        final List<LayerQuads> layers;
+        final int vertexCount;
+
+        LabelMesh(List<LayerQuads> layers) {
+            this.layers = layers;
+            int count = 0;
+            for (LayerQuads quads : layers) {
+                count += quads.vertexCount;
+            }
+            this.vertexCount = count;
+        }
+    }
+
+    /**
+     * Vertices of one render layer in label space: position, uv, color and light per vertex.
+     */
+    private static final class LayerQuads implements VertexConsumer {
+        final RenderLayer layer;
+        private float[] positions = new float[3 * 64];
+        private float[] uvs = new float[2 * 64];
+        private int[] colors = new int[64];
+        private int[] lights = new int[64];
+        int vertexCount = 0;
+
+        // Vertex being captured; committed when its light is set, the last element of text formats
+        private float x, y, z, u, v;
+        private int color;
+
+        LayerQuads(RenderLayer layer) {
+            this.layer = layer;
+        }
+
+        void replay(VertexConsumer consumer, Matrix4f matrix) {
+            for (int i = 0; i < vertexCount; i++) {
+                consumer.vertex(matrix, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2])
+                    .color(colors[i])
+                    .texture(uvs[i * 2], uvs[i * 2 + 1])
+                    .light(lights[i]);
+            }
+        }
+
+        @Override
+        public VertexConsumer vertex(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.u = 0;
+            this.v = 0;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer color(int red, int green, int blue, int alpha) {
+            this.color = (alpha << 24) | (red << 16) | (green << 8) | blue;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer texture(float u, float v) {
+            this.u = u;
+            this.v = v;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer overlay(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer light(int u, int v) {
+            if (vertexCount == colors.length) {
+                int capacity = vertexCount * 2;
+                positions = Arrays.copyOf(positions, capacity * 3);
+                uvs = Arrays.copyOf(uvs, capacity * 2);
+                colors = Arrays.copyOf(colors, capacity);
+                lights = Arrays.copyOf(lights, capacity);
+            }
+            positions[vertexCount * 3] = x;
+            positions[vertexCount * 3 + 1] = y;
+            positions[vertexCount * 3 + 2] = z;
+            uvs[vertexCount * 2] = this.u;
+            uvs[vertexCount * 2 + 1] = this.v;
+            colors[vertexCount] = color;
+            lights[vertexCount] = (v << 16) | u;
+            vertexCount++;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer normal(float x, float y, float z) {
+            return this;
+        }
+    }
+
+    /**
+     * VertexConsumerProvider that records the text renderer's output per layer.
+     */
+    private static final class CapturingProvider implements VertexConsumerProvider {
+        final List<LayerQuads> layers = new ArrayList<>();
+
+        @Override
+        public VertexConsumer getBuffer(RenderLayer layer) {
+            for (LayerQuads quads : layers) {
+                if (quads.layer == layer) return quads;
+            }
+            LayerQuads quads = new LayerQuads(layer);
+            layers.add(quads);
+            return quads;
+        }
+    }
+}
@@ -3,11 +3,7 @@ package measurementtools.modid.render;
 import measurementtools.modid.SelectionManager;
 import measurementtools.modid.util.SplineMath;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
-import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import org.joml.Matrix4f;
@@ -18,79 +14,99 @@ import java.util.List;
  * Renders straight lines between selected points.
  * Unlike SplineRenderer which uses Catmull-Rom curves, this draws direct lines.
  * Supports tube radius for creating cylindrical paths around the lines.
+ * The lines are built once per selection revision and replayed every frame.
  */
 public class LineRenderer implements ShapeRenderer {
-    private static final int BUFFER_SIZE = 8192;
-    private static final int TUBE_CIRCLE_SEGMENTS = 16;
+    private static final int MIN_TUBE_SEGMENTS = 6;
+    private static final int MAX_TUBE_SEGMENTS = 64;
 
-    private BufferAllocator buffer;
+    private final WireframeMesh mesh = new WireframeMesh();
+    // Counts the mesh was built with: segments per tube circle, and tube ring density in
+    // percent of full detail
+    private int tubeSegments = 0;
+    private int ringPercent;
 
     @Override
     public void render(Camera camera, Matrix4f viewMatrix, List<BlockPos> selection, RenderConfig config) {
         if (selection.size() < 2) return;
 
-        MatrixStack matrices = new MatrixStack();
-        matrices.multiplyPositionMatrix(viewMatrix);
-        Vec3d cameraPos = camera.getPos();
-
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
+        // Tube circle detail follows the path's size on screen
+        SelectionManager manager = SelectionManager.getInstance();
+        int tubeRadius = manager.getSplineRadius();
+        double distance = Tessellation.distanceToBlocks(camera.getPos(), manager.getMinPos(), manager.getMaxPos(),
+            tubeRadius);
+        int tubeSegments = Tessellation.segments(tubeRadius, distance, MIN_TUBE_SEGMENTS, MAX_TUBE_SEGMENTS,
+            this.tubeSegments);
+        // Tube rings are spaced by the governor's detail scale, which only matters with a tube
+        int ringPercent = tubeRadius > 0 ? Math.round(DetailGovernor.getDetailScale() * 100) : 0;
+
+        // Segments and tubes only change with the selection, the tube radius or the tessellation;
+        // both counts go into one key
+        int tessellation = tubeSegments * 101 + ringPercent;
+        if (!mesh.isCurrent(manager.getRevision(), tessellation, tubeRadius)) {
+            this.tubeSegments = tubeSegments;
+            this.ringPercent = ringPercent;
+            buildMesh(selection, tubeRadius, tessellation);
         }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
-
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
 
-        float r = config.red();
-        float g = config.green();
-        float b = config.blue();
-        float a = config.alpha();
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
+        mesh.draw(viewMatrix, camera.getPos(), lines, config.red(), config.green(), config.blue(), config.alpha());
 
-        int tubeRadius = SelectionManager.getInstance().getSplineRadius();
+        if (!config.showLabels()) return;
 
-        // Draw straight lines between consecutive points
+        // Draw segment length labels at midpoints
         double totalLength = 0;
         for (int i = 0; i < selection.size() - 1; i++) {
             BlockPos from = selection.get(i);
             BlockPos to = selection.get(i + 1);
-
             Vec3d fromCenter = new Vec3d(from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5);
             Vec3d toCenter = new Vec3d(to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5);
+            double segmentLength = fromCenter.distanceTo(toCenter);
+            totalLength += segmentLength;
 
-            drawLine(matrix, lines, fromCenter, toCenter, cameraPos, r, g, b, a);
-            totalLength += fromCenter.distanceTo(toCenter);
-
-            // Draw tube if radius > 0
-            if (tubeRadius > 0) {
-                drawTubeForSegment(matrix, lines, fromCenter, toCenter, tubeRadius, cameraPos, r, g, b, a);
-            }
-
-            // Draw segment length label at midpoint
-            if (config.showLabels() && selection.size() > 2) {
+            if (selection.size() > 2) {
                 Vec3d midPoint = fromCenter.add(toCenter).multiply(0.5);
-                double segmentLength = fromCenter.distanceTo(toCenter);
                 RenderUtils.drawWorldLabel(camera, viewMatrix,
                     midPoint.x, midPoint.y + 0.3, midPoint.z,
-                    String.format("%.1f", segmentLength));
+                    RenderUtils.formatOneDecimal(segmentLength));
             }
         }
 
-        // Draw markers at each point
-        for (BlockPos pos : selection) {
-            Vec3d point = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-            drawPointMarker(matrix, lines, point, cameraPos, r, g, b, a);
+        // Draw total length label
+        drawTotalLengthLabel(camera, viewMatrix, selection, totalLength);
+
+        // Draw angle labels at vertices (between segments)
+        if (selection.size() >= 3) {
+            drawAngleLabels(camera, viewMatrix, selection);
         }
+    }
 
-        immediate.draw();
+    /**
+     * Builds the segments, tubes and point markers around the first point.
+     */
+    private void buildMesh(List<BlockPos> selection, int tubeRadius, int tessellation) {
+        BlockPos first = selection.getFirst();
+        Vec3d origin = new Vec3d(first.getX() + 0.5, first.getY() + 0.5, first.getZ() + 0.5);
+        mesh.begin(origin.x, origin.y, origin.z,
+            SelectionManager.getInstance().getRevision(), tessellation, tubeRadius);
 
-        // Draw total length label
-        if (config.showLabels() && selection.size() >= 2) {
-            drawTotalLengthLabel(camera, viewMatrix, selection, totalLength);
+        // Straight lines between consecutive points
+        for (int i = 0; i < selection.size() - 1; i++) {
+            BlockPos from = selection.get(i);
+            BlockPos to = selection.get(i + 1);
+            Vec3d fromCenter = new Vec3d(from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5);
+            Vec3d toCenter = new Vec3d(to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5);
+
+            addLine(fromCenter, toCenter, origin);
+            if (tubeRadius > 0) {
+                addTubeForSegment(fromCenter, toCenter, tubeRadius, origin);
+            }
         }
 
-        // Draw angle labels at vertices (between segments)
-        if (config.showLabels() && selection.size() >= 3) {
-            drawAngleLabels(camera, viewMatrix, selection);
+        // Markers at each point
+        for (BlockPos pos : selection) {
+            Vec3d point = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
+            addPointMarker(point, origin);
         }
     }
 
@@ -119,84 +135,79 @@ public class LineRenderer implements ShapeRenderer {
         double labelZ = midPos.getZ() + 0.5;
 
         RenderUtils.drawWorldLabel(camera, viewMatrix, labelX, labelY, labelZ,
-            String.format("len=%.1f", totalLength));
+            "len=" + RenderUtils.formatOneDecimal(totalLength));
     }
 
-    private void drawLine(Matrix4f matrix, VertexConsumer lines, Vec3d from, Vec3d to,
-                          Vec3d cameraPos, float r, float g, float b, float a) {
-        float x1 = (float) (from.x - cameraPos.x);
-        float y1 = (float) (from.y - cameraPos.y);
-        float z1 = (float) (from.z - cameraPos.z);
-        float x2 = (float) (to.x - cameraPos.x);
-        float y2 = (float) (to.y - cameraPos.y);
-        float z2 = (float) (to.z - cameraPos.z);
+    private void addLine(Vec3d from, Vec3d to, Vec3d origin) {
+        float x1 = (float) (from.x - origin.x);
+        float y1 = (float) (from.y - origin.y);
+        float z1 = (float) (from.z - origin.z);
+        float x2 = (float) (to.x - origin.x);
+        float y2 = (float) (to.y - origin.y);
+        float z2 = (float) (to.z - origin.z);
 
-        RenderUtils.drawLine(matrix, lines, x1, y1, z1, x2, y2, z2, r, g, b, a);
+        mesh.addLine(x1, y1, z1, x2, y2, z2);
     }
 
-    private void drawPointMarker(Matrix4f matrix, VertexConsumer lines, Vec3d point,
-                                  Vec3d cameraPos, float r, float g, float b, float a) {
+    private void addPointMarker(Vec3d point, Vec3d origin) {
         float size = 0.15f;
-        float x = (float) (point.x - cameraPos.x);
-        float y = (float) (point.y - cameraPos.y);
-        float z = (float) (point.z - cameraPos.z);
+        float x = (float) (point.x - origin.x);
+        float y = (float) (point.y - origin.y);
+        float z = (float) (point.z - origin.z);
 
         // Draw a small 3D cross
-        RenderUtils.drawLine(matrix, lines, x - size, y, z, x + size, y, z, r, g, b, a);
-        RenderUtils.drawLine(matrix, lines, x, y - size, z, x, y + size, z, r, g, b, a);
-        RenderUtils.drawLine(matrix, lines, x, y, z - size, x, y, z + size, r, g, b, a);
+        mesh.addLine(x - size, y, z, x + size, y, z);
+        mesh.addLine(x, y - size, z, x, y + size, z);
+        mesh.addLine(x, y, z - size, x, y, z + size);
     }
 
     /**
-     * Draws tube circles along a straight line segment.
+     * Adds tube circles along a straight line segment.
      */
-    private void drawTubeForSegment(Matrix4f matrix, VertexConsumer lines, Vec3d from, Vec3d to,
-                                     int radius, Vec3d cameraPos, float r, float g, float b, float a) {
+    private void addTubeForSegment(Vec3d from, Vec3d to, int radius, Vec3d origin) {
         Vec3d direction = to.subtract(from).normalize();
         double length = from.distanceTo(to);
 
-        // Draw circles at regular intervals along the line
-        int circleCount = Math.max(2, (int) Math.ceil(length / 2.0));
+        // Circles at regular intervals along the line, further apart when detail is reduced
+        int circleCount = Math.max(2, (int) Math.ceil(length / 2.0 * ringPercent / 100.0));
         for (int i = 0; i <= circleCount; i++) {
             double t = (double) i / circleCount;
             Vec3d center = from.add(to.subtract(from).multiply(t));
-            drawTubeCircle(matrix, lines, center, direction, radius, cameraPos, r, g, b, a);
+            addTubeCircle(center, direction, radius, origin);
         }
 
-        // Draw longitudinal lines connecting the circles
-        drawTubeLongitudinalLines(matrix, lines, from, to, direction, radius, cameraPos, r, g, b, a);
+        // Longitudinal lines connecting the circles
+        addTubeLongitudinalLines(from, to, direction, radius, origin);
     }
 
     /**
-     * Draws a circle perpendicular to the given direction at the specified center point.
+     * Adds a circle perpendicular to the given direction at the specified center point.
      */
-    private void drawTubeCircle(Matrix4f matrix, VertexConsumer lines, Vec3d center, Vec3d direction,
-                                 int radius, Vec3d cameraPos, float r, float g, float b, float a) {
+    private void addTubeCircle(Vec3d center, Vec3d direction, int radius, Vec3d origin) {
         Vec3d perp1 = SplineMath.findPerpendicular(direction);
         Vec3d perp2 = direction.crossProduct(perp1).normalize();
 
-        Vec3d[] circlePoints = new Vec3d[TUBE_CIRCLE_SEGMENTS];
-        for (int i = 0; i < TUBE_CIRCLE_SEGMENTS; i++) {
-            double angle = 2 * Math.PI * i / TUBE_CIRCLE_SEGMENTS;
+        int segments = tubeSegments;
+        Vec3d[] circlePoints = new Vec3d[segments];
+        for (int i = 0; i < segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
             double cos = Math.cos(angle) * radius;
             double sin = Math.sin(angle) * radius;
             circlePoints[i] = center.add(perp1.multiply(cos)).add(perp2.multiply(sin));
         }
 
-        // Draw the circle
-        for (int i = 0; i < TUBE_CIRCLE_SEGMENTS; i++) {
+        // The circle
+        for (int i = 0; i < segments; i++) {
             Vec3d fromPoint = circlePoints[i];
-            Vec3d toPoint = circlePoints[(i + 1) % TUBE_CIRCLE_SEGMENTS];
-            drawLine(matrix, lines, fromPoint, toPoint, cameraPos, r, g, b, a);
+            Vec3d toPoint = circlePoints[(i + 1) % segments];
+            addLine(fromPoint, toPoint, origin);
         }
     }
 
     /**
-     * Draws longitudinal lines along a straight tube section.
+     * Adds longitudinal lines along a straight tube section.
      */
-    private void drawTubeLongitudinalLines(Matrix4f matrix, VertexConsumer lines,
-                                            Vec3d from, Vec3d to, Vec3d direction, int radius,
-                                            Vec3d cameraPos, float r, float g, float b, float a) {
+    private void addTubeLongitudinalLines(Vec3d from, Vec3d to, Vec3d direction, int radius, Vec3d origin) {
         Vec3d perp1 = SplineMath.findPerpendicular(direction);
         Vec3d perp2 = direction.crossProduct(perp1).normalize();
 
@@ -210,7 +221,7 @@ public class LineRenderer implements ShapeRenderer {
             Vec3d lineStart = from.add(offset);
             Vec3d lineEnd = to.add(offset);
 
-            drawLine(matrix, lines, lineStart, lineEnd, cameraPos, r, g, b, a);
+            addLine(lineStart, lineEnd, origin);
         }
     }
 
@@ -296,7 +307,7 @@ public class LineRenderer implements ShapeRenderer {
         } else {
             direction = "R"; // Right turn
         }
-        return String.format("H:%.0f° %s", Math.abs(angle), direction);
+        return "H:" + Math.round(Math.abs(angle)) + "° " + direction;
     }
 
     /**
@@ -311,6 +322,6 @@ public class LineRenderer implements ShapeRenderer {
         } else {
             direction = "dn";
         }
-        return String.format("V:%.0f° %s", Math.abs(angle), direction);
+        return "V:" + Math.round(Math.abs(angle)) + "° " + direction;
     }
 }
@@ -1,7 +1,9 @@
 package measurementtools.modid.render;
 
 import measurementtools.modid.SelectionManager;
+import measurementtools.modid.shapes.ShapeMask;
 import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.util.PerformanceStats;
 import net.minecraft.client.render.Camera;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
@@ -19,6 +21,8 @@ public class MeasurementRenderer {
     private final GhostBlockRenderer ghostBlockRenderer = new GhostBlockRenderer();
     private final HollowShapeRenderer hollowShapeRenderer = new HollowShapeRenderer();
     private final ChunkBoundaryRenderer chunkBoundaryRenderer = new ChunkBoundaryRenderer();
+    private final RectangleRenderer combineBaseRenderer = new RectangleRenderer();
+    private final RegionRenderer regionRenderer = new RegionRenderer();
 
     private MeasurementRenderer() {
         renderers.put(ShapeMode.RECTANGLE, new RectangleRenderer());
@@ -32,9 +36,14 @@ public class MeasurementRenderer {
         return INSTANCE;
     }
 
-    public void render(Camera camera, Matrix4f viewMatrix) {
+    public void render(Camera camera, Matrix4f viewMatrix, Matrix4f projectionMatrix) {
         SelectionManager manager = SelectionManager.getInstance();
 
+        // Close out the previous frame's counters (the HUD counts after the world is drawn)
+        PerformanceStats.endFrame();
+        long start = System.nanoTime();
+        Tessellation.beginFrame(projectionMatrix);
+
         // Render selection shapes if there's a selection
         if (manager.hasSelection()) {
             List<BlockPos> selection = manager.getSelectedBlocks();
@@ -47,9 +56,13 @@ public class MeasurementRenderer {
                 true
             );
 
-            // Check if hollow mode is enabled
-            if (manager.isHollowMode()) {
-                // Render hollow shape (individual block outlines)
+            if (manager.getVoxelMask() != null) {
+                // Voxel mask (magic wand): outline the surface blocks and label the bounding box
+                hollowShapeRenderer.render(camera, viewMatrix, mode, config);
+                ShapeRenderer renderer = renderers.get(ShapeMode.RECTANGLE);
+                renderer.renderLabels(camera, viewMatrix, List.of(manager.getMinPos(), manager.getMaxPos()), config);
+            } else if (manager.isHollowMode()) {
+                // Hollow mode: render individual block outlines
                 hollowShapeRenderer.render(camera, viewMatrix, mode, config);
 
                 // Also render the shape-specific labels from the underlying renderer
@@ -79,18 +92,46 @@ public class MeasurementRenderer {
             }
         }
 
-        // Render ghost blocks (paste preview and locked placements) - always render
-        ghostBlockRenderer.render(camera, viewMatrix);
+        // Render the shape waiting to be combined with the current one
+        ShapeMask combineBase = manager.getCombineBase();
+        if (combineBase != null) {
+            BlockPos minPos = combineBase.getMinPos();
+            BlockPos maxPos = combineBase.getMaxPos();
+            ShapeRenderer.RenderConfig baseConfig = new ShapeRenderer.RenderConfig(0.4f, 0.8f, 1.0f, 1.0f, 0, false);
+            combineBaseRenderer.renderBox(camera, viewMatrix, minPos, maxPos, baseConfig);
+            RenderUtils.drawWorldLabel(camera, viewMatrix,
+                (minPos.getX() + maxPos.getX() + 1) / 2.0, maxPos.getY() + 2.5,
+                (minPos.getZ() + maxPos.getZ() + 1) / 2.0,
+                manager.getCombineOperation().getDisplayName() + " base: " + combineBase.getBlockCount() + " blocks");
+        }
 
         // Render chunk boundaries if enabled
         if (manager.isChunkBoundariesEnabled()) {
             chunkBoundaryRenderer.render(camera, viewMatrix);
         }
+        long selectionEnd = System.nanoTime();
+        PerformanceStats.addTime(PerformanceStats.Subsystem.SELECTION, selectionEnd - start);
+
+        // Render stored named regions that are in view
+        regionRenderer.render(camera, viewMatrix, projectionMatrix);
+        long regionsEnd = System.nanoTime();
+        PerformanceStats.addTime(PerformanceStats.Subsystem.REGIONS, regionsEnd - selectionEnd);
+
+        // Render ghost blocks (paste preview and locked placements) - always render
+        ghostBlockRenderer.render(camera, viewMatrix);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.GHOST_DRAW, System.nanoTime() - regionsEnd);
+
+        // Everything above only appended geometry; draw it all at once
+        FrameBatcher.getInstance().flush();
+        LabelBatcher.getInstance().flush();
+
+        // Adapt next frame's detail to this frame's cost
+        DetailGovernor.endFrame(System.nanoTime() - start);
     }
 
     /**
      * Invalidates ghost block render caches.
-     * Call when rotation or other settings change that affect the preview.
+     * Call when settings change that affect ghost block geometry.
      */
     public void invalidateGhostBlockCaches() {
         ghostBlockRenderer.invalidateCaches();
@@ -103,4 +144,12 @@ public class MeasurementRenderer {
     public void invalidateHollowShapeCache() {
         hollowShapeRenderer.invalidateCache();
     }
+
+    /**
+     * Invalidates laid-out label text.
+     * Call when fonts or resource packs are reloaded.
+     */
+    public void invalidateLabelCache() {
+        LabelBatcher.getInstance().invalidate();
+    }
 }
@@ -1,12 +1,8 @@
 package measurementtools.modid.render;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import measurementtools.modid.SelectionManager;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -15,9 +11,6 @@ import org.joml.Matrix4f;
 import java.util.List;
 
 public class RectangleRenderer implements ShapeRenderer {
-    private static final int BUFFER_SIZE = 2048;
-    private BufferAllocator buffer;
-
     @Override
     public void render(Camera camera, Matrix4f viewMatrix, List<BlockPos> selection, RenderConfig config) {
         if (selection.isEmpty()) return;
@@ -27,18 +20,19 @@ public class RectangleRenderer implements ShapeRenderer {
         BlockPos maxPos = manager.getMaxPos();
         if (minPos == null || maxPos == null) return;
 
-        Vec3d cameraPos = camera.getPos();
+        renderBox(camera, viewMatrix, minPos, maxPos, config);
+    }
 
-        RenderSystem.lineWidth(2.0f);
+    /**
+     * Renders the outline of an arbitrary block box, e.g. a stored shape's bounds.
+     */
+    public void renderBox(Camera camera, Matrix4f viewMatrix, BlockPos minPos, BlockPos maxPos, RenderConfig config) {
+        Vec3d cameraPos = camera.getPos();
 
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
-        }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
 
         // Calculate box corners relative to camera
         float x1 = (float) (minPos.getX() - cameraPos.x);
@@ -72,8 +66,6 @@ public class RectangleRenderer implements ShapeRenderer {
         RenderUtils.drawLine(matrix, lines, x1, y1, z2, x1, y2, z2, r, g, b, a);
         RenderUtils.drawLine(matrix, lines, x2, y1, z2, x2, y2, z2, r, g, b, a);
 
-        immediate.draw();
-
         // Draw dimension labels
         if (config.showLabels()) {
             drawLabels(camera, viewMatrix, minPos, maxPos);
@@ -0,0 +1,108 @@
+package measurementtools.modid.render;
+
+import measurementtools.modid.region.NamedSelection;
+import measurementtools.modid.region.NamedSelectionManager;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.Camera;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders stored named regions as colored boxes with their name and block count.
+ *
+ * Only regions the spatial index finds within render distance are considered, and those
+ * outside the view frustum are skipped before any vertices are built, so regions off-screen
+ * cost nothing per frame beyond the index lookup.
+ */
+public class RegionRenderer {
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final List<NamedSelection> visible = new ArrayList<>();
+
+    public void render(Camera camera, Matrix4f viewMatrix, Matrix4f projectionMatrix) {
+        NamedSelectionManager manager = NamedSelectionManager.getInstance();
+        if (manager.getRegions().isEmpty()) return;
+
+        MinecraftClient client = MinecraftClient.getInstance();
+        Vec3d cameraPos = camera.getPos();
+        int range = client.options.getClampedViewDistance() * 16;
+        int cameraX = (int) Math.floor(cameraPos.x);
+        int cameraZ = (int) Math.floor(cameraPos.z);
+
+        // Boxes are tested in camera-relative coordinates, as they are drawn
+        frustum.set(projectionMatrix.mul(viewMatrix, viewProjection));
+        visible.clear();
+        manager.forEachInColumns(cameraX - range, cameraZ - range, cameraX + range, cameraZ + range, region -> {
+            BlockPos min = region.getMinPos();
+            BlockPos max = region.getMaxPos();
+            if (frustum.testAab(
+                (float) (min.getX() - cameraPos.x), (float) (min.getY() - cameraPos.y), (float) (min.getZ() - cameraPos.z),
+                (float) (max.getX() + 1 - cameraPos.x), (float) (max.getY() + 1 - cameraPos.y), (float) (max.getZ() + 1 - cameraPos.z))) {
+                visible.add(region);
+            }
+        });
+        if (visible.isEmpty()) return;
+
+        MatrixStack matrices = new MatrixStack();
+        matrices.multiplyPositionMatrix(viewMatrix);
+        Matrix4f matrix = matrices.peek().getPositionMatrix();
+
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
+
+        for (NamedSelection region : visible) {
+            drawBox(matrix, lines, region, cameraPos);
+        }
+
+        for (NamedSelection region : visible) {
+            BlockPos min = region.getMinPos();
+            BlockPos max = region.getMaxPos();
+            String label = region.getBlockCounts() == null
+                ? region.getName()
+                : region.getName() + " (" + (region.isPartial() ? "at least " : "") + region.getTotalBlocks() + " blocks)";
+            RenderUtils.drawWorldLabel(camera, viewMatrix,
+                (min.getX() + max.getX() + 1) / 2.0, max.getY() + 1.5, (min.getZ() + max.getZ() + 1) / 2.0, label);
+        }
+    }
+
+    private static void drawBox(Matrix4f matrix, VertexConsumer lines, NamedSelection region, Vec3d cameraPos) {
+        BlockPos min = region.getMinPos();
+        BlockPos max = region.getMaxPos();
+        float x1 = (float) (min.getX() - cameraPos.x);
+        float y1 = (float) (min.getY() - cameraPos.y);
+        float z1 = (float) (min.getZ() - cameraPos.z);
+        float x2 = (float) (max.getX() + 1 - cameraPos.x);
+        float y2 = (float) (max.getY() + 1 - cameraPos.y);
+        float z2 = (float) (max.getZ() + 1 - cameraPos.z);
+
+        int color = region.getColor();
+        float r = ((color >> 16) & 0xFF) / 255.0f;
+        float g = ((color >> 8) & 0xFF) / 255.0f;
+        float b = (color & 0xFF) / 255.0f;
+        float a = 1.0f;
+
+        // Bottom face
+        RenderUtils.drawLine(matrix, lines, x1, y1, z1, x2, y1, z1, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x1, y1, z2, x2, y1, z2, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x1, y1, z1, x1, y1, z2, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x2, y1, z1, x2, y1, z2, r, g, b, a);
+
+        // Top face
+        RenderUtils.drawLine(matrix, lines, x1, y2, z1, x2, y2, z1, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x1, y2, z2, x2, y2, z2, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x1, y2, z1, x1, y2, z2, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x2, y2, z1, x2, y2, z2, r, g, b, a);
+
+        // Vertical edges
+        RenderUtils.drawLine(matrix, lines, x1, y1, z1, x1, y2, z1, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x2, y1, z1, x2, y2, z1, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x1, y1, z2, x1, y2, z2, r, g, b, a);
+        RenderUtils.drawLine(matrix, lines, x2, y1, z2, x2, y2, z2, r, g, b, a);
+    }
+}
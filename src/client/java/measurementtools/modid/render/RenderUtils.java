@@ -1,17 +1,29 @@
 package measurementtools.modid.render;
 
-import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.font.TextRenderer;
+import measurementtools.modid.util.PerformanceStats;
 import net.minecraft.client.render.*;
 import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
-import net.minecraft.util.math.RotationAxis;
 import net.minecraft.util.math.Vec3d;
 import org.joml.Matrix4f;
 
 public class RenderUtils {
-    private static final int LABEL_BUFFER_SIZE = 1024;
-    private static BufferAllocator labelBuffer;
+    // Scratch transform for queuing labels; the batcher copies it
+    private static final Matrix4f labelTransform = new Matrix4f();
+
+    // Vertex sizes in bytes, for the submitted-bytes counter
+    static final int LINE_VERTEX_BYTES = 20;   // position, color, normal
+    static final int QUAD_VERTEX_BYTES = 16;   // position, color
+    static final int BLOCK_VERTEX_BYTES = 36;  // position, color, texture, overlay, light, normal
+    static final int TEXT_VERTEX_BYTES = 28;   // position, color, texture, light
+
+    /**
+     * Creates a vertex buffer, counting its initial capacity for the performance overlay.
+     */
+    static BufferAllocator allocateBuffer(int size) {
+        PerformanceStats.bufferReserved(size);
+        return new BufferAllocator(size);
+    }
 
     public static void drawLine(Matrix4f matrix, VertexConsumer lines,
                                 float x1, float y1, float z1,
@@ -34,14 +46,14 @@ public class RenderUtils {
 
         lines.vertex(matrix, x1, y1, z1).color(red, green, blue, alpha).normal(dx, dy, dz);
         lines.vertex(matrix, x2, y2, z2).color(red, green, blue, alpha).normal(dx, dy, dz);
+        PerformanceStats.addVertices(2, LINE_VERTEX_BYTES);
     }
 
     /**
      * Draw a label in world space that faces the camera (billboard)
      */
     public static void drawWorldLabel(Camera camera, Matrix4f viewMatrix, double worldX, double worldY, double worldZ, String text) {
-        MinecraftClient client = MinecraftClient.getInstance();
-        TextRenderer textRenderer = client.textRenderer;
+        long start = System.nanoTime();
         Vec3d cameraPos = camera.getPos();
 
         // Calculate distance for scaling and culling
@@ -50,46 +62,16 @@ public class RenderUtils {
         double dz = worldZ - cameraPos.z;
         double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
 
-        // Don't render if too far or too close
-        if (distance > 128 || distance < 0.5) return;
-
-        MatrixStack matrices = new MatrixStack();
-
-        // Apply the view matrix passed from the render pipeline
-        matrices.multiplyPositionMatrix(viewMatrix);
-
-        // Translate to position relative to camera
-        matrices.translate(dx, dy, dz);
-
-        // Billboard - face the camera
-        matrices.multiply(camera.getRotation());
-        matrices.multiply(RotationAxis.POSITIVE_Y.rotationDegrees(180));
-
-        // Scale based on distance (smaller when close, larger when far)
-        float scale = (float) Math.max(0.02f, 0.015f + 0.002f * distance);
-        scale = Math.min(scale, 0.08f);
-        matrices.scale(-scale, -scale, scale);
-
-        if (labelBuffer == null) {
-            labelBuffer = new BufferAllocator(LABEL_BUFFER_SIZE);
+        // Don't render if too far, too close, or past this frame's label allowance
+        if (distance > 128 * DetailGovernor.getDetailScale() || distance < 0.5 || !DetailGovernor.tryReserveLabel()) {
+            PerformanceStats.addTime(PerformanceStats.Subsystem.LABELS, System.nanoTime() - start);
+            return;
         }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(labelBuffer);
-
-        int textWidth = textRenderer.getWidth(text);
-        textRenderer.draw(
-            text,
-            -textWidth / 2.0f,
-            0,
-            0xFFFFFFFF,
-            false,
-            matrices.peek().getPositionMatrix(),
-            immediate,
-            TextRenderer.TextLayerType.SEE_THROUGH,
-            0x80000000,
-            15728880
-        );
 
-        immediate.draw();
+        // Translate to position relative to camera, then billboard to face the camera
+        labelTransform.set(viewMatrix).translate((float) dx, (float) dy, (float) dz);
+        queueLabel(camera, distance, text);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.LABELS, System.nanoTime() - start);
     }
 
     /**
@@ -97,40 +79,37 @@ public class RenderUtils {
      */
     public static void drawLabel(Camera camera, Matrix4f viewMatrix, MatrixStack existingMatrices,
                                  double localX, double localY, double localZ, String text) {
-        MinecraftClient client = MinecraftClient.getInstance();
-        TextRenderer textRenderer = client.textRenderer;
+        if (!DetailGovernor.tryReserveLabel()) return;
+        long start = System.nanoTime();
 
-        MatrixStack matrices = new MatrixStack();
-        matrices.multiplyPositionMatrix(existingMatrices.peek().getPositionMatrix());
-        matrices.translate(localX, localY, localZ);
+        labelTransform.set(existingMatrices.peek().getPositionMatrix())
+            .translate((float) localX, (float) localY, (float) localZ);
+        queueLabel(camera, 10.0, text);
+        PerformanceStats.addTime(PerformanceStats.Subsystem.LABELS, System.nanoTime() - start);
+    }
 
-        matrices.multiply(camera.getRotation());
-        matrices.multiply(RotationAxis.POSITIVE_Y.rotationDegrees(180));
+    /**
+     * Formats a value with one decimal place, as String.format("%.1f") would, without a Formatter.
+     */
+    public static String formatOneDecimal(double value) {
+        long tenths = Math.round(Math.abs(value) * 10);
+        String sign = value < 0 && tenths != 0 ? "-" : "";
+        return sign + tenths / 10 + "." + tenths % 10;
+    }
 
-        double distance = 10.0;
+    /**
+     * Billboards labelTransform to face the camera, scales it for the distance and queues
+     * the label for the end-of-frame batch.
+     */
+    private static void queueLabel(Camera camera, double distance, String text) {
+        // Scale based on distance (smaller when close, larger when far)
         float scale = (float) Math.max(0.02f, 0.015f + 0.002f * distance);
         scale = Math.min(scale, 0.08f);
-        matrices.scale(-scale, -scale, scale);
-
-        if (labelBuffer == null) {
-            labelBuffer = new BufferAllocator(LABEL_BUFFER_SIZE);
-        }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(labelBuffer);
-
-        int textWidth = textRenderer.getWidth(text);
-        textRenderer.draw(
-            text,
-            -textWidth / 2.0f,
-            0,
-            0xFFFFFFFF,
-            false,
-            matrices.peek().getPositionMatrix(),
-            immediate,
-            TextRenderer.TextLayerType.SEE_THROUGH,
-            0x80000000,
-            15728880
-        );
+        labelTransform.rotate(camera.getRotation())
+            .rotateY((float) Math.PI)
+            .scale(-scale, -scale, scale);
 
-        immediate.draw();
+        int vertices = LabelBatcher.getInstance().add(text, labelTransform);
+        PerformanceStats.addVertices(vertices, TEXT_VERTEX_BYTES);
     }
 }
@@ -1,12 +1,10 @@
 package measurementtools.modid.render;
 
 import measurementtools.modid.SelectionManager;
+import measurementtools.modid.util.ArcLengthSpline;
 import measurementtools.modid.util.SplineMath;
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -18,65 +16,100 @@ import java.util.List;
  * Renders a smooth spline curve through selected blocks using Catmull-Rom interpolation.
  * The curve passes through each selected block in the order they were selected.
  * Supports tube radius for creating cylindrical paths around the spline.
+ *
+ * The curve, its length and the tube rings all come from the selection's arc-length
+ * table, so nothing is re-integrated per frame and rings are evenly spaced by distance.
+ * The resulting lines are built once per selection revision and replayed every frame.
  */
 public class SplineRenderer implements ShapeRenderer {
-    private static final int SEGMENTS_PER_SPAN = 16;
-    private static final int TUBE_CIRCLE_SEGMENTS = 16;
-    private static final int BUFFER_SIZE = 8192;
-
-    private BufferAllocator buffer;
+    private static final int MIN_TUBE_SEGMENTS = 6;
+    private static final int MAX_TUBE_SEGMENTS = 64;
+    private static final int MIN_SPAN_SAMPLES = 4;
+    private static final double TUBE_RING_SPACING = 2.0;
+
+    // Scratch vectors for tube drawing: ring centers, tangent, and two-axis ring frames
+    private final double[] center = new double[3];
+    private final double[] previousCenter = new double[3];
+    private final double[] tangent = new double[3];
+    private final double[] basis = new double[6];
+    private final double[] previousBasis = new double[6];
+
+    private final WireframeMesh mesh = new WireframeMesh();
+    // Counts the mesh was built with: segments per tube circle, samples per span before
+    // halving, and tube ring density in percent of full detail
+    private int tubeSegments = 0;
+    private int spanSegments = 0;
+    private int ringPercent;
 
     @Override
     public void render(Camera camera, Matrix4f viewMatrix, List<BlockPos> selection, RenderConfig config) {
         if (selection.size() < 2) return;
 
-        MatrixStack matrices = new MatrixStack();
-        matrices.multiplyPositionMatrix(viewMatrix);
-        Vec3d cameraPos = camera.getPos();
-
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
+        SelectionManager manager = SelectionManager.getInstance();
+        ArcLengthSpline spline = manager.getSpline();
+        if (spline == null) return;
+
+        // Curve and tube detail follow the path's size on screen: each span is sampled as if
+        // bent into a half circle, and tube circles from the tube radius
+        int tubeRadius = manager.getSplineRadius();
+        double distance = Tessellation.distanceToBlocks(camera.getPos(), manager.getMinPos(), manager.getMaxPos(),
+            tubeRadius);
+        double spanLength = spline.getLength() / (selection.size() - 1);
+        int spanSegments = Tessellation.segments(spanLength / Math.PI, distance,
+            MIN_SPAN_SAMPLES * 2, ArcLengthSpline.SAMPLES_PER_SPAN * 2, this.spanSegments);
+        int sampleStride = Math.max(1, ArcLengthSpline.SAMPLES_PER_SPAN / (spanSegments / 2));
+        int tubeSegments = Tessellation.segments(tubeRadius, distance, MIN_TUBE_SEGMENTS, MAX_TUBE_SEGMENTS,
+            this.tubeSegments);
+        // Tube rings are spaced by the governor's detail scale, which only matters with a tube
+        int ringPercent = tubeRadius > 0 ? Math.round(DetailGovernor.getDetailScale() * 100) : 0;
+
+        // Curve and tube only change with the selection, the tube radius or the tessellation;
+        // all counts go into one key
+        int tessellation = (tubeSegments * (ArcLengthSpline.SAMPLES_PER_SPAN + 1) + sampleStride) * 101 + ringPercent;
+        if (!mesh.isCurrent(manager.getRevision(), tessellation, tubeRadius)) {
+            this.tubeSegments = tubeSegments;
+            this.spanSegments = spanSegments;
+            this.ringPercent = ringPercent;
+            buildMesh(selection, spline, tubeRadius, tessellation, sampleStride);
         }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
 
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
+        mesh.draw(viewMatrix, camera.getPos(), lines, config.red(), config.green(), config.blue(), config.alpha());
 
-        float r = config.red();
-        float g = config.green();
-        float b = config.blue();
-        float a = config.alpha();
+        // Draw total length label
+        if (config.showLabels()) {
+            renderLabels(camera, viewMatrix, selection, config);
+        }
+    }
 
+    /**
+     * Builds the curve, tube and control point markers around the first control point.
+     */
+    private void buildMesh(List<BlockPos> selection, ArcLengthSpline spline, int tubeRadius,
+                           int tessellation, int sampleStride) {
         Vec3d[] points = SplineMath.blockPosListToVec3d(selection);
+        Vec3d origin = points[0];
+        mesh.begin(origin.x, origin.y, origin.z,
+            SelectionManager.getInstance().getRevision(), tessellation, tubeRadius);
 
-        int tubeRadius = SelectionManager.getInstance().getSplineRadius();
-
-        // Draw the spline
         if (points.length == 2) {
-            // Just two points - draw a straight line
-            drawLine(matrix, lines, points[0], points[1], cameraPos, r, g, b, a);
+            // Just two points - a straight line
+            addLine(points[0], points[1], origin);
             if (tubeRadius > 0) {
-                drawTubeForLine(matrix, lines, points[0], points[1], tubeRadius, cameraPos, r, g, b, a);
+                addTubeForLine(points[0], points[1], tubeRadius, origin);
             }
         } else {
-            // Three or more points - draw Catmull-Rom spline
-            drawCatmullRomSpline(matrix, lines, points, cameraPos, r, g, b, a);
+            // Three or more points - Catmull-Rom spline
+            addCatmullRomSpline(spline, sampleStride, origin);
             if (tubeRadius > 0) {
-                drawTubeForSpline(matrix, lines, points, tubeRadius, cameraPos, r, g, b, a);
+                addTubeForSpline(spline, tubeRadius, origin);
             }
         }
 
-        // Draw small markers at each control point
+        // Small markers at each control point
         for (Vec3d point : points) {
-            drawPointMarker(matrix, lines, point, cameraPos, r, g, b, a);
+            addPointMarker(point, origin);
         }
-
-        // Draw total length label
-        if (config.showLabels() && points.length >= 2) {
-            drawLabels(camera, viewMatrix, matrices, points, cameraPos);
-        }
-
-        immediate.draw();
     }
 
     @Override
@@ -87,14 +120,16 @@ public class SplineRenderer implements ShapeRenderer {
         matrices.multiplyPositionMatrix(viewMatrix);
         Vec3d cameraPos = camera.getPos();
 
-        Vec3d[] points = SplineMath.blockPosListToVec3d(selection);
+        ArcLengthSpline spline = SelectionManager.getInstance().getSpline();
+        if (spline == null) return;
 
-        drawLabels(camera, viewMatrix, matrices, points, cameraPos);
+        drawLabels(camera, viewMatrix, matrices, spline, cameraPos);
     }
 
-    private void drawLabels(Camera camera, Matrix4f viewMatrix, MatrixStack matrices, Vec3d[] points, Vec3d cameraPos) {
-        double totalLength = SplineMath.calculateSplineLength(points, SEGMENTS_PER_SPAN);
-        Vec3d midPoint = SplineMath.getSplinePoint(points, 0.5);
+    private void drawLabels(Camera camera, Matrix4f viewMatrix, MatrixStack matrices, ArcLengthSpline spline,
+                            Vec3d cameraPos) {
+        double totalLength = spline.getLength();
+        Vec3d midPoint = spline.pointAtDistance(totalLength / 2);
 
         matrices.push();
         matrices.translate(
@@ -103,191 +138,187 @@ public class SplineRenderer implements ShapeRenderer {
             midPoint.z - cameraPos.z
         );
         RenderUtils.drawLabel(camera, viewMatrix, matrices, 0, 0, 0,
-            String.format("len=%.1f", totalLength));
+            "len=" + RenderUtils.formatOneDecimal(totalLength));
         matrices.pop();
     }
 
     /**
-     * Draws a Catmull-Rom spline through the given points.
+     * Adds a Catmull-Rom spline as a polyline through its precomputed samples.
      */
-    private void drawCatmullRomSpline(Matrix4f matrix, VertexConsumer lines, Vec3d[] points,
-                                       Vec3d cameraPos, float r, float g, float b, float a) {
-        int n = points.length;
-
-        for (int i = 0; i < n - 1; i++) {
-            Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-            Vec3d p1 = points[i];
-            Vec3d p2 = points[i + 1];
-            Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-            Vec3d prevPoint = p1;
-            for (int seg = 1; seg <= SEGMENTS_PER_SPAN; seg++) {
-                double t = (double) seg / SEGMENTS_PER_SPAN;
-                Vec3d currPoint = SplineMath.catmullRom(p0, p1, p2, p3, t);
-                drawLine(matrix, lines, prevPoint, currPoint, cameraPos, r, g, b, a);
-                prevPoint = currPoint;
-            }
+    private void addCatmullRomSpline(ArcLengthSpline spline, int stride, Vec3d origin) {
+        // Skip samples when the curve is small on screen, always ending on the last one
+        int last = spline.getSampleCount() - 1;
+        int previous = 0;
+        while (previous < last) {
+            int i = Math.min(previous + stride, last);
+            mesh.addLine(
+                (float) (spline.getSampleX(previous) - origin.x),
+                (float) (spline.getSampleY(previous) - origin.y),
+                (float) (spline.getSampleZ(previous) - origin.z),
+                (float) (spline.getSampleX(i) - origin.x),
+                (float) (spline.getSampleY(i) - origin.y),
+                (float) (spline.getSampleZ(i) - origin.z));
+            previous = i;
         }
     }
 
-    private void drawLine(Matrix4f matrix, VertexConsumer lines, Vec3d from, Vec3d to,
-                          Vec3d cameraPos, float r, float g, float b, float a) {
-        float x1 = (float) (from.x - cameraPos.x);
-        float y1 = (float) (from.y - cameraPos.y);
-        float z1 = (float) (from.z - cameraPos.z);
-        float x2 = (float) (to.x - cameraPos.x);
-        float y2 = (float) (to.y - cameraPos.y);
-        float z2 = (float) (to.z - cameraPos.z);
+    private void addLine(Vec3d from, Vec3d to, Vec3d origin) {
+        float x1 = (float) (from.x - origin.x);
+        float y1 = (float) (from.y - origin.y);
+        float z1 = (float) (from.z - origin.z);
+        float x2 = (float) (to.x - origin.x);
+        float y2 = (float) (to.y - origin.y);
+        float z2 = (float) (to.z - origin.z);
 
-        RenderUtils.drawLine(matrix, lines, x1, y1, z1, x2, y2, z2, r, g, b, a);
+        mesh.addLine(x1, y1, z1, x2, y2, z2);
     }
 
     /**
-     * Draws a small cross marker at the given point.
+     * Adds a small cross marker at the given point.
      */
-    private void drawPointMarker(Matrix4f matrix, VertexConsumer lines, Vec3d point,
-                                  Vec3d cameraPos, float r, float g, float b, float a) {
+    private void addPointMarker(Vec3d point, Vec3d origin) {
         float size = 0.15f;
-        float x = (float) (point.x - cameraPos.x);
-        float y = (float) (point.y - cameraPos.y);
-        float z = (float) (point.z - cameraPos.z);
+        float x = (float) (point.x - origin.x);
+        float y = (float) (point.y - origin.y);
+        float z = (float) (point.z - origin.z);
 
         // Draw a small 3D cross
-        RenderUtils.drawLine(matrix, lines, x - size, y, z, x + size, y, z, r, g, b, a);
-        RenderUtils.drawLine(matrix, lines, x, y - size, z, x, y + size, z, r, g, b, a);
-        RenderUtils.drawLine(matrix, lines, x, y, z - size, x, y, z + size, r, g, b, a);
+        mesh.addLine(x - size, y, z, x + size, y, z);
+        mesh.addLine(x, y - size, z, x, y + size, z);
+        mesh.addLine(x, y, z - size, x, y, z + size);
     }
 
     /**
-     * Draws tube circles along a straight line between two points.
+     * Adds tube circles along a straight line between two points.
      */
-    private void drawTubeForLine(Matrix4f matrix, VertexConsumer lines, Vec3d from, Vec3d to,
-                                  int radius, Vec3d cameraPos, float r, float g, float b, float a) {
-        Vec3d direction = to.subtract(from).normalize();
+    private void addTubeForLine(Vec3d from, Vec3d to, int radius, Vec3d origin) {
         double length = from.distanceTo(to);
+        double dx = to.x - from.x, dy = to.y - from.y, dz = to.z - from.z;
+        if (length > 1.0E-4) {
+            dx /= length;
+            dy /= length;
+            dz /= length;
+        }
+        ringBasis(dx, dy, dz, basis);
 
-        // Draw circles at regular intervals along the line
-        int circleCount = Math.max(2, (int) Math.ceil(length / 2.0));
+        // Circles at regular intervals along the line, further apart when detail is reduced
+        int circleCount = Math.max(2, (int) Math.ceil(length / TUBE_RING_SPACING * ringPercent / 100.0));
         for (int i = 0; i <= circleCount; i++) {
             double t = (double) i / circleCount;
-            Vec3d center = from.add(to.subtract(from).multiply(t));
-            drawTubeCircle(matrix, lines, center, direction, radius, cameraPos, r, g, b, a);
+            center[0] = from.x + (to.x - from.x) * t;
+            center[1] = from.y + (to.y - from.y) * t;
+            center[2] = from.z + (to.z - from.z) * t;
+            addTubeCircle(center, basis, radius, origin);
         }
 
-        // Draw longitudinal lines connecting the circles
-        drawTubeLongitudinalLines(matrix, lines, from, to, direction, radius, cameraPos, r, g, b, a);
+        // Longitudinal lines connecting the circles
+        previousCenter[0] = from.x;
+        previousCenter[1] = from.y;
+        previousCenter[2] = from.z;
+        center[0] = to.x;
+        center[1] = to.y;
+        center[2] = to.z;
+        addTubeLongitudinalLinesBetween(previousCenter, basis, center, basis, radius, origin);
     }
 
     /**
-     * Draws tube circles along a Catmull-Rom spline.
+     * Adds tube circles along a Catmull-Rom spline, evenly spaced by distance.
+     * Centers and ring frames live in scratch arrays that are swapped between rings.
      */
-    private void drawTubeForSpline(Matrix4f matrix, VertexConsumer lines, Vec3d[] points,
-                                    int radius, Vec3d cameraPos, float r, float g, float b, float a) {
-        int n = points.length;
-        int circlesPerSpan = 4;
-
-        Vec3d prevCenter = null;
-        Vec3d prevTangent = null;
+    private void addTubeForSpline(ArcLengthSpline spline, int radius, Vec3d origin) {
+        double length = spline.getLength();
+        int ringCount = Math.max(2, (int) Math.ceil(length / TUBE_RING_SPACING * ringPercent / 100.0));
 
-        for (int i = 0; i < n - 1; i++) {
-            Vec3d p0 = (i == 0) ? SplineMath.extrapolateStart(points[0], points[1]) : points[i - 1];
-            Vec3d p1 = points[i];
-            Vec3d p2 = points[i + 1];
-            Vec3d p3 = (i == n - 2) ? SplineMath.extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
+        double[] ringCenter = center, ringBasis = basis;
+        double[] prevCenter = previousCenter, prevBasis = previousBasis;
 
-            for (int seg = 0; seg <= circlesPerSpan; seg++) {
-                if (i > 0 && seg == 0) continue;
+        for (int i = 0; i <= ringCount; i++) {
+            double parameter = spline.parameterAtDistance(length * i / ringCount);
+            spline.pointAt(parameter, ringCenter);
+            spline.tangentAt(parameter, tangent);
+            ringBasis(tangent[0], tangent[1], tangent[2], ringBasis);
 
-                double t = (double) seg / circlesPerSpan;
-                Vec3d center = SplineMath.catmullRom(p0, p1, p2, p3, t);
-                Vec3d tangent = SplineMath.catmullRomDerivative(p0, p1, p2, p3, t).normalize();
+            addTubeCircle(ringCenter, ringBasis, radius, origin);
 
-                drawTubeCircle(matrix, lines, center, tangent, radius, cameraPos, r, g, b, a);
-
-                if (prevCenter != null) {
-                    drawTubeLongitudinalLinesBetween(matrix, lines, prevCenter, center,
-                        prevTangent, tangent, radius, cameraPos, r, g, b, a);
-                }
-
-                prevCenter = center;
-                prevTangent = tangent;
+            if (i > 0) {
+                addTubeLongitudinalLinesBetween(prevCenter, prevBasis, ringCenter, ringBasis, radius, origin);
             }
+
+            double[] swap = prevCenter;
+            prevCenter = ringCenter;
+            ringCenter = swap;
+            swap = prevBasis;
+            prevBasis = ringBasis;
+            ringBasis = swap;
         }
     }
 
     /**
-     * Draws a circle perpendicular to the given direction at the specified center point.
+     * Writes two unit vectors spanning the plane perpendicular to a direction into out[0..5].
      */
-    private void drawTubeCircle(Matrix4f matrix, VertexConsumer lines, Vec3d center, Vec3d direction,
-                                 int radius, Vec3d cameraPos, float r, float g, float b, float a) {
-        Vec3d perp1 = SplineMath.findPerpendicular(direction);
-        Vec3d perp2 = direction.crossProduct(perp1).normalize();
-
-        Vec3d[] circlePoints = new Vec3d[TUBE_CIRCLE_SEGMENTS];
-        for (int i = 0; i < TUBE_CIRCLE_SEGMENTS; i++) {
-            double angle = 2 * Math.PI * i / TUBE_CIRCLE_SEGMENTS;
-            double cos = Math.cos(angle) * radius;
-            double sin = Math.sin(angle) * radius;
-            circlePoints[i] = center.add(perp1.multiply(cos)).add(perp2.multiply(sin));
-        }
-
-        // Draw the circle
-        for (int i = 0; i < TUBE_CIRCLE_SEGMENTS; i++) {
-            Vec3d from = circlePoints[i];
-            Vec3d to = circlePoints[(i + 1) % TUBE_CIRCLE_SEGMENTS];
-            drawLine(matrix, lines, from, to, cameraPos, r, g, b, a);
+    private static void ringBasis(double dx, double dy, double dz, double[] out) {
+        SplineMath.findPerpendicular(dx, dy, dz, out);
+        double px = out[0], py = out[1], pz = out[2];
+
+        // Second axis is direction x first axis
+        double qx = dy * pz - dz * py;
+        double qy = dz * px - dx * pz;
+        double qz = dx * py - dy * px;
+        double length = Math.sqrt(qx * qx + qy * qy + qz * qz);
+        if (length < 1.0E-4) {
+            out[3] = out[4] = out[5] = 0;
+        } else {
+            out[3] = qx / length;
+            out[4] = qy / length;
+            out[5] = qz / length;
         }
     }
 
     /**
-     * Draws longitudinal lines along a straight tube section.
+     * Adds a circle in the plane of a ring basis at the specified center point.
      */
-    private void drawTubeLongitudinalLines(Matrix4f matrix, VertexConsumer lines,
-                                            Vec3d from, Vec3d to, Vec3d direction, int radius,
-                                            Vec3d cameraPos, float r, float g, float b, float a) {
-        Vec3d perp1 = SplineMath.findPerpendicular(direction);
-        Vec3d perp2 = direction.crossProduct(perp1).normalize();
-
-        int longitudinalCount = 8; // Number of lines along the tube
-        for (int i = 0; i < longitudinalCount; i++) {
-            double angle = 2 * Math.PI * i / longitudinalCount;
+    private void addTubeCircle(double[] center, double[] basis, int radius, Vec3d origin) {
+        float ox = (float) (center[0] - origin.x);
+        float oy = (float) (center[1] - origin.y);
+        float oz = (float) (center[2] - origin.z);
+
+        int segments = tubeSegments;
+        float prevX = 0, prevY = 0, prevZ = 0;
+        for (int i = 0; i <= segments; i++) {
+            double angle = 2 * Math.PI * (i % segments) / segments;
             double cos = Math.cos(angle) * radius;
             double sin = Math.sin(angle) * radius;
+            float x = ox + (float) (basis[0] * cos + basis[3] * sin);
+            float y = oy + (float) (basis[1] * cos + basis[4] * sin);
+            float z = oz + (float) (basis[2] * cos + basis[5] * sin);
 
-            Vec3d offset = perp1.multiply(cos).add(perp2.multiply(sin));
-            Vec3d lineStart = from.add(offset);
-            Vec3d lineEnd = to.add(offset);
-
-            drawLine(matrix, lines, lineStart, lineEnd, cameraPos, r, g, b, a);
+            if (i > 0) {
+                mesh.addLine(prevX, prevY, prevZ, x, y, z);
+            }
+            prevX = x;
+            prevY = y;
+            prevZ = z;
         }
     }
 
     /**
-     * Draws longitudinal lines between two tube circles.
+     * Adds longitudinal lines between two tube circles.
      */
-    private void drawTubeLongitudinalLinesBetween(Matrix4f matrix, VertexConsumer lines,
-                                                   Vec3d center1, Vec3d center2,
-                                                   Vec3d tangent1, Vec3d tangent2, int radius,
-                                                   Vec3d cameraPos, float r, float g, float b, float a) {
-        Vec3d perp1_1 = SplineMath.findPerpendicular(tangent1);
-        Vec3d perp2_1 = tangent1.crossProduct(perp1_1).normalize();
-
-        Vec3d perp1_2 = SplineMath.findPerpendicular(tangent2);
-        Vec3d perp2_2 = tangent2.crossProduct(perp1_2).normalize();
-
-        int longitudinalCount = 8;
+    private void addTubeLongitudinalLinesBetween(double[] center1, double[] basis1,
+                                                  double[] center2, double[] basis2, int radius, Vec3d origin) {
+        int longitudinalCount = 8; // Number of lines along the tube
         for (int i = 0; i < longitudinalCount; i++) {
             double angle = 2 * Math.PI * i / longitudinalCount;
             double cos = Math.cos(angle) * radius;
             double sin = Math.sin(angle) * radius;
 
-            Vec3d offset1 = perp1_1.multiply(cos).add(perp2_1.multiply(sin));
-            Vec3d offset2 = perp1_2.multiply(cos).add(perp2_2.multiply(sin));
-
-            Vec3d lineStart = center1.add(offset1);
-            Vec3d lineEnd = center2.add(offset2);
-
-            drawLine(matrix, lines, lineStart, lineEnd, cameraPos, r, g, b, a);
+            mesh.addLine(
+                (float) (center1[0] + basis1[0] * cos + basis1[3] * sin - origin.x),
+                (float) (center1[1] + basis1[1] * cos + basis1[4] * sin - origin.y),
+                (float) (center1[2] + basis1[2] * cos + basis1[5] * sin - origin.z),
+                (float) (center2[0] + basis2[0] * cos + basis2[3] * sin - origin.x),
+                (float) (center2[1] + basis2[1] * cos + basis2[4] * sin - origin.y),
+                (float) (center2[2] + basis2[2] * cos + basis2[5] * sin - origin.z));
         }
     }
 
@@ -1,10 +1,7 @@
 package measurementtools.modid.render;
 
 import net.minecraft.client.render.Camera;
-import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexConsumer;
-import net.minecraft.client.render.VertexConsumerProvider;
-import net.minecraft.client.util.BufferAllocator;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
@@ -14,9 +11,6 @@ public class SubdivisionRenderer {
     private static final float SUB_R = 1.0f;
     private static final float SUB_G = 1.0f;
     private static final float SUB_B = 0.3f;
-    private static final int BUFFER_SIZE = 4096;
-
-    private BufferAllocator buffer;
 
     public void renderSubdivisions(Camera camera, Matrix4f viewMatrix, Box bounds, int subdivisions, float alpha) {
         if (subdivisions <= 1) return;
@@ -26,11 +20,7 @@ public class SubdivisionRenderer {
         MatrixStack matrices = new MatrixStack();
         matrices.multiplyPositionMatrix(viewMatrix);
 
-        if (buffer == null) {
-            buffer = new BufferAllocator(BUFFER_SIZE);
-        }
-        VertexConsumerProvider.Immediate immediate = VertexConsumerProvider.immediate(buffer);
-        VertexConsumer lines = immediate.getBuffer(RenderLayer.getLines());
+        VertexConsumer lines = FrameBatcher.getInstance().lines();
 
         // Translate bounds relative to camera
         Box relativeBounds = new Box(
@@ -45,8 +35,6 @@ public class SubdivisionRenderer {
         renderAxisSubdivisions(camera, matrices, lines, matrix, relativeBounds, subdivisions, Axis.Y, alpha);
         renderAxisSubdivisions(camera, matrices, lines, matrix, relativeBounds, subdivisions, Axis.Z, alpha);
 
-        immediate.draw();
-
         // Draw labels in world space
         renderAxisLabels(camera, viewMatrix, bounds, subdivisions, Axis.X);
         renderAxisLabels(camera, viewMatrix, bounds, subdivisions, Axis.Y);
@@ -150,7 +138,7 @@ public class SubdivisionRenderer {
             }
 
             RenderUtils.drawWorldLabel(camera, viewMatrix, labelX, labelY, labelZ,
-                String.format("%.1f", segmentSize));
+                RenderUtils.formatOneDecimal(segmentSize));
         }
     }
 
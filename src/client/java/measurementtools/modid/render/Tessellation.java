@@ -0,0 +1,127 @@
+package measurementtools.modid.render;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Matrix4f;
+
+/**
+ * Chooses segment counts for circles and curves from their size on screen.
+ *
+ * A circle drawn with n chords deviates from the true circle by r * (1 - cos(pi / n)), so the
+ * count needed to keep that gap under a pixel tolerance follows from the circle's projected
+ * radius. Counts are rounded up to a fixed ladder of levels, which keeps cached meshes stable
+ * while the camera moves. The detail governor's scale is applied before rounding.
+ *
+ * Renderers pass the count their mesh was built with, and a count only drops once it has
+ * fallen by two levels. A camera resting near a level boundary therefore keeps its mesh
+ * instead of rebuilding it on every crossing.
+ */
+final class Tessellation {
+    // Segment counts a shape may use
+    private static final int[] LEVELS = {4, 6, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256};
+    // Largest allowed gap between a chord and the true curve, in pixels
+    private static final double ERROR_TOLERANCE_PIXELS = 0.75;
+    // Distances closer than this are treated as this, so the camera inside a shape stays bounded
+    private static final double MIN_DISTANCE = 1.0;
+
+    // Pixels covered by one block at a distance of one block, for the current frame
+    private static double pixelsPerBlock = 1.0;
+
+    private Tessellation() {}
+
+    /**
+     * Captures the frame's projection. Call once per frame before any shape is tessellated.
+     */
+    static void beginFrame(Matrix4f projectionMatrix) {
+        int viewportHeight = MinecraftClient.getInstance().getWindow().getFramebufferHeight();
+        // m11 is cot(fov / 2), mapping view-space height at distance one to half the viewport
+        pixelsPerBlock = Math.abs(projectionMatrix.m11()) * viewportHeight / 2.0;
+    }
+
+    /**
+     * Segment count for a full circle of the given radius, seen from the given distance,
+     * clamped to [minimum, maximum] and rounded up to a level.
+     */
+    static int segments(double radius, double distance, int minimum, int maximum) {
+        double projectedRadius = radius * pixelsPerBlock / Math.max(distance, MIN_DISTANCE);
+
+        int ideal;
+        if (projectedRadius <= ERROR_TOLERANCE_PIXELS) {
+            ideal = minimum;
+        } else {
+            // Solve r * (1 - cos(pi / n)) = tolerance for n
+            double halfAngle = Math.acos(1.0 - ERROR_TOLERANCE_PIXELS / projectedRadius);
+            ideal = (int) Math.ceil(Math.PI / halfAngle);
+        }
+        ideal = Math.round(ideal * DetailGovernor.getDetailScale());
+
+        for (int level : LEVELS) {
+            if (level >= ideal && level >= minimum) {
+                return Math.min(level, maximum);
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Like segments(radius, distance, minimum, maximum), keeping the current count unless more
+     * segments are needed or the ideal count has dropped below the next level down.
+     * @param current the count the renderer's mesh was built with, or 0 if there is none
+     */
+    static int segments(double radius, double distance, int minimum, int maximum, int current) {
+        int wanted = segments(radius, distance, minimum, maximum);
+        if (wanted < current && wanted >= levelBelow(current)) {
+            return current;
+        }
+        return wanted;
+    }
+
+    /**
+     * The largest level below a count, or the count itself if there is none.
+     */
+    private static int levelBelow(int count) {
+        int below = count;
+        for (int level : LEVELS) {
+            if (level >= count) break;
+            below = level;
+        }
+        return below;
+    }
+
+    /**
+     * Distance from the camera to a horizontal ring of the given radius around a vertical axis,
+     * allowing for the ring lying anywhere between two heights. Used for cylinders.
+     */
+    static double distanceToRing(Vec3d cameraPos, double centerX, double centerZ, double radius,
+                                 double minY, double maxY) {
+        double dx = cameraPos.x - centerX;
+        double dz = cameraPos.z - centerZ;
+        double radial = Math.abs(Math.sqrt(dx * dx + dz * dz) - radius);
+        double vertical = cameraPos.y < minY ? minY - cameraPos.y : Math.max(0, cameraPos.y - maxY);
+        return Math.sqrt(radial * radial + vertical * vertical);
+    }
+
+    /**
+     * Distance from the camera to the surface of a sphere. Used for ellipsoids with their
+     * largest radius.
+     */
+    static double distanceToSphere(Vec3d cameraPos, double centerX, double centerY, double centerZ,
+                                   double radius) {
+        double dx = cameraPos.x - centerX;
+        double dy = cameraPos.y - centerY;
+        double dz = cameraPos.z - centerZ;
+        return Math.abs(Math.sqrt(dx * dx + dy * dy + dz * dz) - radius);
+    }
+
+    /**
+     * Distance from the camera to a block range grown by a margin, zero inside it. Used for
+     * paths and their tubes.
+     */
+    static double distanceToBlocks(Vec3d cameraPos, BlockPos min, BlockPos max, double margin) {
+        double dx = Math.max(0, Math.max(min.getX() - margin - cameraPos.x, cameraPos.x - (max.getX() + 1 + margin)));
+        double dy = Math.max(0, Math.max(min.getY() - margin - cameraPos.y, cameraPos.y - (max.getY() + 1 + margin)));
+        double dz = Math.max(0, Math.max(min.getZ() - margin - cameraPos.z, cameraPos.z - (max.getZ() + 1 + margin)));
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,89 @@
+package measurementtools.modid.render;
+
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+
+/**
+ * Line segments of a shape outline, kept in coordinates local to an origin.
+ *
+ * A renderer rebuilds the mesh only when its key changes: the selection revision, the
+ * tessellation chosen from the shape's size on screen (which already includes the detail
+ * governor's scale), and one shape setting that does not move the revision (such as a
+ * radius offset).
+ * Every other frame the stored segments are replayed through the view matrix translated to
+ * the origin, so no circles or rings are recomputed while the camera moves.
+ */
+final class WireframeMesh {
+    private float[] segments = new float[6 * 64];
+    private int segmentCount = 0;
+
+    private double originX, originY, originZ;
+
+    private boolean built = false;
+    private long revision;
+    private int tessellation;
+    private double setting;
+
+    private final Matrix4f transform = new Matrix4f();
+
+    /**
+     * Whether the mesh was built for this key and can be replayed as is.
+     */
+    boolean isCurrent(long revision, int tessellation, double setting) {
+        return built && this.revision == revision && this.tessellation == tessellation
+            && Double.compare(this.setting, setting) == 0;
+    }
+
+    /**
+     * Clears the mesh to be rebuilt around a new origin for the given key.
+     */
+    void begin(double originX, double originY, double originZ,
+               long revision, int tessellation, double setting) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.revision = revision;
+        this.tessellation = tessellation;
+        this.setting = setting;
+        segmentCount = 0;
+        built = true;
+    }
+
+    /**
+     * Adds a segment given relative to the origin.
+     */
+    void addLine(float x1, float y1, float z1, float x2, float y2, float z2) {
+        if (segmentCount * 6 == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        int i = segmentCount * 6;
+        segments[i] = x1;
+        segments[i + 1] = y1;
+        segments[i + 2] = z1;
+        segments[i + 3] = x2;
+        segments[i + 4] = y2;
+        segments[i + 5] = z2;
+        segmentCount++;
+    }
+
+    /**
+     * Replays every segment, translated from the origin to camera-relative coordinates.
+     */
+    void draw(Matrix4f viewMatrix, Vec3d cameraPos, VertexConsumer lines,
+              float r, float g, float b, float a) {
+        transform.set(viewMatrix).translate(
+            (float) (originX - cameraPos.x),
+            (float) (originY - cameraPos.y),
+            (float) (originZ - cameraPos.z));
+
+        for (int i = 0; i < segmentCount * 6; i += 6) {
+            RenderUtils.drawLine(transform, lines,
+                segments[i], segments[i + 1], segments[i + 2],
+                segments[i + 3], segments[i + 4], segments[i + 5],
+                r, g, b, a);
+        }
+    }
+}
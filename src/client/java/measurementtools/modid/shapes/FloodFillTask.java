@@ -0,0 +1,184 @@
+package measurementtools.modid.shapes;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import measurementtools.modid.world.BlockSource;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Magic wand: a breadth-first flood fill from a seed block over connected blocks that
+ * match the seed, producing a ShapeMask of exactly the blocks reached.
+ *
+ * The frontier is a queue of packed positions and visited blocks are tracked in a
+ * section bitset, so memory stays small even for large fills. World access is not
+ * thread-safe, so when filling the world the task runs on the client thread and is
+ * advanced a time slice per tick. Positions the source does not have loaded are
+ * treated as non-matching.
+ */
+public class FloodFillTask {
+    /**
+     * Which blocks join the fill.
+     */
+    public enum Match {
+        SAME_BLOCK("Same Block"),
+        SAME_TAG("Same Tag"),
+        ANY_BLOCK("Any Block");
+
+        private final String displayName;
+
+        Match(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // 6-connectivity: faces only
+    private static final int[][] FACE_OFFSETS = {
+        {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}
+    };
+    // 26-connectivity: faces, edges and corners
+    private static final int[][] ALL_OFFSETS = buildAllOffsets();
+
+    private final BlockSource source;
+    private final Predicate<BlockState> predicate;
+    private final int[][] offsets;
+    private final int maxVoxels;
+
+    private final LongArrayFIFOQueue frontier = new LongArrayFIFOQueue();
+    private final ShapeMask visited = new ShapeMask();
+    private final ShapeMask result = new ShapeMask();
+
+    private boolean limitReached = false;
+    private boolean cancelled = false;
+
+    public FloodFillTask(BlockSource source, BlockPos seed, Match match, boolean diagonal, int maxVoxels) {
+        this.source = source;
+        this.offsets = diagonal ? ALL_OFFSETS : FACE_OFFSETS;
+        this.maxVoxels = maxVoxels;
+        BlockState seedState = source.getBlockState(seed.getX(), seed.getY(), seed.getZ());
+        this.predicate = createPredicate(seedState, match);
+
+        visited.add(seed.getX(), seed.getY(), seed.getZ());
+        if (predicate.test(seedState)) {
+            result.add(seed.getX(), seed.getY(), seed.getZ());
+            frontier.enqueue(seed.asLong());
+        }
+    }
+
+    private static Predicate<BlockState> createPredicate(BlockState seed, Match match) {
+        return switch (match) {
+            case SAME_BLOCK -> {
+                Block block = seed.getBlock();
+                yield state -> state.isOf(block);
+            }
+            case SAME_TAG -> {
+                // Tool and mining tags group unrelated blocks, so they do not count
+                List<TagKey<Block>> tags = seed.streamTags()
+                    .filter(tag -> !tag.id().getPath().startsWith("mineable/")
+                        && !tag.id().getPath().startsWith("needs_"))
+                    .toList();
+                Block block = seed.getBlock();
+                yield state -> {
+                    if (state.isOf(block)) return true;
+                    for (TagKey<Block> tag : tags) {
+                        if (state.isIn(tag)) return true;
+                    }
+                    return false;
+                };
+            }
+            case ANY_BLOCK -> state -> !state.isAir();
+        };
+    }
+
+    private static int[][] buildAllOffsets() {
+        int[][] offsets = new int[26][];
+        int i = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx != 0 || dy != 0 || dz != 0) {
+                        offsets[i++] = new int[]{dx, dy, dz};
+                    }
+                }
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Expands the fill until the deadline (System.nanoTime) passes.
+     * @return true when the fill is finished, limited or cancelled
+     */
+    public boolean step(long deadline) {
+        // The world may have changed since the last slice
+        source.resetCache();
+
+        int processed = 0;
+        while (!isDone()) {
+            long packed = frontier.dequeueLong();
+            int x = BlockPos.unpackLongX(packed);
+            int y = BlockPos.unpackLongY(packed);
+            int z = BlockPos.unpackLongZ(packed);
+
+            for (int[] offset : offsets) {
+                int nx = x + offset[0], ny = y + offset[1], nz = z + offset[2];
+                if (visited.contains(nx, ny, nz)) continue;
+                visited.add(nx, ny, nz);
+
+                if (!source.isLoaded(nx, ny, nz)) continue;
+                if (!predicate.test(source.getBlockState(nx, ny, nz))) continue;
+
+                result.add(nx, ny, nz);
+                frontier.enqueue(BlockPos.asLong(nx, ny, nz));
+                if (result.getBlockCount() >= maxVoxels) {
+                    limitReached = true;
+                    return true;
+                }
+            }
+
+            // Checking the clock is comparatively slow, so only do it every few blocks
+            if ((++processed & 255) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return isDone();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isDone() {
+        return cancelled || limitReached || frontier.isEmpty();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * True if the fill stopped at the voxel limit before covering every connected block.
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    public int getBlockCount() {
+        return result.getBlockCount();
+    }
+
+    /**
+     * The blocks reached so far. Must not be modified; complete once isDone returns true.
+     */
+    public ShapeMask getResult() {
+        return result;
+    }
+}
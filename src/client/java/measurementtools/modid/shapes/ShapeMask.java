@@ -0,0 +1,723 @@
+package measurementtools.modid.shapes;
+
+import measurementtools.modid.SelectionManager;
+import measurementtools.modid.util.ArcLengthSpline;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * The set of block positions covered by the active selection shape.
+ *
+ * Membership follows the block-center rules used for counting: cylinders and ellipsoids
+ * include a half-block tolerance, tubes include blocks within radius + 0.5 of the path, and
+ * zero-radius paths take the blocks the sampled curve passes through. Round shapes are
+ * rasterized as one x-span per row instead of testing every block of the bounding box.
+ *
+ * Positions are stored as 4096-bit masks per world-aligned 16x16x16 section, so callers
+ * that walk the world by section can skip sections the shape does not touch. Masks are
+ * combined (union, intersection, difference) a 64-bit word at a time.
+ */
+public final class ShapeMask {
+    /**
+     * Boolean operation for combining two masks.
+     */
+    public enum Operation {
+        UNION("Union"),
+        INTERSECTION("Intersect"),
+        DIFFERENCE("Subtract");
+
+        private final String displayName;
+
+        Operation(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // Tubes place a sphere every other arc-length table sample
+    private static final int TUBE_SAMPLES_PER_SEGMENT = 16;
+
+    // Section key -> 64 longs, bit index (y << 8) | (z << 4) | x in section-local coordinates
+    private final Map<Long, long[]> sections = new HashMap<>();
+    private int blockCount = 0;
+
+    // Tight bounds of the positions in the mask (inclusive)
+    private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+    // While rasterizing one section column at a time, positions outside it are not added
+    private int clipMinX = Integer.MIN_VALUE, clipMaxX = Integer.MAX_VALUE;
+    private int clipMinZ = Integer.MIN_VALUE, clipMaxZ = Integer.MAX_VALUE;
+
+    ShapeMask() {}
+
+    /**
+     * Builds the mask for the current selection and shape mode.
+     * A voxel mask selection (e.g. from the magic wand) is returned as-is.
+     * Returns null for rectangle mode, where the shape is exactly the bounding box.
+     */
+    public static ShapeMask fromSelection(SelectionManager manager) {
+        return fromSelection(ShapeParameters.of(manager));
+    }
+
+    /**
+     * Like fromSelection(SelectionManager), for explicit shape parameters.
+     */
+    public static ShapeMask fromSelection(ShapeParameters shape) {
+        if (shape.getVoxelMask() == null && shape.getShapeMode() == ShapeMode.RECTANGLE) return null;
+        return rasterize(shape);
+    }
+
+    /**
+     * Like fromSelection, but rectangle mode is rasterized to its box as well.
+     * Returns null if there is no selection.
+     */
+    public static ShapeMask rasterize(SelectionManager manager) {
+        return rasterize(ShapeParameters.of(manager));
+    }
+
+    public static ShapeMask rasterize(ShapeParameters shape) {
+        if (shape.getVoxelMask() != null) return shape.getVoxelMask();
+        if (!shape.hasSelection()) return null;
+
+        ShapeMask mask = new ShapeMask();
+        mask.rasterizeShape(shape);
+        return mask;
+    }
+
+    private void rasterizeShape(ShapeParameters shape) {
+        switch (shape.getShapeMode()) {
+            case RECTANGLE -> addBox(shape.getMinPos(), shape.getMaxPos());
+            case CYLINDER -> rasterizeCylinder(shape);
+            case ELLIPSOID -> rasterizeEllipsoid(shape);
+            case SPLINE -> rasterizeSpline(shape.getSpline(), shape.getSplineRadius());
+            case LINE -> rasterizeLine(shape.getSelectedBlocks(), shape.getSplineRadius());
+        }
+    }
+
+    /**
+     * Section column bounds {minX, minZ, maxX, maxZ} in block coordinates that contain the
+     * whole shape, or null for thin paths, which are cheap enough to rasterize in one go.
+     */
+    private static int[] columnBounds(ShapeParameters shape) {
+        switch (shape.getShapeMode()) {
+            case RECTANGLE -> {
+                BlockPos min = shape.getMinPos();
+                BlockPos max = shape.getMaxPos();
+                return new int[] {min.getX(), min.getZ(), max.getX(), max.getZ()};
+            }
+            case CYLINDER -> {
+                BlockPos center = shape.getCenterBlock();
+                int reach = (int) Math.ceil(Math.max(0.5, shape.getMaxRadiusXZ() + shape.getCylinderRadiusOffsetBlocks())) + 2;
+                return new int[] {center.getX() - reach, center.getZ() - reach, center.getX() + reach, center.getZ() + reach};
+            }
+            case ELLIPSOID -> {
+                if (shape.getEllipsoidMode() == EllipsoidMode.FIT_TO_BOX) {
+                    BlockPos min = shape.getMinPos();
+                    BlockPos max = shape.getMaxPos();
+                    return new int[] {min.getX() - 1, min.getZ() - 1, max.getX() + 1, max.getZ() + 1};
+                }
+                BlockPos center = shape.getCenterBlock();
+                int reach = (int) Math.ceil(Math.max(0.5, shape.getMaxRadiusXZ())) + 2;
+                return new int[] {center.getX() - reach, center.getZ() - reach, center.getX() + reach, center.getZ() + reach};
+            }
+            case SPLINE -> {
+                ArcLengthSpline spline = shape.getSpline();
+                if (shape.getSplineRadius() == 0 || spline == null) return null;
+                double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+                double maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+                for (int i = 0; i < spline.getSampleCount(); i++) {
+                    minX = Math.min(minX, spline.getSampleX(i));
+                    minZ = Math.min(minZ, spline.getSampleZ(i));
+                    maxX = Math.max(maxX, spline.getSampleX(i));
+                    maxZ = Math.max(maxZ, spline.getSampleZ(i));
+                }
+                int reach = shape.getSplineRadius() + 1;
+                return new int[] {(int) Math.floor(minX) - reach, (int) Math.floor(minZ) - reach,
+                    (int) Math.floor(maxX) + reach, (int) Math.floor(maxZ) + reach};
+            }
+            case LINE -> {
+                if (shape.getSplineRadius() == 0) return null;
+                int reach = shape.getSplineRadius() + 1;
+                BlockPos min = shape.getMinPos();
+                BlockPos max = shape.getMaxPos();
+                return new int[] {min.getX() - reach, min.getZ() - reach, max.getX() + reach, max.getZ() + reach};
+            }
+        }
+        return null;
+    }
+
+    private void setClip(int minX, int minZ, int maxX, int maxZ) {
+        clipMinX = minX;
+        clipMinZ = minZ;
+        clipMaxX = maxX;
+        clipMaxZ = maxZ;
+    }
+
+    private void clearClip() {
+        setClip(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds a shape's mask one 16x16 section column at a time, so large shapes can be
+     * rasterized over several ticks within a time budget. The result is the same mask
+     * fromSelection would build.
+     */
+    public static final class Rasterizer {
+        private final ShapeParameters shape;
+        private final ShapeMask mask;
+        private final int[] bounds; // null rasterizes the whole shape in one step
+
+        private final int minColumnX, minColumnZ, columnsX;
+        private final int totalColumns;
+        private int nextColumn = 0;
+
+        private Rasterizer(ShapeParameters shape, ShapeMask mask, int[] bounds, int totalColumns) {
+            this.shape = shape;
+            this.mask = mask;
+            this.bounds = bounds;
+            this.minColumnX = bounds != null ? bounds[0] >> 4 : 0;
+            this.minColumnZ = bounds != null ? bounds[1] >> 4 : 0;
+            this.columnsX = bounds != null ? (bounds[2] >> 4) - minColumnX + 1 : 1;
+            this.totalColumns = totalColumns;
+        }
+
+        /**
+         * Starts rasterizing a shape. Returns null where fromSelection would: rectangle mode
+         * without a voxel mask, where the shape is exactly the bounding box.
+         */
+        public static Rasterizer of(ShapeParameters shape) {
+            if (shape.getVoxelMask() == null && shape.getShapeMode() == ShapeMode.RECTANGLE) return null;
+            if (shape.getVoxelMask() != null) {
+                return new Rasterizer(shape, shape.getVoxelMask(), null, 0);
+            }
+            if (!shape.hasSelection()) {
+                return new Rasterizer(shape, new ShapeMask(), null, 0);
+            }
+
+            int[] bounds = columnBounds(shape);
+            int columns = bounds == null ? 1
+                : ((bounds[2] >> 4) - (bounds[0] >> 4) + 1) * ((bounds[3] >> 4) - (bounds[1] >> 4) + 1);
+            return new Rasterizer(shape, new ShapeMask(), bounds, columns);
+        }
+
+        public boolean isDone() {
+            return nextColumn >= totalColumns;
+        }
+
+        /**
+         * Fraction of section columns rasterized, from 0 to 1.
+         */
+        public float getProgress() {
+            return totalColumns == 0 ? 1.0f : (float) nextColumn / totalColumns;
+        }
+
+        /**
+         * The mask being built; complete once isDone returns true.
+         */
+        public ShapeMask getMask() {
+            return mask;
+        }
+
+        /**
+         * Rasterizes section columns until the deadline passes or the shape is finished.
+         * @return true when the mask is complete
+         */
+        public boolean step(long deadlineNanos) {
+            while (nextColumn < totalColumns) {
+                if (bounds != null) {
+                    int columnX = (minColumnX + nextColumn % columnsX) << 4;
+                    int columnZ = (minColumnZ + nextColumn / columnsX) << 4;
+                    mask.setClip(columnX, columnZ, columnX + 15, columnZ + 15);
+                }
+                mask.rasterizeShape(shape);
+                nextColumn++;
+
+                if (System.nanoTime() >= deadlineNanos) break;
+            }
+            mask.clearClip();
+            return isDone();
+        }
+    }
+
+    public boolean isEmpty() {
+        return blockCount == 0;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public BlockPos getMinPos() {
+        return isEmpty() ? null : new BlockPos(minX, minY, minZ);
+    }
+
+    public BlockPos getMaxPos() {
+        return isEmpty() ? null : new BlockPos(maxX, maxY, maxZ);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        long[] bits = sections.get(BlockPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (bits == null) return false;
+        int index = localIndex(x & 15, y & 15, z & 15);
+        return (bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets the bits of one section, or null if the shape does not touch it.
+     * Bit index is (y << 8) | (z << 4) | x in section-local coordinates.
+     */
+    public long[] getSectionBits(int sectionX, int sectionY, int sectionZ) {
+        return sections.get(BlockPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    /**
+     * Visits every position in the mask, section by section.
+     */
+    public void forEach(PositionVisitor visitor) {
+        for (Map.Entry<Long, long[]> entry : sections.entrySet()) {
+            long key = entry.getKey();
+            int baseX = BlockPos.unpackLongX(key) << 4;
+            int baseY = BlockPos.unpackLongY(key) << 4;
+            int baseZ = BlockPos.unpackLongZ(key) << 4;
+            long[] bits = entry.getValue();
+
+            for (int word = 0; word < bits.length; word++) {
+                long value = bits[word];
+                while (value != 0) {
+                    int index = (word << 6) | Long.numberOfTrailingZeros(value);
+                    value &= value - 1;
+                    visitor.accept(baseX + (index & 15), baseY + (index >> 8), baseZ + ((index >> 4) & 15));
+                }
+            }
+        }
+    }
+
+    /**
+     * Combines two masks into a new one; neither input is modified.
+     */
+    public static ShapeMask combine(ShapeMask a, ShapeMask b, Operation operation) {
+        ShapeMask result = new ShapeMask();
+        switch (operation) {
+            case UNION -> {
+                for (Map.Entry<Long, long[]> entry : a.sections.entrySet()) {
+                    result.sections.put(entry.getKey(), entry.getValue().clone());
+                }
+                for (Map.Entry<Long, long[]> entry : b.sections.entrySet()) {
+                    long[] bits = result.sections.get(entry.getKey());
+                    if (bits == null) {
+                        result.sections.put(entry.getKey(), entry.getValue().clone());
+                    } else {
+                        long[] other = entry.getValue();
+                        for (int word = 0; word < 64; word++) {
+                            bits[word] |= other[word];
+                        }
+                    }
+                }
+            }
+            case INTERSECTION -> {
+                // Only sections present in both can have anything left; walk the smaller map
+                ShapeMask smaller = a.sections.size() <= b.sections.size() ? a : b;
+                ShapeMask larger = smaller == a ? b : a;
+                for (Map.Entry<Long, long[]> entry : smaller.sections.entrySet()) {
+                    long[] other = larger.sections.get(entry.getKey());
+                    if (other == null) continue;
+                    long[] bits = entry.getValue().clone();
+                    long any = 0;
+                    for (int word = 0; word < 64; word++) {
+                        bits[word] &= other[word];
+                        any |= bits[word];
+                    }
+                    if (any != 0) result.sections.put(entry.getKey(), bits);
+                }
+            }
+            case DIFFERENCE -> {
+                for (Map.Entry<Long, long[]> entry : a.sections.entrySet()) {
+                    long[] other = b.sections.get(entry.getKey());
+                    if (other == null) {
+                        result.sections.put(entry.getKey(), entry.getValue().clone());
+                        continue;
+                    }
+                    long[] bits = entry.getValue().clone();
+                    long any = 0;
+                    for (int word = 0; word < 64; word++) {
+                        bits[word] &= ~other[word];
+                        any |= bits[word];
+                    }
+                    if (any != 0) result.sections.put(entry.getKey(), bits);
+                }
+            }
+        }
+        result.recomputeStatistics();
+        return result;
+    }
+
+    public static int localIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    /**
+     * Rough heap size, for history budgeting.
+     */
+    public long estimateBytes() {
+        // 64 longs plus array header, boxed key and map node per section
+        return sections.size() * (64L * Long.BYTES + 80);
+    }
+
+    /**
+     * Writes the mask as section keys followed by their bits.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(sections.size());
+        for (Map.Entry<Long, long[]> entry : sections.entrySet()) {
+            out.writeLong(entry.getKey());
+            for (long word : entry.getValue()) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Reads a mask written by write.
+     */
+    public static ShapeMask read(DataInput in) throws IOException {
+        ShapeMask mask = new ShapeMask();
+        int sectionCount = in.readInt();
+        for (int i = 0; i < sectionCount; i++) {
+            long key = in.readLong();
+            long[] bits = new long[64];
+            for (int word = 0; word < 64; word++) {
+                bits[word] = in.readLong();
+            }
+            mask.sections.put(key, bits);
+        }
+        mask.recomputeStatistics();
+        return mask;
+    }
+
+    /**
+     * Recounts blocks and tight bounds from the section bits, a 16-block row at a time.
+     */
+    private void recomputeStatistics() {
+        blockCount = 0;
+        minX = minY = minZ = Integer.MAX_VALUE;
+        maxX = maxY = maxZ = Integer.MIN_VALUE;
+
+        for (Map.Entry<Long, long[]> entry : sections.entrySet()) {
+            long key = entry.getKey();
+            int baseX = BlockPos.unpackLongX(key) << 4;
+            int baseY = BlockPos.unpackLongY(key) << 4;
+            int baseZ = BlockPos.unpackLongZ(key) << 4;
+            long[] bits = entry.getValue();
+
+            for (int word = 0; word < 64; word++) {
+                long value = bits[word];
+                if (value == 0) continue;
+                blockCount += Long.bitCount(value);
+
+                // Each word holds four x-rows: y = word >> 2, z = (word & 3) * 4 + row
+                int y = baseY + (word >> 2);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                for (int row = 0; row < 4; row++) {
+                    int rowBits = (int) (value >>> (row << 4)) & 0xFFFF;
+                    if (rowBits == 0) continue;
+                    int z = baseZ + ((word & 3) << 2) + row;
+                    minZ = Math.min(minZ, z);
+                    maxZ = Math.max(maxZ, z);
+                    minX = Math.min(minX, baseX + Integer.numberOfTrailingZeros(rowBits));
+                    maxX = Math.max(maxX, baseX + 31 - Integer.numberOfLeadingZeros(rowBits));
+                }
+            }
+        }
+    }
+
+    void add(int x, int y, int z) {
+        if (x < clipMinX || x > clipMaxX || z < clipMinZ || z > clipMaxZ) return;
+        long[] bits = sections.computeIfAbsent(BlockPos.asLong(x >> 4, y >> 4, z >> 4), key -> new long[64]);
+        int index = localIndex(x & 15, y & 15, z & 15);
+        long bit = 1L << index;
+        if ((bits[index >> 6] & bit) != 0) return;
+
+        bits[index >> 6] |= bit;
+        blockCount++;
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+    }
+
+    private void addSpan(int fromX, int toX, int y, int z) {
+        if (z < clipMinZ || z > clipMaxZ) return;
+        fromX = Math.max(fromX, clipMinX);
+        toX = Math.min(toX, clipMaxX);
+        if (fromX > toX) return;
+
+        // Set each section's part of the row with a single word operation
+        int rowIndex = localIndex(0, y & 15, z & 15);
+        for (int sectionX = fromX >> 4; sectionX <= toX >> 4; sectionX++) {
+            int lo = Math.max(fromX, sectionX << 4) & 15;
+            int hi = Math.min(toX, (sectionX << 4) + 15) & 15;
+            long[] bits = sections.computeIfAbsent(BlockPos.asLong(sectionX, y >> 4, z >> 4), key -> new long[64]);
+            long rowBits = ((1L << (hi - lo + 1)) - 1) << (lo + (rowIndex & 63));
+            blockCount += Long.bitCount(rowBits & ~bits[rowIndex >> 6]);
+            bits[rowIndex >> 6] |= rowBits;
+        }
+        minX = Math.min(minX, fromX);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, toX);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+    }
+
+    private void addBox(BlockPos minPos, BlockPos maxPos) {
+        if (minPos == null || maxPos == null) return;
+        for (int y = minPos.getY(); y <= maxPos.getY(); y++) {
+            for (int z = Math.max(minPos.getZ(), clipMinZ); z <= Math.min(maxPos.getZ(), clipMaxZ); z++) {
+                addSpan(minPos.getX(), maxPos.getX(), y, z);
+            }
+        }
+    }
+
+    /**
+     * Adds the x-span of one row whose block centers lie within halfWidth of centerX.
+     * The analytic span is corrected against the exact membership test so rounding
+     * never differs from a per-block evaluation.
+     */
+    private void addRow(int y, int z, double centerX, double halfWidth, int limitMinX, int limitMaxX,
+                        IntPredicate inside) {
+        limitMinX = Math.max(limitMinX, clipMinX);
+        limitMaxX = Math.min(limitMaxX, clipMaxX);
+        if (limitMinX > limitMaxX) return;
+        int fromX = Math.max(limitMinX, (int) Math.ceil(centerX - halfWidth - 0.5));
+        int toX = Math.min(limitMaxX, (int) Math.floor(centerX + halfWidth - 0.5));
+
+        while (fromX - 1 >= limitMinX && inside.test(fromX - 1)) fromX--;
+        while (fromX <= toX && !inside.test(fromX)) fromX++;
+        while (toX + 1 <= limitMaxX && inside.test(toX + 1)) toX++;
+        while (toX >= fromX && !inside.test(toX)) toX--;
+
+        addSpan(fromX, toX, y, z);
+    }
+
+    private void rasterizeCylinder(ShapeParameters shape) {
+        BlockPos center = shape.getCenterBlock();
+        if (center == null) return;
+
+        double radius = shape.getMaxRadiusXZ() + shape.getCylinderRadiusOffsetBlocks();
+        if (radius < 0.5) radius = 0.5;
+        double limit = radius + 0.5;
+
+        double centerX = center.getX() + 0.5;
+        double centerZ = center.getZ() + 0.5;
+        int iterMinX = (int) Math.floor(centerX - radius - 1);
+        int iterMaxX = (int) Math.ceil(centerX + radius + 1);
+        int iterMinZ = (int) Math.floor(centerZ - radius - 1);
+        int iterMaxZ = (int) Math.ceil(centerZ + radius + 1);
+
+        for (int z = Math.max(iterMinZ, clipMinZ); z <= Math.min(iterMaxZ, clipMaxZ); z++) {
+            double dz = z + 0.5 - centerZ;
+            double remaining = limit * limit - dz * dz;
+            if (remaining < 0) continue;
+
+            double halfWidth = Math.sqrt(remaining);
+            for (int y = shape.getMinY(); y <= shape.getMaxY(); y++) {
+                addRow(y, z, centerX, halfWidth, iterMinX, iterMaxX, x -> {
+                    double dx = x + 0.5 - centerX;
+                    return Math.sqrt(dx * dx + dz * dz) <= limit;
+                });
+            }
+        }
+    }
+
+    private void rasterizeEllipsoid(ShapeParameters shape) {
+        double centerX, centerY, centerZ;
+        double radiusX, radiusY, radiusZ;
+
+        if (shape.getEllipsoidMode() == EllipsoidMode.FIT_TO_BOX) {
+            // Fit ellipsoid inside bounding box
+            BlockPos minPos = shape.getMinPos();
+            BlockPos maxPos = shape.getMaxPos();
+            if (minPos == null || maxPos == null) return;
+
+            centerX = (minPos.getX() + maxPos.getX() + 1) / 2.0;
+            centerY = (minPos.getY() + maxPos.getY() + 1) / 2.0;
+            centerZ = (minPos.getZ() + maxPos.getZ() + 1) / 2.0;
+
+            radiusX = (maxPos.getX() - minPos.getX() + 1) / 2.0;
+            radiusY = (maxPos.getY() - minPos.getY() + 1) / 2.0;
+            radiusZ = (maxPos.getZ() - minPos.getZ() + 1) / 2.0;
+        } else {
+            // CENTER_RADIUS mode: first block is center, furthest defines XZ radius
+            BlockPos center = shape.getCenterBlock();
+            if (center == null) return;
+
+            centerX = center.getX() + 0.5;
+            centerZ = center.getZ() + 0.5;
+
+            double radiusXZ = shape.getMaxRadiusXZ();
+            if (radiusXZ < 0.5) radiusXZ = 0.5;
+            radiusX = radiusXZ;
+            radiusZ = radiusXZ;
+
+            int minY = shape.getMinY();
+            int maxY = shape.getMaxY();
+            radiusY = (maxY - minY + 1) / 2.0;
+            centerY = (minY + maxY + 1) / 2.0;
+        }
+
+        if (radiusX < 0.5) radiusX = 0.5;
+        if (radiusY < 0.5) radiusY = 0.5;
+        if (radiusZ < 0.5) radiusZ = 0.5;
+
+        double minRadius = Math.min(Math.min(radiusX, radiusY), radiusZ);
+        double limit = 1.0 + 0.5 / minRadius;
+        double cx = centerX;
+        double rx = radiusX;
+
+        int iterMinX = (int) Math.floor(centerX - radiusX - 1);
+        int iterMaxX = (int) Math.ceil(centerX + radiusX + 1);
+        int iterMinY = (int) Math.floor(centerY - radiusY - 1);
+        int iterMaxY = (int) Math.ceil(centerY + radiusY + 1);
+        int iterMinZ = (int) Math.floor(centerZ - radiusZ - 1);
+        int iterMaxZ = (int) Math.ceil(centerZ + radiusZ + 1);
+
+        for (int y = iterMinY; y <= iterMaxY; y++) {
+            double dy = (y + 0.5 - centerY) / radiusY;
+            for (int z = Math.max(iterMinZ, clipMinZ); z <= Math.min(iterMaxZ, clipMaxZ); z++) {
+                double dz = (z + 0.5 - centerZ) / radiusZ;
+                double remaining = limit - dy * dy - dz * dz;
+                if (remaining < 0) continue;
+
+                addRow(y, z, centerX, Math.sqrt(remaining) * radiusX, iterMinX, iterMaxX, x -> {
+                    double dx = (x + 0.5 - cx) / rx;
+                    return dx * dx + dy * dy + dz * dz <= limit;
+                });
+            }
+        }
+    }
+
+    private void rasterizeSpline(ArcLengthSpline spline, int tubeRadius) {
+        if (spline == null) return;
+
+        if (tubeRadius == 0) {
+            for (int i = 0; i < spline.getSampleCount(); i++) {
+                add((int) Math.floor(spline.getSampleX(i)), (int) Math.floor(spline.getSampleY(i)),
+                    (int) Math.floor(spline.getSampleZ(i)));
+            }
+            return;
+        }
+
+        // Tube membership is distance to the sampled curve, i.e. a union of spheres
+        int stride = ArcLengthSpline.SAMPLES_PER_SPAN / TUBE_SAMPLES_PER_SEGMENT;
+        for (int i = 0; i < spline.getSampleCount(); i += stride) {
+            addSphere(spline.getSampleX(i), spline.getSampleY(i), spline.getSampleZ(i), tubeRadius + 0.5);
+        }
+    }
+
+    private void rasterizeLine(List<BlockPos> selection, int tubeRadius) {
+        if (selection.size() < 2) return;
+
+        for (int i = 0; i < selection.size() - 1; i++) {
+            BlockPos from = selection.get(i);
+            BlockPos to = selection.get(i + 1);
+            double startX = from.getX() + 0.5, startY = from.getY() + 0.5, startZ = from.getZ() + 0.5;
+            double endX = to.getX() + 0.5, endY = to.getY() + 0.5, endZ = to.getZ() + 0.5;
+
+            if (tubeRadius == 0) {
+                traceLine(startX, startY, startZ, endX, endY, endZ);
+            } else {
+                // Tube membership is distance to the polyline, i.e. a union of capsules
+                addCapsule(startX, startY, startZ, endX, endY, endZ, tubeRadius + 0.5);
+            }
+        }
+    }
+
+    /**
+     * Adds the blocks a straight line passes through, sampled twice per block.
+     */
+    private void traceLine(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+        double dx = endX - startX, dy = endY - startY, dz = endZ - startZ;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        int samples = Math.max(1, (int) Math.ceil(distance * 2));
+
+        for (int s = 0; s <= samples; s++) {
+            double t = (double) s / samples;
+            add((int) Math.floor(startX + dx * t), (int) Math.floor(startY + dy * t), (int) Math.floor(startZ + dz * t));
+        }
+    }
+
+    /**
+     * Adds all blocks whose centers lie within radius of a point.
+     */
+    private void addSphere(double centerX, double centerY, double centerZ, double radius) {
+        int fromY = (int) Math.ceil(centerY - radius - 0.5);
+        int toY = (int) Math.floor(centerY + radius - 0.5);
+        int fromZ = Math.max(clipMinZ, (int) Math.ceil(centerZ - radius - 0.5));
+        int toZ = Math.min(clipMaxZ, (int) Math.floor(centerZ + radius - 0.5));
+        if (fromZ > toZ || centerX + radius - 0.5 < clipMinX || centerX - radius - 0.5 > clipMaxX) return;
+
+        for (int y = fromY; y <= toY; y++) {
+            double dy = y + 0.5 - centerY;
+            for (int z = fromZ; z <= toZ; z++) {
+                double dz = z + 0.5 - centerZ;
+                double remaining = radius * radius - dy * dy - dz * dz;
+                if (remaining < 0) continue;
+
+                double halfWidth = Math.sqrt(remaining);
+                addSpan((int) Math.ceil(centerX - halfWidth - 0.5), (int) Math.floor(centerX + halfWidth - 0.5), y, z);
+            }
+        }
+    }
+
+    /**
+     * Adds all blocks whose centers lie within radius of a line segment.
+     */
+    private void addCapsule(double startX, double startY, double startZ,
+                            double endX, double endY, double endZ, double radius) {
+        double segX = endX - startX, segY = endY - startY, segZ = endZ - startZ;
+        double lengthSq = segX * segX + segY * segY + segZ * segZ;
+        double radiusSq = radius * radius;
+
+        int fromX = Math.max(clipMinX, (int) Math.floor(Math.min(startX, endX) - radius));
+        int toX = Math.min(clipMaxX, (int) Math.ceil(Math.max(startX, endX) + radius));
+        int fromY = (int) Math.floor(Math.min(startY, endY) - radius);
+        int toY = (int) Math.ceil(Math.max(startY, endY) + radius);
+        int fromZ = Math.max(clipMinZ, (int) Math.floor(Math.min(startZ, endZ) - radius));
+        int toZ = Math.min(clipMaxZ, (int) Math.ceil(Math.max(startZ, endZ) + radius));
+
+        for (int y = fromY; y <= toY; y++) {
+            for (int z = fromZ; z <= toZ; z++) {
+                for (int x = fromX; x <= toX; x++) {
+                    double px = x + 0.5 - startX, py = y + 0.5 - startY, pz = z + 0.5 - startZ;
+                    double t = lengthSq < 0.0001 ? 0 : Math.max(0, Math.min(1, (px * segX + py * segY + pz * segZ) / lengthSq));
+                    double ox = px - segX * t, oy = py - segY * t, oz = pz - segZ * t;
+                    if (ox * ox + oy * oy + oz * oz <= radiusSq) {
+                        add(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives one position during iteration.
+     */
+    @FunctionalInterface
+    public interface PositionVisitor {
+        void accept(int x, int y, int z);
+    }
+}
@@ -0,0 +1,160 @@
+package measurementtools.modid.shapes;
+
+import measurementtools.modid.SelectionManager;
+import measurementtools.modid.util.ArcLengthSpline;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.List;
+
+/**
+ * Everything that defines a selection's shape, taken out of the SelectionManager so the
+ * rasterizers and shell calculators can run on explicit input, e.g. headless in benchmarks.
+ *
+ * Derived values (bounds, radius, spline) are computed once when the parameters are built.
+ * Instances are immutable.
+ */
+public final class ShapeParameters {
+    private final ShapeMode shapeMode;
+    private final List<BlockPos> selectedBlocks;
+    private final ShapeMask voxelMask;
+    private final int splineRadius;
+    private final double cylinderRadiusOffsetBlocks;
+    private final EllipsoidMode ellipsoidMode;
+
+    private final BlockPos minPos, maxPos;
+    private final double maxRadiusXZ;
+    private final ArcLengthSpline spline;
+
+    private ShapeParameters(ShapeMode shapeMode, List<BlockPos> selectedBlocks, ShapeMask voxelMask,
+                            int splineRadius, double cylinderRadiusOffsetBlocks, EllipsoidMode ellipsoidMode,
+                            BlockPos minPos, BlockPos maxPos, double maxRadiusXZ, ArcLengthSpline spline) {
+        this.shapeMode = shapeMode;
+        this.selectedBlocks = selectedBlocks;
+        this.voxelMask = voxelMask;
+        this.splineRadius = splineRadius;
+        this.cylinderRadiusOffsetBlocks = cylinderRadiusOffsetBlocks;
+        this.ellipsoidMode = ellipsoidMode;
+        this.minPos = minPos;
+        this.maxPos = maxPos;
+        this.maxRadiusXZ = maxRadiusXZ;
+        this.spline = spline;
+    }
+
+    /**
+     * Parameters for a point selection.
+     * @param points selected points in order; the first is the center for round shapes
+     * @param splineRadius tube radius for splines and lines, 0 for a bare curve
+     * @param cylinderRadiusOffsetBlocks extra cylinder radius in blocks
+     */
+    public static ShapeParameters of(ShapeMode mode, List<BlockPos> points, int splineRadius,
+                                     double cylinderRadiusOffsetBlocks, EllipsoidMode ellipsoidMode) {
+        List<BlockPos> blocks = List.copyOf(points);
+        BlockPos minPos = null, maxPos = null;
+        double maxRadiusXZ = 0;
+        if (!blocks.isEmpty()) {
+            BlockPos center = blocks.get(0);
+            int minX = center.getX(), minY = center.getY(), minZ = center.getZ();
+            int maxX = minX, maxY = minY, maxZ = minZ;
+            long maxRadiusSq = 0;
+            for (BlockPos pos : blocks) {
+                minX = Math.min(minX, pos.getX());
+                minY = Math.min(minY, pos.getY());
+                minZ = Math.min(minZ, pos.getZ());
+                maxX = Math.max(maxX, pos.getX());
+                maxY = Math.max(maxY, pos.getY());
+                maxZ = Math.max(maxZ, pos.getZ());
+
+                long dx = pos.getX() - center.getX();
+                long dz = pos.getZ() - center.getZ();
+                maxRadiusSq = Math.max(maxRadiusSq, dx * dx + dz * dz);
+            }
+            minPos = new BlockPos(minX, minY, minZ);
+            maxPos = new BlockPos(maxX, maxY, maxZ);
+            maxRadiusXZ = Math.sqrt(maxRadiusSq);
+        }
+        return new ShapeParameters(mode, blocks, null, splineRadius, cylinderRadiusOffsetBlocks, ellipsoidMode,
+            minPos, maxPos, maxRadiusXZ, mode == ShapeMode.SPLINE ? ArcLengthSpline.of(blocks) : null);
+    }
+
+    /**
+     * Parameters for a voxel mask selection; the mask is its own shape whatever the mode.
+     */
+    public static ShapeParameters ofMask(ShapeMask mask) {
+        return new ShapeParameters(ShapeMode.RECTANGLE, List.of(), mask, 0, 0, EllipsoidMode.FIT_TO_BOX,
+            mask.getMinPos(), mask.getMaxPos(), 0, null);
+    }
+
+    /**
+     * Snapshot of the selection manager's current shape. Reuses the manager's incrementally
+     * maintained bounds and its cached spline rather than recomputing them.
+     */
+    public static ShapeParameters of(SelectionManager manager) {
+        return new ShapeParameters(manager.getShapeMode(), List.copyOf(manager.getSelectedBlocks()),
+            manager.getVoxelMask(), manager.getSplineRadius(), manager.getCylinderRadiusOffsetBlocks(),
+            manager.getEllipsoidMode(), manager.getMinPos(), manager.getMaxPos(), manager.getMaxRadiusXZ(),
+            manager.getShapeMode() == ShapeMode.SPLINE ? manager.getSpline() : null);
+    }
+
+    public ShapeMode getShapeMode() {
+        return shapeMode;
+    }
+
+    public List<BlockPos> getSelectedBlocks() {
+        return selectedBlocks;
+    }
+
+    public ShapeMask getVoxelMask() {
+        return voxelMask;
+    }
+
+    public boolean hasSelection() {
+        return !selectedBlocks.isEmpty() || voxelMask != null;
+    }
+
+    public BlockPos getMinPos() {
+        return minPos;
+    }
+
+    public BlockPos getMaxPos() {
+        return maxPos;
+    }
+
+    public int getMinY() {
+        return minPos != null ? minPos.getY() : 0;
+    }
+
+    public int getMaxY() {
+        return maxPos != null ? maxPos.getY() : 0;
+    }
+
+    public BlockPos getCenterBlock() {
+        return selectedBlocks.isEmpty() ? null : selectedBlocks.get(0);
+    }
+
+    /**
+     * Horizontal distance from the first point to the furthest other point.
+     */
+    public double getMaxRadiusXZ() {
+        return maxRadiusXZ;
+    }
+
+    /**
+     * Spline through the points with its arc-length table; null outside spline mode
+     * and for fewer than two points.
+     */
+    public ArcLengthSpline getSpline() {
+        return spline;
+    }
+
+    public int getSplineRadius() {
+        return splineRadius;
+    }
+
+    public double getCylinderRadiusOffsetBlocks() {
+        return cylinderRadiusOffsetBlocks;
+    }
+
+    public EllipsoidMode getEllipsoidMode() {
+        return ellipsoidMode;
+    }
+}
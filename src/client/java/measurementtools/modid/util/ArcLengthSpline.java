@@ -0,0 +1,227 @@
+package measurementtools.modid.util;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.List;
+
+/**
+ * Catmull-Rom spline through a list of points, with a precomputed arc-length table.
+ *
+ * Each span is stored as per-axis cubic coefficients (structure of arrays), so evaluating
+ * the curve is a few multiply-adds with no allocation. The curve is sampled once, uniformly
+ * in parameter, when the spline is built. Each sample stores its position, unit tangent and
+ * cumulative chord length. The total length is then a lookup, and the parameter at any
+ * distance along the curve is a binary search over the table. Instances are immutable, so
+ * one built per selection revision can be shared by renderers and rasterizers.
+ */
+public final class ArcLengthSpline {
+    /** Samples per span between two control points; rasterizers walk the curve at this density. */
+    public static final int SAMPLES_PER_SPAN = 32;
+
+    private final int spanCount;
+
+    // Cubic coefficients per axis, four per span: c0 + c1 t + c2 t^2 + c3 t^3
+    private final double[] coefficientX, coefficientY, coefficientZ;
+
+    // Per sample, index = span * SAMPLES_PER_SPAN + step (the last span also has its end sample)
+    private final double[] sampleX, sampleY, sampleZ;
+    private final double[] tangentX, tangentY, tangentZ;
+    private final double[] distance;
+
+    /**
+     * Builds the table for a curve through at least two points.
+     */
+    public ArcLengthSpline(Vec3d[] controlPoints) {
+        if (controlPoints.length < 2) {
+            throw new IllegalArgumentException("A spline needs at least two points");
+        }
+        this.spanCount = controlPoints.length - 1;
+
+        coefficientX = new double[spanCount * 4];
+        coefficientY = new double[spanCount * 4];
+        coefficientZ = new double[spanCount * 4];
+        Vec3d start = SplineMath.extrapolateStart(controlPoints[0], controlPoints[1]);
+        Vec3d end = SplineMath.extrapolateEnd(controlPoints[spanCount - 1], controlPoints[spanCount]);
+        for (int span = 0; span < spanCount; span++) {
+            Vec3d p0 = span == 0 ? start : controlPoints[span - 1];
+            Vec3d p1 = controlPoints[span];
+            Vec3d p2 = controlPoints[span + 1];
+            Vec3d p3 = span == spanCount - 1 ? end : controlPoints[span + 2];
+            SplineMath.catmullRomCoefficients(p0.x, p1.x, p2.x, p3.x, coefficientX, span * 4);
+            SplineMath.catmullRomCoefficients(p0.y, p1.y, p2.y, p3.y, coefficientY, span * 4);
+            SplineMath.catmullRomCoefficients(p0.z, p1.z, p2.z, p3.z, coefficientZ, span * 4);
+        }
+
+        int sampleCount = spanCount * SAMPLES_PER_SPAN + 1;
+        sampleX = new double[sampleCount];
+        sampleY = new double[sampleCount];
+        sampleZ = new double[sampleCount];
+        tangentX = new double[sampleCount];
+        tangentY = new double[sampleCount];
+        tangentZ = new double[sampleCount];
+        distance = new double[sampleCount];
+
+        double[] point = new double[3];
+        for (int i = 0; i < sampleCount; i++) {
+            double u = (double) i / SAMPLES_PER_SPAN;
+            pointAt(u, point);
+            sampleX[i] = point[0];
+            sampleY[i] = point[1];
+            sampleZ[i] = point[2];
+            tangentAt(u, point);
+            tangentX[i] = point[0];
+            tangentY[i] = point[1];
+            tangentZ[i] = point[2];
+
+            if (i > 0) {
+                double dx = sampleX[i] - sampleX[i - 1];
+                double dy = sampleY[i] - sampleY[i - 1];
+                double dz = sampleZ[i] - sampleZ[i - 1];
+                distance[i] = distance[i - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        }
+    }
+
+    /**
+     * Builds the spline through block centers, or returns null for fewer than two blocks.
+     */
+    public static ArcLengthSpline of(List<BlockPos> positions) {
+        if (positions.size() < 2) return null;
+        return new ArcLengthSpline(SplineMath.blockPosListToVec3d(positions));
+    }
+
+    public double getLength() {
+        return distance[distance.length - 1];
+    }
+
+    public int getSampleCount() {
+        return distance.length;
+    }
+
+    public double getSampleX(int index) {
+        return sampleX[index];
+    }
+
+    public double getSampleY(int index) {
+        return sampleY[index];
+    }
+
+    public double getSampleZ(int index) {
+        return sampleZ[index];
+    }
+
+    /**
+     * Unit tangent at a sample, per axis (zero where the curve stalls on repeated points).
+     */
+    public double getTangentX(int index) {
+        return tangentX[index];
+    }
+
+    public double getTangentY(int index) {
+        return tangentY[index];
+    }
+
+    public double getTangentZ(int index) {
+        return tangentZ[index];
+    }
+
+    /**
+     * Distance along the curve from the start to a sample.
+     */
+    public double getSampleDistance(int index) {
+        return distance[index];
+    }
+
+    /**
+     * Writes the point at a global parameter u in [0, controlPoints - 1] into out[0..2];
+     * span i covers [i, i + 1].
+     */
+    public void pointAt(double u, double[] out) {
+        int span = spanOf(u);
+        double t = u - span;
+        out[0] = SplineMath.evaluateCubic(coefficientX, span * 4, t);
+        out[1] = SplineMath.evaluateCubic(coefficientY, span * 4, t);
+        out[2] = SplineMath.evaluateCubic(coefficientZ, span * 4, t);
+    }
+
+    /**
+     * Writes the unit tangent at a global parameter u into out[0..2] (zero where the curve stalls).
+     */
+    public void tangentAt(double u, double[] out) {
+        int span = spanOf(u);
+        double t = u - span;
+        double dx = SplineMath.evaluateCubicDerivative(coefficientX, span * 4, t);
+        double dy = SplineMath.evaluateCubicDerivative(coefficientY, span * 4, t);
+        double dz = SplineMath.evaluateCubicDerivative(coefficientZ, span * 4, t);
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length < 1.0E-5) {
+            out[0] = out[1] = out[2] = 0;
+            return;
+        }
+        out[0] = dx / length;
+        out[1] = dy / length;
+        out[2] = dz / length;
+    }
+
+    public Vec3d pointAt(double u) {
+        double[] point = new double[3];
+        pointAt(u, point);
+        return new Vec3d(point[0], point[1], point[2]);
+    }
+
+    public Vec3d tangentAt(double u) {
+        double[] tangent = new double[3];
+        tangentAt(u, tangent);
+        return new Vec3d(tangent[0], tangent[1], tangent[2]);
+    }
+
+    /**
+     * Global parameter at a distance along the curve (clamped to the ends), found in
+     * O(log n) by binary search over the table and interpolated within the sample step.
+     */
+    public double parameterAtDistance(double s) {
+        int last = distance.length - 1;
+        if (s <= 0) return 0;
+        if (s >= distance[last]) return spanCount;
+
+        // Largest sample whose distance is <= s
+        int low = 0, high = last;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (distance[mid] <= s) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        double step = distance[low + 1] - distance[low];
+        double fraction = step > 0 ? (s - distance[low]) / step : 0;
+        return (low + fraction) / SAMPLES_PER_SPAN;
+    }
+
+    public Vec3d pointAtDistance(double s) {
+        return pointAt(parameterAtDistance(s));
+    }
+
+    public Vec3d tangentAtDistance(double s) {
+        return tangentAt(parameterAtDistance(s));
+    }
+
+    /**
+     * Minimum distance from a point to the sampled curve.
+     */
+    public double getMinDistance(double x, double y, double z) {
+        double minSq = Double.MAX_VALUE;
+        for (int i = 0; i < distance.length; i++) {
+            double dx = x - sampleX[i], dy = y - sampleY[i], dz = z - sampleZ[i];
+            minSq = Math.min(minSq, dx * dx + dy * dy + dz * dz);
+        }
+        return Math.sqrt(minSq);
+    }
+
+    private int spanOf(double u) {
+        return Math.max(0, Math.min(spanCount - 1, (int) Math.floor(u)));
+    }
+}
@@ -0,0 +1,47 @@
+package measurementtools.modid.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Shared worker thread for CPU-heavy measurement work that should not run inside a frame.
+ * Tasks must only read immutable snapshots; callers poll the returned future from the
+ * client thread and swap in the result once it is done.
+ */
+public final class BackgroundTasks {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MeasurementTools Worker");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // Tasks submitted but not yet finished, including the one running
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private BackgroundTasks() {}
+
+    /**
+     * Runs a task on the worker thread.
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        PENDING.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.get();
+            } finally {
+                PENDING.decrementAndGet();
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Number of tasks queued or running on the worker.
+     */
+    public static int getQueueDepth() {
+        return PENDING.get();
+    }
+}
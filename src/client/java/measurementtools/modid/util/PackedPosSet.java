@@ -0,0 +1,188 @@
+package measurementtools.modid.util;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Insertion-ordered set of block positions packed into longs (BlockPos.asLong).
+ *
+ * Positions are kept in a dense array in insertion order, with an open-addressing
+ * table of indices into it for O(1) membership. Adding, membership tests, indexed
+ * access and removing the last position are all O(1) and allocation-free.
+ */
+public final class PackedPosSet {
+    private static final int MIN_TABLE_SIZE = 16;
+
+    // Positions in insertion order
+    private long[] positions = new long[8];
+    private int size = 0;
+
+    // Open-addressing table: index + 1 into positions, 0 = empty slot. Size is a power of two.
+    private int[] table = new int[MIN_TABLE_SIZE];
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long packed) {
+        return find(packed) >= 0;
+    }
+
+    public boolean contains(BlockPos pos) {
+        return contains(pos.asLong());
+    }
+
+    /**
+     * Adds a position at the end of the insertion order.
+     * @return true if it was not already present
+     */
+    public boolean add(long packed) {
+        if (find(packed) >= 0) return false;
+
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        // Keep the table at most half full so probe chains stay short
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        positions[size] = packed;
+        insert(packed, size);
+        size++;
+        return true;
+    }
+
+    public boolean add(BlockPos pos) {
+        return add(pos.asLong());
+    }
+
+    /**
+     * Gets the packed position at an insertion index.
+     */
+    public long getLong(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return positions[index];
+    }
+
+    public long getLastLong() {
+        return getLong(size - 1);
+    }
+
+    /**
+     * Removes the most recently added position.
+     */
+    public long removeLast() {
+        long packed = getLastLong();
+        size--;
+        // Rebuilding the whole table is avoided by deleting the slot and re-inserting its probe chain
+        deleteFromTable(packed);
+        return packed;
+    }
+
+    public void clear() {
+        size = 0;
+        if (table.length > MIN_TABLE_SIZE * 64) {
+            // Release memory from a large selection instead of keeping it around
+            table = new int[MIN_TABLE_SIZE];
+            positions = new long[8];
+        } else {
+            Arrays.fill(table, 0);
+        }
+    }
+
+    /**
+     * Read-only list view; each get creates a BlockPos.
+     */
+    public List<BlockPos> asList() {
+        return new ListView();
+    }
+
+    private int find(long packed) {
+        int mask = table.length - 1;
+        int slot = hash(packed) & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) return -1;
+            if (positions[entry - 1] == packed) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(long packed, int index) {
+        int mask = table.length - 1;
+        int slot = hash(packed) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private void deleteFromTable(long packed) {
+        int mask = table.length - 1;
+        int slot = hash(packed) & mask;
+        // The entry still points at positions[size], which holds packed
+        while (positions[table[slot] - 1] != packed) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = 0;
+
+        // Re-insert the rest of the cluster so later lookups do not stop at the hole
+        int next = (slot + 1) & mask;
+        while (table[next] != 0) {
+            int index = table[next] - 1;
+            table[next] = 0;
+            insert(positions[index], index);
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void rehash(int newLength) {
+        table = new int[newLength];
+        for (int i = 0; i < size; i++) {
+            insert(positions[i], i);
+        }
+    }
+
+    private static int hash(long packed) {
+        // Fibonacci hashing spreads the packed coordinate bits across the table index
+        long h = packed * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private class ListView extends AbstractList<BlockPos> implements RandomAccess {
+        @Override
+        public BlockPos get(int index) {
+            return BlockPos.fromLong(getLong(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof BlockPos pos && PackedPosSet.this.contains(pos);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof BlockPos pos)) return -1;
+            int slot = find(pos.asLong());
+            return slot >= 0 ? table[slot] - 1 : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+    }
+}
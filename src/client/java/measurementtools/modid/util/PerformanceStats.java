@@ -0,0 +1,198 @@
+package measurementtools.modid.util;
+
+import java.util.Arrays;
+
+/**
+ * Low-overhead counters filled in by the measurement engines and shown by the debug overlay.
+ *
+ * Time is accumulated per subsystem over a frame and recorded as one sample when the frame
+ * ends, so a subsystem drawing many labels shows its whole per-frame cost. Only frames in
+ * which a subsystem ran are recorded. Counters are plain fields updated on the client
+ * thread; recording is a few additions, cheap enough to leave on permanently.
+ */
+public final class PerformanceStats {
+    /**
+     * Subsystems whose per-frame time is tracked. The two passes include the work nested
+     * in them: the selection pass its shell and labels, the ghost pass its cache builds.
+     */
+    public enum Subsystem {
+        SELECTION("Selection pass"),
+        SHELL("Shell"),
+        LABELS("Labels"),
+        COUNTING("Counting"),
+        REGIONS("Regions"),
+        GHOST_DRAW("Ghost pass"),
+        GHOST_CACHE("Ghost cache");
+
+        private final String displayName;
+
+        Subsystem(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /** Caches whose hit rate is tracked. */
+    public enum Cache {
+        SHELL("Shell"),
+        BLOCK_COUNT("Counts"),
+        GHOST_VERTICES("Ghost vertices"),
+        GHOST_LOD("Ghost LOD");
+
+        private final String displayName;
+
+        Cache(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // Frames of history kept per subsystem for percentiles
+    private static final int HISTORY = 256;
+
+    private static final int SUBSYSTEMS = Subsystem.values().length;
+    private static final long[][] history = new long[SUBSYSTEMS][HISTORY];
+    private static final int[] historySize = new int[SUBSYSTEMS];
+    private static final int[] historyNext = new int[SUBSYSTEMS];
+    private static final long[] frameNanos = new long[SUBSYSTEMS];
+    private static final boolean[] ranThisFrame = new boolean[SUBSYSTEMS];
+    private static final long[] lastNanos = new long[SUBSYSTEMS];
+
+    private static int frameVertices = 0, lastFrameVertices = 0;
+    private static long frameBytes = 0, lastFrameBytes = 0;
+
+    private static final long[] hits = new long[Cache.values().length];
+    private static final long[] misses = new long[Cache.values().length];
+
+    private static int reservedBuffers = 0;
+    private static long reservedBufferBytes = 0;
+
+    private PerformanceStats() {}
+
+    /**
+     * Adds time spent in a subsystem to the current frame.
+     */
+    public static void addTime(Subsystem subsystem, long nanos) {
+        int i = subsystem.ordinal();
+        frameNanos[i] += nanos;
+        ranThisFrame[i] = true;
+    }
+
+    /**
+     * Adds vertices submitted to a buffer this frame.
+     */
+    public static void addVertices(int count, int vertexSize) {
+        frameVertices += count;
+        frameBytes += (long) count * vertexSize;
+    }
+
+    public static void hit(Cache cache) {
+        hits[cache.ordinal()]++;
+    }
+
+    public static void miss(Cache cache) {
+        misses[cache.ordinal()]++;
+    }
+
+    /**
+     * Records the initial capacity of a vertex buffer when it is created. Growth inside
+     * the buffer while vertices are written is not seen here.
+     */
+    public static void bufferReserved(int bytes) {
+        reservedBuffers++;
+        reservedBufferBytes += bytes;
+    }
+
+    /**
+     * Closes the current frame: per-subsystem totals become samples and the vertex counters
+     * are kept as the last frame's values. Call once per frame.
+     */
+    public static void endFrame() {
+        for (int i = 0; i < SUBSYSTEMS; i++) {
+            if (!ranThisFrame[i]) continue;
+            lastNanos[i] = frameNanos[i];
+            history[i][historyNext[i]] = frameNanos[i];
+            historyNext[i] = (historyNext[i] + 1) % HISTORY;
+            historySize[i] = Math.min(HISTORY, historySize[i] + 1);
+            frameNanos[i] = 0;
+            ranThisFrame[i] = false;
+        }
+        lastFrameVertices = frameVertices;
+        lastFrameBytes = frameBytes;
+        frameVertices = 0;
+        frameBytes = 0;
+    }
+
+    public static boolean hasSamples(Subsystem subsystem) {
+        return historySize[subsystem.ordinal()] > 0;
+    }
+
+    public static long getLastNanos(Subsystem subsystem) {
+        return lastNanos[subsystem.ordinal()];
+    }
+
+    /**
+     * Percentiles of the recorded frame times, written into out in the order requested.
+     * Sorts a copy of the history, so call at display rate rather than per frame.
+     */
+    public static void getPercentiles(Subsystem subsystem, double[] fractions, long[] out) {
+        int i = subsystem.ordinal();
+        int size = historySize[i];
+        if (size == 0) {
+            Arrays.fill(out, 0);
+            return;
+        }
+        long[] sorted = Arrays.copyOf(history[i], size);
+        Arrays.sort(sorted);
+        for (int f = 0; f < fractions.length; f++) {
+            out[f] = sorted[Math.min(size - 1, (int) Math.ceil(fractions[f] * size) - 1)];
+        }
+    }
+
+    public static int getLastFrameVertices() {
+        return lastFrameVertices;
+    }
+
+    public static long getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    public static long getHits(Cache cache) {
+        return hits[cache.ordinal()];
+    }
+
+    public static long getMisses(Cache cache) {
+        return misses[cache.ordinal()];
+    }
+
+    public static int getReservedBuffers() {
+        return reservedBuffers;
+    }
+
+    public static long getReservedBufferBytes() {
+        return reservedBufferBytes;
+    }
+
+    /**
+     * Clears all counters and history. Reserved buffers are kept, since they stay allocated.
+     */
+    public static void reset() {
+        for (int i = 0; i < SUBSYSTEMS; i++) {
+            historySize[i] = 0;
+            historyNext[i] = 0;
+            frameNanos[i] = 0;
+            ranThisFrame[i] = false;
+            lastNanos[i] = 0;
+        }
+        Arrays.fill(hits, 0);
+        Arrays.fill(misses, 0);
+        frameVertices = lastFrameVertices = 0;
+        frameBytes = lastFrameBytes = 0;
+    }
+}
@@ -7,7 +7,11 @@ import java.util.List;
 
 /**
  * Utility class for Catmull-Rom spline calculations.
- * Consolidates spline math used across BlockCounter, HollowBlockCalculator, and SplineRenderer.
+ * Curve evaluation behind ArcLengthSpline, plus vector helpers shared by the renderers.
+ *
+ * The Vec3d methods are convenient for one-off use. Hot paths use the primitive variants,
+ * which work on per-axis cubic coefficients and write into caller-provided arrays so they
+ * allocate nothing.
  */
 public final class SplineMath {
 
@@ -88,97 +92,80 @@ public final class SplineMath {
     }
 
     /**
-     * Gets a point on the spline at parameter t (0 to 1 across entire spline).
+     * Converts a list of BlockPos to an array of Vec3d (block centers).
      */
-    public static Vec3d getSplinePoint(Vec3d[] points, double t) {
-        if (points.length < 2) return points[0];
-        if (points.length == 2) {
-            return points[0].lerp(points[1], t);
+    public static Vec3d[] blockPosListToVec3d(List<BlockPos> positions) {
+        Vec3d[] points = new Vec3d[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            BlockPos pos = positions.get(i);
+            points[i] = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
         }
-
-        int n = points.length;
-        double scaledT = t * (n - 1);
-        int i = (int) Math.floor(scaledT);
-        if (i >= n - 1) i = n - 2;
-        double localT = scaledT - i;
-
-        Vec3d p0 = (i == 0) ? extrapolateStart(points[0], points[1]) : points[i - 1];
-        Vec3d p1 = points[i];
-        Vec3d p2 = points[i + 1];
-        Vec3d p3 = (i == n - 2) ? extrapolateEnd(points[n - 2], points[n - 1]) : points[i + 2];
-
-        return catmullRom(p0, p1, p2, p3, localT);
+        return points;
     }
 
     /**
-     * Gets the minimum distance from a point to the spline curve.
-     * @param point the point to measure from
-     * @param controlPoints the spline control points
-     * @param samplesPerSegment number of samples per segment (higher = more accurate)
+     * Finds a vector perpendicular to the given direction.
      */
-    public static double getMinDistanceToSpline(Vec3d point, Vec3d[] controlPoints, int samplesPerSegment) {
-        double minDist = Double.MAX_VALUE;
-        int n = controlPoints.length;
-
-        for (int i = 0; i < n - 1; i++) {
-            Vec3d p0 = (i == 0) ? extrapolateStart(controlPoints[0], controlPoints[1]) : controlPoints[i - 1];
-            Vec3d p1 = controlPoints[i];
-            Vec3d p2 = controlPoints[i + 1];
-            Vec3d p3 = (i == n - 2) ? extrapolateEnd(controlPoints[n - 2], controlPoints[n - 1]) : controlPoints[i + 2];
-
-            for (int seg = 0; seg <= samplesPerSegment; seg++) {
-                double t = (double) seg / samplesPerSegment;
-                Vec3d splinePoint = catmullRom(p0, p1, p2, p3, t);
-                double dist = point.distanceTo(splinePoint);
-                if (dist < minDist) {
-                    minDist = dist;
-                }
-            }
+    public static Vec3d findPerpendicular(Vec3d direction) {
+        Vec3d up = new Vec3d(0, 1, 0);
+        if (Math.abs(direction.dotProduct(up)) > 0.99) {
+            up = new Vec3d(1, 0, 0);
         }
-
-        return minDist;
+        return direction.crossProduct(up).normalize();
     }
 
+    // ========== Primitive, allocation-free variants ==========
+
     /**
-     * Converts a list of BlockPos to an array of Vec3d (block centers).
+     * Writes one axis of a Catmull-Rom span as cubic coefficients into out[offset..offset + 3],
+     * so the span evaluates as c0 + c1 t + c2 t^2 + c3 t^3.
      */
-    public static Vec3d[] blockPosListToVec3d(List<BlockPos> positions) {
-        Vec3d[] points = new Vec3d[positions.size()];
-        for (int i = 0; i < positions.size(); i++) {
-            BlockPos pos = positions.get(i);
-            points[i] = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-        }
-        return points;
+    public static void catmullRomCoefficients(double p0, double p1, double p2, double p3, double[] out, int offset) {
+        out[offset] = p1;
+        out[offset + 1] = 0.5 * (-p0 + p2);
+        out[offset + 2] = 0.5 * (2 * p0 - 5 * p1 + 4 * p2 - p3);
+        out[offset + 3] = 0.5 * (-p0 + 3 * p1 - 3 * p2 + p3);
     }
 
     /**
-     * Calculates approximate total length of the spline.
+     * Evaluates cubic coefficients written by catmullRomCoefficients (Horner's rule).
      */
-    public static double calculateSplineLength(Vec3d[] points, int segmentsPerSpan) {
-        if (points.length < 2) return 0;
-
-        double totalLength = 0;
-        int totalSegments = (points.length - 1) * segmentsPerSpan;
-        Vec3d prevPoint = points[0];
-
-        for (int seg = 1; seg <= totalSegments; seg++) {
-            double t = (double) seg / totalSegments;
-            Vec3d currPoint = getSplinePoint(points, t);
-            totalLength += prevPoint.distanceTo(currPoint);
-            prevPoint = currPoint;
-        }
+    public static double evaluateCubic(double[] coefficients, int offset, double t) {
+        return coefficients[offset]
+            + t * (coefficients[offset + 1] + t * (coefficients[offset + 2] + t * coefficients[offset + 3]));
+    }
 
-        return totalLength;
+    /**
+     * Evaluates the derivative of cubic coefficients written by catmullRomCoefficients.
+     */
+    public static double evaluateCubicDerivative(double[] coefficients, int offset, double t) {
+        return coefficients[offset + 1] + t * (2 * coefficients[offset + 2] + t * 3 * coefficients[offset + 3]);
     }
 
     /**
-     * Finds a vector perpendicular to the given direction.
+     * Writes a unit vector perpendicular to (dx, dy, dz) into out[0..2].
+     * Same result as findPerpendicular(Vec3d).
      */
-    public static Vec3d findPerpendicular(Vec3d direction) {
-        Vec3d up = new Vec3d(0, 1, 0);
-        if (Math.abs(direction.dotProduct(up)) > 0.99) {
-            up = new Vec3d(1, 0, 0);
+    public static void findPerpendicular(double dx, double dy, double dz, double[] out) {
+        double px, py, pz;
+        if (Math.abs(dy) > 0.99) {
+            // direction x (1, 0, 0)
+            px = 0;
+            py = dz;
+            pz = -dy;
+        } else {
+            // direction x (0, 1, 0)
+            px = -dz;
+            py = 0;
+            pz = dx;
         }
-        return direction.crossProduct(up).normalize();
+        double length = Math.sqrt(px * px + py * py + pz * pz);
+        if (length < 1.0E-5) {
+            out[0] = out[1] = out[2] = 0;
+            return;
+        }
+        out[0] = px / length;
+        out[1] = py / length;
+        out[2] = pz / length;
     }
 }
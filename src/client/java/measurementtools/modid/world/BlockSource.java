@@ -0,0 +1,42 @@
+package measurementtools.modid.world;
+
+import net.minecraft.block.BlockState;
+
+/**
+ * Read access to block states by position, independent of where the blocks live.
+ *
+ * Counting, copying and flood fills read through this instead of a World, so the same code
+ * runs against the client world in game and against in-memory sources in benchmarks and
+ * tests. Implementations need not be thread-safe; a World-backed source must only be used
+ * on the client thread.
+ */
+public interface BlockSource {
+    /**
+     * Gets the state at a position. Positions that are not available read as air.
+     */
+    BlockState getBlockState(int x, int y, int z);
+
+    /**
+     * Whether the position is available, e.g. within the height range and in a loaded chunk.
+     * Fills stop at positions that are not.
+     */
+    default boolean isLoaded(int x, int y, int z) {
+        return true;
+    }
+
+    /**
+     * Whether the 16x16x16 section at the given section coordinates is known to hold only air,
+     * so readers can skip it. A false result does not mean the section has blocks.
+     */
+    default boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return false;
+    }
+
+    /**
+     * Forgets anything cached from earlier reads. Tasks that read one source over several
+     * ticks call this at the start of each slice, since chunks may have been loaded,
+     * unloaded or changed in between.
+     */
+    default void resetCache() {
+    }
+}
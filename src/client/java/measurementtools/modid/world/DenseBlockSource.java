@@ -0,0 +1,74 @@
+package measurementtools.modid.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+
+/**
+ * Block source backed by one flat array over a box. Fastest to read; memory is one
+ * reference per position, so it suits boxes up to a few million blocks.
+ * Positions outside the box are air and not loaded.
+ */
+public final class DenseBlockSource implements BlockSource {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final int originX, originY, originZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final BlockState[] states;
+
+    public DenseBlockSource(BlockPos origin, int sizeX, int sizeY, int sizeZ) {
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.states = new BlockState[sizeX * sizeY * sizeZ];
+        Arrays.fill(states, AIR);
+    }
+
+    /**
+     * Copies a box out of another source, e.g. to freeze generated terrain for repeated reads.
+     */
+    public static DenseBlockSource copyOf(BlockSource source, BlockPos minPos, BlockPos maxPos) {
+        DenseBlockSource copy = new DenseBlockSource(minPos,
+            maxPos.getX() - minPos.getX() + 1,
+            maxPos.getY() - minPos.getY() + 1,
+            maxPos.getZ() - minPos.getZ() + 1);
+        for (int y = minPos.getY(); y <= maxPos.getY(); y++) {
+            for (int z = minPos.getZ(); z <= maxPos.getZ(); z++) {
+                for (int x = minPos.getX(); x <= maxPos.getX(); x++) {
+                    copy.set(x, y, z, source.getBlockState(x, y, z));
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Sets the state at a position inside the box. Null clears it to air.
+     */
+    public void set(int x, int y, int z, BlockState state) {
+        if (!isLoaded(x, y, z)) {
+            throw new IndexOutOfBoundsException("Position " + x + "," + y + "," + z + " outside source");
+        }
+        states[index(x, y, z)] = state != null ? state : AIR;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        return isLoaded(x, y, z) ? states[index(x, y, z)] : AIR;
+    }
+
+    @Override
+    public boolean isLoaded(int x, int y, int z) {
+        int lx = x - originX, ly = y - originY, lz = z - originZ;
+        return lx >= 0 && ly >= 0 && lz >= 0 && lx < sizeX && ly < sizeY && lz < sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((y - originY) * sizeZ + (z - originZ)) * sizeX + (x - originX);
+    }
+}
@@ -0,0 +1,120 @@
+package measurementtools.modid.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+
+/**
+ * Procedural terrain computed on read, with no storage: rolling hills of stone under dirt
+ * and grass, scattered ores, sand and water below sea level, and bedrock at the bottom.
+ *
+ * The same seed always gives the same terrain, and it extends without limit horizontally,
+ * so benchmarks can measure arbitrarily large selections against realistic block mixes.
+ */
+public final class NoiseTerrainSource implements BlockSource {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+    private static final BlockState BEDROCK = Blocks.BEDROCK.getDefaultState();
+    private static final BlockState STONE = Blocks.STONE.getDefaultState();
+    private static final BlockState DIRT = Blocks.DIRT.getDefaultState();
+    private static final BlockState GRASS = Blocks.GRASS_BLOCK.getDefaultState();
+    private static final BlockState SAND = Blocks.SAND.getDefaultState();
+    private static final BlockState WATER = Blocks.WATER.getDefaultState();
+    private static final BlockState[] ORES = {
+        Blocks.COAL_ORE.getDefaultState(), Blocks.IRON_ORE.getDefaultState(),
+        Blocks.COPPER_ORE.getDefaultState(), Blocks.GOLD_ORE.getDefaultState()
+    };
+
+    private final long seed;
+    private final int bottomY, topY;
+    private final int seaLevel;
+    private final double amplitude;
+
+    /**
+     * @param bottomY lowest block (bedrock)
+     * @param topY one above the highest block
+     */
+    public NoiseTerrainSource(long seed, int bottomY, int topY) {
+        this.seed = seed;
+        this.bottomY = bottomY;
+        this.topY = topY;
+        this.seaLevel = bottomY + (topY - bottomY) / 2;
+        this.amplitude = (topY - bottomY) / 4.0;
+    }
+
+    public int getSeaLevel() {
+        return seaLevel;
+    }
+
+    /**
+     * Height of the top solid block in a column.
+     */
+    public int getSurfaceY(int x, int z) {
+        double height = noise(x / 48.0, z / 48.0, seed) * 0.75 + noise(x / 12.0, z / 12.0, seed + 1) * 0.25;
+        int surface = seaLevel + (int) Math.round((height * 2 - 1) * amplitude);
+        return Math.max(bottomY + 1, Math.min(topY - 1, surface));
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        if (y < bottomY || y >= topY) return AIR;
+        if (y == bottomY) return BEDROCK;
+
+        int surface = getSurfaceY(x, z);
+        if (y > surface) {
+            return y <= seaLevel ? WATER : AIR;
+        }
+        if (y == surface) {
+            return surface < seaLevel ? SAND : GRASS;
+        }
+        if (y > surface - 4) {
+            return surface < seaLevel ? SAND : DIRT;
+        }
+
+        long hash = hash(seed, x, y, z);
+        return (hash & 63) == 0 ? ORES[(int) ((hash >>> 6) & 3)] : STONE;
+    }
+
+    @Override
+    public boolean isLoaded(int x, int y, int z) {
+        return y >= bottomY && y < topY;
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        int fromY = sectionY << 4;
+        int highest = Math.max(seaLevel, (int) Math.ceil(seaLevel + amplitude));
+        return fromY > highest || fromY + 15 < bottomY || fromY >= topY;
+    }
+
+    /**
+     * Smoothly interpolated lattice noise in [0, 1].
+     */
+    private static double noise(double x, double z, long seed) {
+        int x0 = (int) Math.floor(x);
+        int z0 = (int) Math.floor(z);
+        double fx = smooth(x - x0);
+        double fz = smooth(z - z0);
+
+        double top = lerp(fx, lattice(seed, x0, z0), lattice(seed, x0 + 1, z0));
+        double bottom = lerp(fx, lattice(seed, x0, z0 + 1), lattice(seed, x0 + 1, z0 + 1));
+        return lerp(fz, top, bottom);
+    }
+
+    private static double lattice(long seed, int x, int z) {
+        return (hash(seed, x, 0, z) >>> 11) * 0x1.0p-53;
+    }
+
+    private static double smooth(double t) {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static double lerp(double t, double a, double b) {
+        return a + (b - a) * t;
+    }
+
+    private static long hash(long seed, int x, int y, int z) {
+        long hash = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL) ^ (z * 0x165667B19E3779F9L);
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,88 @@
+package measurementtools.modid.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sparse block source stored like the game stores chunks: 16x16x16 sections, each with
+ * its own palette and a short index per position. Sections are created on first write, so
+ * unbounded worlds with mostly air stay small, and empty sections are reported as such.
+ */
+public final class PalettedBlockSource implements BlockSource {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final Long2ObjectOpenHashMap<Section> sections = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Sets the state at a position. Null clears it to air.
+     */
+    public void set(int x, int y, int z, BlockState state) {
+        if (state == null) state = AIR;
+        long key = ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4);
+        Section section = sections.get(key);
+        if (section == null) {
+            if (state.isAir()) return;
+            section = new Section();
+            sections.put(key, section);
+        }
+        section.set(localIndex(x, y, z), state);
+        if (section.nonAirCount == 0) {
+            sections.remove(key);
+        }
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        Section section = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        return section != null ? section.get(localIndex(x, y, z)) : AIR;
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return !sections.containsKey(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    private static int localIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    /**
+     * One section's palette and indices. Palette entry 0 is always air.
+     */
+    private static final class Section {
+        private final List<BlockState> palette = new ArrayList<>(4);
+        private final short[] indices = new short[4096];
+        private int nonAirCount = 0;
+
+        Section() {
+            palette.add(AIR);
+        }
+
+        BlockState get(int index) {
+            return palette.get(indices[index]);
+        }
+
+        void set(int index, BlockState state) {
+            int entry = palette.indexOf(state);
+            if (entry < 0) {
+                entry = palette.size();
+                palette.add(state);
+            }
+
+            boolean wasAir = indices[index] == 0;
+            boolean isAir = entry == 0;
+            indices[index] = (short) entry;
+            if (wasAir && !isAir) nonAirCount++;
+            if (!wasAir && isAir) nonAirCount--;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package measurementtools.modid.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Block source reading a live world. Client thread only.
+ *
+ * The section of the last read is kept, so runs of reads within one section, which is how
+ * counting and copying walk the world, skip the chunk lookup and read the section directly.
+ * A source kept across ticks must have resetCache called at the start of every slice.
+ */
+public final class WorldBlockSource implements BlockSource {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final World world;
+    private long cachedSectionKey = Long.MIN_VALUE;
+    private ChunkSection cachedSection = null;
+
+    public WorldBlockSource(World world) {
+        this.world = world;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        ChunkSection section = section(x >> 4, y >> 4, z >> 4);
+        return section != null ? section.getBlockState(x & 15, y & 15, z & 15) : AIR;
+    }
+
+    @Override
+    public boolean isLoaded(int x, int y, int z) {
+        return !world.isOutOfHeightLimit(y) && world.isChunkLoaded(x >> 4, z >> 4);
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        ChunkSection section = section(sectionX, sectionY, sectionZ);
+        return section == null || section.isEmpty();
+    }
+
+    @Override
+    public void resetCache() {
+        cachedSectionKey = Long.MIN_VALUE;
+        cachedSection = null;
+    }
+
+    /**
+     * Gets a section of a loaded chunk, or null outside the world or in unloaded chunks.
+     */
+    private ChunkSection section(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        if (key == cachedSectionKey) return cachedSection;
+
+        ChunkSection section = null;
+        if (world.isChunkLoaded(sectionX, sectionZ)) {
+            WorldChunk chunk = world.getChunk(sectionX, sectionZ);
+            ChunkSection[] sections = chunk.getSectionArray();
+            int index = chunk.sectionCoordToIndex(sectionY);
+            if (index >= 0 && index < sections.length) {
+                section = sections[index];
+            }
+        }
+        cachedSectionKey = key;
+        cachedSection = section;
+        return section;
+    }
+}
@@ -0,0 +1,90 @@
+package measurementtools.modid.benchmark;
+
+import measurementtools.modid.BlockCounter;
+import measurementtools.modid.shapes.ShapeMask;
+import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.shapes.ShapeParameters;
+import measurementtools.modid.world.BlockSource;
+import measurementtools.modid.world.DenseBlockSource;
+import measurementtools.modid.world.NoiseTerrainSource;
+import measurementtools.modid.world.PalettedBlockSource;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block counting over synthetic terrain, for boxes and for masked shapes, with the
+ * terrain read through each kind of in-memory block source.
+ *
+ * Selections are given as a shape mode with an optional tube radius after a slash, e.g.
+ * "SPLINE/4". Only splines and lines have a tube, so the radius is not crossed with the
+ * other shapes, where it would just repeat the same measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockCountBenchmark {
+    @Param({"RECTANGLE", "CYLINDER", "ELLIPSOID", "SPLINE", "SPLINE/4", "LINE", "LINE/4"})
+    public String selection;
+
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"DENSE", "PALETTED", "NOISE"})
+    public String source;
+
+    private BlockSource blocks;
+    private ShapeParameters shape;
+    private ShapeMask mask;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Selections.bootstrap();
+        NoiseTerrainSource terrain = new NoiseTerrainSource(42L, -8, size + 8);
+        BlockPos min = new BlockPos(-8, -8, -8);
+        BlockPos max = new BlockPos(size + 8, size + 7, size + 8);
+        blocks = switch (source) {
+            case "DENSE" -> DenseBlockSource.copyOf(terrain, min, max);
+            case "PALETTED" -> copyPaletted(terrain, min, max);
+            default -> terrain;
+        };
+        int slash = selection.indexOf('/');
+        ShapeMode mode = ShapeMode.valueOf(slash < 0 ? selection : selection.substring(0, slash));
+        int tubeRadius = slash < 0 ? 0 : Integer.parseInt(selection.substring(slash + 1));
+        shape = Selections.shape(mode, size, tubeRadius);
+        mask = ShapeMask.fromSelection(shape);
+    }
+
+    private static PalettedBlockSource copyPaletted(BlockSource from, BlockPos min, BlockPos max) {
+        PalettedBlockSource copy = new PalettedBlockSource();
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    copy.set(x, y, z, from.getBlockState(x, y, z));
+                }
+            }
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public Map<Block, Integer> countSelection() {
+        return BlockCounter.getInstance().countBlocks(blocks, mask, shape.getMinPos(), shape.getMaxPos());
+    }
+
+    @Benchmark
+    public ShapeMask rasterizeSelection() {
+        return ShapeMask.fromSelection(shape);
+    }
+}
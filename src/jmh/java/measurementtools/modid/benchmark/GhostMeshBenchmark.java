@@ -0,0 +1,52 @@
+package measurementtools.modid.benchmark;
+
+import measurementtools.modid.clipboard.PalettedBlockVolume;
+import measurementtools.modid.clipboard.SectionCopyTask;
+import measurementtools.modid.world.NoiseTerrainSource;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghost preview preparation: rotating a copied volume and finding its exposed blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GhostMeshBenchmark {
+    @Param({"16", "48"})
+    public int size;
+
+    private PalettedBlockVolume volume;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Selections.bootstrap();
+        // Copy terrain the way the clipboard does, in one unbounded step
+        SectionCopyTask copy = new SectionCopyTask(new NoiseTerrainSource(7L, 0, size),
+            BlockPos.ORIGIN, new BlockPos(size - 1, size - 1, size - 1), null);
+        copy.step(Long.MAX_VALUE);
+        volume = copy.getTarget();
+    }
+
+    @Benchmark
+    public Map<BlockPos, BlockState> exposedBlocks() {
+        return volume.collectExposedBlocks();
+    }
+
+    @Benchmark
+    public Map<BlockPos, BlockState> rotatedExposedBlocks() {
+        return volume.rotated(1).collectExposedBlocks();
+    }
+}
@@ -0,0 +1,53 @@
+package measurementtools.modid.benchmark;
+
+import measurementtools.modid.render.HollowBlockCalculator;
+import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.shapes.ShapeParameters;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hollow-mode shell extraction for every shape, including spline and line tubes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HollowShellBenchmark {
+    @Param({"RECTANGLE", "CYLINDER", "ELLIPSOID", "SPLINE", "LINE"})
+    public ShapeMode mode;
+
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"0", "2", "5"})
+    public int tubeRadius;
+
+    private ShapeParameters shape;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Selections.bootstrap();
+        shape = Selections.shape(mode, size, tubeRadius);
+    }
+
+    @Benchmark
+    public Set<BlockPos> fullShell() {
+        return HollowBlockCalculator.calculateHollowBlocks(shape, -1);
+    }
+
+    @Benchmark
+    public Set<BlockPos> singleLayer() {
+        return HollowBlockCalculator.calculateHollowBlocks(shape, size / 2);
+    }
+}
@@ -0,0 +1,62 @@
+package measurementtools.modid.benchmark;
+
+import measurementtools.modid.shapes.EllipsoidMode;
+import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.shapes.ShapeParameters;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared setup for benchmarks: registry bootstrap and the selections each shape is measured on.
+ */
+final class Selections {
+    private static boolean bootstrapped = false;
+
+    private Selections() {}
+
+    /**
+     * Initializes the block registries so states can be created outside the game.
+     */
+    static synchronized void bootstrap() {
+        if (bootstrapped) return;
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        bootstrapped = true;
+    }
+
+    /**
+     * Points that make a shape of about size blocks across in each direction, starting at the origin.
+     * Boxes, cylinders and ellipsoids use opposite corners; splines and lines wind up and across.
+     */
+    static List<BlockPos> pointsFor(ShapeMode mode, int size) {
+        List<BlockPos> points = new ArrayList<>();
+        int last = size - 1;
+        switch (mode) {
+            case RECTANGLE, CYLINDER, ELLIPSOID -> {
+                points.add(new BlockPos(0, 0, 0));
+                points.add(new BlockPos(last, last, last));
+            }
+            case SPLINE, LINE -> {
+                int segments = 6;
+                for (int i = 0; i <= segments; i++) {
+                    int x = last * i / segments;
+                    int y = (i & 1) == 0 ? last / 4 : last * 3 / 4;
+                    int z = (i & 2) == 0 ? 0 : last;
+                    points.add(new BlockPos(x, y, z));
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Shape parameters for a shape of about size blocks across.
+     */
+    static ShapeParameters shape(ShapeMode mode, int size, int tubeRadius) {
+        return ShapeParameters.of(mode, pointsFor(mode, size), tubeRadius, 0, EllipsoidMode.FIT_TO_BOX);
+    }
+}
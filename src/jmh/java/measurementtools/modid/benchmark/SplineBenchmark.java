@@ -0,0 +1,65 @@
+package measurementtools.modid.benchmark;
+
+import measurementtools.modid.shapes.ShapeMode;
+import measurementtools.modid.util.ArcLengthSpline;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spline table construction and the per-point queries made by renderers and rasterizers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SplineBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    private List<BlockPos> points;
+    private ArcLengthSpline spline;
+    private final double[] scratch = new double[3];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Selections.bootstrap();
+        points = Selections.pointsFor(ShapeMode.SPLINE, size);
+        spline = ArcLengthSpline.of(points);
+    }
+
+    @Benchmark
+    public ArcLengthSpline buildTable() {
+        return ArcLengthSpline.of(points);
+    }
+
+    @Benchmark
+    public void evenlySpacedPoints(Blackhole blackhole) {
+        double length = spline.getLength();
+        for (int i = 0; i <= QUERIES; i++) {
+            spline.pointAt(spline.parameterAtDistance(length * i / QUERIES), scratch);
+            blackhole.consume(scratch[0] + scratch[1] + scratch[2]);
+        }
+    }
+
+    @Benchmark
+    public double minDistance() {
+        double sum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            sum += spline.getMinDistance(i % size + 0.5, size / 2.0, (i * 7) % size + 0.5);
+        }
+        return sum;
+    }
+}